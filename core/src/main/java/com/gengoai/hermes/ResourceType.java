@@ -82,9 +82,9 @@ public enum ResourceType {
       }
    },
    /**
-    * Caduceus programs
+    * Caduceus programs (source or compiled)
     */
-   CADUCEUS("caduceus", ".cg") {
+   CADUCEUS("caduceus", CaduceusProgram.SOURCE_EXTENSION, CaduceusProgram.COMPILED_EXTENSION) {
       @Override
       public <T> T load(@NonNull String configKey, @NonNull String resourceName, @NonNull Language language) {
          return Cast.as(locate(configKey, resourceName, language)
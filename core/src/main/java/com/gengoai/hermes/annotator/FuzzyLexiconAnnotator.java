@@ -34,6 +34,7 @@ import com.gengoai.hermes.lexicon.Lexicon;
 import com.gengoai.hermes.lexicon.LexiconEntry;
 import com.gengoai.hermes.lexicon.LexiconManager;
 import com.gengoai.hermes.lexicon.LexiconMatch;
+import com.gengoai.hermes.lexicon.SpanScorer;
 import com.gengoai.string.Strings;
 import lombok.NonNull;
 
@@ -183,37 +184,53 @@ public class FuzzyLexiconAnnotator extends ViterbiAnnotator {
 
    @Override
    protected LexiconEntry scoreSpan(HString span) {
-      LexiconEntry entry = lexicon.match(span)
-                                  .stream()
-                                  .findFirst()
-                                  .orElse(null);
+      Annotation[] tokens = span.tokens().toArray(new Annotation[0]);
+      if(tokens.length == 0) {
+         return LexiconEntry.empty();
+      }
+      return scoreSpan(tokens, 0, tokens.length);
+   }
 
-      if(entry != null) {
-         return entry;
+   @Override
+   protected LexiconEntry scoreSpan(Annotation[] tokens, int start, int end) {
+      final int length = end - start;
+      //Exact matches cannot have more tokens than the longest lexicon entry
+      if(lexicon.getMaxTokenLength() <= 0 || length <= lexicon.getMaxTokenLength()) {
+         LexiconEntry entry = lexicon.match(SpanScorer.toHString(tokens, start, end))
+                                     .stream()
+                                     .findFirst()
+                                     .orElse(null);
+         if(entry != null) {
+            return entry;
+         }
       }
 
-      if(span.tokenLength() > 2) {
-         List<Annotation> tokens = span.tokens();
-         int TL = tokens.size() - 1;
+      if(length > 2) {
+         int TL = end - 1;
          Set<String[]> candidates;
 
          if(lexicon.isCaseSensitive()) {
-            candidates = Sets.union(getCandidates(tokens.get(0).toString(),
-                                                  tokens.get(TL).toString()),
-                                    getCandidates(tokens.get(0).getLemma(),
-                                                  tokens.get(TL).getLemma()));
+            candidates = Sets.union(getCandidates(tokens[start].toString(),
+                                                  tokens[TL].toString()),
+                                    getCandidates(tokens[start].getLemma(),
+                                                  tokens[TL].getLemma()));
          } else {
-            candidates = Sets.union(getCandidates(tokens.get(0).toString().toLowerCase(),
-                                                  tokens.get(TL).toString().toLowerCase()),
-                                    getCandidates(tokens.get(0).getLemma().toLowerCase(),
-                                                  tokens.get(TL).getLemma().toLowerCase()));
+            candidates = Sets.union(getCandidates(tokens[start].toString().toLowerCase(),
+                                                  tokens[TL].toString().toLowerCase()),
+                                    getCandidates(tokens[start].getLemma().toLowerCase(),
+                                                  tokens[TL].getLemma().toLowerCase()));
+         }
+
+         if(candidates.isEmpty()) {
+            return LexiconEntry.empty();
          }
 
+         List<Annotation> span = Arrays.asList(tokens).subList(start, end);
          String[] bestCandidate = null;
          double minDist = Double.POSITIVE_INFINITY;
          for(String[] candidate : candidates) {
-            if(candidate.length < tokens.size()) {
-               double d = distance(tokens, candidate);
+            if(candidate.length < length) {
+               double d = distance(span, candidate);
                if(d < minDist) {
                   minDist = d;
                   bestCandidate = candidate;
@@ -223,7 +240,7 @@ public class FuzzyLexiconAnnotator extends ViterbiAnnotator {
 
          if(minDist <= maxDistance && bestCandidate != null) {
             String matchedString = Strings.join(bestCandidate,
-                                                span.getLanguage().usesWhitespace()
+                                                tokens[start].getLanguage().usesWhitespace()
                                                 ? " "
                                                 : Strings.EMPTY);
             double score = lexicon.getProbability(Fragments.stringWrapper(matchedString)) / (0.1 + minDist);
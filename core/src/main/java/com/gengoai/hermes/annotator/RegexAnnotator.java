@@ -25,15 +25,22 @@ import com.gengoai.Language;
 import com.gengoai.hermes.AnnotatableType;
 import com.gengoai.hermes.AnnotationType;
 import com.gengoai.hermes.Document;
+import com.gengoai.hermes.extraction.regex.RegexSet;
 import lombok.NonNull;
 
-import java.util.Collections;
-import java.util.Set;
+import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
+ * <p>
  * Annotator that constructs annotations based on regular expression matches. Matches are performed on word boundaries.
+ * </p>
+ * <p>
+ * In set mode, created by passing a map of patterns to annotation types, all patterns are compiled into a single
+ * {@link RegexSet} so that the document is scanned once regardless of the number of patterns. Note that the
+ * {@link RegexSet} uses leftmost-longest matching semantics.
+ * </p>
  *
  * @author David B. Bracewell
  */
@@ -41,6 +48,8 @@ public class RegexAnnotator extends Annotator {
    private static final long serialVersionUID = 1L;
    private final Pattern regex;
    private final AnnotationType providedType;
+   private final RegexSet regexSet;
+   private final AnnotationType[] providedTypes;
 
    /**
     * Instantiates a new RegexAnnotator.
@@ -49,6 +58,30 @@ public class RegexAnnotator extends Annotator {
     * @param providedType the annotation type to use for constructed annotations.
     */
    public RegexAnnotator(@NonNull String regex, @NonNull AnnotationType providedType) {
+      this.regex = Pattern.compile(withBoundaries(regex));
+      this.providedType = providedType;
+      this.regexSet = null;
+      this.providedTypes = null;
+   }
+
+   /**
+    * Instantiates a new RegexAnnotator in set mode, where all patterns are matched in a single pass over the document.
+    *
+    * @param patterns map of regular expression to the annotation type to use for its matches
+    */
+   public RegexAnnotator(@NonNull Map<String, AnnotationType> patterns) {
+      List<String> regexes = new ArrayList<>();
+      this.providedTypes = new AnnotationType[patterns.size()];
+      patterns.forEach((regex, type) -> {
+         providedTypes[regexes.size()] = type;
+         regexes.add(withBoundaries(regex));
+      });
+      this.regexSet = RegexSet.compile(regexes);
+      this.regex = null;
+      this.providedType = null;
+   }
+
+   private static String withBoundaries(String regex) {
       regex = regex.strip();
       if(!regex.startsWith("\\b")) {
          regex = "\\b" + regex;
@@ -56,8 +89,7 @@ public class RegexAnnotator extends Annotator {
       if(!regex.endsWith("\\b")) {
          regex += "\\b";
       }
-      this.regex = Pattern.compile(regex);
-      this.providedType = providedType;
+      return regex;
    }
 
    /**
@@ -72,6 +104,13 @@ public class RegexAnnotator extends Annotator {
 
    @Override
    protected void annotateImpl(@NonNull Document document) {
+      if(regexSet != null) {
+         regexSet.find(document.toString(), (pattern, start, end) -> document.createAnnotation(providedTypes[pattern],
+                                                                                              start,
+                                                                                              end,
+                                                                                              Collections.emptyMap()));
+         return;
+      }
       Matcher matcher = document.matcher(regex);
       while(matcher.find()) {
          document.createAnnotation(providedType, matcher.start(), matcher.end(), Collections.emptyMap());
@@ -80,11 +119,21 @@ public class RegexAnnotator extends Annotator {
 
    @Override
    public String getProvider(Language language) {
+      if(regexSet != null) {
+         StringJoiner joiner = new StringJoiner(", ", "(", ")");
+         for(int i = 0; i < regexSet.size(); i++) {
+            joiner.add(regexSet.pattern(i));
+         }
+         return joiner.toString();
+      }
       return "(" + regex.pattern() + ")";
    }
 
    @Override
    public Set<AnnotatableType> satisfies() {
+      if(regexSet != null) {
+         return new HashSet<>(Arrays.asList(providedTypes));
+      }
       return Collections.singleton(providedType);
    }
 
@@ -33,7 +33,14 @@ import static com.gengoai.LogUtils.logSevere;
  * An annotator that provides its annotation by annotating for sub-types. During creation of the annotator
  * "non-overlapping" mode can specified which will not allow overlapping sub-type annotations. The best annotation is
  * determined first on confidence of annotation and then on number of tokens matched. This behavior can be overidden in
- * child classes by overriding the protected {@link #compare(Annotation, Annotation)} method.
+ * child classes by overriding the protected {@link #compare(Annotation, Annotation)} method. Annotations that are
+ * equally good are ordered by the order of the sub-types and then by their position in the document, with the earlier
+ * annotation being preferred.
+ * <p>
+ * Overlaps are resolved by sweeping the annotations sorted by their start offset, grouping them into clusters of
+ * transitively overlapping annotations, and then repeatedly keeping the best annotation in the cluster (via a priority
+ * heap) and removing those that overlap an already kept annotation.
+ * </p>
  *
  * @author David B. Bracewell
  */
@@ -64,7 +71,7 @@ public class SubTypeAnnotator extends Annotator {
          }
       }
       this.annotationType = annotationType;
-      this.subTypes = new HashSet<>(subTypes);
+      this.subTypes = new LinkedHashSet<>(subTypes);
       this.nonOverlapping = nonOverlapping;
    }
 
@@ -84,27 +91,51 @@ public class SubTypeAnnotator extends Annotator {
    protected final void annotateImpl(Document document) {
       subTypes.forEach(document::annotate);
       if(nonOverlapping) {
-         List<Annotation> annotations = getAnnotations(document);
-         for(Annotation a : annotations) {
-            //Make sure the annotation is still on the document
-            if(!document.contains(a)) {
-               continue;
-            }
-            //Go through all overlapping annotations
-            for(Annotation a2 : getAnnotations(a)) {
-               //Ignore itself
-               if(a == a2) {
-                  continue;
-               }
-               //Remove one
-               if(a == compare(a, a2)) {
-                  document.remove(a2);
-               } else {
-                  //Removed itself so stop processing it
-                  document.remove(a);
-                  break;
-               }
-            }
+         removeOverlapping(document);
+      }
+   }
+
+   private void removeOverlapping(Document document) {
+      //The position in the candidate list breaks ties between equally good annotations
+      final Map<Annotation, Integer> order = new IdentityHashMap<>();
+      for(Annotation annotation : getAnnotations(document)) {
+         order.putIfAbsent(annotation, order.size());
+      }
+      final List<Annotation> candidates = new ArrayList<>(order.keySet());
+      candidates.sort(Comparator.comparingInt(Annotation::start).thenComparing(order::get));
+      final PriorityQueue<Annotation> cluster = new PriorityQueue<>((a1, a2) -> {
+         if(a1 == a2) {
+            return 0;
+         }
+         Annotation best = compare(a1, a2);
+         if(best == compare(a2, a1)) {
+            return best == a1
+                   ? -1
+                   : 1;
+         }
+         return Integer.compare(order.get(a1), order.get(a2));
+      });
+      int clusterEnd = Integer.MIN_VALUE;
+      for(Annotation annotation : candidates) {
+         if(annotation.start() >= clusterEnd) {
+            resolveCluster(document, cluster);
+         }
+         cluster.add(annotation);
+         clusterEnd = Math.max(clusterEnd, annotation.end());
+      }
+      resolveCluster(document, cluster);
+   }
+
+   private void resolveCluster(Document document, PriorityQueue<Annotation> cluster) {
+      //Kept annotations do not overlap, so only the one starting closest before the candidate's end needs checking
+      final TreeMap<Integer, Annotation> kept = new TreeMap<>();
+      while(!cluster.isEmpty()) {
+         Annotation annotation = cluster.poll();
+         Map.Entry<Integer, Annotation> before = kept.lowerEntry(annotation.end());
+         if(before != null && before.getValue().end() > annotation.start()) {
+            document.remove(annotation);
+         } else {
+            kept.put(annotation.start(), annotation);
          }
       }
    }
@@ -26,13 +26,14 @@ import com.gengoai.hermes.Document;
 import com.gengoai.hermes.HString;
 import com.gengoai.hermes.lexicon.LexiconEntry;
 import com.gengoai.hermes.lexicon.LexiconMatch;
-
-import java.util.List;
+import com.gengoai.hermes.lexicon.SpanScorer;
+import com.gengoai.hermes.lexicon.ViterbiDecoder;
 
 /**
  * <p>An abstract base annotator that uses the Viterbi algorithm to find text items in a document. Child classes
  * implement the <code>scoreSpan</code> and <code>createAndAttachAnnotation</code> methods to score individual spans and
- * attach to the document. Child implementations may also override <code>combineScore</code> to change how scores are
+ * attach to the document. Spans are identified by token indices and only the spans in the best segmentation are
+ * materialized. Child implementations may also override <code>combineScore</code> to change how scores are
  * combined, by default they  are multiplied.</p>
  *
  * @author David B. Bracewell
@@ -52,32 +53,12 @@ public abstract class ViterbiAnnotator extends SentenceLevelAnnotator {
 
    @Override
    protected final void annotate(Annotation sentence) {
-      List<Annotation> tokens = sentence.tokens();
-      int n = tokens.size();
-      int maxLen = maxSpanSize > 0
-                   ? maxSpanSize
-                   : n;
-      LexiconMatch[] matches = new LexiconMatch[n + 1];
-      double[] best = new double[n + 1];
-      best[0] = 1.0;
-
-      for(int i = 1; i <= n; i++) {
-         for(int j = i - 1; j >= 0 && j >= (i - maxLen); j--) {
-            int w = i - j;
-            HString span = HString.union(tokens.subList(j, i));
-            LexiconEntry score = scoreSpan(span);
-            double segmentScore = combineScore(best[i - w], score.getProbability());
-            if(segmentScore >= best[i]) {
-               best[i] = segmentScore;
-               matches[i] = new LexiconMatch(span, score);
-            }
-         }
-      }
-      int i = n;
-      while(i > 0) {
-         createAndAttachAnnotation(sentence.document(), matches[i]);
-         i = i - matches[i].getSpan().tokenLength();
-      }
+      final Annotation[] tokens = sentence.tokens().toArray(new Annotation[0]);
+      final Document document = sentence.document();
+      ViterbiDecoder.decode(tokens, maxSpanSize, 1.0, this::scoreSpan, this::combineScore, (start, end, entry) -> {
+         HString span = SpanScorer.toHString(tokens, start, end);
+         createAndAttachAnnotation(document, new LexiconMatch(span, entry));
+      });
    }
 
    /**
@@ -108,4 +89,18 @@ public abstract class ViterbiAnnotator extends SentenceLevelAnnotator {
     */
    protected abstract LexiconEntry scoreSpan(HString span);
 
+   /**
+    * Scores the span of tokens <code>[start, end)</code>. By default, the span is materialized as an {@link HString}
+    * and scored using {@link #scoreSpan(HString)}. Child classes should override this method when spans can be scored
+    * (or rejected) directly from the tokens.
+    *
+    * @param tokens the tokens of the sentence
+    * @param start  the index of the first token in the span
+    * @param end    the index one past the last token in the span
+    * @return The score of the span
+    */
+   protected LexiconEntry scoreSpan(Annotation[] tokens, int start, int end) {
+      return scoreSpan(SpanScorer.toHString(tokens, start, end));
+   }
+
 }//END OF ViterbiAnnotator
@@ -0,0 +1,246 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.corpus;
+
+import com.gengoai.Validation;
+import com.gengoai.collection.counter.Counter;
+import com.gengoai.collection.counter.Counters;
+import lombok.NonNull;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Estimates the counts of the most frequent keys in fixed memory. Counts are kept in a Count-Min Sketch, whose
+ * estimates never undercount and overcount by at most <code>epsilon * total</code> with probability <code>1 -
+ * delta</code>, where <code>total</code> is the sum of all counts added. Alongside the sketch a Misra-Gries summary
+ * of <code>ceil(1 / epsilon)</code> (at least <code>k</code>) candidate heavy hitters is kept. The top <code>k</code>
+ * keys are the candidates with the highest estimates in the sketch.
+ * </p>
+ * <p>
+ * The Misra-Gries summary guarantees that every key whose true count exceeds <code>epsilon * total</code> is a
+ * candidate, no matter how the counts were split across merged counters. Keys below that count may be dropped from the
+ * summary, so when the counts around the <code>k</code>-th key are within <code>epsilon * total</code> of each other
+ * the reported keys may differ from the true top <code>k</code>. The estimates of reported keys are always those of the
+ * sketch.
+ * </p>
+ * <p>
+ * Counters are mergeable, which allows them to be built per document or partition and reduced across threads or
+ * executors. Counters are small while few keys are added: counts are kept exactly until the number of distinct keys
+ * grows past a fraction of the size of the sketch, at which point the sketch is allocated. Counters built with the same
+ * <code>k</code>, <code>epsilon</code>, and <code>delta</code> can be merged, as the hash functions depend only on
+ * the key's <code>hashCode</code>, which therefore must be stable across JVMs as is the case for Strings.
+ * </p>
+ *
+ * @param <K> the key type
+ * @author David B. Bracewell
+ */
+public final class ApproximateCounter<K> implements Serializable {
+   private static final long serialVersionUID = 1L;
+   private final int k;
+   private final double epsilon;
+   private final double delta;
+   private final int width;
+   private final int depth;
+   private final int capacity;
+   private final Map<K, Double> candidates = new HashMap<>();
+   private Map<K, Double> exact = new HashMap<>();
+   private double[] table;
+   private double total = 0;
+
+   /**
+    * Instantiates a new ApproximateCounter.
+    *
+    * @param k       the number of most frequent keys to report
+    * @param epsilon the maximum overcount relative to the total count
+    * @param delta   the probability of an estimate exceeding the maximum overcount
+    */
+   public ApproximateCounter(int k, double epsilon, double delta) {
+      Validation.checkArgument(k > 0, "K must be greater than 0");
+      Validation.checkArgument(epsilon > 0 && epsilon < 1, "Epsilon must be in (0, 1)");
+      Validation.checkArgument(delta > 0 && delta < 1, "Delta must be in (0, 1)");
+      this.k = k;
+      this.epsilon = epsilon;
+      this.delta = delta;
+      this.width = (int) Math.ceil(Math.E / epsilon);
+      this.depth = (int) Math.ceil(Math.log(1 / delta));
+      this.capacity = Math.max(k, (int) Math.ceil(1 / epsilon));
+   }
+
+   private static long mix(long hash) {
+      hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+      hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+      return hash ^ (hash >>> 33);
+   }
+
+   /**
+    * Gets the probability that an estimate is within the {@link #errorBound()}.
+    *
+    * @return the confidence, which is 1 if the counts are exact
+    */
+   public double confidence() {
+      return table == null
+             ? 1
+             : 1 - delta;
+   }
+
+   /**
+    * Gets the maximum amount by which an estimated count may exceed the true count. Estimates never undercount.
+    *
+    * @return the error bound, which is 0 if the counts are exact
+    */
+   public double errorBound() {
+      return table == null
+             ? 0
+             : epsilon * total;
+   }
+
+   /**
+    * Estimates the count of the given key.
+    *
+    * @param key the key
+    * @return the estimated count
+    */
+   public double estimate(@NonNull K key) {
+      if(table == null) {
+         return exact.getOrDefault(key, 0d);
+      }
+      long hash = mix(key.hashCode());
+      double min = Double.POSITIVE_INFINITY;
+      for(int row = 0; row < depth; row++) {
+         min = Math.min(min, table[index(hash, row)]);
+      }
+      return min;
+   }
+
+   /**
+    * Increments the count of the given key by the given amount.
+    *
+    * @param key    the key
+    * @param amount the amount to increment by, which must be non-negative
+    */
+   public void increment(@NonNull K key, double amount) {
+      Validation.checkArgument(amount >= 0, "Amount must be non-negative");
+      total += amount;
+      if(table == null) {
+         exact.merge(key, amount, Double::sum);
+         if(exact.size() > width * depth / 8) {
+            allocate();
+         }
+      } else {
+         add(key, amount);
+         offer(key, amount);
+      }
+   }
+
+   /**
+    * Merges the given counter into this one. The given counter must have been created with the same parameters.
+    *
+    * @param other the counter to merge
+    * @return this counter
+    */
+   public ApproximateCounter<K> merge(@NonNull ApproximateCounter<K> other) {
+      Validation.checkArgument(k == other.k && width == other.width && depth == other.depth,
+                               "Counters must have the same parameters to be merged");
+      if(other.table == null) {
+         other.exact.forEach(this::increment);
+         return this;
+      }
+      if(table == null) {
+         allocate();
+      }
+      total += other.total;
+      for(int i = 0; i < table.length; i++) {
+         table[i] += other.table[i];
+      }
+      //Misra-Gries summaries merge by summing their counters and reducing back to capacity
+      other.candidates.forEach(this::offer);
+      return this;
+   }
+
+   /**
+    * Gets the estimated counts of the top <code>k</code> keys. Only candidate heavy hitters are reported, so fewer than
+    * <code>k</code> keys are returned when the counts are spread too thinly for more keys to remain candidates.
+    *
+    * @return the counter of keys and their estimated counts
+    */
+   public Counter<K> topK() {
+      if(table == null) {
+         return Counters.newCounter(exact).topN(k);
+      }
+      Map<K, Double> estimates = new HashMap<>();
+      candidates.keySet().forEach(key -> estimates.put(key, estimate(key)));
+      return Counters.newCounter(estimates).topN(k);
+   }
+
+   /**
+    * Gets the sum of all counts added to the counter.
+    *
+    * @return the total count
+    */
+   public double total() {
+      return total;
+   }
+
+   private void add(K key, double amount) {
+      long hash = mix(key.hashCode());
+      for(int row = 0; row < depth; row++) {
+         table[index(hash, row)] += amount;
+      }
+   }
+
+   private void allocate() {
+      table = new double[width * depth];
+      exact.forEach((key, count) -> {
+         add(key, count);
+         offer(key, count);
+      });
+      exact = new HashMap<>();
+   }
+
+   private int index(long hash, int row) {
+      //Kirsch-Mitzenmacher double hashing to derive the row hashes from a single 64-bit hash
+      int h = (int) hash + row * (int) (hash >>> 32);
+      return row * width + ((h & Integer.MAX_VALUE) % width);
+   }
+
+   private void offer(K key, double amount) {
+      if(amount <= 0) {
+         return;
+      }
+      candidates.merge(key, amount, Double::sum);
+      if(candidates.size() > 2 * capacity) {
+         //Subtract the (capacity + 1)-th largest count from every counter and drop those that are no longer positive.
+         //At least capacity + 1 counters are decremented by the same amount each time, so no key's counter falls short
+         //of its true count by more than total / (capacity + 1), amortizing the cost over the next capacity insertions.
+         double[] values = candidates.values().stream().mapToDouble(Double::doubleValue).toArray();
+         Arrays.sort(values);
+         double decrement = values[values.length - capacity - 1];
+         candidates.replaceAll((candidate, count) -> count - decrement);
+         candidates.values().removeIf(count -> count <= 0);
+      }
+   }
+
+}//END OF ApproximateCounter
@@ -27,6 +27,7 @@ import com.gengoai.collection.counter.Counter;
 import com.gengoai.conversion.Cast;
 import com.gengoai.function.SerializableConsumer;
 import com.gengoai.hermes.*;
+import com.gengoai.hermes.extraction.Extractor;
 import com.gengoai.hermes.extraction.caduceus.CaduceusProgram;
 import com.gengoai.hermes.extraction.regex.TokenMatch;
 import com.gengoai.hermes.extraction.regex.TokenRegex;
@@ -42,6 +43,7 @@ import lombok.NonNull;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
@@ -184,6 +186,25 @@ public interface Corpus extends DocumentCollection {
       return parallelStream().map(Document::getId).sorted(true).collect();
    }
 
+   /**
+    * Gets the number of documents in which each token occurs, with tokens case-folded as done by {@link
+    * com.gengoai.hermes.extraction.regex.Prefilter#fold(CharSequence)}. The counts are read from the corpus index
+    * without decoding documents. Only documents whose tokens were indexed are counted, see {@link
+    * #getTokenIndexedSize()}.
+    *
+    * @return A Counter over the case-folded tokens and their document frequencies.
+    */
+   Counter<String> getTokenDocumentCount();
+
+   /**
+    * Gets the number of documents whose tokens are indexed and therefore counted by {@link #getTokenDocumentCount()}.
+    * This is less than the size of the corpus when documents were indexed before token document frequencies were
+    * stored.
+    *
+    * @return the number of documents with indexed tokens
+    */
+   long getTokenIndexedSize();
+
    /**
     * Imports documents from the given document collection specification.
     *
@@ -198,6 +219,25 @@ public interface Corpus extends DocumentCollection {
       return this;
    }
 
+   /**
+    * Imports documents from the given document collection specification and then removes near-duplicate documents
+    * from the corpus (see {@link #removeNearDuplicates(double, Extractor)}), including duplicates of documents that were
+    * already in the corpus.
+    *
+    * @param specification      the document format specification with path to documents.
+    * @param duplicateThreshold the minimum Jaccard similarity of near-duplicate documents
+    * @param shingleExtractor   the extractor generating the shingles of a document
+    * @return the corpus
+    * @throws IOException Something went wrong loading the documents
+    */
+   default Corpus importDocuments(@NonNull String specification,
+                                  double duplicateThreshold,
+                                  @NonNull Extractor shingleExtractor) throws IOException {
+      importDocuments(specification);
+      removeNearDuplicates(duplicateThreshold, shingleExtractor);
+      return this;
+   }
+
    /**
     * Processes the corpus using the given {@link SequentialWorkflow}
     *
@@ -226,6 +266,29 @@ public interface Corpus extends DocumentCollection {
     */
    boolean remove(String id);
 
+   /**
+    * Removes near-duplicate documents from the corpus keeping the document with the smallest id of each cluster found
+    * by {@link #nearDuplicates(double, Extractor)}.
+    *
+    * @param threshold        the minimum Jaccard similarity of near-duplicate documents
+    * @param shingleExtractor the extractor generating the shingles of a document
+    * @return the number of documents removed
+    */
+   default long removeNearDuplicates(double threshold, @NonNull Extractor shingleExtractor) {
+      long removed = 0;
+      for(Set<String> cluster : nearDuplicates(threshold, shingleExtractor)) {
+         Iterator<String> ids = cluster.iterator();
+         //Clusters are sorted, so the first id is the one to keep
+         ids.next();
+         while(ids.hasNext()) {
+            if(remove(ids.next())) {
+               removed++;
+            }
+         }
+      }
+      return removed;
+   }
+
    @Override
    default Corpus repartition(int numPartitions) {
       return this;
@@ -19,14 +19,12 @@
 
 package com.gengoai.hermes.corpus;
 
+import com.gengoai.Validation;
 import com.gengoai.apollo.math.statistics.measure.Association;
-import com.gengoai.apollo.math.statistics.measure.ContingencyTable;
 import com.gengoai.apollo.math.statistics.measure.ContingencyTableCalculator;
 import com.gengoai.apollo.ml.DataSet;
 import com.gengoai.collection.counter.Counter;
-import com.gengoai.collection.multimap.ArrayListMultimap;
-import com.gengoai.collection.multimap.ListMultimap;
-import com.gengoai.collection.multimap.Multimap;
+import com.gengoai.config.Config;
 import com.gengoai.function.SerializableConsumer;
 import com.gengoai.function.SerializableFunction;
 import com.gengoai.function.SerializablePredicate;
@@ -35,6 +33,7 @@ import com.gengoai.hermes.AnnotationPipeline;
 import com.gengoai.hermes.Document;
 import com.gengoai.hermes.HString;
 import com.gengoai.hermes.extraction.Extractor;
+import com.gengoai.hermes.extraction.NGramCounter;
 import com.gengoai.hermes.extraction.NGramExtractor;
 import com.gengoai.hermes.extraction.caduceus.CaduceusProgram;
 import com.gengoai.hermes.extraction.regex.TokenMatch;
@@ -44,23 +43,27 @@ import com.gengoai.hermes.format.DocFormat;
 import com.gengoai.hermes.format.DocFormatService;
 import com.gengoai.hermes.lexicon.Lexicon;
 import com.gengoai.hermes.ml.HStringDataSetGenerator;
+import com.gengoai.hermes.similarity.MinHashLSH;
 import com.gengoai.io.Resources;
 import com.gengoai.parsing.ParseException;
 import com.gengoai.specification.Specification;
 import com.gengoai.stream.MCounterAccumulator;
+import com.gengoai.stream.MPairStream;
 import com.gengoai.stream.MStream;
 import com.gengoai.stream.StreamingContext;
 import com.gengoai.tuple.Tuple;
+import com.gengoai.tuple.Tuple0;
+import com.gengoai.tuple.Tuple2;
 import lombok.NonNull;
 
 import java.io.IOException;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Random;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 import static com.gengoai.collection.counter.Counters.newCounter;
+import static com.gengoai.tuple.Tuples.$;
 
 /**
  * <p>
@@ -76,6 +79,16 @@ import static com.gengoai.collection.counter.Counters.newCounter;
  * </p>
  */
 public interface DocumentCollection extends Iterable<Document>, AutoCloseable {
+   /**
+    * Configuration option for setting the maximum number of keys held in memory when counting terms or n-grams with a
+    * minimum count before the counts are spilled to disk
+    */
+   String COUNT_BUFFER_SIZE = "Corpus.countBufferSize";
+   /**
+    * Configuration option for setting the maximum number of documents held in memory when iterating over the groups of
+    * a {@link GroupedDocuments} before the documents are spilled to disk
+    */
+   String GROUP_BUFFER_SIZE = "Corpus.groupBufferSize";
    /**
     * Configuration option for setting the reporting interval for when updating a DocumentCollection or Corpus
     */
@@ -197,6 +210,62 @@ public interface DocumentCollection extends Iterable<Document>, AutoCloseable {
       });
    }
 
+   /**
+    * Estimates the document frequencies of the <code>k</code> most frequent terms extracted using the given extractor in
+    * fixed memory. The returned counter reports the error bound of its estimates.
+    *
+    * @param extractor the extractor to use for generating terms
+    * @param k         the number of most frequent terms to report
+    * @param epsilon   the maximum overcount relative to the total number of (document, term) pairs
+    * @param delta     the probability of an estimate exceeding the maximum overcount
+    * @return the approximate counter of document frequencies
+    */
+   default ApproximateCounter<String> approximateDocumentCount(@NonNull Extractor extractor,
+                                                               int k,
+                                                               double epsilon,
+                                                               double delta) {
+      ProgressLogger progressLogger = ProgressLogger.create(this, "approximateDocumentCount");
+      ApproximateCounter<String> counter = parallelStream().map(doc -> {
+         progressLogger.start();
+         ApproximateCounter<String> documentCounts = new ApproximateCounter<>(k, epsilon, delta);
+         extractor.extract(doc)
+                  .count()
+                  .forEach((term, count) -> documentCounts.increment(term, 1.0));
+         progressLogger.stop(doc.tokenLength());
+         return documentCounts;
+      }).reduce(ApproximateCounter::merge).orElseGet(() -> new ApproximateCounter<>(k, epsilon, delta));
+      progressLogger.report();
+      return counter;
+   }
+
+   /**
+    * Estimates the total corpus frequency of the <code>k</code> most frequent terms extracted using the given extractor
+    * in fixed memory. The returned counter reports the error bound of its estimates.
+    *
+    * @param extractor the extractor to use for generating terms
+    * @param k         the number of most frequent terms to report
+    * @param epsilon   the maximum overcount relative to the total term count
+    * @param delta     the probability of an estimate exceeding the maximum overcount
+    * @return the approximate counter of term frequencies
+    */
+   default ApproximateCounter<String> approximateTermCount(@NonNull Extractor extractor,
+                                                           int k,
+                                                           double epsilon,
+                                                           double delta) {
+      ProgressLogger progressLogger = ProgressLogger.create(this, "approximateTermCount");
+      ApproximateCounter<String> counter = parallelStream().map(doc -> {
+         progressLogger.start();
+         ApproximateCounter<String> termCounts = new ApproximateCounter<>(k, epsilon, delta);
+         extractor.extract(doc)
+                  .count()
+                  .forEach(termCounts::increment);
+         progressLogger.stop(doc.tokenLength());
+         return termCounts;
+      }).reduce(ApproximateCounter::merge).orElseGet(() -> new ApproximateCounter<>(k, epsilon, delta));
+      progressLogger.report();
+      return counter;
+   }
+
    /**
     * As data set data set.
     *
@@ -261,16 +330,87 @@ public interface DocumentCollection extends Iterable<Document>, AutoCloseable {
    StreamingContext getStreamingContext();
 
    /**
-    * Groups documents in the document store using the given function.
+    * Calculates the total corpus frequencies for NGrams extracted using the given extractor keeping only those n-grams
+    * occurring at least <code>minCount</code> times. Non-distributed collections count the n-grams using an {@link
+    * ExternalCounter}, which spills to disk when more than {@link #COUNT_BUFFER_SIZE} n-grams are held in memory, so
+    * that the vocabulary need not fit in memory. Distributed collections drop infrequent n-grams before collecting the
+    * counts. Note tha all n-grams are returned in their string form as Tuples.
+    *
+    * @param nGramExtractor the extractor
+    * @param minCount       the minimum count for an n-gram to be kept
+    * @return the counter of string tuples representing the ngrams
+    */
+   default Counter<Tuple> frequentNGrams(@NonNull NGramExtractor nGramExtractor, double minCount) {
+      if(getStreamingContext().isDistributed()) {
+         //Filter on the executors so that only the frequent n-grams are collected
+         return newCounter(parallelStream().flatMap(doc -> nGramExtractor.extractStringTuples(doc).stream())
+                                           .mapToPair(ngram -> $(ngram, 1.0))
+                                           .reduceByKey(Double::sum)
+                                           .filter((ngram, count) -> count >= minCount)
+                                           .collectAsMap());
+      }
+      ProgressLogger progressLogger = ProgressLogger.create(this, "frequentNGrams");
+      try(ExternalCounter<Tuple> counter = ExternalCounter.forTuples(Config.get(COUNT_BUFFER_SIZE)
+                                                                           .asIntegerValue(1_000_000))) {
+         parallelStream().parallel()
+                         .forEach(doc -> {
+                            progressLogger.start();
+                            counter.merge(newCounter(nGramExtractor.extractStringTuples(doc)));
+                            progressLogger.stop(doc.tokenLength());
+                         });
+         progressLogger.report();
+         return counter.counts(minCount);
+      }
+   }
+
+   /**
+    * Calculates the total corpus frequency of terms extracted using the given extractor keeping only those terms
+    * occurring at least <code>minCount</code> times. Non-distributed collections count the terms using an {@link
+    * ExternalCounter}, which spills to disk when more than {@link #COUNT_BUFFER_SIZE} terms are held in memory, so that
+    * the vocabulary need not fit in memory. Distributed collections drop infrequent terms before collecting the
+    * counts.
+    *
+    * @param extractor the extractor to use for generating terms
+    * @param minCount  the minimum count for a term to be kept
+    * @return the counter of terms with frequencies
+    */
+   default Counter<String> frequentTerms(@NonNull Extractor extractor, double minCount) {
+      if(getStreamingContext().isDistributed()) {
+         //Filter on the executors so that only the frequent terms are collected
+         return newCounter(parallelStream().flatMapToPair(doc -> extractor.extract(doc)
+                                                                           .count()
+                                                                           .asMap()
+                                                                           .entrySet()
+                                                                           .stream()
+                                                                           .map(e -> $(e.getKey(), e.getValue())))
+                                           .reduceByKey(Double::sum)
+                                           .filter((term, count) -> count >= minCount)
+                                           .collectAsMap());
+      }
+      ProgressLogger progressLogger = ProgressLogger.create(this, "frequentTerms");
+      try(ExternalCounter<String> counter = ExternalCounter.forStrings(Config.get(COUNT_BUFFER_SIZE)
+                                                                            .asIntegerValue(1_000_000))) {
+         parallelStream().parallel()
+                         .forEach(doc -> {
+                            progressLogger.start();
+                            counter.merge(extractor.extract(doc).count());
+                            progressLogger.stop(doc.tokenLength());
+                         });
+         progressLogger.report();
+         return counter.counts(minCount);
+      }
+   }
+
+   /**
+    * Groups documents in the document store using the given function. The grouping is lazily evaluated, with counts,
+    * sums, and top-k documents per group aggregated without holding the documents in memory.
     *
     * @param <K>         The key type
     * @param keyFunction Converts the document into a key to group the documents  by
-    * @return A <code>Multimap</code> of key - document pairs.
+    * @return A lazily evaluated grouping of the documents by key
     */
-   default <K> Multimap<K, Document> groupBy(@NonNull SerializableFunction<? super Document, K> keyFunction) {
-      ListMultimap<K, Document> grouping = new ArrayListMultimap<>();
-      forEach(document -> grouping.put(keyFunction.apply(document), document));
-      return grouping;
+   default <K> GroupedDocuments<K> groupBy(@NonNull SerializableFunction<? super Document, K> keyFunction) {
+      return new GroupedDocuments<>(this, keyFunction);
    }
 
    /**
@@ -287,14 +427,82 @@ public interface DocumentCollection extends Iterable<Document>, AutoCloseable {
       return stream().iterator();
    }
 
+   /**
+    * Finds clusters of near-duplicate documents, i.e. documents whose sets of shingles, as extracted by the given
+    * extractor, have a Jaccard similarity of at least the given threshold. Shingles can be token n-grams, e.g. using an
+    * {@link NGramExtractor}, or character n-grams, e.g. <code>new CharNGramExtractor(5)</code> for documents that have
+    * not been tokenized. The extractor must be serializable, which lambdas are not, for distributed collections. The
+    * hash functions are chosen using {@link MinHashLSH#forThreshold(double, int, long)} with 128 hashes.
+    *
+    * @param threshold        the minimum Jaccard similarity of near-duplicate documents
+    * @param shingleExtractor the extractor generating the shingles of a document
+    * @return the clusters of ids of near-duplicate documents
+    */
+   default List<Set<String>> nearDuplicates(double threshold, @NonNull Extractor shingleExtractor) {
+      return nearDuplicates(threshold, shingleExtractor, MinHashLSH.forThreshold(threshold, 128, 0));
+   }
+
+   /**
+    * Finds clusters of near-duplicate documents, i.e. documents whose sets of shingles, as extracted by the given
+    * extractor, have a Jaccard similarity of at least the given threshold. A single pass over the collection calculates
+    * the MinHash signature of each document and groups the ids of the documents by the keys of the signature's bands.
+    * Documents sharing a bucket are candidates, where documents in buckets of more than 64 documents are only paired
+    * with the 64 documents of the bucket with the smallest ids. The shingle hashes are joined back to the candidate
+    * pairs to verify their exact Jaccard similarity and the verified pairs are merged into clusters of documents
+    * connected by a near-duplicate pair. The shingle sets are cached rather than recomputed for the join and are
+    * shuffled once per candidate pair instead of once per band.
+    *
+    * @param threshold        the minimum Jaccard similarity of near-duplicate documents
+    * @param shingleExtractor the extractor generating the shingles of a document
+    * @param lsh              the MinHash LSH determining which documents are candidates
+    * @return the clusters of ids of near-duplicate documents
+    */
+   default List<Set<String>> nearDuplicates(double threshold,
+                                            @NonNull Extractor shingleExtractor,
+                                            @NonNull MinHashLSH lsh) {
+      Validation.checkArgument(threshold > 0 && threshold <= 1, "Threshold must be in (0, 1]");
+      ProgressLogger progressLogger = ProgressLogger.create(this, "nearDuplicates");
+      MStream<ShingleSet> shingleSets = parallelStream().map(doc -> {
+         progressLogger.start();
+         ShingleSet shingles = ShingleSet.of(doc.getId(), shingleExtractor.extract(doc));
+         progressLogger.stop(doc.tokenLength());
+         return shingles;
+      }).filter(shingles -> shingles.getHashes().length > 0).cache();
+      MPairStream<String, ShingleSet> byId = shingleSets.mapToPair(shingles -> $(shingles.getId(), shingles));
+      MPairStream<String, String> candidates = shingleSets.flatMapToPair(shingles -> {
+         long[] hashes = shingles.getHashes();
+         long[] keys = lsh.bandKeys(lsh.signature(hashes, hashes.length));
+         return Arrays.stream(keys).mapToObj(key -> $(key, shingles.getId()));
+      })
+                                                          .groupByKey()
+                                                          .values()
+                                                          .flatMap(bucket -> ShingleSet.candidatePairs(bucket).stream())
+                                                          .distinct()
+                                                          .mapToPair(pair -> pair);
+      //Join the shingles of the first and then of the second document to each candidate pair
+      List<Tuple2<String, String>> pairs = candidates
+            .join(byId)
+            .mapToPair((first, joined) -> $(joined.getKey(), joined.getValue()))
+            .join(byId)
+            .filter((second, joined) -> joined.getKey().jaccard(joined.getValue()) >= threshold)
+            .map((second, joined) -> $(joined.getKey().getId(), second))
+            .collect();
+      progressLogger.report();
+      return ShingleSet.clusters(pairs);
+   }
+
    /**
     * Calculates the total corpus frequencies for NGrams extracted using the given extractor. Note tha all n-grams are
-    * returned in their string form as Tuples.
+    * returned in their string form as Tuples. Non-distributed collections count the n-grams using an {@link
+    * NGramCounter}.
     *
     * @param nGramExtractor the extractor
     * @return the counter of string tuples representing the ngrams
     */
    default Counter<Tuple> nGramCount(@NonNull NGramExtractor nGramExtractor) {
+      if(!getStreamingContext().isDistributed()) {
+         return countNGrams(nGramExtractor).counts();
+      }
       ProgressLogger progressLogger = ProgressLogger.create(this, "nGramCount");
       Counter<Tuple> counter = newCounter(parallelStream().flatMap(doc -> {
          progressLogger.start();
@@ -306,6 +514,34 @@ public interface DocumentCollection extends Iterable<Document>, AutoCloseable {
       return counter;
    }
 
+   /**
+    * Calculates the total corpus frequencies for NGrams extracted using the given extractor keeping only the
+    * <code>N</code> most frequent n-grams. Note tha all n-grams are returned in their string form as Tuples.
+    *
+    * @param nGramExtractor the extractor
+    * @param n              the number of n-grams to return
+    * @return the counter of string tuples representing the top <code>N</code> ngrams
+    */
+   default Counter<Tuple> nGramCount(@NonNull NGramExtractor nGramExtractor, int n) {
+      if(!getStreamingContext().isDistributed()) {
+         return countNGrams(nGramExtractor).topN(n);
+      }
+      return nGramCount(nGramExtractor).topN(n);
+   }
+
+   private NGramCounter countNGrams(NGramExtractor nGramExtractor) {
+      ProgressLogger progressLogger = ProgressLogger.create(this, "nGramCount");
+      NGramCounter counter = new NGramCounter(nGramExtractor);
+      parallelStream().parallel()
+                      .forEach(doc -> {
+                         progressLogger.start();
+                         counter.count(doc);
+                         progressLogger.stop(doc.tokenLength());
+                      });
+      progressLogger.report();
+      return counter;
+   }
+
    /**
     * Gets a parallel stream over the documents in the collection
     *
@@ -402,22 +638,93 @@ public interface DocumentCollection extends Iterable<Document>, AutoCloseable {
                                              double minScore,
                                              @NonNull ContingencyTableCalculator calculator
                                             ) {
+      return significantBigrams(nGramExtractor, minCount, minScore, calculator, Integer.MAX_VALUE);
+   }
+
+   /**
+    * Calculates the <code>k</code> bigrams with the most significant co-occurrence using the given association
+    * measure. Only the unigrams and bigrams occurring at least <code>minCount</code> times are loaded into an {@link
+    * NGramCounter} and scored directly on its primitive counts, while the total used in the contingency tables is the
+    * sum of the counts of all unigrams. Tuples are only built for the <code>k</code> highest scoring bigrams.
+    * Non-distributed collections count the n-grams with {@link NGramCounter#countPacked(HString,
+    * java.util.function.LongConsumer)}, passing the ids of each unigram and bigram packed into a long to an {@link
+    * ExternalLongCounter}, which spills to disk when more than {@link #COUNT_BUFFER_SIZE} n-grams are held in memory.
+    * Distributed collections first count the unigrams, folding the counts of infrequent unigrams into the total, and
+    * then count the bigrams of frequent unigrams keyed by their packed ids, so that only the frequent unigrams are
+    * shuffled as strings.
+    *
+    * @param nGramExtractor the extractor to use for extracting NGrams
+    * @param minCount       the minimum co-occurrence count for a bigram to be considered
+    * @param minScore       the minimum score for a bigram to be significant
+    * @param calculator     the association measure to use for determining significance
+    * @param k              the maximum number of bigrams to return
+    * @return the counter of bigrams and their scores
+    */
+   default Counter<Tuple> significantBigrams(@NonNull NGramExtractor nGramExtractor,
+                                             int minCount,
+                                             double minScore,
+                                             @NonNull ContingencyTableCalculator calculator,
+                                             int k) {
       NGramExtractor temp = nGramExtractor.toBuilder().minOrder(1).maxOrder(2).build();
-      Counter<Tuple> ngrams = nGramCount(temp).filterByValue(v -> v >= minCount);
-      Counter<Tuple> unigrams = ngrams.filterByKey(t -> t.degree() == 1);
-      Counter<Tuple> bigrams = ngrams.filterByKey(t -> t.degree() == 2);
-      ngrams.clear();
-      Counter<Tuple> filtered = newCounter();
-      bigrams.items().forEach(bigram -> {
-         double score = calculator.calculate(ContingencyTable.create2X2(bigrams.get(bigram),
-                                                                        unigrams.get(bigram.slice(0, 1)),
-                                                                        unigrams.get(bigram.slice(1, 2)),
-                                                                        unigrams.sum()));
-         if(score >= minScore) {
-            filtered.set(bigram, score);
+      NGramCounter counter = new NGramCounter(temp);
+      if(getStreamingContext().isDistributed()) {
+         //Infrequent unigrams are folded into the empty tuple so that only their sum is collected
+         Map<Tuple, Double> unigrams = parallelStream().flatMap(doc -> temp.extractStringTuples(doc).stream())
+                                                       .filter(ngram -> ngram.degree() == 1)
+                                                       .mapToPair(ngram -> $(ngram, 1.0))
+                                                       .reduceByKey(Double::sum)
+                                                       .mapToPair((ngram, count) -> {
+                                                          Tuple key = count < minCount
+                                                                      ? Tuple0.INSTANCE
+                                                                      : ngram;
+                                                          return $(key, count);
+                                                       })
+                                                       .reduceByKey(Double::sum)
+                                                       .collectAsMap();
+         final Map<String, Integer> dictionary = new HashMap<>();
+         long total = 0;
+         for(Map.Entry<Tuple, Double> entry : unigrams.entrySet()) {
+            total += entry.getValue().longValue();
+            if(entry.getKey().degree() > 0) {
+               int id = counter.id(entry.getKey().get(0).toString());
+               dictionary.put(entry.getKey().get(0).toString(), id);
+               counter.incrementPacked(NGramCounter.pack(id), entry.getValue().longValue());
+            }
          }
-      });
-      return filtered;
+         //Bigrams with an infrequent element are not scored, so only those of frequent unigrams are shuffled
+         parallelStream().flatMap(doc -> temp.extractStringTuples(doc).stream())
+                         .filter(ngram -> ngram.degree() == 2
+                               && dictionary.containsKey(ngram.get(0).toString())
+                               && dictionary.containsKey(ngram.get(1).toString()))
+                         .mapToPair(ngram -> $(NGramCounter.pack(dictionary.get(ngram.get(0).toString()),
+                                                                 dictionary.get(ngram.get(1).toString())), 1.0))
+                         .reduceByKey(Double::sum)
+                         .filter((bigram, count) -> count >= minCount)
+                         .collectAsMap()
+                         .forEach((bigram, count) -> counter.incrementPacked(bigram, count.longValue()));
+         return counter.significantBigrams(minCount, minScore, calculator, k, total);
+      }
+      ProgressLogger progressLogger = ProgressLogger.create(this, "significantBigrams");
+      AtomicLong unigramCount = new AtomicLong();
+      try(ExternalLongCounter ngrams = new ExternalLongCounter(Config.get(COUNT_BUFFER_SIZE)
+                                                                     .asIntegerValue(1_000_000))) {
+         parallelStream().parallel()
+                         .forEach(doc -> {
+                            progressLogger.start();
+                            counter.countPacked(doc, ngram -> ngrams.increment(ngram, 1));
+                            progressLogger.stop(doc.tokenLength());
+                         });
+         progressLogger.report();
+         ngrams.forEach((ngram, count) -> {
+            if(!NGramCounter.isBigram(ngram)) {
+               unigramCount.addAndGet(count);
+            }
+            if(count >= minCount) {
+               counter.incrementPacked(ngram, count);
+            }
+         });
+      }
+      return counter.significantBigrams(minCount, minScore, calculator, k, unigramCount.get());
    }
 
    /**
@@ -0,0 +1,430 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.corpus;
+
+import com.gengoai.Validation;
+import com.gengoai.collection.counter.Counter;
+import com.gengoai.collection.counter.Counters;
+import com.gengoai.conversion.Cast;
+import com.gengoai.io.Resources;
+import com.gengoai.io.resource.Resource;
+import com.gengoai.tuple.Tuple;
+import com.gengoai.tuple.Tuple0;
+import lombok.NonNull;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * <p>
+ * A counter for vocabularies that may not fit in memory. Keys are sharded by hash into open-addressing tables that
+ * keep their counts in primitive arrays. When a shard holds more than its share of the in-memory budget, its entries
+ * are sorted and spilled as a run to a temporary file. When the final counts are requested, the runs of each shard
+ * are merged, summing the counts of equal keys and keeping only those keys whose count is at least the given minimum.
+ * At most 64 runs are merged at once; a shard with more runs is first merged in multiple passes into fewer, larger
+ * runs. As the shards partition the keys, each shard is merged on its own, so that only the pruned counts are held in
+ * memory at the end.
+ * </p>
+ * <p>
+ * Counting is thread safe, with each shard locked independently. The temporary files are deleted when the counter is
+ * closed.
+ * </p>
+ *
+ * @param <K> the key type
+ * @author David B. Bracewell
+ */
+public final class ExternalCounter<K> implements AutoCloseable {
+   private static final int MAX_FAN_IN = 64;
+   private static final int SHARDS = 16;
+   private final KeyCodec<K> codec;
+   private final Shard[] shards = new Shard[SHARDS];
+   private final int shardCapacity;
+
+   /**
+    * Instantiates a new ExternalCounter.
+    *
+    * @param codec       the codec used to order, write, and read keys
+    * @param maxInMemory the maximum number of keys held in memory before spilling to disk
+    */
+   public ExternalCounter(@NonNull KeyCodec<K> codec, int maxInMemory) {
+      Validation.checkArgument(maxInMemory > 0, "The maximum number of keys in memory must be greater than 0");
+      this.codec = codec;
+      this.shardCapacity = Math.max(1, maxInMemory / SHARDS);
+      for(int i = 0; i < SHARDS; i++) {
+         shards[i] = new Shard();
+      }
+   }
+
+   /**
+    * Creates a counter for String keys.
+    *
+    * @param maxInMemory the maximum number of keys held in memory before spilling to disk
+    * @return the counter
+    */
+   public static ExternalCounter<String> forStrings(int maxInMemory) {
+      return new ExternalCounter<>(KeyCodec.STRING, maxInMemory);
+   }
+
+   /**
+    * Creates a counter for keys that are Tuples of Strings, such as those generated when counting n-grams.
+    *
+    * @param maxInMemory the maximum number of keys held in memory before spilling to disk
+    * @return the counter
+    */
+   public static ExternalCounter<Tuple> forTuples(int maxInMemory) {
+      return new ExternalCounter<>(KeyCodec.TUPLE, maxInMemory);
+   }
+
+   private static int hash(Object key) {
+      int h = key.hashCode() * 0x9E3779B9;
+      return h ^ (h >>> 16);
+   }
+
+   @Override
+   public void close() {
+      for(Shard shard : shards) {
+         synchronized(shard) {
+            shard.runs.forEach(Resource::delete);
+            shard.runs.clear();
+         }
+      }
+   }
+
+   /**
+    * Gets the counts of all keys whose count is greater than or equal to the given minimum.
+    *
+    * @param minCount the minimum count for a key to be kept
+    * @return the counter of keys
+    */
+   public Counter<K> counts(double minCount) {
+      Counter<K> counter = Counters.newCounter();
+      for(Shard shard : shards) {
+         synchronized(shard) {
+            if(shard.runs.isEmpty()) {
+               for(int i = 0; i < shard.keys.length; i++) {
+                  if(shard.keys[i] != null && shard.counts[i] >= minCount) {
+                     counter.set(Cast.as(shard.keys[i]), shard.counts[i]);
+                  }
+               }
+            } else {
+               shard.spill();
+               merge(shard.runs, minCount, counter);
+            }
+         }
+      }
+      return counter;
+   }
+
+   /**
+    * Increments the count of the given key by the given amount.
+    *
+    * @param key    the key
+    * @param amount the amount to increment by
+    */
+   public void increment(@NonNull K key, double amount) {
+      int hash = hash(key);
+      Shard shard = shards[hash >>> 28];
+      synchronized(shard) {
+         shard.increment(key, hash, amount);
+      }
+   }
+
+   /**
+    * Adds the counts in the given counter to this counter.
+    *
+    * @param counter the counter to add
+    */
+   public void merge(@NonNull Counter<? extends K> counter) {
+      for(K key : counter.items()) {
+         increment(key, counter.get(key));
+      }
+   }
+
+   private void merge(List<Resource> runs, double minCount, Counter<K> counter) {
+      //Merge in passes so that at most MAX_FAN_IN runs are open at once, keeping all keys until the final pass
+      while(runs.size() > MAX_FAN_IN) {
+         List<Resource> merged = new ArrayList<>();
+         for(int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+            List<Resource> group = runs.subList(i, Math.min(runs.size(), i + MAX_FAN_IN));
+            if(group.size() == 1) {
+               merged.add(group.get(0));
+               continue;
+            }
+            Resource run = Resources.temporaryFile();
+            run.deleteOnExit();
+            try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(run.outputStream()))) {
+               merge(group, (key, count) -> writeEntry(output, key, count));
+               output.writeBoolean(false);
+            } catch(IOException e) {
+               throw new RuntimeException(e);
+            }
+            group.forEach(Resource::delete);
+            merged.add(run);
+         }
+         runs.clear();
+         runs.addAll(merged);
+      }
+      merge(runs, (key, count) -> {
+         if(count >= minCount) {
+            counter.set(key, count);
+         }
+      });
+   }
+
+   private void merge(List<Resource> runs, EntryConsumer<K> consumer) {
+      List<DataInputStream> inputs = new ArrayList<>();
+      try {
+         PriorityQueue<RunHead> heap = new PriorityQueue<>((a, b) -> codec.compare(a.key, b.key));
+         for(Resource run : runs) {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(run.inputStream()));
+            inputs.add(input);
+            RunHead head = new RunHead(input);
+            if(head.advance()) {
+               heap.add(head);
+            }
+         }
+         while(!heap.isEmpty()) {
+            K key = heap.peek().key;
+            double count = 0;
+            while(!heap.isEmpty() && codec.compare(heap.peek().key, key) == 0) {
+               RunHead head = heap.poll();
+               count += head.count;
+               if(head.advance()) {
+                  heap.add(head);
+               }
+            }
+            consumer.accept(key, count);
+         }
+      } catch(IOException e) {
+         throw new RuntimeException(e);
+      } finally {
+         for(DataInputStream input : inputs) {
+            try {
+               input.close();
+            } catch(IOException e) {
+               //no opt
+            }
+         }
+      }
+   }
+
+   private static String readString(DataInput input) throws IOException {
+      byte[] bytes = new byte[input.readInt()];
+      input.readFully(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+   }
+
+   private void writeEntry(DataOutput output, K key, double count) throws IOException {
+      output.writeBoolean(true);
+      codec.write(output, key);
+      output.writeDouble(count);
+   }
+
+   private static void writeString(DataOutput output, String string) throws IOException {
+      //Length prefixed bytes rather than writeUTF, which is limited to 65535 bytes
+      byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+      output.writeInt(bytes.length);
+      output.write(bytes);
+   }
+
+   /**
+    * Defines how keys are ordered in a run and how they are written to and read from disk. The ordering must be
+    * consistent with equals.
+    *
+    * @param <K> the key type
+    */
+   public interface KeyCodec<K> extends Comparator<K>, Serializable {
+      /**
+       * Codec for String keys
+       */
+      KeyCodec<String> STRING = new KeyCodec<>() {
+         private static final long serialVersionUID = 1L;
+
+         @Override
+         public int compare(String o1, String o2) {
+            return o1.compareTo(o2);
+         }
+
+         @Override
+         public String read(DataInput input) throws IOException {
+            return readString(input);
+         }
+
+         @Override
+         public void write(DataOutput output, String key) throws IOException {
+            writeString(output, key);
+         }
+      };
+
+      /**
+       * Codec for Tuple keys whose elements are Strings
+       */
+      KeyCodec<Tuple> TUPLE = new KeyCodec<>() {
+         private static final long serialVersionUID = 1L;
+
+         @Override
+         public int compare(Tuple o1, Tuple o2) {
+            int cmp = Integer.compare(o1.degree(), o2.degree());
+            for(int i = 0; cmp == 0 && i < o1.degree(); i++) {
+               cmp = o1.get(i).toString().compareTo(o2.get(i).toString());
+            }
+            return cmp;
+         }
+
+         @Override
+         public Tuple read(DataInput input) throws IOException {
+            Tuple tuple = Tuple0.INSTANCE;
+            for(int i = input.readInt(); i > 0; i--) {
+               tuple = tuple.appendRight(readString(input));
+            }
+            return tuple;
+         }
+
+         @Override
+         public void write(DataOutput output, Tuple key) throws IOException {
+            output.writeInt(key.degree());
+            for(Object o : key) {
+               writeString(output, o.toString());
+            }
+         }
+      };
+
+      /**
+       * Reads a key
+       *
+       * @param input the input to read from
+       * @return the key
+       * @throws IOException Something went wrong reading
+       */
+      K read(DataInput input) throws IOException;
+
+      /**
+       * Writes a key
+       *
+       * @param output the output to write to
+       * @param key    the key
+       * @throws IOException Something went wrong writing
+       */
+      void write(DataOutput output, K key) throws IOException;
+   }
+
+   @FunctionalInterface
+   private interface EntryConsumer<K> {
+      void accept(K key, double count) throws IOException;
+   }
+
+   private class RunHead {
+      private final DataInputStream input;
+      private K key;
+      private double count;
+
+      private RunHead(DataInputStream input) {
+         this.input = input;
+      }
+
+      private boolean advance() throws IOException {
+         if(!input.readBoolean()) {
+            return false;
+         }
+         key = codec.read(input);
+         count = input.readDouble();
+         return true;
+      }
+   }
+
+   private class Shard {
+      private final List<Resource> runs = new ArrayList<>();
+      private Object[] keys = new Object[64];
+      private double[] counts = new double[64];
+      private int size = 0;
+
+      private void grow() {
+         Object[] oldKeys = keys;
+         double[] oldCounts = counts;
+         keys = new Object[oldKeys.length * 2];
+         counts = new double[oldKeys.length * 2];
+         for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] != null) {
+               int slot = hash(oldKeys[i]) & (keys.length - 1);
+               while(keys[slot] != null) {
+                  slot = (slot + 1) & (keys.length - 1);
+               }
+               keys[slot] = oldKeys[i];
+               counts[slot] = oldCounts[i];
+            }
+         }
+      }
+
+      private void increment(Object key, int hash, double amount) {
+         int slot = hash & (keys.length - 1);
+         while(keys[slot] != null) {
+            if(keys[slot].equals(key)) {
+               counts[slot] += amount;
+               return;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+         }
+         keys[slot] = key;
+         counts[slot] = amount;
+         size++;
+         if(size >= shardCapacity) {
+            spill();
+         } else if(size * 2 > keys.length) {
+            //Keep the load factor at or below 0.5
+            grow();
+         }
+      }
+
+      private void spill() {
+         if(size == 0) {
+            return;
+         }
+         Integer[] order = new Integer[size];
+         for(int i = 0, j = 0; i < keys.length; i++) {
+            if(keys[i] != null) {
+               order[j++] = i;
+            }
+         }
+         Arrays.sort(order, (a, b) -> codec.compare(Cast.as(keys[a]), Cast.as(keys[b])));
+         Resource run = Resources.temporaryFile();
+         run.deleteOnExit();
+         try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(run.outputStream()))) {
+            for(int i : order) {
+               writeEntry(output, Cast.as(keys[i]), counts[i]);
+            }
+            output.writeBoolean(false);
+         } catch(IOException e) {
+            throw new RuntimeException(e);
+         }
+         runs.add(run);
+         Arrays.fill(keys, null);
+         Arrays.fill(counts, 0);
+         size = 0;
+      }
+   }
+
+}//END OF ExternalCounter
@@ -0,0 +1,310 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.corpus;
+
+import com.gengoai.Validation;
+import com.gengoai.io.Resources;
+import com.gengoai.io.resource.Resource;
+import lombok.NonNull;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * <p>
+ * A counter of primitive long keys, such as packed n-gram ids, for key sets that may not fit in memory. It works as
+ * {@link ExternalCounter} does, but keeps both keys and counts in primitive arrays and writes its runs as sorted
+ * pairs of longs, so that no key is boxed or converted to a string when counting, spilling, or merging. At most 64
+ * runs are merged at once, and each shard is merged on its own.
+ * </p>
+ * <p>
+ * Counting is thread safe, with each shard locked independently. The temporary files are deleted when the counter is
+ * closed.
+ * </p>
+ *
+ * @author David B. Bracewell
+ */
+public final class ExternalLongCounter implements AutoCloseable {
+   private static final int MAX_FAN_IN = 64;
+   private static final int SHARD_BITS = 4;
+   private final Shard[] shards = new Shard[1 << SHARD_BITS];
+   private final int shardCapacity;
+
+   /**
+    * Instantiates a new ExternalLongCounter.
+    *
+    * @param maxInMemory the maximum number of keys held in memory before spilling to disk
+    */
+   public ExternalLongCounter(int maxInMemory) {
+      Validation.checkArgument(maxInMemory > 0, "The maximum number of keys in memory must be greater than 0");
+      this.shardCapacity = Math.max(1, maxInMemory >> SHARD_BITS);
+      for(int i = 0; i < shards.length; i++) {
+         shards[i] = new Shard();
+      }
+   }
+
+   private static long mix(long key) {
+      key = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+      key = (key ^ (key >>> 33)) * 0xC4CEB9FE1A85EC53L;
+      return key ^ (key >>> 33);
+   }
+
+   private static void writeEntry(DataOutput output, long key, long count) throws IOException {
+      output.writeBoolean(true);
+      output.writeLong(key);
+      output.writeLong(count);
+   }
+
+   @Override
+   public void close() {
+      for(Shard shard : shards) {
+         synchronized(shard) {
+            shard.runs.forEach(Resource::delete);
+            shard.runs.clear();
+         }
+      }
+   }
+
+   /**
+    * Passes the summed count of every key counted so far to the given consumer. Keys are visited shard by shard, so
+    * that only one shard's runs are being merged at a time.
+    *
+    * @param consumer the consumer of the keys and their counts
+    */
+   public void forEach(@NonNull EntryConsumer consumer) {
+      for(Shard shard : shards) {
+         synchronized(shard) {
+            if(shard.runs.isEmpty()) {
+               for(int i = 0; i < shard.keys.length; i++) {
+                  if(shard.counts[i] > 0) {
+                     consumer.accept(shard.keys[i], shard.counts[i]);
+                  }
+               }
+            } else {
+               shard.spill();
+               merge(shard.runs, consumer);
+            }
+         }
+      }
+   }
+
+   /**
+    * Increments the count of the given key by the given amount.
+    *
+    * @param key    the key
+    * @param amount the amount to increment by, which must be greater than 0
+    */
+   public void increment(long key, long amount) {
+      Validation.checkArgument(amount > 0, "Amount must be greater than 0");
+      long hash = mix(key);
+      Shard shard = shards[(int) (hash >>> (Long.SIZE - SHARD_BITS))];
+      synchronized(shard) {
+         shard.increment(key, (int) hash, amount);
+      }
+   }
+
+   private void merge(List<Resource> runs, EntryConsumer consumer) {
+      //Merge in passes so that at most MAX_FAN_IN runs are open at once
+      while(runs.size() > MAX_FAN_IN) {
+         List<Resource> merged = new ArrayList<>();
+         for(int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+            List<Resource> group = runs.subList(i, Math.min(runs.size(), i + MAX_FAN_IN));
+            if(group.size() == 1) {
+               merged.add(group.get(0));
+               continue;
+            }
+            Resource run = Resources.temporaryFile();
+            run.deleteOnExit();
+            try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(run.outputStream()))) {
+               mergeRuns(group, (key, count) -> writeEntry(output, key, count));
+               output.writeBoolean(false);
+            } catch(IOException e) {
+               throw new RuntimeException(e);
+            }
+            group.forEach(Resource::delete);
+            merged.add(run);
+         }
+         runs.clear();
+         runs.addAll(merged);
+      }
+      mergeRuns(runs, consumer::accept);
+   }
+
+   private void mergeRuns(List<Resource> runs, RunConsumer consumer) {
+      List<DataInputStream> inputs = new ArrayList<>();
+      try {
+         PriorityQueue<RunHead> heap = new PriorityQueue<>((a, b) -> Long.compare(a.key, b.key));
+         for(Resource run : runs) {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(run.inputStream()));
+            inputs.add(input);
+            RunHead head = new RunHead(input);
+            if(head.advance()) {
+               heap.add(head);
+            }
+         }
+         while(!heap.isEmpty()) {
+            long key = heap.peek().key;
+            long count = 0;
+            while(!heap.isEmpty() && heap.peek().key == key) {
+               RunHead head = heap.poll();
+               count += head.count;
+               if(head.advance()) {
+                  heap.add(head);
+               }
+            }
+            consumer.accept(key, count);
+         }
+      } catch(IOException e) {
+         throw new RuntimeException(e);
+      } finally {
+         for(DataInputStream input : inputs) {
+            try {
+               input.close();
+            } catch(IOException e) {
+               //no opt
+            }
+         }
+      }
+   }
+
+   /**
+    * Consumes a key and its count.
+    */
+   @FunctionalInterface
+   public interface EntryConsumer {
+
+      /**
+       * Consumes the given key and its count.
+       *
+       * @param key   the key
+       * @param count the count of the key
+       */
+      void accept(long key, long count);
+   }
+
+   @FunctionalInterface
+   private interface RunConsumer {
+      void accept(long key, long count) throws IOException;
+   }
+
+   private static class RunHead {
+      private final DataInputStream input;
+      private long key;
+      private long count;
+
+      private RunHead(DataInputStream input) {
+         this.input = input;
+      }
+
+      private boolean advance() throws IOException {
+         if(!input.readBoolean()) {
+            return false;
+         }
+         key = input.readLong();
+         count = input.readLong();
+         return true;
+      }
+   }
+
+   private class Shard {
+      private final List<Resource> runs = new ArrayList<>();
+      private long[] keys = new long[64];
+      private long[] counts = new long[64];
+      private int size = 0;
+
+      private int find(long key) {
+         int slot = (int) mix(key) & (keys.length - 1);
+         while(counts[slot] == 0 || keys[slot] != key) {
+            slot = (slot + 1) & (keys.length - 1);
+         }
+         return slot;
+      }
+
+      private void grow() {
+         long[] oldKeys = keys;
+         long[] oldCounts = counts;
+         keys = new long[oldKeys.length * 2];
+         counts = new long[oldKeys.length * 2];
+         for(int i = 0; i < oldKeys.length; i++) {
+            if(oldCounts[i] > 0) {
+               int slot = (int) mix(oldKeys[i]) & (keys.length - 1);
+               while(counts[slot] > 0) {
+                  slot = (slot + 1) & (keys.length - 1);
+               }
+               keys[slot] = oldKeys[i];
+               counts[slot] = oldCounts[i];
+            }
+         }
+      }
+
+      private void increment(long key, int hash, long amount) {
+         int slot = hash & (keys.length - 1);
+         while(counts[slot] > 0) {
+            if(keys[slot] == key) {
+               counts[slot] += amount;
+               return;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+         }
+         keys[slot] = key;
+         counts[slot] = amount;
+         size++;
+         if(size >= shardCapacity) {
+            spill();
+         } else if(size * 2 > keys.length) {
+            //Keep the load factor at or below 0.5
+            grow();
+         }
+      }
+
+      private void spill() {
+         if(size == 0) {
+            return;
+         }
+         long[] order = new long[size];
+         for(int i = 0, j = 0; i < keys.length; i++) {
+            if(counts[i] > 0) {
+               order[j++] = keys[i];
+            }
+         }
+         Arrays.sort(order);
+         Resource run = Resources.temporaryFile();
+         run.deleteOnExit();
+         try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(run.outputStream()))) {
+            for(long key : order) {
+               writeEntry(output, key, counts[find(key)]);
+            }
+            output.writeBoolean(false);
+         } catch(IOException e) {
+            throw new RuntimeException(e);
+         }
+         runs.add(run);
+         Arrays.fill(keys, 0);
+         Arrays.fill(counts, 0);
+         size = 0;
+      }
+   }
+
+}//END OF ExternalLongCounter
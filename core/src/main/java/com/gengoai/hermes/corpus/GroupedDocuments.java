@@ -0,0 +1,393 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.corpus;
+
+import com.gengoai.Validation;
+import com.gengoai.collection.counter.Counter;
+import com.gengoai.collection.multimap.ArrayListMultimap;
+import com.gengoai.collection.multimap.ListMultimap;
+import com.gengoai.config.Config;
+import com.gengoai.conversion.Cast;
+import com.gengoai.function.SerializableFunction;
+import com.gengoai.function.SerializableToDoubleFunction;
+import com.gengoai.hermes.Document;
+import com.gengoai.io.Resources;
+import com.gengoai.io.resource.Resource;
+import com.gengoai.stream.MCounterAccumulator;
+import lombok.NonNull;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+import static com.gengoai.tuple.Tuples.$;
+
+/**
+ * <p>
+ * A lazily evaluated grouping of the documents in a {@link DocumentCollection} by a key, created using {@link
+ * DocumentCollection#groupBy(SerializableFunction)}. Nothing is computed until one of the aggregations is called and
+ * each aggregation makes its own pass over the collection.
+ * </p>
+ * <p>
+ * The count, sum, and top-k aggregations combine values as the documents are streamed, i.e. map-side, so that only
+ * the aggregate of each group is held in memory. When the documents of each group are required, {@link
+ * #forEachGroup(BiConsumer)} sorts the documents by the hash of their key, spilling sorted runs of documents to disk
+ * as length-prefixed UTF-8 encoded Json when more than {@link DocumentCollection#GROUP_BUFFER_SIZE} documents are held
+ * in memory, so that only a single group needs to fit in memory at a time. Spilled documents are read back from their
+ * Json, so only what survives a Json round trip is seen by the consumer. Runs are merged at most 64 at a time, with
+ * larger numbers of runs merged in several passes.
+ * </p>
+ *
+ * @param <K> the key type
+ * @author David B. Bracewell
+ */
+public final class GroupedDocuments<K> {
+   private static final int MAX_FAN_IN = 64;
+   private final DocumentCollection collection;
+   private final SerializableFunction<? super Document, K> keyFunction;
+
+   /**
+    * Instantiates a new GroupedDocuments.
+    *
+    * @param collection  the collection of documents to group
+    * @param keyFunction the function generating the key of a document
+    */
+   GroupedDocuments(@NonNull DocumentCollection collection,
+                    @NonNull SerializableFunction<? super Document, K> keyFunction) {
+      this.collection = collection;
+      this.keyFunction = keyFunction;
+   }
+
+   /**
+    * Materializes the grouping as a multimap of key - document pairs holding every document in memory.
+    *
+    * @return A <code>Multimap</code> of key - document pairs.
+    */
+   public ListMultimap<K, Document> asMultimap() {
+      ListMultimap<K, Document> grouping = new ArrayListMultimap<>();
+      collection.forEach(document -> grouping.put(keyFunction.apply(document), document));
+      return grouping;
+   }
+
+   /**
+    * Counts the number of documents in each group.
+    *
+    * @return the counter of keys and the number of documents with the key
+    */
+   public Counter<K> count() {
+      return sum(document -> 1.0);
+   }
+
+   /**
+    * Processes the groups one at a time, passing the key and documents of each group to the given consumer. Groups are
+    * processed in no particular order, with the documents of a group in the order they occur in the collection. As the
+    * documents may be read back from disk, the key function must generate the same key for a document and its Json
+    * round trip.
+    *
+    * @param consumer the consumer of the key and documents of each group
+    */
+   public void forEachGroup(@NonNull BiConsumer<? super K, ? super List<Document>> consumer) {
+      final int bufferSize = Config.get(DocumentCollection.GROUP_BUFFER_SIZE).asIntegerValue(10_000);
+      List<Resource> runs = new ArrayList<>();
+      try {
+         List<Document> buffer = new ArrayList<>();
+         for(Document document : collection) {
+            buffer.add(document);
+            if(buffer.size() >= bufferSize) {
+               runs.add(spill(buffer));
+               buffer.clear();
+            }
+         }
+         if(runs.isEmpty()) {
+            group(buffer).forEach(consumer);
+            return;
+         }
+         if(buffer.size() > 0) {
+            runs.add(spill(buffer));
+            buffer.clear();
+         }
+         merge(runs, consumer);
+      } catch(IOException e) {
+         throw new RuntimeException(e);
+      } finally {
+         runs.forEach(Resource::delete);
+      }
+   }
+
+   /**
+    * Sums the values generated by the given function for the documents in each group.
+    *
+    * @param valueFunction the function generating the value of a document
+    * @return the counter of keys and the sum of the values of the documents with the key
+    */
+   public Counter<K> sum(@NonNull SerializableToDoubleFunction<? super Document> valueFunction) {
+      final SerializableFunction<? super Document, K> keyFunction = this.keyFunction;
+      MCounterAccumulator<K> sums = collection.getStreamingContext().counterAccumulator();
+      collection.parallelStream()
+                .forEach(document -> sums.increment(keyFunction.apply(document),
+                                                    valueFunction.applyAsDouble(document)));
+      return sums.value();
+   }
+
+   /**
+    * Finds the ids of the <code>k</code> highest scoring documents in each group.
+    *
+    * @param k             the number of documents to keep per group
+    * @param scoreFunction the function generating the score of a document
+    * @return the multimap of keys and the ids of their top <code>k</code> documents in order of decreasing score
+    */
+   public ListMultimap<K, String> topK(int k, @NonNull SerializableToDoubleFunction<? super Document> scoreFunction) {
+      return topK(k, scoreFunction, Document::getId);
+   }
+
+   /**
+    * Finds the values of the <code>k</code> highest scoring documents in each group.
+    *
+    * @param <V>           the value type
+    * @param k             the number of documents to keep per group
+    * @param scoreFunction the function generating the score of a document
+    * @param valueFunction the function generating the value kept for a document
+    * @return the multimap of keys and the values of their top <code>k</code> documents in order of decreasing score
+    */
+   public <V> ListMultimap<K, V> topK(int k,
+                                      @NonNull SerializableToDoubleFunction<? super Document> scoreFunction,
+                                      @NonNull SerializableFunction<? super Document, V> valueFunction) {
+      Validation.checkArgument(k > 0, "k must be greater than 0");
+      final SerializableFunction<? super Document, K> keyFunction = this.keyFunction;
+      Map<K, TopK<V>> tops = collection.parallelStream()
+                                       .mapToPair(document -> $(keyFunction.apply(document),
+                                                                new TopK<V>(k).offer(scoreFunction.applyAsDouble(document),
+                                                                                     valueFunction.apply(document))))
+                                       .reduceByKey(TopK::merge)
+                                       .collectAsMap();
+      ListMultimap<K, V> grouping = new ArrayListMultimap<>();
+      tops.forEach((key, top) -> grouping.putAll(key, top.values()));
+      return grouping;
+   }
+
+   private Map<K, List<Document>> group(List<Document> documents) {
+      Map<K, List<Document>> groups = new LinkedHashMap<>();
+      for(Document document : documents) {
+         groups.computeIfAbsent(keyFunction.apply(document), key -> new ArrayList<>()).add(document);
+      }
+      return groups;
+   }
+
+   private void merge(List<Resource> runs, BiConsumer<? super K, ? super List<Document>> consumer) throws IOException {
+      //Merge consecutive runs in passes so that at most MAX_FAN_IN runs are open at once and documents with equal
+      //hashes stay in the order they were spilled
+      while(runs.size() > MAX_FAN_IN) {
+         List<Resource> merged = new ArrayList<>();
+         for(int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+            List<Resource> group = runs.subList(i, Math.min(runs.size(), i + MAX_FAN_IN));
+            if(group.size() == 1) {
+               merged.add(group.get(0));
+               continue;
+            }
+            Resource run = Resources.temporaryFile();
+            run.deleteOnExit();
+            try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(run.outputStream()))) {
+               merge(group, (hash, json) -> writeEntry(output, hash, json));
+               output.writeBoolean(false);
+            }
+            group.forEach(Resource::delete);
+            merged.add(run);
+         }
+         runs.clear();
+         runs.addAll(merged);
+      }
+      //Documents with equal keys have equal hashes, but documents with equal hashes may have different keys
+      List<Document> documents = new ArrayList<>();
+      int[] groupHash = new int[1];
+      merge(runs, (hash, json) -> {
+         if(!documents.isEmpty() && hash != groupHash[0]) {
+            group(documents).forEach(consumer);
+            documents.clear();
+         }
+         groupHash[0] = hash;
+         documents.add(Document.fromJson(new String(json, StandardCharsets.UTF_8)));
+      });
+      if(!documents.isEmpty()) {
+         group(documents).forEach(consumer);
+      }
+   }
+
+   private void merge(List<Resource> runs, EntryConsumer consumer) throws IOException {
+      List<RunHead> heads = new ArrayList<>();
+      try {
+         //Ties are broken by run so that documents are read back in the order they were spilled
+         PriorityQueue<RunHead> heap = new PriorityQueue<>(Comparator.comparingInt((RunHead h) -> h.hash)
+                                                                     .thenComparingInt(h -> h.run));
+         for(Resource run : runs) {
+            RunHead head = new RunHead(heads.size(),
+                                       new DataInputStream(new BufferedInputStream(run.inputStream())));
+            heads.add(head);
+            if(head.advance()) {
+               heap.add(head);
+            }
+         }
+         while(!heap.isEmpty()) {
+            RunHead head = heap.poll();
+            consumer.accept(head.hash, head.json);
+            if(head.advance()) {
+               heap.add(head);
+            }
+         }
+      } finally {
+         for(RunHead head : heads) {
+            try {
+               head.input.close();
+            } catch(IOException e) {
+               //no opt
+            }
+         }
+      }
+   }
+
+   private Resource spill(List<Document> documents) throws IOException {
+      int[] hashes = new int[documents.size()];
+      Integer[] order = new Integer[documents.size()];
+      for(int i = 0; i < hashes.length; i++) {
+         hashes[i] = Objects.hashCode(keyFunction.apply(documents.get(i)));
+         order[i] = i;
+      }
+      //The sort is stable, so documents with equal hashes stay in their original order
+      Arrays.sort(order, Comparator.comparingInt(i -> hashes[i]));
+      Resource run = Resources.temporaryFile();
+      run.deleteOnExit();
+      try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(run.outputStream()))) {
+         for(int i : order) {
+            writeEntry(output, hashes[i], documents.get(i).toJson().getBytes(StandardCharsets.UTF_8));
+         }
+         output.writeBoolean(false);
+      }
+      return run;
+   }
+
+   private static void writeEntry(DataOutput output, int hash, byte[] json) throws IOException {
+      output.writeBoolean(true);
+      output.writeInt(hash);
+      output.writeInt(json.length);
+      output.write(json);
+   }
+
+   @FunctionalInterface
+   private interface EntryConsumer {
+      void accept(int hash, byte[] json) throws IOException;
+   }
+
+   private static class RunHead {
+      private final int run;
+      private final DataInputStream input;
+      private int hash;
+      private byte[] json;
+
+      private RunHead(int run, DataInputStream input) {
+         this.run = run;
+         this.input = input;
+      }
+
+      private boolean advance() throws IOException {
+         if(!input.readBoolean()) {
+            return false;
+         }
+         hash = input.readInt();
+         json = new byte[input.readInt()];
+         input.readFully(json);
+         return true;
+      }
+   }
+
+   /**
+    * The values with the <code>k</code> highest scores seen, kept in a binary min-heap on the score.
+    *
+    * @param <V> the value type
+    */
+   private static final class TopK<V> implements Serializable {
+      private static final long serialVersionUID = 1L;
+      private final int k;
+      private final double[] scores;
+      private final Object[] values;
+      private int size = 0;
+
+      private TopK(int k) {
+         this.k = k;
+         this.scores = new double[k];
+         this.values = new Object[k];
+      }
+
+      private TopK<V> merge(TopK<V> other) {
+         for(int i = 0; i < other.size; i++) {
+            offer(other.scores[i], Cast.as(other.values[i]));
+         }
+         return this;
+      }
+
+      private TopK<V> offer(double score, V value) {
+         if(size < k) {
+            int i = size++;
+            while(i > 0 && scores[(i - 1) >>> 1] > score) {
+               scores[i] = scores[(i - 1) >>> 1];
+               values[i] = values[(i - 1) >>> 1];
+               i = (i - 1) >>> 1;
+            }
+            scores[i] = score;
+            values[i] = value;
+         } else if(score > scores[0]) {
+            int i = 0;
+            while(true) {
+               int child = 2 * i + 1;
+               if(child >= size) {
+                  break;
+               }
+               if(child + 1 < size && scores[child + 1] < scores[child]) {
+                  child++;
+               }
+               if(scores[child] >= score) {
+                  break;
+               }
+               scores[i] = scores[child];
+               values[i] = values[child];
+               i = child;
+            }
+            scores[i] = score;
+            values[i] = value;
+         }
+         return this;
+      }
+
+      private List<V> values() {
+         Integer[] order = new Integer[size];
+         for(int i = 0; i < size; i++) {
+            order[i] = i;
+         }
+         Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+         List<V> list = new ArrayList<>(size);
+         for(int i : order) {
+            list.add(Cast.as(values[i]));
+         }
+         return list;
+      }
+   }
+
+}//END OF GroupedDocuments
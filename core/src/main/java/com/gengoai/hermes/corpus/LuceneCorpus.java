@@ -22,6 +22,7 @@
 
 package com.gengoai.hermes.corpus;
 
+import com.gengoai.collection.Iterators;
 import com.gengoai.collection.counter.Counter;
 import com.gengoai.collection.counter.Counters;
 import com.gengoai.collection.multimap.Multimap;
@@ -32,9 +33,15 @@ import com.gengoai.conversion.Cast;
 import com.gengoai.function.SerializableConsumer;
 import com.gengoai.function.SerializablePredicate;
 import com.gengoai.hermes.AnnotatableType;
+import com.gengoai.hermes.Annotation;
+import com.gengoai.hermes.AnnotationType;
 import com.gengoai.hermes.AttributeType;
 import com.gengoai.hermes.Document;
 import com.gengoai.hermes.Types;
+import com.gengoai.hermes.extraction.regex.Prefilter;
+import com.gengoai.hermes.extraction.regex.TokenMatch;
+import com.gengoai.hermes.extraction.regex.TokenMatcher;
+import com.gengoai.hermes.extraction.regex.TokenRegex;
 import com.gengoai.io.MonitoredObject;
 import com.gengoai.io.ResourceMonitor;
 import com.gengoai.io.resource.ByteArrayResource;
@@ -92,6 +99,18 @@ class LuceneCorpus implements Corpus {
     */
    public static final String JSON_FIELD = "@json";
    public static final String SPLIT_SIZE_CONFIG = "Corpus.splitSize";
+   /**
+    * The Lucene Field used to store the names of the annotation types (including their ancestors) in the document
+    */
+   public static final String ANNOTATION_TYPES_FIELD = "@annotationTypes";
+   /**
+    * The Lucene Field marking documents indexed with the fields used for prefiltering
+    */
+   public static final String PREFILTER_FIELD = "@prefilter";
+   /**
+    * The Lucene Field used to store the case folded content of the document's tokens
+    */
+   public static final String TOKENS_FIELD = "@tokens";
    private final Directory directory;
 
    /**
@@ -129,6 +148,36 @@ class LuceneCorpus implements Corpus {
       }
    }
 
+   /**
+    * Applies the token regular expression only to the documents that can match it. The pattern's prefilter is
+    * converted into a Lucene query over the indexed tokens and annotation types, so that documents which cannot
+    * contain a match are never loaded.
+    *
+    * @param pattern the pattern
+    * @param onMatch the on match
+    * @return the corpus
+    */
+   @Override
+   public Corpus apply(@NonNull TokenRegex pattern, @NonNull SerializableConsumer<TokenMatch> onMatch) {
+      final org.apache.lucene.search.Query prefilter = toLucene(pattern.getPrefilter());
+      if(prefilter == null) {
+         return Corpus.super.apply(pattern, onMatch);
+      }
+      final LinkedHashSet<String> ids;
+      try {
+         ids = queryAndReturnIds(prefilter);
+      } catch(IOException e) {
+         throw new RuntimeException(e);
+      }
+      return update("ApplyTokenRegex", () -> Iterators.transform(ids.iterator(), this::getDocument), doc -> {
+         TokenMatcher matcher = pattern.matcher(doc);
+         while(matcher.find()) {
+            onMatch.accept(matcher.asTokenMatch());
+         }
+         return true;
+      });
+   }
+
    @Override
    public void close() throws IOException {
       directory.close();
@@ -251,6 +300,55 @@ class LuceneCorpus implements Corpus {
       return StreamingContext.local();
    }
 
+   @Override
+   public Counter<String> getTokenDocumentCount() {
+      try(IndexReader reader = getIndexReader()) {
+         final Bits liveDocs = MultiBits.getLiveDocs(reader);
+         Counter<String> counter = Counters.newCounter();
+         Terms terms = MultiTerms.getTerms(reader, TOKENS_FIELD);
+         if(terms == null) {
+            return counter;
+         }
+         TermsEnum termsEnum = terms.iterator();
+         PostingsEnum pe = null;
+         BytesRef br;
+         while((br = termsEnum.next()) != null) {
+            long freq;
+            if(liveDocs == null) {
+               //Without deletions the term statistics are exact
+               freq = termsEnum.docFreq();
+            } else {
+               pe = termsEnum.postings(pe, PostingsEnum.NONE);
+               freq = 0;
+               int doc;
+               while((doc = pe.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+                  if(liveDocs.get(doc)) {
+                     freq++;
+                  }
+               }
+            }
+            if(freq > 0) {
+               counter.increment(br.utf8ToString(), freq);
+            }
+         }
+         return counter;
+      } catch(IOException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
+   @Override
+   public long getTokenIndexedSize() {
+      //Documents carry the token field only when indexed with the prefilter fields
+      try(IndexReader reader = getIndexReader()) {
+         return new IndexSearcher(reader).count(new TermQuery(new Term(PREFILTER_FIELD, "true")));
+      } catch(IndexNotFoundException nfe) {
+         return 0;
+      } catch(IOException e) {
+         throw new RuntimeException(e);
+      }
+   }
+
    @Override
    public boolean isEmpty() {
       return size() <= 0;
@@ -299,8 +397,11 @@ class LuceneCorpus implements Corpus {
    }
 
    private LinkedHashSet<String> queryAndReturnIds(Query query) throws IOException {
+      return queryAndReturnIds(query.toLucene());
+   }
+
+   private LinkedHashSet<String> queryAndReturnIds(org.apache.lucene.search.Query luceneQuery) throws IOException {
       LinkedHashSet<String> ids = new LinkedHashSet<>();
-      final org.apache.lucene.search.Query luceneQuery = query.toLucene();
       try(IndexReader reader = getIndexReader()) {
          IndexSearcher searcher = new IndexSearcher(reader);
          TopDocs d = searcher.search(luceneQuery, 10_000);
@@ -391,6 +492,19 @@ class LuceneCorpus implements Corpus {
       for(AnnotatableType annotatableType : document.completed()) {
          iDoc.add(new TextField(ANNOTATIONS_FIELD, annotatableType.canonicalName(), Field.Store.NO));
       }
+      iDoc.add(new StringField(PREFILTER_FIELD, "true", Field.Store.NO));
+      Set<String> words = new HashSet<>();
+      for(Annotation token : document.tokens()) {
+         words.add(Prefilter.fold(token));
+      }
+      words.forEach(w -> iDoc.add(new StringField(TOKENS_FIELD, w, Field.Store.NO)));
+      Set<String> annotationTypes = new HashSet<>();
+      for(Annotation annotation : document.annotations()) {
+         for(AnnotationType type = annotation.getType(); type != null; type = type.parent()) {
+            annotationTypes.add(type.name());
+         }
+      }
+      annotationTypes.forEach(t -> iDoc.add(new StringField(ANNOTATION_TYPES_FIELD, t, Field.Store.NO)));
       document.attributeMap()
               .forEach((k, v) -> {
                  if(v instanceof Iterable) {
@@ -416,6 +530,38 @@ class LuceneCorpus implements Corpus {
       return iDoc;
    }
 
+   private org.apache.lucene.search.Query toLucene(Prefilter prefilter) {
+      BooleanQuery.Builder required = new BooleanQuery.Builder();
+      boolean hasClause = false;
+      for(Set<Prefilter.Term> clause : prefilter.getClauses()) {
+         //Lemmas are not indexed
+         if(clause.stream().anyMatch(t -> t.getType() == Prefilter.TermType.LEMMA)) {
+            continue;
+         }
+         BooleanQuery.Builder disjunction = new BooleanQuery.Builder();
+         for(Prefilter.Term term : clause) {
+            String field = term.getType() == Prefilter.TermType.WORD
+                           ? TOKENS_FIELD
+                           : ANNOTATION_TYPES_FIELD;
+            disjunction.add(new TermQuery(new Term(field, term.getValue())), BooleanClause.Occur.SHOULD);
+         }
+         required.add(disjunction.build(), BooleanClause.Occur.MUST);
+         hasClause = true;
+      }
+      if(!hasClause) {
+         return null;
+      }
+      //Documents indexed before the prefilter fields existed must always be processed
+      org.apache.lucene.search.Query notIndexed = new BooleanQuery.Builder()
+            .add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST)
+            .add(new TermQuery(new Term(PREFILTER_FIELD, "true")), BooleanClause.Occur.MUST_NOT)
+            .build();
+      return new BooleanQuery.Builder()
+            .add(required.build(), BooleanClause.Occur.SHOULD)
+            .add(notIndexed, BooleanClause.Occur.SHOULD)
+            .build();
+   }
+
    protected LinkedHashSet<String> toDocumentIds(IndexReader reader, ScoreDoc[] scoreDocs) {
       LinkedHashSet<String> ids = new LinkedHashSet<>();
       for(ScoreDoc scoreDoc : scoreDocs) {
@@ -454,10 +600,14 @@ class LuceneCorpus implements Corpus {
    }
 
    private Corpus update(String operation, SerializablePredicate<Document> processor) {
+      return update(operation, this, processor);
+   }
+
+   private Corpus update(String operation, Iterable<Document> documents, SerializablePredicate<Document> processor) {
       ProgressLogger progressLogger = ProgressLogger.create(this, operation);
       final UpdateConsumer consumer = new UpdateConsumer(processor, progressLogger);
       Broker<Document> broker = Broker.<Document>builder()
-            .addProducer(new IterableProducer<>(this))
+            .addProducer(new IterableProducer<>(documents))
             .bufferSize(10_000)
             .addConsumer(consumer, Runtime.getRuntime().availableProcessors())
             .build();
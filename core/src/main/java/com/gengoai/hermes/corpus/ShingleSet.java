@@ -0,0 +1,188 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.corpus;
+
+import com.gengoai.hermes.extraction.Extraction;
+import com.gengoai.hermes.similarity.MinHashLSH;
+import com.gengoai.tuple.Tuple2;
+
+import java.io.Serializable;
+import java.util.*;
+
+import static com.gengoai.tuple.Tuples.$;
+
+/**
+ * <p>
+ * The set of shingles of a document, stored as the sorted and distinct 64-bit hashes (see {@link
+ * MinHashLSH#hash(CharSequence)}) of the shingle strings, used to find near-duplicate documents.
+ * </p>
+ *
+ * @author David B. Bracewell
+ */
+final class ShingleSet implements Serializable {
+   /**
+    * The maximum number of documents in an LSH bucket for which every pair of documents is a candidate
+    */
+   static final int MAX_EXHAUSTIVE_BUCKET_SIZE = 64;
+   private static final long serialVersionUID = 1L;
+   private final String id;
+   private final long[] hashes;
+
+   private ShingleSet(String id, long[] hashes) {
+      this.id = id;
+      this.hashes = hashes;
+   }
+
+   /**
+    * Groups the near-duplicate pairs into clusters of documents connected by a near-duplicate pair.
+    *
+    * @param pairs the pairs of document ids
+    * @return the clusters of document ids
+    */
+   static List<Set<String>> clusters(Iterable<Tuple2<String, String>> pairs) {
+      Map<String, String> parents = new HashMap<>();
+      for(Tuple2<String, String> pair : pairs) {
+         String first = root(parents, pair.v1);
+         String second = root(parents, pair.v2);
+         if(!first.equals(second)) {
+            //Use the smallest id as the root so that clusters are identified deterministically
+            if(first.compareTo(second) < 0) {
+               parents.put(second, first);
+            } else {
+               parents.put(first, second);
+            }
+         }
+      }
+      Map<String, Set<String>> clusters = new TreeMap<>();
+      for(String id : parents.keySet()) {
+         clusters.computeIfAbsent(root(parents, id), r -> new TreeSet<>()).add(id);
+      }
+      return new ArrayList<>(clusters.values());
+   }
+
+   /**
+    * Creates the shingle set of a document from the given extraction of its shingles.
+    *
+    * @param id       the id of the document
+    * @param shingles the extraction of shingles
+    * @return the shingle set
+    */
+   static ShingleSet of(String id, Extraction shingles) {
+      long[] hashes = new long[16];
+      int size = 0;
+      for(String shingle : shingles.string()) {
+         if(size == hashes.length) {
+            hashes = Arrays.copyOf(hashes, size * 2);
+         }
+         hashes[size++] = MinHashLSH.hash(shingle);
+      }
+      Arrays.sort(hashes, 0, size);
+      int distinct = 0;
+      for(int i = 0; i < size; i++) {
+         if(i == 0 || hashes[i] != hashes[i - 1]) {
+            hashes[distinct++] = hashes[i];
+         }
+      }
+      return new ShingleSet(id, Arrays.copyOf(hashes, distinct));
+   }
+
+   private static String root(Map<String, String> parents, String id) {
+      String root = id;
+      for(String parent = parents.get(root); parent != null && !parent.equals(root); parent = parents.get(root)) {
+         root = parent;
+      }
+      parents.put(id, root);
+      return root;
+   }
+
+   /**
+    * Generates the candidate pairs of near-duplicates from the ids of the documents in an LSH bucket. Every pair of
+    * documents is a candidate in buckets of at most {@link #MAX_EXHAUSTIVE_BUCKET_SIZE} documents. To avoid a quadratic
+    * number of pairs in larger buckets, e.g. of boilerplate documents, the {@link #MAX_EXHAUSTIVE_BUCKET_SIZE}
+    * documents with the smallest ids act as representatives of the bucket, and every document is only paired with the
+    * representatives. Near-duplicates that are paired in neither this nor another bucket are missed.
+    *
+    * @param bucket the ids of the documents in the bucket
+    * @return the candidate pairs of document ids with the smallest id first
+    */
+   static List<Tuple2<String, String>> candidatePairs(Iterable<String> bucket) {
+      List<String> ids = new ArrayList<>();
+      bucket.forEach(ids::add);
+      Collections.sort(ids);
+      List<Tuple2<String, String>> pairs = new ArrayList<>();
+      int representatives = Math.min(ids.size(), MAX_EXHAUSTIVE_BUCKET_SIZE);
+      for(int i = 0; i < representatives; i++) {
+         for(int j = i + 1; j < ids.size(); j++) {
+            if(!ids.get(i).equals(ids.get(j))) {
+               pairs.add($(ids.get(i), ids.get(j)));
+            }
+         }
+      }
+      return pairs;
+   }
+
+   /**
+    * Gets the id of the document.
+    *
+    * @return the document id
+    */
+   String getId() {
+      return id;
+   }
+
+   /**
+    * Gets the sorted and distinct shingle hashes.
+    *
+    * @return the shingle hashes
+    */
+   long[] getHashes() {
+      return hashes;
+   }
+
+   /**
+    * Calculates the exact Jaccard similarity between this and the given shingle set.
+    *
+    * @param other the other shingle set
+    * @return the Jaccard similarity
+    */
+   double jaccard(ShingleSet other) {
+      int intersection = 0;
+      int i = 0;
+      int j = 0;
+      while(i < hashes.length && j < other.hashes.length) {
+         if(hashes[i] < other.hashes[j]) {
+            i++;
+         } else if(hashes[i] > other.hashes[j]) {
+            j++;
+         } else {
+            intersection++;
+            i++;
+            j++;
+         }
+      }
+      int union = hashes.length + other.hashes.length - intersection;
+      return union == 0
+             ? 0
+             : (double) intersection / union;
+   }
+
+}//END OF ShingleSet
@@ -0,0 +1,58 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.extraction;
+
+import com.gengoai.Validation;
+import com.gengoai.hermes.HString;
+import lombok.NonNull;
+import lombok.Value;
+
+import java.io.Serializable;
+
+/**
+ * An Extractor generating the character n-grams of a given order of an HString (see {@link HString#charNGrams(int)}),
+ * e.g. for use as shingles when finding near-duplicate documents. Unlike a lambda, the extractor is serializable and
+ * can therefore be used with distributed streams.
+ *
+ * @author David B. Bracewell
+ */
+@Value
+public class CharNGramExtractor implements Extractor, Serializable {
+   private static final long serialVersionUID = 1L;
+   int order;
+
+   /**
+    * Instantiates a new CharNGramExtractor.
+    *
+    * @param order the order of the character n-grams
+    */
+   public CharNGramExtractor(int order) {
+      Validation.checkArgument(order > 0, "Order must be greater than 0");
+      this.order = order;
+   }
+
+   @Override
+   public Extraction extract(@NonNull HString hString) {
+      return Extraction.fromHStringList(hString.charNGrams(order));
+   }
+
+}//END OF CharNGramExtractor
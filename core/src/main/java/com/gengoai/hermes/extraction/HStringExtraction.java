@@ -25,8 +25,10 @@ package com.gengoai.hermes.extraction;
 import com.gengoai.collection.Iterables;
 import com.gengoai.collection.counter.Counter;
 import com.gengoai.collection.counter.Counters;
+import com.gengoai.conversion.Cast;
 import com.gengoai.function.SerializableFunction;
 import com.gengoai.hermes.HString;
+import com.gengoai.hermes.extraction.lyre.LyreExpression;
 import com.gengoai.hermes.ml.feature.ValueCalculator;
 import lombok.NonNull;
 
@@ -65,6 +67,9 @@ class HStringExtraction implements Extraction {
 
    @Override
    public Iterable<String> string() {
+      if(toString instanceof LyreExpression) {
+         return Cast.<LyreExpression>as(toString).applyAllAsString(list);
+      }
       return Iterables.transform(list, toString);
    }
 
@@ -26,7 +26,9 @@ import com.gengoai.Copyable;
 import com.gengoai.apollo.ml.observation.Variable;
 import com.gengoai.collection.Arrays2;
 import com.gengoai.conversion.Cast;
+import com.gengoai.hermes.Annotation;
 import com.gengoai.hermes.AnnotationType;
+import com.gengoai.hermes.Fragments;
 import com.gengoai.hermes.HString;
 import com.gengoai.hermes.Types;
 import com.gengoai.hermes.extraction.lyre.LyreDSL;
@@ -35,8 +37,7 @@ import com.gengoai.hermes.ml.feature.ValueCalculator;
 import com.gengoai.string.Strings;
 import lombok.*;
 
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -96,18 +97,79 @@ public abstract class MultiPhaseExtractor extends FeaturizingExtractor implement
 
    @Override
    public Extraction extract(@NonNull HString hString) {
-      return new HStringExtraction(stream(hString).collect(Collectors.toList()), toString, valueCalculator);
+      return new HStringExtraction(extractions(hString), toString, valueCalculator);
    }
 
-   private Stream<HString> stream(HString hString) {
-      Stream<HString> stream = createStream(hString);
+   /**
+    * Creates the trimmed and filtered extractions from the given input. The trim and filter expressions are each
+    * evaluated over all of the extractions at once (see {@link LyreExpression#testAll(List)}) rather than one
+    * extraction at a time.
+    *
+    * @param hString the input text
+    * @return the list of non-empty extractions
+    */
+   List<HString> extractions(HString hString) {
+      List<HString> extractions = createStream(hString).collect(Collectors.toCollection(ArrayList::new));
       if(trim != null) {
-         stream = stream.map(h -> h.trim(trim));
+         extractions = trimAll(extractions);
       }
+      extractions.removeIf(HString::isEmpty);
       if(filter != null) {
-         stream = stream.filter(filter);
+         BitSet passed = filter.testAll(extractions);
+         List<HString> filtered = new ArrayList<>(passed.cardinality());
+         for(int i = passed.nextSetBit(0); i >= 0; i = passed.nextSetBit(i + 1)) {
+            filtered.add(extractions.get(i));
+         }
+         extractions = filtered;
+      }
+      return extractions;
+   }
+
+   private List<HString> trimAll(List<HString> extractions) {
+      //Trims as HString.trim does, but tests each distinct token (or extraction without tokens) against the trim
+      //expression once, with all of them tested together
+      final Map<HString, Integer> index = new IdentityHashMap<>();
+      final List<HString> column = new ArrayList<>();
+      final List<List<Annotation>> tokens = new ArrayList<>(extractions.size());
+      for(HString extraction : extractions) {
+         List<Annotation> extractionTokens = extraction.tokens();
+         tokens.add(extractionTokens);
+         if(extractionTokens.isEmpty()) {
+            index.computeIfAbsent(extraction, h -> add(column, h));
+         }
+         for(Annotation token : extractionTokens) {
+            index.computeIfAbsent(token, h -> add(column, h));
+         }
+      }
+      final BitSet trimmed = trim.testAll(column);
+      final List<HString> result = new ArrayList<>(extractions.size());
+      for(int i = 0; i < extractions.size(); i++) {
+         HString extraction = extractions.get(i);
+         List<Annotation> extractionTokens = tokens.get(i);
+         if(extractionTokens.isEmpty()) {
+            result.add(trimmed.get(index.get(extraction))
+                       ? Fragments.emptyHString(extraction.document())
+                       : extraction);
+            continue;
+         }
+         int end = extractionTokens.size() - 1;
+         while(end >= 0 && trimmed.get(index.get(extractionTokens.get(end)))) {
+            end--;
+         }
+         int start = 0;
+         while(start < end && trimmed.get(index.get(extractionTokens.get(start)))) {
+            start++;
+         }
+         result.add(end < 0
+                    ? Fragments.emptyHString(extraction.document())
+                    : HString.union(extractionTokens.subList(start, end + 1)));
       }
-      return stream.filter(h -> !h.isEmpty());
+      return result;
+   }
+
+   private static int add(List<HString> column, HString hString) {
+      column.add(hString);
+      return column.size() - 1;
    }
 
    /**
@@ -0,0 +1,577 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.extraction;
+
+import com.gengoai.Validation;
+import com.gengoai.apollo.math.statistics.measure.ContingencyTable;
+import com.gengoai.apollo.math.statistics.measure.ContingencyTableCalculator;
+import com.gengoai.collection.counter.Counter;
+import com.gengoai.collection.counter.Counters;
+import com.gengoai.hermes.Annotation;
+import com.gengoai.hermes.HString;
+import com.gengoai.hermes.extraction.lyre.LyreExpression;
+import com.gengoai.tuple.Tuple;
+import com.gengoai.tuple.Tuple0;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * <p>
+ * Counts the n-grams produced by an {@link NGramExtractor} without materializing them. The string form of every
+ * extracted annotation is mapped to an int id using a dictionary local to the counter and each n-gram is identified by
+ * a 64-bit polynomial hash of its id window, which is extended one token at a time as the window grows. Counts are
+ * kept in primitive open-addressing tables, where the id sequence of an n-gram is stored once, when it is first seen,
+ * and compared on lookup so that hash collisions never merge the counts of different n-grams.
+ * </p>
+ * <p>
+ * The n-grams counted for a text are the same as those returned by {@link NGramExtractor#extractStringTuples(HString)}
+ * and the tuples of strings are only reconstructed when the counts are requested via {@link #counts()} or {@link
+ * #topN(int)}. Counting is thread safe, with the tables split into shards that are locked independently. Counters
+ * over unigrams and bigrams can also score the significance of the bigrams, see {@link #significantBigrams(double,
+ * double, ContingencyTableCalculator, int)}, directly on the primitive counts.
+ * </p>
+ * <p>
+ * When the unigrams and bigrams are too many to count in memory, {@link #countPacked(HString, LongConsumer)} passes
+ * each n-gram as a single long packing its ids (see {@link #pack(int, int)}) to an external counter instead, e.g.
+ * {@link com.gengoai.hermes.corpus.ExternalLongCounter}, and only the frequent ones are loaded back into the counter
+ * via {@link #incrementPacked(long, long)}. The dictionary of ids is kept in memory either way.
+ * </p>
+ *
+ * @author David B. Bracewell
+ */
+public final class NGramCounter {
+   private static final int SHARD_BITS = 4;
+   private static final long SEED = 0x9E3779B97F4A7C15L;
+   private static final long MULTIPLIER = 0xC2B2AE3D27D4EB4FL;
+   private static final int TRIMMED = -1;
+   private final NGramExtractor extractor;
+   private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+   private final List<String> strings = new ArrayList<>();
+   private final Shard[] shards = new Shard[1 << SHARD_BITS];
+
+   /**
+    * Instantiates a new NGramCounter.
+    *
+    * @param extractor the extractor defining the n-grams to count
+    */
+   public NGramCounter(@NonNull NGramExtractor extractor) {
+      this.extractor = extractor;
+      for(int i = 0; i < shards.length; i++) {
+         shards[i] = new Shard();
+      }
+   }
+
+   /**
+    * Determines if the given packed n-gram is a bigram.
+    *
+    * @param packed the packed n-gram
+    * @return True if the n-gram is a bigram, False if it is a unigram
+    */
+   public static boolean isBigram(long packed) {
+      return (packed >>> Integer.SIZE) != 0;
+   }
+
+   /**
+    * Packs the id of a unigram into a long.
+    *
+    * @param id the id of the unigram
+    * @return the packed unigram
+    */
+   public static long pack(int id) {
+      return id + 1L;
+   }
+
+   /**
+    * Packs the ids of a bigram into a long, with the high 32 bits holding one more than the id of the first element
+    * and the low 32 bits one more than the id of the second element. Unigrams have their high 32 bits set to 0.
+    *
+    * @param first  the id of the first element of the bigram
+    * @param second the id of the second element of the bigram
+    * @return the packed bigram
+    */
+   public static long pack(int first, int second) {
+      return (pack(first) << Integer.SIZE) | pack(second);
+   }
+
+   private static long mix(long hash) {
+      hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+      hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+      return hash ^ (hash >>> 33);
+   }
+
+   /**
+    * Counts the n-grams in the given text. The trim, toString and filter expressions of the extractor are each
+    * evaluated over all of the text's annotations (or n-grams for the filter) at once.
+    *
+    * @param hString the text whose n-grams are to be counted
+    */
+   public void count(@NonNull HString hString) {
+      count(hString, this::increment);
+   }
+
+   /**
+    * Counts the unigrams and bigrams in the given text as {@link #count(HString)} does, but rather than incrementing
+    * the counter's tables, passes each n-gram packed into a long (see {@link #pack(int, int)}) to the given consumer.
+    * The ids are taken from the counter's dictionary, so that counts of the packed n-grams can later be loaded into
+    * the counter using {@link #incrementPacked(long, long)}. The counter must have been created for an extractor
+    * generating n-grams of at most two elements.
+    *
+    * @param hString  the text whose n-grams are to be counted
+    * @param consumer the consumer of the packed n-grams, called once per occurrence
+    */
+   public void countPacked(@NonNull HString hString, @NonNull LongConsumer consumer) {
+      Validation.checkArgument(extractor.getMaxOrder() <= 2, "The extractor must generate unigrams and bigrams only");
+      count(hString, (key, tokens, start, end, length) -> {
+         long packed = 0;
+         for(int i = start; i <= end; i++) {
+            if(tokens[i] != TRIMMED) {
+               packed = (packed << Integer.SIZE) | pack(tokens[i]);
+            }
+         }
+         consumer.accept(packed);
+      });
+   }
+
+   private void count(HString hString, NGramConsumer consumer) {
+      final List<Annotation> annotations = extractor.nGramAnnotations(hString);
+      final LyreExpression filter = extractor.getFilter();
+      final int n = annotations.size();
+      final int[] tokens = ids(annotations);
+      //When filtering, the n-grams are gathered first so that the filter is tested over all of them together
+      final int maxCandidates = filter == null
+                                ? 0
+                                : n * (extractor.getMaxOrder() - extractor.getMinOrder() + 1);
+      final long[] keys = new long[maxCandidates];
+      final int[] windows = new int[maxCandidates * 3];
+      final List<HString> unions = new ArrayList<>(maxCandidates);
+      for(int i = 0; i < n; i++) {
+         long hash = SEED;
+         int length = 0;
+         int first = -1;
+         int last = -1;
+         for(int j = i; j < n && j < i + extractor.getMaxOrder(); j++) {
+            if(tokens[j] != TRIMMED) {
+               hash = hash * MULTIPLIER + tokens[j] + 1;
+               length++;
+               last = j;
+               if(first < 0) {
+                  first = j;
+               }
+            }
+            if(length == 0 || j - i + 1 < extractor.getMinOrder()) {
+               continue;
+            }
+            if(filter == null) {
+               consumer.accept(mix(hash), tokens, i, j, length);
+               continue;
+            }
+            keys[unions.size()] = mix(hash);
+            windows[unions.size() * 3] = i;
+            windows[unions.size() * 3 + 1] = j;
+            windows[unions.size() * 3 + 2] = length;
+            unions.add(first == last
+                       ? annotations.get(first)
+                       : HString.union(annotations.get(first), annotations.get(last)));
+         }
+      }
+      if(filter != null) {
+         BitSet filtered = filter.testAll(unions);
+         for(int c = filtered.nextClearBit(0); c < unions.size(); c = filtered.nextClearBit(c + 1)) {
+            consumer.accept(keys[c], tokens, windows[c * 3], windows[c * 3 + 1], windows[c * 3 + 2]);
+         }
+      }
+   }
+
+   /**
+    * Increments the count of the given n-gram, whose elements are converted to strings using <code>toString</code>,
+    * by the given amount. This allows counts gathered elsewhere, e.g. on a distributed stream, to be loaded into the
+    * counter.
+    *
+    * @param nGram  the n-gram
+    * @param amount the amount to increment by, which must be greater than 0
+    */
+   public void increment(@NonNull Tuple nGram, long amount) {
+      Validation.checkArgument(nGram.degree() > 0, "N-gram must not be empty");
+      Validation.checkArgument(amount > 0, "Amount must be greater than 0");
+      int[] tokens = new int[nGram.degree()];
+      for(int i = 0; i < tokens.length; i++) {
+         tokens[i] = id(nGram.get(i).toString());
+      }
+      increment(tokens, amount);
+   }
+
+   /**
+    * Increments the count of the given packed unigram or bigram, whose ids are from this counter's dictionary (see
+    * {@link #countPacked(HString, LongConsumer)} and {@link #id(String)}), by the given amount.
+    *
+    * @param packed the packed n-gram
+    * @param amount the amount to increment by, which must be greater than 0
+    */
+   public void incrementPacked(long packed, long amount) {
+      Validation.checkArgument(packed != 0, "N-gram must not be empty");
+      Validation.checkArgument(amount > 0, "Amount must be greater than 0");
+      int second = (int) packed - 1;
+      increment(isBigram(packed)
+                ? new int[]{(int) (packed >>> Integer.SIZE) - 1, second}
+                : new int[]{second}, amount);
+   }
+
+   private void increment(int[] tokens, long amount) {
+      long hash = SEED;
+      for(int token : tokens) {
+         hash = hash * MULTIPLIER + token + 1;
+      }
+      long key = mix(hash);
+      Shard shard = shards[(int) (key >>> (Long.SIZE - SHARD_BITS))];
+      synchronized(shard) {
+         shard.increment(key, tokens, 0, tokens.length - 1, tokens.length, amount);
+      }
+   }
+
+   /**
+    * <p>
+    * Scores the bigrams counted so far using the given association measure. The unigram and bigram counts are read
+    * directly from the primitive tables: only unigrams and bigrams occurring at least <code>minCount</code> times are
+    * considered, so that bigrams with an infrequent element, which can occur when the extractor filters the element
+    * but not the bigram, are skipped. The total used in the contingency tables is the sum of the counts of all
+    * unigrams. The counter must have been created for an extractor whose n-grams include unigrams and bigrams.
+    * </p>
+    * <p>
+    * Bigrams scoring at least <code>minScore</code> are kept in a heap bounded to the <code>k</code> highest scores,
+    * and only those are converted back into tuples of strings.
+    * </p>
+    *
+    * @param minCount   the minimum count for a unigram or bigram to be considered
+    * @param minScore   the minimum score for a bigram to be significant
+    * @param calculator the association measure to use for determining significance
+    * @param k          the maximum number of bigrams to return
+    * @return the counter of bigrams and their scores
+    */
+   public Counter<Tuple> significantBigrams(double minCount,
+                                            double minScore,
+                                            @NonNull ContingencyTableCalculator calculator,
+                                            int k) {
+      long total = 0;
+      for(Shard shard : shards) {
+         synchronized(shard) {
+            for(int slot = 0; slot < shard.keys.length; slot++) {
+               if(shard.counts[slot] > 0 && shard.pool[shard.offsets[slot]] == 1) {
+                  total += shard.counts[slot];
+               }
+            }
+         }
+      }
+      return significantBigrams(minCount, minScore, calculator, k, total);
+   }
+
+   /**
+    * Scores the bigrams counted so far using the given association measure as {@link #significantBigrams(double,
+    * double, ContingencyTableCalculator, int)} does, but with the given total unigram count. This allows a counter
+    * loaded with only the frequent n-grams, e.g. via {@link #increment(Tuple, long)}, to produce the same scores as
+    * one that counted every n-gram.
+    *
+    * @param minCount   the minimum count for a unigram or bigram to be considered
+    * @param minScore   the minimum score for a bigram to be significant
+    * @param calculator the association measure to use for determining significance
+    * @param k          the maximum number of bigrams to return
+    * @param total      the sum of the counts of all unigrams
+    * @return the counter of bigrams and their scores
+    */
+   public Counter<Tuple> significantBigrams(double minCount,
+                                            double minScore,
+                                            @NonNull ContingencyTableCalculator calculator,
+                                            int k,
+                                            long total) {
+      Validation.checkArgument(extractor.getMinOrder() == 1 && extractor.getMaxOrder() >= 2,
+                               "The extractor must generate unigrams and bigrams");
+      Validation.checkArgument(k > 0, "K must be greater than 0");
+      long[] unigrams;
+      synchronized(strings) {
+         unigrams = new long[strings.size()];
+      }
+      for(Shard shard : shards) {
+         synchronized(shard) {
+            for(int slot = 0; slot < shard.keys.length; slot++) {
+               if(shard.counts[slot] >= minCount && shard.pool[shard.offsets[slot]] == 1) {
+                  unigrams[shard.pool[shard.offsets[slot] + 1]] = shard.counts[slot];
+               }
+            }
+         }
+      }
+      PriorityQueue<double[]> heap = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+      for(int s = 0; s < shards.length; s++) {
+         Shard shard = shards[s];
+         synchronized(shard) {
+            for(int slot = 0; slot < shard.keys.length; slot++) {
+               int offset = shard.offsets[slot];
+               if(shard.counts[slot] == 0 || shard.counts[slot] < minCount || shard.pool[offset] != 2) {
+                  continue;
+               }
+               long first = unigrams[shard.pool[offset + 1]];
+               long second = unigrams[shard.pool[offset + 2]];
+               if(first == 0 || second == 0) {
+                  continue;
+               }
+               double score = calculator.calculate(ContingencyTable.create2X2(shard.counts[slot],
+                                                                              first,
+                                                                              second,
+                                                                              total));
+               if(score < minScore) {
+                  continue;
+               }
+               if(heap.size() < k) {
+                  heap.add(new double[]{score, s, slot});
+               } else if(score > heap.peek()[0]) {
+                  double[] entry = heap.poll();
+                  entry[0] = score;
+                  entry[1] = s;
+                  entry[2] = slot;
+                  heap.add(entry);
+               }
+            }
+         }
+      }
+      Counter<Tuple> counter = Counters.newCounter();
+      for(double[] entry : heap) {
+         Shard shard = shards[(int) entry[1]];
+         synchronized(shard) {
+            counter.set(toTuple(shard, (int) entry[2]), entry[0]);
+         }
+      }
+      return counter;
+   }
+
+   /**
+    * Gets the counts of all n-grams counted so far as tuples of strings.
+    *
+    * @return the counter of n-grams
+    */
+   public Counter<Tuple> counts() {
+      Counter<Tuple> counter = Counters.newCounter();
+      for(Shard shard : shards) {
+         synchronized(shard) {
+            for(int slot = 0; slot < shard.keys.length; slot++) {
+               if(shard.counts[slot] > 0) {
+                  counter.increment(toTuple(shard, slot), shard.counts[slot]);
+               }
+            }
+         }
+      }
+      return counter;
+   }
+
+   /**
+    * Gets the number of distinct n-grams counted so far.
+    *
+    * @return the number of distinct n-grams
+    */
+   public int size() {
+      int size = 0;
+      for(Shard shard : shards) {
+         synchronized(shard) {
+            size += shard.size;
+         }
+      }
+      return size;
+   }
+
+   /**
+    * Gets the counts of the <code>N</code> most frequent n-grams counted so far as tuples of strings. Only these
+    * n-grams are converted back into their string form.
+    *
+    * @param n the number of n-grams to return
+    * @return the counter of the top <code>N</code> n-grams
+    */
+   public Counter<Tuple> topN(int n) {
+      Validation.checkArgument(n >= 0, "N must be non-negative");
+      PriorityQueue<long[]> heap = new PriorityQueue<>(Math.max(1, n), (a, b) -> Long.compare(a[0], b[0]));
+      for(int s = 0; s < shards.length; s++) {
+         Shard shard = shards[s];
+         synchronized(shard) {
+            for(int slot = 0; slot < shard.keys.length && n > 0; slot++) {
+               long count = shard.counts[slot];
+               if(count == 0) {
+                  continue;
+               }
+               if(heap.size() < n) {
+                  heap.add(new long[]{count, s, slot});
+               } else if(count > heap.peek()[0]) {
+                  long[] entry = heap.poll();
+                  entry[0] = count;
+                  entry[1] = s;
+                  entry[2] = slot;
+                  heap.add(entry);
+               }
+            }
+         }
+      }
+      Counter<Tuple> counter = Counters.newCounter();
+      for(long[] entry : heap) {
+         Shard shard = shards[(int) entry[1]];
+         synchronized(shard) {
+            counter.increment(toTuple(shard, (int) entry[2]), entry[0]);
+         }
+      }
+      return counter;
+   }
+
+   /**
+    * Gets the id of the given string in the counter's dictionary, adding the string if it is not yet present.
+    *
+    * @param string the string
+    * @return the id of the string
+    */
+   public int id(@NonNull String string) {
+      Integer id = ids.get(string);
+      if(id == null) {
+         synchronized(strings) {
+            id = ids.get(string);
+            if(id == null) {
+               id = strings.size();
+               strings.add(string);
+               ids.put(string, id);
+            }
+         }
+      }
+      return id;
+   }
+
+   private int[] ids(List<Annotation> annotations) {
+      final LyreExpression trim = extractor.getTrim();
+      final BitSet trimmed = trim == null
+                             ? new BitSet()
+                             : trim.testAll(annotations);
+      final List<Annotation> kept = new ArrayList<>(annotations.size() - trimmed.cardinality());
+      for(int i = trimmed.nextClearBit(0); i < annotations.size(); i = trimmed.nextClearBit(i + 1)) {
+         kept.add(annotations.get(i));
+      }
+      final List<String> keptStrings = extractor.getToString().applyAllAsString(kept);
+      final int[] tokens = new int[annotations.size()];
+      for(int i = 0, k = 0; i < tokens.length; i++) {
+         tokens[i] = trimmed.get(i)
+                     ? TRIMMED
+                     : id(keptStrings.get(k++));
+      }
+      return tokens;
+   }
+
+   private void increment(long key, int[] tokens, int start, int end, int length) {
+      Shard shard = shards[(int) (key >>> (Long.SIZE - SHARD_BITS))];
+      synchronized(shard) {
+         shard.increment(key, tokens, start, end, length, 1);
+      }
+   }
+
+   private Tuple toTuple(Shard shard, int slot) {
+      int offset = shard.offsets[slot];
+      Tuple tuple = Tuple0.INSTANCE;
+      synchronized(strings) {
+         for(int k = 1; k <= shard.pool[offset]; k++) {
+            tuple = tuple.appendRight(strings.get(shard.pool[offset + k]));
+         }
+      }
+      return tuple;
+   }
+
+   @FunctionalInterface
+   private interface NGramConsumer {
+      void accept(long key, int[] tokens, int start, int end, int length);
+   }
+
+   private static class Shard {
+      private long[] keys = new long[64];
+      private long[] counts = new long[64];
+      private int[] offsets = new int[64];
+      private int[] pool = new int[256];
+      private int poolSize = 0;
+      private int size = 0;
+
+      private void grow() {
+         long[] oldKeys = keys;
+         long[] oldCounts = counts;
+         int[] oldOffsets = offsets;
+         keys = new long[oldKeys.length * 2];
+         counts = new long[oldKeys.length * 2];
+         offsets = new int[oldKeys.length * 2];
+         for(int i = 0; i < oldKeys.length; i++) {
+            if(oldCounts[i] > 0) {
+               int slot = (int) oldKeys[i] & (keys.length - 1);
+               while(counts[slot] > 0) {
+                  slot = (slot + 1) & (keys.length - 1);
+               }
+               keys[slot] = oldKeys[i];
+               counts[slot] = oldCounts[i];
+               offsets[slot] = oldOffsets[i];
+            }
+         }
+      }
+
+      private void increment(long key, int[] tokens, int start, int end, int length, long amount) {
+         int slot = (int) key & (keys.length - 1);
+         while(counts[slot] > 0) {
+            if(keys[slot] == key && matches(offsets[slot], tokens, start, end, length)) {
+               counts[slot] += amount;
+               return;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+         }
+         if(poolSize + length + 1 > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + length + 1));
+         }
+         keys[slot] = key;
+         counts[slot] = amount;
+         offsets[slot] = poolSize;
+         pool[poolSize++] = length;
+         for(int i = start; i <= end; i++) {
+            if(tokens[i] != TRIMMED) {
+               pool[poolSize++] = tokens[i];
+            }
+         }
+         size++;
+         //Keep the load factor at or below 0.5
+         if(size * 2 > keys.length) {
+            grow();
+         }
+      }
+
+      private boolean matches(int offset, int[] tokens, int start, int end, int length) {
+         if(pool[offset] != length) {
+            return false;
+         }
+         int k = offset + 1;
+         for(int i = start; i <= end; i++) {
+            if(tokens[i] != TRIMMED && pool[k++] != tokens[i]) {
+               return false;
+            }
+         }
+         return true;
+      }
+   }
+
+}//END OF NGramCounter
@@ -48,7 +48,8 @@ import static com.gengoai.tuple.Tuples.$;
 /**
  * A {@link MultiPhaseExtractor} implementation that extracts n-grams over the desired annotation types. In addition to
  * the standard extraction methods, this extractor provides the {@link #extractStringTuples(HString)} method for
- * returning a list of String tuples of the extractions.
+ * returning a list of String tuples of the extractions. When only the frequencies of the n-grams are needed, an {@link
+ * NGramCounter} counts them without materializing the tuples.
  *
  * @author David B. Bracewell
  */
@@ -149,14 +150,21 @@ public class NGramExtractor extends MultiPhaseExtractor {
             '}';
    }
 
-   private Stream<Tuple> tupleStream(HString string) {
-      List<Annotation> annotations;
+   /**
+    * Gets the annotations over which n-grams are formed for the given text.
+    *
+    * @param string the input text
+    * @return the list of annotations
+    */
+   List<Annotation> nGramAnnotations(HString string) {
       if(getAnnotationTypes().length > 1) {
-         annotations = string.interleaved(getAnnotationTypes());
-      } else {
-         annotations = string.annotations(getAnnotationTypes()[0]);
+         return string.interleaved(getAnnotationTypes());
       }
-      Stream<Tuple> stream = Streams.asStream(new NGramTupleIterator(annotations));
+      return string.annotations(getAnnotationTypes()[0]);
+   }
+
+   private Stream<Tuple> tupleStream(HString string) {
+      Stream<Tuple> stream = Streams.asStream(new NGramTupleIterator(nGramAnnotations(string)));
       if(getTrim() != null) {
          stream = stream.map(h -> {
             Tuple t = Tuple0.INSTANCE;
@@ -0,0 +1,180 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.extraction;
+
+import com.gengoai.Validation;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A weighted undirected graph over int vertices on which the TextRank (weighted PageRank) scores are calculated. Edges
+ * are appended to primitive arrays and converted into compressed sparse row (CSR) form when ranking, where parallel
+ * edges need not be merged as their weights contribute additively. Scores are calculated by power iteration, which
+ * stops once the L1 distance between successive score vectors falls below a tolerance.
+ * </p>
+ * <p>
+ * All arrays are kept between uses and only grown, so that a single instance, e.g. one per thread, can rank the graphs
+ * of many documents without further allocation. Instances are not thread safe.
+ * </p>
+ *
+ * @author David B. Bracewell
+ */
+public final class TextRankGraph {
+   private int numberOfVertices = 0;
+   private int numberOfEdges = 0;
+   private int[] sources = new int[64];
+   private int[] targets = new int[64];
+   private double[] weights = new double[64];
+   private int[] offsets = new int[17];
+   private int[] neighbors = new int[128];
+   private double[] transitions = new double[128];
+   private double[] outWeights = new double[16];
+   private double[] scores = new double[16];
+   private double[] next = new double[16];
+
+   /**
+    * Adds an undirected edge between the given vertices, adding to the weight of any existing edge.
+    *
+    * @param u      the first vertex
+    * @param v      the second vertex
+    * @param weight the weight of the edge, which must be greater than 0
+    */
+   public void addEdge(int u, int v, double weight) {
+      Validation.checkArgument(u >= 0 && u < numberOfVertices && v >= 0 && v < numberOfVertices,
+                               "Vertex out of range");
+      Validation.checkArgument(weight > 0, "Weight must be greater than 0");
+      if(numberOfEdges == sources.length) {
+         sources = Arrays.copyOf(sources, numberOfEdges * 2);
+         targets = Arrays.copyOf(targets, numberOfEdges * 2);
+         weights = Arrays.copyOf(weights, numberOfEdges * 2);
+      }
+      sources[numberOfEdges] = u;
+      targets[numberOfEdges] = v;
+      weights[numberOfEdges] = weight;
+      numberOfEdges++;
+   }
+
+   /**
+    * Gets the number of vertices in the graph.
+    *
+    * @return the number of vertices
+    */
+   public int numberOfVertices() {
+      return numberOfVertices;
+   }
+
+   /**
+    * Calculates the TextRank score of each vertex, where the score of vertex <code>v</code> is <code>(1 - d) + d *
+    * sum(w(u,v) / out(u) * score(u))</code> over the neighbors <code>u</code> of <code>v</code>.
+    *
+    * @param dampingFactor the damping factor <code>d</code>
+    * @param maxIterations the maximum number of iterations
+    * @param tolerance     the L1 distance between successive scores below which the iteration stops
+    * @return the scores indexed by vertex, which is an internal buffer valid until the graph is next reset and whose
+    * length may exceed the number of vertices
+    */
+   public double[] rank(double dampingFactor, int maxIterations, double tolerance) {
+      Validation.checkArgument(dampingFactor >= 0 && dampingFactor <= 1, "Damping factor must be in [0, 1]");
+      compress();
+      Arrays.fill(scores, 0, numberOfVertices, 1.0);
+      for(int iteration = 0; iteration < maxIterations; iteration++) {
+         double delta = 0;
+         for(int v = 0; v < numberOfVertices; v++) {
+            double sum = 0;
+            for(int k = offsets[v]; k < offsets[v + 1]; k++) {
+               sum += transitions[k] * scores[neighbors[k]];
+            }
+            next[v] = (1 - dampingFactor) + dampingFactor * sum;
+            delta += Math.abs(next[v] - scores[v]);
+         }
+         double[] swap = scores;
+         scores = next;
+         next = swap;
+         if(delta < tolerance) {
+            break;
+         }
+      }
+      return scores;
+   }
+
+   /**
+    * Removes all edges and sets the number of vertices.
+    *
+    * @param numberOfVertices the number of vertices
+    */
+   public void reset(int numberOfVertices) {
+      Validation.checkArgument(numberOfVertices >= 0, "Number of vertices must be non-negative");
+      this.numberOfVertices = numberOfVertices;
+      this.numberOfEdges = 0;
+      if(scores.length < numberOfVertices) {
+         int capacity = Math.max(numberOfVertices, scores.length * 2);
+         outWeights = new double[capacity];
+         scores = new double[capacity];
+         next = new double[capacity];
+         offsets = new int[capacity + 1];
+      }
+   }
+
+   private void compress() {
+      //Each edge is stored in the rows of both of its vertices, except self loops which are stored once
+      int entries = 0;
+      for(int e = 0; e < numberOfEdges; e++) {
+         entries += sources[e] == targets[e]
+                    ? 1
+                    : 2;
+      }
+      if(neighbors.length < entries) {
+         neighbors = new int[Math.max(entries, neighbors.length * 2)];
+         transitions = new double[neighbors.length];
+      }
+      Arrays.fill(offsets, 0, numberOfVertices + 1, 0);
+      Arrays.fill(outWeights, 0, numberOfVertices, 0);
+      for(int e = 0; e < numberOfEdges; e++) {
+         offsets[sources[e] + 1]++;
+         outWeights[sources[e]] += weights[e];
+         if(sources[e] != targets[e]) {
+            offsets[targets[e] + 1]++;
+            outWeights[targets[e]] += weights[e];
+         }
+      }
+      for(int v = 0; v < numberOfVertices; v++) {
+         offsets[v + 1] += offsets[v];
+      }
+      //Shift the row starts up by one so that offsets[v + 1] is the insertion point of row v, which is back at the
+      //row's end once the row is filled
+      for(int v = numberOfVertices; v > 0; v--) {
+         offsets[v] = offsets[v - 1];
+      }
+      for(int e = 0; e < numberOfEdges; e++) {
+         int u = sources[e];
+         int v = targets[e];
+         neighbors[offsets[v + 1]] = u;
+         transitions[offsets[v + 1]++] = weights[e] / outWeights[u];
+         if(u != v) {
+            neighbors[offsets[u + 1]] = v;
+            transitions[offsets[u + 1]++] = weights[e] / outWeights[v];
+         }
+      }
+   }
+
+}//END OF TextRankGraph
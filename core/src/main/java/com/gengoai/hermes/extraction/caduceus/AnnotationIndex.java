@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.extraction.caduceus;
+
+import com.gengoai.hermes.*;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * An index of the annotations on a document keyed by their type and span, which allows Caduceus rules to find an
+ * existing annotation with a given type, span, and attributes in constant time rather than querying the document for
+ * every annotation a rule creates. The annotations of a type are indexed the first time the type is requested and the
+ * index is kept up-to-date with the annotations created and removed through it.
+ * </p>
+ *
+ * @author David B. Bracewell
+ */
+final class AnnotationIndex {
+   private final Document document;
+   private final Map<AnnotationType, Map<Long, List<Annotation>>> index = new HashMap<>();
+
+   /**
+    * Instantiates a new AnnotationIndex.
+    *
+    * @param document the document whose annotations are indexed
+    */
+   AnnotationIndex(@NonNull Document document) {
+      this.document = document;
+   }
+
+   private static long key(int start, int end) {
+      return ((long) start << 32) | (end & 0xFFFFFFFFL);
+   }
+
+   /**
+    * Gets the annotation of the given type over the given span whose attributes are equal to the given attributes,
+    * creating and attaching a new annotation when no such annotation exists.
+    *
+    * @param type       the annotation type
+    * @param span       the span of the annotation
+    * @param attributes the attributes of the annotation
+    * @param rule       the id of the rule creating the annotation
+    * @return the annotation
+    */
+   Annotation createOrGet(@NonNull AnnotationType type,
+                          @NonNull HString span,
+                          @NonNull AttributeMap attributes,
+                          @NonNull String rule) {
+      List<Annotation> annotations = spans(type).computeIfAbsent(key(span.start(), span.end()),
+                                                                 k -> new ArrayList<>(1));
+      for(Annotation annotation : annotations) {
+         if(annotation.attributeMap().entrySet().equals(attributes.entrySet())) {
+            return annotation;
+         }
+      }
+      Annotation annotation = document.annotationBuilder(type)
+                                      .bounds(span)
+                                      .attributes(attributes)
+                                      .attribute(Types.CADUCEUS_RULE, rule)
+                                      .createAttached();
+      annotations.add(annotation);
+      return annotation;
+   }
+
+   /**
+    * Removes the given annotation from the document and the index.
+    *
+    * @param annotation the annotation to remove
+    */
+   void remove(@NonNull Annotation annotation) {
+      document.remove(annotation);
+      Map<Long, List<Annotation>> spans = index.get(annotation.getType());
+      if(spans != null) {
+         List<Annotation> annotations = spans.get(key(annotation.start(), annotation.end()));
+         if(annotations != null) {
+            annotations.remove(annotation);
+         }
+      }
+   }
+
+   private Map<Long, List<Annotation>> spans(AnnotationType type) {
+      return index.computeIfAbsent(type, t -> {
+         Map<Long, List<Annotation>> spans = new HashMap<>();
+         for(Annotation annotation : document.annotations(t)) {
+            if(annotation.getType().equals(t)) {
+               spans.computeIfAbsent(key(annotation.start(), annotation.end()), k -> new ArrayList<>(1))
+                    .add(annotation);
+            }
+         }
+         return spans;
+      });
+   }
+
+}//END OF AnnotationIndex
@@ -29,11 +29,16 @@ import com.gengoai.parsing.ParseException;
 import lombok.EqualsAndHashCode;
 import lombok.NonNull;
 import lombok.ToString;
+import lombok.extern.java.Log;
 
-import java.io.IOException;
-import java.io.Serializable;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.io.*;
+import java.lang.invoke.SerializedLambda;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import static com.gengoai.LogUtils.logFine;
 
 /**
  * <p>Caduceus, pronounced <b>ca·du·ceus</b>, is a rule-based information extraction system. Caduceus programs consist
@@ -54,18 +59,137 @@ import java.util.stream.Collectors;
  * </pre>
  * Additionally, attributes can be defined using as follows: <code>$ATTRIBUTE_NAME = VALUE</code>.
  * </p>
+ * <p>
+ * Rules are executed in the order they are defined. Consecutive rules whose triggers do not refer to the annotations,
+ * attributes, or relations created by the rules before them are grouped into a stage whose triggers are matched
+ * together in a single pass over the document, and optionally in parallel (see {@link #execute(Document, boolean)}).
+ * </p>
  */
 @ToString
 @EqualsAndHashCode
+@Log
 public final class CaduceusProgram implements Serializable, Extractor {
+   /**
+    * The file extension of compiled Caduceus programs
+    */
+   public static final String COMPILED_EXTENSION = ".cgc";
+   /**
+    * The file extension of Caduceus program sources
+    */
+   public static final String SOURCE_EXTENSION = ".cg";
+   private static final int COMPILED_MAGIC = 0xCAD0CE05;
+   private static final int COMPILED_VERSION = 2;
+   /**
+    * The classes that may be deserialized from a compiled program
+    */
+   private static final ObjectInputFilter COMPILED_FILTER = ObjectInputFilter.Config.createFilter(
+         "com.gengoai.**;java.lang.*;java.lang.invoke.SerializedLambda;java.math.*;java.util.**;!*");
+   private static final long serialVersionUID = 1L;
    private final List<Rule> rules;
+   @EqualsAndHashCode.Exclude
+   @ToString.Exclude
+   private final List<Stage> stages;
 
    CaduceusProgram(List<Rule> rules) {
       this.rules = rules;
+      this.stages = Stage.partition(rules);
    }
 
    /**
-    * Reads a Caduceus program from the given resource.
+    * Gets the rules of the program.
+    *
+    * @return the rules in program order
+    */
+   List<Rule> getRules() {
+      return Collections.unmodifiableList(rules);
+   }
+
+   /**
+    * Compiles the Caduceus program in the given source resource and writes the compiled program, i.e. the rules with
+    * their compiled TokenRegex and Lyre expressions, to the given output resource along with a hash of the source and a
+    * fingerprint of the build that compiled it. The fingerprint covers the Hermes version and the class files of every
+    * class in the serialized program, so that a compiled program is only reused by the same build.
+    *
+    * @param source the resource containing the Caduceus program
+    * @param output the resource to write the compiled program to
+    * @throws IOException    Something went wrong reading or writing
+    * @throws ParseException Something went wrong parsing the Caduceus program
+    */
+   public static void compile(@NonNull Resource source, @NonNull Resource output) throws IOException, ParseException {
+      String hash = hash(source.readToString().getBytes(StandardCharsets.UTF_8));
+      CaduceusProgram program = CaduceusParser.parse(source);
+      ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+      Set<String> classes;
+      try(ClassRecordingOutputStream oos = new ClassRecordingOutputStream(serialized)) {
+         oos.writeObject(program);
+         classes = oos.classes;
+      }
+      try(DataOutputStream out = new DataOutputStream(output.outputStream())) {
+         out.writeInt(COMPILED_MAGIC);
+         out.writeInt(COMPILED_VERSION);
+         out.writeInt(classes.size());
+         for(String name : classes) {
+            out.writeUTF(name);
+         }
+         out.writeUTF(fingerprint(classes));
+         out.writeUTF(hash);
+         serialized.writeTo(out);
+      }
+   }
+
+   /**
+    * Gets the location of the compiled form of the given Caduceus program source, which is a sibling of the source with
+    * the extension <code>.cgc</code>.
+    *
+    * @param source the resource containing the Caduceus program
+    * @return the location of the compiled program or null if the source has no parent
+    */
+   public static Resource compiledLocation(@NonNull Resource source) {
+      Resource parent = source.getParent();
+      if(parent == null) {
+         return null;
+      }
+      String name = source.baseName();
+      if(name.endsWith(SOURCE_EXTENSION)) {
+         name = name.substring(0, name.length() - SOURCE_EXTENSION.length());
+      }
+      return parent.getChild(name + COMPILED_EXTENSION);
+   }
+
+   private static String fingerprint(Collection<String> classes) throws IOException {
+      ClassLoader loader = CaduceusProgram.class.getClassLoader();
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      String version = CaduceusProgram.class.getPackage().getImplementationVersion();
+      bytes.write(Objects.toString(version, "").getBytes(StandardCharsets.UTF_8));
+      for(String name : classes) {
+         bytes.write(name.getBytes(StandardCharsets.UTF_8));
+         try(InputStream classFile = loader.getResourceAsStream(name.replace('.', '/') + ".class")) {
+            if(classFile != null) {
+               bytes.write(hash(classFile.readAllBytes()).getBytes(StandardCharsets.UTF_8));
+            }
+         }
+      }
+      return hash(bytes.toByteArray());
+   }
+
+   private static String hash(byte[] content) {
+      try {
+         byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+         StringBuilder builder = new StringBuilder();
+         for(byte b : digest) {
+            builder.append(String.format("%02x", b));
+         }
+         return builder.toString();
+      } catch(NoSuchAlgorithmException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   /**
+    * Reads a Caduceus program from the given resource. Resources with the extension <code>.cgc</code> are read as
+    * compiled programs (see {@link #compile(Resource, Resource)}). For a program source, the compiled program next to
+    * the source (see {@link #compiledLocation(Resource)}) is used when it exists and was compiled from the current
+    * version of the source by the same build of Hermes, otherwise the source is parsed.
     *
     * @param resource the resource containing the Caduceus program
     * @return the CaduceusProgram
@@ -73,23 +197,117 @@ public final class CaduceusProgram implements Serializable, Extractor {
     * @throws ParseException Something went wrong parsing the Caduceus program
     */
    public static CaduceusProgram read(@NonNull Resource resource) throws IOException, ParseException {
+      if(resource.baseName().endsWith(COMPILED_EXTENSION)) {
+         CaduceusProgram program = readCompiled(resource, null);
+         if(program == null) {
+            throw new IOException("Invalid compiled Caduceus program: " + resource.descriptor());
+         }
+         return program;
+      }
+      Resource compiled = compiledLocation(resource);
+      if(compiled != null && compiled.exists()) {
+         CaduceusProgram program = readCompiled(compiled,
+                                                 hash(resource.readToString().getBytes(StandardCharsets.UTF_8)));
+         if(program != null) {
+            return program;
+         }
+      }
       return CaduceusParser.parse(resource);
    }
 
+   private static CaduceusProgram readCompiled(Resource resource, String expectedHash) throws IOException {
+      try(DataInputStream in = new DataInputStream(resource.inputStream())) {
+         if(in.readInt() != COMPILED_MAGIC || in.readInt() != COMPILED_VERSION) {
+            return null;
+         }
+         List<String> classes = new ArrayList<>();
+         for(int i = in.readInt(); i > 0; i--) {
+            classes.add(in.readUTF());
+         }
+         if(!fingerprint(classes).equals(in.readUTF())) {
+            logFine(log, "Ignoring compiled Caduceus program from a different build: {0}", resource.descriptor());
+            return null;
+         }
+         String hash = in.readUTF();
+         if(expectedHash != null && !expectedHash.equals(hash)) {
+            logFine(log, "Ignoring stale compiled Caduceus program: {0}", resource.descriptor());
+            return null;
+         }
+         ObjectInputStream ois = new ObjectInputStream(in);
+         ois.setObjectInputFilter(COMPILED_FILTER);
+         return (CaduceusProgram) ois.readObject();
+      } catch(ClassNotFoundException | ObjectStreamException | ClassCastException | EOFException e) {
+         //Compiled with an incompatible version of Hermes, truncated, or contains classes rejected by the filter
+         logFine(log, "Ignoring incompatible compiled Caduceus program: {0} ({1})", resource.descriptor(), e);
+         return null;
+      }
+   }
+
    /**
     * Executes the program over the given document.
     *
     * @param document the document to execute the program on
     */
    public void execute(@NonNull Document document) {
-      rules.forEach(r -> r.execute(document));
+      run(document, false);
+   }
+
+   /**
+    * Executes the program over the given document optionally matching the triggers of independent rules in parallel.
+    * The result of a parallel execution is identical to that of a sequential execution as only the matching of
+    * triggers, which does not modify the document, is done in parallel and the rules are executed in program order.
+    *
+    * @param document the document to execute the program on
+    * @param parallel True - match the triggers of independent rules in parallel, False - execute sequentially
+    */
+   public void execute(@NonNull Document document, boolean parallel) {
+      run(document, parallel);
    }
 
    @Override
    public Extraction extract(@NonNull HString hString) {
       Validation.checkArgument(hString instanceof Document, "Caduceus only accepts Document input");
-      return Extraction.fromHStringList(rules.stream()
-                                             .flatMap(r -> r.execute(hString.document()).stream())
-                                             .collect(Collectors.toList()));
+      return Extraction.fromHStringList(run(hString.document(), false));
    }
+
+   private List<HString> run(Document document, boolean parallel) {
+      final AnnotationIndex index = new AnnotationIndex(document);
+      final List<HString> hits = new ArrayList<>();
+      for(Stage stage : stages) {
+         stage.execute(document, index, hits, parallel);
+      }
+      return hits;
+   }
+   /**
+    * Records the classes written to the stream, including the classes that implement serialized lambdas, so that a
+    * fingerprint of their class files can be stored with the compiled program.
+    */
+   private static final class ClassRecordingOutputStream extends ObjectOutputStream {
+      private final Set<String> classes = new TreeSet<>();
+
+      private ClassRecordingOutputStream(OutputStream out) throws IOException {
+         super(out);
+         enableReplaceObject(true);
+      }
+
+      @Override
+      protected void annotateClass(Class<?> cl) {
+         while(cl.isArray()) {
+            cl = cl.getComponentType();
+         }
+         //Classes from the JDK change with the JVM and are covered by the serialVersionUID checks
+         if(cl.getClassLoader() != null) {
+            classes.add(cl.getName());
+         }
+      }
+
+      @Override
+      protected Object replaceObject(Object obj) {
+         if(obj instanceof SerializedLambda) {
+            classes.add(((SerializedLambda) obj).getCapturingClass().replace('/', '.'));
+         }
+         return obj;
+      }
+   }//END OF CaduceusProgram$ClassRecordingOutputStream
+
 }//END OF CaduceusProgram
@@ -25,6 +25,7 @@ import com.gengoai.collection.multimap.ListMultimap;
 import com.gengoai.collection.multimap.SetMultimap;
 import com.gengoai.hermes.*;
 import com.gengoai.hermes.extraction.lyre.LyreExpression;
+import com.gengoai.hermes.extraction.regex.TokenMatch;
 import com.gengoai.hermes.extraction.regex.TokenMatcher;
 import com.gengoai.hermes.extraction.regex.TokenRegex;
 import com.gengoai.tuple.Tuple2;
@@ -35,15 +36,18 @@ import lombok.Value;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Value
 @Builder
 class Rule implements Serializable {
    private static final long serialVersionUID = 1L;
+   private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\w]+");
    @NonNull
    @Singular
    List<AnnotationProvider> annotationProviders;
@@ -57,93 +61,45 @@ class Rule implements Serializable {
    @NonNull
    TokenRegex trigger;
 
-   private Annotation createOrGet(Document document, AnnotationType type, HString span, AttributeMap attributeValMap) {
-      return document.substring(span.start(), span.end()).annotations(type).stream()
-                     .filter(a -> a.getType().equals(type)
-                           && a.attributeMap().entrySet().equals(attributeValMap.entrySet()))
-                     .findFirst()
-                     .orElseGet(() -> document
-                           .annotationBuilder(type)
-                           .bounds(span)
-                           .attributes(attributeValMap)
-                           .attribute(Types.CADUCEUS_RULE, programFile + "::" + name)
-                           .createAttached());
-   }
-
-   public List<HString> execute(Document document) {
+   /**
+    * Executes the rule over the given document, running its trigger to find the matches to process.
+    *
+    * @param document the document
+    * @param index    the index used to find and create annotations
+    * @return the annotations created or found by the rule
+    */
+   public List<HString> execute(Document document, AnnotationIndex index) {
       List<HString> hits = new ArrayList<>();
       TokenMatcher matcher = trigger.matcher(document);
       while(matcher.find()) {
-         ListMultimap<String, Annotation> groups = new ArrayListMultimap<>();
-         ListMultimap<AnnotationProvider, Annotation> providers = new ArrayListMultimap<>();
-
-         //Process all the annotation providers
-         annotationProviders.forEach(ap -> {
-            if(ap.getCapture().equals("*")) {
-               Annotation annotation = createOrGet(document, ap.getType(), matcher.group(),
-                                                   ap.getAttributeMap());
-               groups.put("*", annotation);
-               providers.put(ap, annotation);
-            } else {
-               matcher.group(ap.getCapture()).forEach(g -> {
-                  Annotation annotation = createOrGet(document, ap.getType(), g, ap.getAttributeMap());
-                  groups.put(ap.getCapture(), annotation);
-                  providers.put(ap, annotation);
-               });
-            }
-         });
-
-         if(!groups.containsKey("*")) {
-            groups.putAll("*", matcher.group().tokens());
-         }
-
-         SetMultimap<String, Tuple2<Annotation, Relation>> relations = new HashSetMultimap<>();
-         for(RelationProvider rp : relationProviders) {
-            List<Annotation> sourceAnnotations = getAnnotation(rp.getSource(), groups, matcher);
-            List<Annotation> targetAnnotations = getAnnotation(rp.getTarget(), groups, matcher);
-            for(Annotation source : sourceAnnotations) {
-               for(Annotation target : targetAnnotations) {
-                  relations.put(rp.getName(), Tuple2.of(source,
-                                                        new Relation(rp.getType(), rp.getValue(), target.getId())));
-                  if(rp.isBidirectional()) {
-                     relations.put(rp.getName(), Tuple2.of(target,
-                                                           new Relation(rp.getType(), rp.getValue(), source.getId())));
-                  }
-               }
-            }
-         }
-
-         Set<String> finalRelations = new HashSet<>();
-         for(RelationProvider rp : relationProviders) {
-            if(relations.keySet().containsAll(rp.getRequired())) {
-               relations.get(rp.getName()).forEach(t -> {
-                  t.getV1().add(t.getV2());
-                  finalRelations.add(rp.getName());
-               });
-            }
-         }
-
-         providers.entries()
-                  .stream()
-                  .filter(entry -> !finalRelations.containsAll(entry.getKey().getRequired()))
-                  .forEach(entry -> document.remove(entry.getValue()));
+         process(matcher.asTokenMatch(), index, hits);
+      }
+      return hits;
+   }
 
-         providers.entries()
-                  .stream()
-                  .filter(entry -> finalRelations.containsAll(entry.getKey().getRequired()))
-                  .forEach(entry -> hits.add(entry.getValue()));
+   /**
+    * Executes the rule over matches of its trigger that have been found ahead of time.
+    *
+    * @param matches the matches of the trigger in the document
+    * @param index   the index used to find and create annotations
+    * @return the annotations created or found by the rule
+    */
+   public List<HString> execute(List<TokenMatch> matches, AnnotationIndex index) {
+      List<HString> hits = new ArrayList<>();
+      for(TokenMatch match : matches) {
+         process(match, index, hits);
       }
       return hits;
    }
 
    private List<Annotation> getAnnotation(Tuple2<String, LyreExpression> point,
                                           ListMultimap<String, Annotation> groups,
-                                          TokenMatcher matcher) {
+                                          TokenMatch match) {
       List<Annotation> annotations;
       if(groups.containsKey(point.v1)) {
          annotations = groups.get(point.v1);
       } else {
-         annotations = matcher.group(point.v1).stream().map(HString::asAnnotation).collect(Collectors.toList());
+         annotations = match.group(point.v1).stream().map(HString::asAnnotation).collect(Collectors.toList());
       }
 
       if(point.v2.getPattern().equals("$_")) {
@@ -161,4 +117,112 @@ class Rule implements Serializable {
       }
       return toReturn;
    }
+
+   private String id() {
+      return programFile + "::" + name;
+   }
+
+   /**
+    * Gets the names of the annotation types (including their parents), attribute types, and relation types the rule
+    * adds to a document.
+    *
+    * @return the set of names
+    */
+   public Set<String> outputs() {
+      List<String> names = new ArrayList<>();
+      names.add(Types.CADUCEUS_RULE.name());
+      for(AnnotationProvider ap : annotationProviders) {
+         for(AnnotationType type = ap.getType(); type != null; type = type.parent()) {
+            names.add(type.name());
+         }
+         if(ap.getAttributeMap() != null) {
+            ap.getAttributeMap().keySet().forEach(a -> names.add(a.name()));
+         }
+      }
+      relationProviders.forEach(rp -> names.add(rp.getType().name()));
+      //Names are compared word by word against the trigger pattern
+      Set<String> outputs = new HashSet<>();
+      for(String name : names) {
+         outputs.addAll(Arrays.asList(WORD_SEPARATOR.split(name.toUpperCase())));
+      }
+      outputs.remove("");
+      return outputs;
+   }
+
+   private void process(TokenMatch match, AnnotationIndex index, List<HString> hits) {
+      ListMultimap<String, Annotation> groups = new ArrayListMultimap<>();
+      ListMultimap<AnnotationProvider, Annotation> providers = new ArrayListMultimap<>();
+
+      //Process all the annotation providers
+      annotationProviders.forEach(ap -> {
+         if(ap.getCapture().equals("*")) {
+            Annotation annotation = index.createOrGet(ap.getType(), match.group(), ap.getAttributeMap(), id());
+            groups.put("*", annotation);
+            providers.put(ap, annotation);
+         } else {
+            match.group(ap.getCapture()).forEach(g -> {
+               Annotation annotation = index.createOrGet(ap.getType(), g, ap.getAttributeMap(), id());
+               groups.put(ap.getCapture(), annotation);
+               providers.put(ap, annotation);
+            });
+         }
+      });
+
+      if(!groups.containsKey("*")) {
+         groups.putAll("*", match.group().tokens());
+      }
+
+      SetMultimap<String, Tuple2<Annotation, Relation>> relations = new HashSetMultimap<>();
+      for(RelationProvider rp : relationProviders) {
+         List<Annotation> sourceAnnotations = getAnnotation(rp.getSource(), groups, match);
+         List<Annotation> targetAnnotations = getAnnotation(rp.getTarget(), groups, match);
+         for(Annotation source : sourceAnnotations) {
+            for(Annotation target : targetAnnotations) {
+               relations.put(rp.getName(), Tuple2.of(source,
+                                                     new Relation(rp.getType(), rp.getValue(), target.getId())));
+               if(rp.isBidirectional()) {
+                  relations.put(rp.getName(), Tuple2.of(target,
+                                                        new Relation(rp.getType(), rp.getValue(), source.getId())));
+               }
+            }
+         }
+      }
+
+      Set<String> finalRelations = new HashSet<>();
+      for(RelationProvider rp : relationProviders) {
+         if(relations.keySet().containsAll(rp.getRequired())) {
+            relations.get(rp.getName()).forEach(t -> {
+               t.getV1().add(t.getV2());
+               finalRelations.add(rp.getName());
+            });
+         }
+      }
+
+      providers.entries()
+               .stream()
+               .filter(entry -> !finalRelations.containsAll(entry.getKey().getRequired()))
+               .forEach(entry -> index.remove(entry.getValue()));
+
+      providers.entries()
+               .stream()
+               .filter(entry -> finalRelations.containsAll(entry.getKey().getRequired()))
+               .forEach(entry -> hits.add(entry.getValue()));
+   }
+
+   /**
+    * Determines if the rule's trigger may read any of the given annotation, attribute, or relation types, in which
+    * case it must not be matched before the rules producing them have executed. The check is conservative: any
+    * occurrence of a type's name in the trigger pattern counts as a read.
+    *
+    * @param names the names of the types
+    * @return True if the trigger may read one of the types
+    */
+   public boolean reads(Set<String> names) {
+      for(String word : WORD_SEPARATOR.split(trigger.pattern().toUpperCase())) {
+         if(names.contains(word)) {
+            return true;
+         }
+      }
+      return false;
+   }
 }//END OF Rule
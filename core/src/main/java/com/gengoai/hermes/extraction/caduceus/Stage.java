@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.extraction.caduceus;
+
+import com.gengoai.hermes.Document;
+import com.gengoai.hermes.HString;
+import com.gengoai.hermes.extraction.regex.TokenMatch;
+import com.gengoai.hermes.extraction.regex.TokenRegexSet;
+import lombok.NonNull;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * <p>
+ * A stage is a run of consecutive rules in a Caduceus program none of whose triggers read the annotations, attributes,
+ * or relations produced by an earlier rule in the stage. The triggers of a stage are compiled into a single {@link
+ * TokenRegexSet} so that a document is scanned once for all of the stage's rules and the matches are then dispatched
+ * to the rules in program order. Rules whose trigger reads the output of an earlier rule start a new stage and a rule
+ * whose trigger reads its own output is placed in a stage by itself where it is matched incrementally as in a
+ * sequential execution.
+ * </p>
+ * <p>
+ * Stages can optionally match their triggers in parallel. The rules of the stage are split into partitions each having
+ * their own TokenRegexSet, which are matched concurrently as matching only reads the document. The matches are
+ * buffered per rule and the rules are then executed sequentially in program order, so that annotations and relations
+ * are created in the same order, and with the same ids, as a sequential execution.
+ * </p>
+ *
+ * @author David B. Bracewell
+ */
+final class Stage implements Serializable {
+   private static final long serialVersionUID = 1L;
+   private final List<Rule> rules;
+   private final TokenRegexSet triggers;
+   private transient volatile Partition[] partitions;
+
+   private Stage(List<Rule> rules) {
+      this.rules = rules;
+      this.triggers = rules.size() > 1
+                      ? TokenRegexSet.of(rules.stream().map(Rule::getTrigger).collect(Collectors.toList()))
+                      : null;
+   }
+
+   /**
+    * Partitions the given rules into stages whose rules can be matched together, keeping the order of the rules.
+    *
+    * @param rules the rules in program order
+    * @return the list of stages
+    */
+   static List<Stage> partition(@NonNull List<Rule> rules) {
+      List<Stage> stages = new ArrayList<>();
+      List<Rule> current = new ArrayList<>();
+      Set<String> outputs = new HashSet<>();
+      for(Rule rule : rules) {
+         Set<String> ruleOutputs = rule.outputs();
+         boolean readsSelf = rule.reads(ruleOutputs);
+         if(!current.isEmpty() && (readsSelf || rule.reads(outputs))) {
+            stages.add(new Stage(current));
+            current = new ArrayList<>();
+            outputs = new HashSet<>();
+         }
+         current.add(rule);
+         outputs.addAll(ruleOutputs);
+         if(readsSelf) {
+            stages.add(new Stage(current));
+            current = new ArrayList<>();
+            outputs = new HashSet<>();
+         }
+      }
+      if(!current.isEmpty()) {
+         stages.add(new Stage(current));
+      }
+      return stages;
+   }
+
+   /**
+    * Executes the rules of the stage over the given document.
+    *
+    * @param document the document
+    * @param index    the index used to find and create annotations
+    * @param hits     the list to add the annotations created or found by the rules to
+    */
+   void execute(@NonNull Document document,
+                @NonNull AnnotationIndex index,
+                @NonNull List<HString> hits,
+                boolean parallel) {
+      if(triggers == null) {
+         hits.addAll(rules.get(0).execute(document, index));
+         return;
+      }
+      List<List<TokenMatch>> matches = new ArrayList<>();
+      for(int i = 0; i < rules.size(); i++) {
+         matches.add(new ArrayList<>());
+      }
+      Partition[] partitions = parallel
+                               ? partitions()
+                               : null;
+      if(partitions == null || partitions.length < 2) {
+         triggers.find(document, (rule, match) -> matches.get(rule).add(match));
+      } else {
+         //Each rule's matches are only added to by the partition containing the rule
+         document.tokens();
+         Arrays.stream(partitions)
+               .parallel()
+               .forEach(partition -> partition.triggers.find(document,
+                                                             (rule, match) -> matches.get(partition.offset + rule)
+                                                                                     .add(match)));
+      }
+      for(int i = 0; i < rules.size(); i++) {
+         if(matches.get(i).size() > 0) {
+            hits.addAll(rules.get(i).execute(matches.get(i), index));
+         }
+      }
+   }
+
+   private Partition[] partitions() {
+      if(partitions == null) {
+         synchronized(this) {
+            if(partitions == null) {
+               int count = Math.min(rules.size(), Runtime.getRuntime().availableProcessors());
+               int size = (rules.size() + count - 1) / count;
+               List<Partition> list = new ArrayList<>();
+               for(int offset = 0; offset < rules.size(); offset += size) {
+                  list.add(new Partition(offset, rules.subList(offset, Math.min(rules.size(), offset + size))));
+               }
+               partitions = list.toArray(new Partition[0]);
+            }
+         }
+      }
+      return partitions;
+   }
+
+   /**
+    * Gets the rules of the stage.
+    *
+    * @return the rules in program order
+    */
+   List<Rule> getRules() {
+      return Collections.unmodifiableList(rules);
+   }
+
+   private static class Partition {
+      final int offset;
+      final TokenRegexSet triggers;
+
+      private Partition(int offset, List<Rule> rules) {
+         this.offset = offset;
+         this.triggers = TokenRegexSet.of(rules.stream().map(Rule::getTrigger).collect(Collectors.toList()));
+      }
+   }
+
+}//END OF Stage
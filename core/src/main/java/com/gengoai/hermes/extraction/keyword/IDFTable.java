@@ -0,0 +1,256 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.extraction.keyword;
+
+import com.gengoai.collection.counter.Counter;
+import com.gengoai.hermes.corpus.Corpus;
+import com.gengoai.hermes.corpus.DocumentCollection;
+import com.gengoai.hermes.extraction.Extractor;
+import com.gengoai.io.resource.Resource;
+import lombok.NonNull;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A persistent table of inverse document frequencies that is memory-mapped rather than loaded onto the heap. The
+ * table is written once, from a {@link DocumentCollection} and an {@link Extractor} or directly from the token
+ * statistics of a {@link Corpus}, and can then be opened by any number of processes, which share the operating
+ * system's page cache.
+ * </p>
+ * <p>
+ * The file stores the UTF-8 encoded terms sorted by their bytes, an array of offsets into the term bytes, and a packed
+ * array of float IDF values. Lookups binary search the mapped term bytes and terms not in the table have an IDF of 0.
+ * Serializing a table only serializes its location, with the file mapped again on first use.
+ * </p>
+ *
+ * @author David B. Bracewell
+ */
+public final class IDFTable implements Serializable {
+   /**
+    * The file extension used for IDF tables
+    */
+   public static final String EXTENSION = ".idf";
+   private static final int MAGIC = 0x1DF7AB1E;
+   private static final int VERSION = 1;
+   private static final int HEADER_SIZE = 20;
+   private static final long serialVersionUID = 1L;
+   private final String location;
+   private transient volatile ByteBuffer buffer;
+   private transient int size;
+   private transient long numberOfDocuments;
+
+   private IDFTable(String location) {
+      this.location = location;
+   }
+
+   /**
+    * Builds an IDF table from the document frequencies of the terms extracted from the given collection.
+    *
+    * @param collection the collection of documents
+    * @param extractor  the extractor generating the terms
+    * @param output     the file to write the table to
+    * @return the IDF table
+    * @throws IOException Something went wrong writing the table
+    */
+   public static IDFTable build(@NonNull DocumentCollection collection,
+                                @NonNull Extractor extractor,
+                                @NonNull Resource output) throws IOException {
+      write(collection.documentCount(extractor), collection.size(), output);
+      return open(output);
+   }
+
+   /**
+    * Builds an IDF table from the token document frequencies stored in the index of the given corpus (see {@link
+    * Corpus#getTokenDocumentCount()}) without decoding any documents. Every document in the corpus must have its
+    * tokens indexed (see {@link Corpus#getTokenIndexedSize()}), otherwise the table is to be built using {@link
+    * #build(DocumentCollection, Extractor, Resource)}.
+    *
+    * @param corpus the corpus
+    * @param output the file to write the table to
+    * @return the IDF table
+    * @throws IOException           Something went wrong writing the table
+    * @throws IllegalStateException Some documents in the corpus do not have their tokens indexed
+    */
+   public static IDFTable build(@NonNull Corpus corpus, @NonNull Resource output) throws IOException {
+      long indexed = corpus.getTokenIndexedSize();
+      long size = corpus.size();
+      if(indexed < size) {
+         throw new IllegalStateException((size - indexed) + " of " + size + " documents do not have their tokens " +
+                                               "indexed; re-index the corpus or build the table using an Extractor");
+      }
+      write(corpus.getTokenDocumentCount(), indexed, output);
+      return open(output);
+   }
+
+   /**
+    * Opens the IDF table stored in the given file.
+    *
+    * @param resource the file containing the table
+    * @return the IDF table
+    * @throws IOException Something went wrong mapping the file or the file is not an IDF table
+    */
+   public static IDFTable open(@NonNull Resource resource) throws IOException {
+      File file = resource.asFile().orElseThrow(() -> new IOException(resource.descriptor() + " is not a file"));
+      IDFTable table = new IDFTable(file.getAbsolutePath());
+      table.map();
+      return table;
+   }
+
+   /**
+    * Writes an IDF table, where the IDF of a term is <code>log(numberOfDocuments / documentFrequency)</code>.
+    *
+    * @param documentFrequencies the document frequencies of the terms
+    * @param numberOfDocuments   the total number of documents
+    * @param output              the file to write the table to
+    * @throws IOException Something went wrong writing the table
+    */
+   public static void write(@NonNull Counter<String> documentFrequencies,
+                            long numberOfDocuments,
+                            @NonNull Resource output) throws IOException {
+      byte[][] terms = new byte[documentFrequencies.size()][];
+      int index = 0;
+      for(String term : documentFrequencies.items()) {
+         terms[index++] = term.getBytes(StandardCharsets.UTF_8);
+      }
+      Arrays.sort(terms, Arrays::compareUnsigned);
+      try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output.outputStream()))) {
+         out.writeInt(MAGIC);
+         out.writeInt(VERSION);
+         out.writeInt(terms.length);
+         out.writeLong(numberOfDocuments);
+         int offset = 0;
+         for(byte[] term : terms) {
+            out.writeInt(offset);
+            offset += term.length;
+         }
+         out.writeInt(offset);
+         for(byte[] term : terms) {
+            double df = documentFrequencies.get(new String(term, StandardCharsets.UTF_8));
+            out.writeFloat((float) Math.log(numberOfDocuments / df));
+         }
+         for(byte[] term : terms) {
+            out.write(term);
+         }
+      }
+   }
+
+   /**
+    * Gets the inverse document frequency of the given term.
+    *
+    * @param term the term
+    * @return the IDF of the term or 0 if the term is not in the table
+    */
+   public double idf(@NonNull String term) {
+      ByteBuffer buffer = buffer();
+      byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+      int termBase = HEADER_SIZE + 8 * size + 4;
+      int low = 0;
+      int high = size - 1;
+      while(low <= high) {
+         int mid = (low + high) >>> 1;
+         int start = buffer.getInt(HEADER_SIZE + 4 * mid);
+         int end = buffer.getInt(HEADER_SIZE + 4 * (mid + 1));
+         int cmp = compare(buffer, termBase + start, end - start, bytes);
+         if(cmp == 0) {
+            return buffer.getFloat(HEADER_SIZE + 4 * (size + 1) + 4 * mid);
+         } else if(cmp < 0) {
+            low = mid + 1;
+         } else {
+            high = mid - 1;
+         }
+      }
+      return 0;
+   }
+
+   /**
+    * Gets the number of documents the table was built from.
+    *
+    * @return the number of documents
+    */
+   public long numberOfDocuments() {
+      buffer();
+      return numberOfDocuments;
+   }
+
+   /**
+    * Gets the number of terms in the table.
+    *
+    * @return the number of terms
+    */
+   public int size() {
+      buffer();
+      return size;
+   }
+
+   @Override
+   public String toString() {
+      return "IDFTable{location='" + location + "'}";
+   }
+
+   private static int compare(ByteBuffer buffer, int position, int length, byte[] bytes) {
+      int n = Math.min(length, bytes.length);
+      for(int i = 0; i < n; i++) {
+         int cmp = Integer.compare(buffer.get(position + i) & 0xFF, bytes[i] & 0xFF);
+         if(cmp != 0) {
+            return cmp;
+         }
+      }
+      return Integer.compare(length, bytes.length);
+   }
+
+   private ByteBuffer buffer() {
+      if(buffer == null) {
+         synchronized(this) {
+            if(buffer == null) {
+               try {
+                  map();
+               } catch(IOException e) {
+                  throw new RuntimeException(e);
+               }
+            }
+         }
+      }
+      return buffer;
+   }
+
+   private void map() throws IOException {
+      try(FileChannel channel = FileChannel.open(new File(location).toPath(), StandardOpenOption.READ)) {
+         ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+         if(mapped.capacity() < HEADER_SIZE || mapped.getInt(0) != MAGIC) {
+            throw new IOException(location + " is not an IDF table");
+         }
+         if(mapped.getInt(4) != VERSION) {
+            throw new IOException("Unsupported IDF table version " + mapped.getInt(4));
+         }
+         this.size = mapped.getInt(8);
+         this.numberOfDocuments = mapped.getLong(12);
+         this.buffer = mapped;
+      }
+   }
+
+}//END OF IDFTable
@@ -33,7 +33,9 @@ import com.gengoai.hermes.extraction.lyre.LyreDSL;
 import lombok.NonNull;
 
 /**
- * Keyword extractor that scores words based on their TFIDF value.
+ * Keyword extractor that scores words based on their TFIDF value. The inverse document frequencies are either learned
+ * via {@link #fit(DocumentCollection)} or read from a precomputed, memory-mapped {@link IDFTable}, in which case no
+ * fitting is required.
  *
  * @author David B. Bracewell
  */
@@ -41,6 +43,7 @@ public class TFIDFKeywordExtractor implements KeywordExtractor {
    private static final long serialVersionUID = 1L;
    private final FeaturizingExtractor termExtractor;
    private Counter<String> inverseDocumentFrequencies;
+   private IDFTable idfTable;
 
    /**
     * Instantiates a new TFIDFKeywordExtractor.
@@ -58,20 +61,39 @@ public class TFIDFKeywordExtractor implements KeywordExtractor {
       this.termExtractor = termExtractor;
    }
 
+   /**
+    * Instantiates a new TFIDFKeywordExtractor using precomputed inverse document frequencies. The terms generated by
+    * the extractor should be in the same form as those in the table.
+    *
+    * @param termExtractor the specification for filtering and converting annotations to strings
+    * @param idfTable      the table of inverse document frequencies
+    */
+   public TFIDFKeywordExtractor(@NonNull FeaturizingExtractor termExtractor, @NonNull IDFTable idfTable) {
+      this.termExtractor = termExtractor;
+      this.idfTable = idfTable;
+   }
+
    @Override
    public Extraction extract(HString source) {
       Counter<String> tf = termExtractor.extract(source).count();
       Counter<String> tfidf = Counters.newCounter();
       final double maxTF = tf.maximumCount();
-      tf.forEach((kw, freq) -> tfidf.set(kw, (0.5 + (0.5 * freq) / maxTF) * inverseDocumentFrequencies.get(kw)));
+      tf.forEach((kw, freq) -> tfidf.set(kw, (0.5 + (0.5 * freq) / maxTF) * idf(kw)));
       return Extraction.fromCounter(tfidf);
    }
 
    @Override
    public void fit(DocumentCollection corpus) {
       final double numDocs = corpus.size();
+      this.idfTable = null;
       this.inverseDocumentFrequencies = corpus.documentCount(termExtractor)
                                               .adjustValuesSelf(d -> Math.log(numDocs / d));
    }
 
+   private double idf(String term) {
+      return idfTable == null
+             ? inverseDocumentFrequencies.get(term)
+             : idfTable.idf(term);
+   }
+
 }//END OF TFIDFKeywordExtractor
@@ -19,27 +19,24 @@
 
 package com.gengoai.hermes.extraction.keyword;
 
-import com.gengoai.collection.Lists;
 import com.gengoai.collection.counter.Counter;
+import com.gengoai.collection.counter.Counters;
 import com.gengoai.collection.multimap.ArrayListMultimap;
 import com.gengoai.collection.multimap.Multimap;
-import com.gengoai.graph.Edge;
-import com.gengoai.graph.Graph;
-import com.gengoai.graph.scoring.PageRank;
 import com.gengoai.hermes.HString;
 import com.gengoai.hermes.Types;
 import com.gengoai.hermes.corpus.DocumentCollection;
 import com.gengoai.hermes.extraction.Extraction;
+import com.gengoai.hermes.extraction.TextRankGraph;
 import com.gengoai.hermes.morphology.PartOfSpeech;
 import com.gengoai.hermes.morphology.StopWords;
-import com.gengoai.tuple.Tuple;
 import lombok.Data;
 import lombok.NonNull;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 /**
  * <p>Implementation of the TextRank algorithm for keyword extraction as defined in:
@@ -47,55 +44,51 @@ import java.util.stream.Collectors;
  * Mihalcea, R., Tarau, P.: "Textrank: Bringing order into texts". In: Lin, D., Wu, D. (eds.) Proceedings of EMNLP 2004.
  * pp. 404–411. Association for Computational Linguistics, Barcelona, Spain. July 2004.
  * </i>
- * Currently supports unweighted undirected graphs.
+ * The co-occurrence graph is built directly into a {@link TextRankGraph}, which is reused across documents by each
+ * thread, and scores are iterated until they converge to within the tolerance or the maximum number of iterations is
+ * reached.
  * </p>
  */
 @Data
 public class TextRank implements KeywordExtractor {
    private static final long serialVersionUID = 1L;
+   private static final ThreadLocal<TextRankGraph> GRAPHS = ThreadLocal.withInitial(TextRankGraph::new);
    private int windowSize = 2;
    private PartOfSpeech[] validPartsOfSpeech = {PartOfSpeech.ADJECTIVE, PartOfSpeech.NOUN, PartOfSpeech.PROPER_NOUN};
    private double ratio = 0.33;
+   private double dampingFactor = 0.85;
+   private int maxIterations = 100;
+   private double tolerance = 0.0001;
 
    @Override
    public Extraction extract(@NonNull HString hString) {
-      Graph<String> g = Graph.undirected();
-
       //Generate the words for the graph
-      List<String> tokens = hString.tokenStream()
-                                   .filter(t -> t.pos().isInstance(validPartsOfSpeech))
-                                   .filter(StopWords.isContentWord())
-                                   .map(HString::getLemma)
-                                   .collect(Collectors.toList());
-
-      //Add the tokens to the graph
-      g.addVertices(new HashSet<>(tokens));
-
+      Map<String, Integer> vertices = new HashMap<>();
+      hString.tokenStream()
+             .filter(t -> t.pos().isInstance(validPartsOfSpeech))
+             .filter(StopWords.isContentWord())
+             .map(HString::getLemma)
+             .forEach(lemma -> vertices.putIfAbsent(lemma, vertices.size()));
+
+      TextRankGraph g = GRAPHS.get();
+      g.reset(vertices.size());
       for(int i = 0; i < hString.tokenLength() - windowSize; i++) {
-         String tiStr = hString.tokenAt(i).toLowerCase();
-
-         if(!g.containsVertex(tiStr)) {
+         Integer ti = vertices.get(hString.tokenAt(i).toLowerCase());
+         if(ti == null) {
             continue;
          }
-
-         Iterable<Tuple> edges = Lists.combinations(hString.tokens().subList(i, i + windowSize), 2);
-         for(Tuple edge : edges) {
-            String tjStr = ((HString) edge.get(1)).getLemma();
-            if(!g.containsVertex(tjStr)) {
-               continue;
-            }
-            Edge<String> e;
-            if(g.containsEdge(tiStr, tjStr)) {
-               e = g.getEdge(tiStr, tjStr);
-            } else {
-               e = g.addEdge(tiStr, tjStr);
+         //The token at offset k in the window is the second element of k pairs of tokens in the window
+         for(int k = 1; k < windowSize; k++) {
+            Integer tj = vertices.get(hString.tokenAt(i + k).getLemma());
+            if(tj != null) {
+               g.addEdge(ti, tj, k);
             }
-            e.setWeight(e.getWeight() + 1);
          }
       }
 
-      PageRank<String> pageRank = new PageRank<>(30, 0.85, 0.0001);
-      Counter<String> scores = pageRank.score(g);
+      double[] ranks = g.rank(dampingFactor, maxIterations, tolerance);
+      Counter<String> scores = Counters.newCounter();
+      vertices.forEach((lemma, vertex) -> scores.set(lemma, ranks[vertex]));
       scores = scores.topN((int) (scores.size() * ratio));
 
       Multimap<String, HString> lemmaToWord = new ArrayListMultimap<>();
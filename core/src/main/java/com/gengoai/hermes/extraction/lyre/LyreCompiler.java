@@ -0,0 +1,302 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.extraction.lyre;
+
+import com.gengoai.function.SerializablePredicate;
+import com.gengoai.math.NumericComparison;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * <p>
+ * Lowers {@link LyreExpression}s whose result type is statically a boolean or a number into method handle trees. A
+ * predicate is lowered to a handle of type <code>(Object)boolean</code> and a numeric expression to a handle of type
+ * <code>(Object)double</code>.
+ * </p>
+ * <ul>
+ *    <li><code>&&</code> and <code>||</code> are lowered to {@link MethodHandles#guardWithTest(MethodHandle,
+ *    MethodHandle, MethodHandle)} so that they short-circuit in the same order as their closures.</li>
+ *    <li><code>!</code> is lowered to {@link MethodHandles#filterReturnValue(MethodHandle, MethodHandle)}.</li>
+ *    <li><code>^</code>, comparisons of numeric expressions and <code>+</code> of numeric expressions combine the
+ *    handles of their operands with {@link MethodHandles#filterArguments(MethodHandle, int, MethodHandle...)}.</li>
+ *    <li>Constants are lowered to constant handles.</li>
+ *    <li>Every other expression is a leaf bound to its primitive closure, or to {@link
+ *    LyreExpression#testObject(Object)} / {@link LyreExpression#applyAsDouble(Object)} when it has no primitive
+ *    form or its result is shared.</li>
+ * </ul>
+ * <p>
+ * Top-level expressions with shared sub-expressions are wrapped in a <code>try/finally</code> handle that scopes the
+ * cached results of the shared sub-expressions to a single evaluation.
+ * </p>
+ *
+ * @author David B. Bracewell
+ */
+final class LyreCompiler {
+   private static final MethodHandle APPLY_AS_DOUBLE;
+   private static final MethodHandle COMPARE;
+   private static final MethodHandle ENTER;
+   private static final MethodHandle EXIT_DOUBLE;
+   private static final MethodHandle EXIT_PREDICATE;
+   private static final MethodHandle FALSE;
+   private static final MethodHandle IS_FINITE;
+   private static final MethodHandle NOT;
+   private static final MethodHandle NUMERIC;
+   private static final MethodHandle PREDICATE;
+   private static final MethodHandle SUM;
+   private static final MethodHandle TEST;
+   private static final MethodHandle TO_DOUBLE;
+   private static final MethodHandle TRUE;
+   private static final MethodHandle XOR;
+
+   static {
+      final MethodHandles.Lookup lookup = MethodHandles.lookup();
+      try {
+         APPLY_AS_DOUBLE = lookup.findVirtual(LyreExpression.class,
+                                              "applyAsDouble",
+                                              methodType(double.class, Object.class));
+         COMPARE = lookup.findStatic(LyreCompiler.class,
+                                     "compare",
+                                     methodType(boolean.class, NumericComparison.class, double.class, double.class));
+         ENTER = lookup.findStatic(LyreOptimizer.class, "enter", methodType(void.class));
+         EXIT_DOUBLE = lookup.findStatic(LyreCompiler.class,
+                                         "exit",
+                                         methodType(double.class, Throwable.class, double.class));
+         EXIT_PREDICATE = lookup.findStatic(LyreCompiler.class,
+                                            "exit",
+                                            methodType(boolean.class, Throwable.class, boolean.class));
+         IS_FINITE = lookup.findStatic(Double.class, "isFinite", methodType(boolean.class, double.class));
+         NOT = lookup.findStatic(LyreCompiler.class, "not", methodType(boolean.class, boolean.class));
+         NUMERIC = lookup.findStatic(LyreCompiler.class,
+                                     "applyAsDouble",
+                                     methodType(double.class, LyreExpression.NumericFunction.class, Object.class));
+         PREDICATE = lookup.findStatic(LyreCompiler.class,
+                                       "test",
+                                       methodType(boolean.class, SerializablePredicate.class, Object.class));
+         SUM = lookup.findStatic(Double.class, "sum", methodType(double.class, double.class, double.class));
+         TEST = lookup.findVirtual(LyreExpression.class, "testObject", methodType(boolean.class, Object.class));
+         TO_DOUBLE = lookup.findStatic(LyreCompiler.class, "toDouble", methodType(double.class, boolean.class));
+         XOR = lookup.findStatic(LyreCompiler.class,
+                                 "xor",
+                                 methodType(boolean.class, boolean.class, boolean.class));
+      } catch(ReflectiveOperationException e) {
+         throw new ExceptionInInitializerError(e);
+      }
+      FALSE = constant(false);
+      TRUE = constant(true);
+   }
+
+   private LyreCompiler() {
+      throw new IllegalAccessError();
+   }
+
+   /**
+    * Lowers <code>first && second</code>, where <code>second</code> is only evaluated when <code>first</code> is
+    * true.
+    *
+    * @param first  the predicate evaluated first
+    * @param second the predicate evaluated second
+    * @return the <code>(Object)boolean</code> handle
+    */
+   static MethodHandle and(LyreExpression first, LyreExpression second) {
+      return MethodHandles.guardWithTest(predicate(first), predicate(second), FALSE);
+   }
+
+   /**
+    * Lowers the comparison of two numeric expressions.
+    *
+    * @param comparison the comparison
+    * @param left       the left-hand expression
+    * @param right      the right-hand expression
+    * @return the <code>(Object)boolean</code> handle
+    */
+   static MethodHandle compare(NumericComparison comparison, LyreExpression left, LyreExpression right) {
+      return combine(COMPARE.bindTo(comparison), numeric(left), numeric(right));
+   }
+
+   /**
+    * Lowers an expression with a primitive form.
+    *
+    * @param lowering  the structural lowering of the expression or null if the expression is a leaf
+    * @param predicate the primitive predicate form or null if the expression is numeric
+    * @param numeric   the primitive numeric form or null if the expression is a predicate
+    * @param constant  True if the expression is constant
+    * @param scoped    True if the evaluation should be scoped for shared sub-expressions
+    * @return the <code>(Object)boolean</code> handle for predicates or <code>(Object)double</code> handle otherwise
+    */
+   static MethodHandle lower(LyreExpression.Lowering lowering,
+                             SerializablePredicate<Object> predicate,
+                             LyreExpression.NumericFunction numeric,
+                             boolean constant,
+                             boolean scoped) {
+      MethodHandle handle;
+      if(constant) {
+         handle = predicate != null
+                  ? constant(predicate.test(null))
+                  : constant(numeric.applyAsDouble(null));
+      } else if(lowering != null) {
+         handle = lowering.lower();
+      } else if(predicate != null) {
+         handle = PREDICATE.bindTo(predicate);
+      } else {
+         handle = NUMERIC.bindTo(numeric);
+      }
+      if(scoped) {
+         handle = MethodHandles.tryFinally(handle,
+                                           predicate != null
+                                           ? EXIT_PREDICATE
+                                           : EXIT_DOUBLE);
+         handle = MethodHandles.foldArguments(handle, ENTER);
+      }
+      return handle;
+   }
+
+   /**
+    * Lowers <code>!expression</code>.
+    *
+    * @param expression the predicate to negate
+    * @return the <code>(Object)boolean</code> handle
+    */
+   static MethodHandle not(LyreExpression expression) {
+      return MethodHandles.filterReturnValue(predicate(expression), NOT);
+   }
+
+   /**
+    * Lowers an expression to a handle calculating its double value as {@link LyreExpression#applyAsDouble(Object)}
+    * does.
+    *
+    * @param expression the expression
+    * @return the <code>(Object)double</code> handle
+    */
+   static MethodHandle numeric(LyreExpression expression) {
+      MethodHandle handle = expression.lowered();
+      if(handle == null) {
+         return APPLY_AS_DOUBLE.bindTo(expression);
+      }
+      return expression.isCompiledNumeric()
+             ? handle
+             : MethodHandles.filterReturnValue(handle, TO_DOUBLE);
+   }
+
+   /**
+    * Lowers <code>first || second</code>, where <code>second</code> is only evaluated when <code>first</code> is
+    * false.
+    *
+    * @param first  the predicate evaluated first
+    * @param second the predicate evaluated second
+    * @return the <code>(Object)boolean</code> handle
+    */
+   static MethodHandle or(LyreExpression first, LyreExpression second) {
+      return MethodHandles.guardWithTest(predicate(first), TRUE, predicate(second));
+   }
+
+   /**
+    * Lowers the sum of two numeric expressions.
+    *
+    * @param left  the left-hand expression
+    * @param right the right-hand expression
+    * @return the <code>(Object)double</code> handle
+    */
+   static MethodHandle plus(LyreExpression left, LyreExpression right) {
+      return combine(SUM, numeric(left), numeric(right));
+   }
+
+   /**
+    * Lowers an expression to a handle testing it as {@link LyreExpression#testObject(Object)} does.
+    *
+    * @param expression the expression
+    * @return the <code>(Object)boolean</code> handle
+    */
+   static MethodHandle predicate(LyreExpression expression) {
+      MethodHandle handle = expression.lowered();
+      if(handle == null) {
+         return TEST.bindTo(expression);
+      }
+      return expression.isCompiledPredicate()
+             ? handle
+             : MethodHandles.filterReturnValue(handle, IS_FINITE);
+   }
+
+   /**
+    * Lowers <code>left ^ right</code>.
+    *
+    * @param left  the left-hand predicate
+    * @param right the right-hand predicate
+    * @return the <code>(Object)boolean</code> handle
+    */
+   static MethodHandle xor(LyreExpression left, LyreExpression right) {
+      return combine(XOR, predicate(left), predicate(right));
+   }
+
+   private static double applyAsDouble(LyreExpression.NumericFunction numeric, Object object) {
+      return numeric.applyAsDouble(object);
+   }
+
+   private static MethodHandle combine(MethodHandle operator, MethodHandle left, MethodHandle right) {
+      //(Object, Object)R with each argument filtered by an operand, then both arguments bound to the single input
+      MethodHandle handle = MethodHandles.filterArguments(operator, 0, left, right);
+      return MethodHandles.permuteArguments(handle, methodType(operator.type().returnType(), Object.class), 0, 0);
+   }
+
+   private static boolean compare(NumericComparison comparison, double left, double right) {
+      return comparison.compare(left, right);
+   }
+
+   private static MethodHandle constant(boolean value) {
+      return MethodHandles.dropArguments(MethodHandles.constant(boolean.class, value), 0, Object.class);
+   }
+
+   private static MethodHandle constant(double value) {
+      return MethodHandles.dropArguments(MethodHandles.constant(double.class, value), 0, Object.class);
+   }
+
+   private static boolean exit(Throwable throwable, boolean result) {
+      LyreOptimizer.exit();
+      return result;
+   }
+
+   private static double exit(Throwable throwable, double result) {
+      LyreOptimizer.exit();
+      return result;
+   }
+
+   private static boolean not(boolean value) {
+      return !value;
+   }
+
+   private static boolean test(SerializablePredicate<Object> predicate, Object object) {
+      return predicate.test(object);
+   }
+
+   private static double toDouble(boolean value) {
+      return value
+             ? 1.0
+             : 0.0;
+   }
+
+   private static boolean xor(boolean left, boolean right) {
+      return left ^ right;
+   }
+
+}//END OF LyreCompiler
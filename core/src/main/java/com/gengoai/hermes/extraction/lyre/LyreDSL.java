@@ -50,6 +50,7 @@ import lombok.NonNull;
 
 import java.util.*;
 import java.util.function.Function;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -80,51 +81,53 @@ public final class LyreDSL {
     *    Usage:  false
     * </pre>
     */
-   public static final LyreExpression FALSE = new LyreExpression("false", PREDICATE, o -> false);
+   public static final LyreExpression FALSE = LyreExpression.constant("false", PREDICATE, false);
    /**
     * Returns a constant true value for any object
     * <pre>
     *    Usage:  ~
     * </pre>
     */
-   public static final LyreExpression MATCH_ALL = new LyreExpression("~", PREDICATE, o -> true);
+   public static final LyreExpression MATCH_ALL = LyreExpression.constant("~", PREDICATE, true);
    /**
     * Returns a constant NaN value
     * <pre>
     *    Usage:  NaN
     * </pre>
     */
-   public static final LyreExpression NAN = new LyreExpression("NaN", NUMERIC, o -> Double.NaN);
+   public static final LyreExpression NAN = LyreExpression.constant("NaN", NUMERIC, Double.NaN);
    /**
     * Returns a constant Negative Infinity value
     * <pre>
     *    Usage:  -INF
     * </pre>
     */
-   public static final LyreExpression NEGATIVE_INFINITY = new LyreExpression("-INF", NUMERIC,
-                                                                             o -> Double.NEGATIVE_INFINITY);
+   public static final LyreExpression NEGATIVE_INFINITY = LyreExpression.constant("-INF",
+                                                                              NUMERIC,
+                                                                              Double.NEGATIVE_INFINITY);
    /**
     * Returns a constant null value.
     * <pre>
     *    Usage:  null
     * </pre>
     */
-   public static final LyreExpression NULL = new LyreExpression("null", OBJECT, o -> null);
+   public static final LyreExpression NULL = LyreExpression.constant("null", OBJECT, null);
    /**
     * Returns a constant Positive Infinity value
     * <pre>
     *    Usage:  INF
     * </pre>
     */
-   public static final LyreExpression POSITIVE_INFINITY = new LyreExpression("INF", NUMERIC,
-                                                                             o -> Double.POSITIVE_INFINITY);
+   public static final LyreExpression POSITIVE_INFINITY = LyreExpression.constant("INF",
+                                                                              NUMERIC,
+                                                                              Double.POSITIVE_INFINITY);
    /**
     * Returns a constant true value
     * <pre>
     *    Usage:  true
     * </pre>
     */
-   public static final LyreExpression TRUE = new LyreExpression("true", PREDICATE, o -> true);
+   public static final LyreExpression TRUE = LyreExpression.constant("true", PREDICATE, true);
    /**
     * Converts a list of values into binary features over the current HString.
     * <pre>
@@ -345,9 +348,9 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression all(@NonNull LyreExpression list, @NonNull LyreExpression predicate) {
-      return new LyreExpression(formatMethod("all", list, predicate),
-                                PREDICATE,
-                                o -> list.applyAsList(o).stream().allMatch(predicate::testObject));
+      final SerializablePredicate<Object> p = predicate.asPredicate();
+      return LyreExpression.compiledPredicate(formatMethod("all", list, predicate),
+                                              o -> list.applyAsList(o).stream().allMatch(p), list, predicate);
    }
 
    /**
@@ -362,9 +365,25 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression and(@NonNull LyreExpression left, @NonNull LyreExpression right) {
-      return new LyreExpression(String.format("%s && %s", left, right),
-                                PREDICATE,
-                                o -> left.testObject(o) && right.testObject(o));
+      final String pattern = String.format("%s && %s", left, right);
+      if(LyreOptimizer.constantTruth(left) == Boolean.FALSE || LyreOptimizer.constantTruth(right) == Boolean.FALSE) {
+         return LyreExpression.constant(pattern, PREDICATE, false);
+      }
+      //Evaluate the cheaper predicate first so that it can short-circuit the more expensive one
+      final LyreExpression first = right.cost() < left.cost()
+                                   ? right
+                                   : left;
+      final LyreExpression second = first == left
+                                    ? right
+                                    : left;
+      final SerializablePredicate<Object> p1 = first.asPredicate();
+      final SerializablePredicate<Object> p2 = second.asPredicate();
+      return LyreExpression.vectorizedPredicate(pattern,
+                                                o -> p1.test(o) && p2.test(o),
+                                                objects -> testSelected(objects, first.testColumn(objects), second),
+                                                () -> LyreCompiler.and(first, second),
+                                                first,
+                                                second);
    }
 
    /**
@@ -389,7 +408,7 @@ public final class LyreDSL {
                                       out = expression.applyAsObject(out);
                                    }
                                    return out;
-                                });
+                                }, expressions);
    }
 
    /**
@@ -436,10 +455,11 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(STRING, HSTRING, OBJECT),
                                "Illegal Expression: annotation only accepts a STRING, HSTRING, or OBJECT, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod(String.format("@%s", type), expression),
-                                HSTRING,
-                                o -> process(true, expression.applyAsObject(o),
-                                             h -> toHString(h).annotations(type)));
+      return unary(formatMethod(String.format("@%s", type), expression),
+                   HSTRING,
+                   true,
+                   h -> toHString(h).annotations(type),
+                   expression);
    }
 
    /**
@@ -460,7 +480,12 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(STRING, HSTRING, OBJECT),
                                "Illegal Expression: annotation only accepts a STRING, HSTRING, or OBJECT, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod(String.format("@%s", type), expression),
+      return new LyreExpression(formatMethod(String.format("@%s%s",
+                                                           type,
+                                                           Strings.isNullOrBlank(tag)
+                                                           ? ""
+                                                           : "{" + tag + "}"),
+                                             expression),
                                 HSTRING,
                                 o -> process(true, expression.applyAsObject(o),
                                              h -> {
@@ -471,7 +496,7 @@ public final class LyreDSL {
                                                                       .filter(a -> a.tagIsA(tag))
                                                                       .collect(Collectors.toList());
                                                 }
-                                             }));
+                                             }), expression);
    }
 
    /**
@@ -486,9 +511,9 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression any(@NonNull LyreExpression list, @NonNull LyreExpression predicate) {
-      return new LyreExpression(formatMethod("any", list, predicate),
-                                PREDICATE,
-                                o -> list.applyAsList(o).stream().anyMatch(predicate::testObject));
+      final SerializablePredicate<Object> p = predicate.asPredicate();
+      return LyreExpression.compiledPredicate(formatMethod("any", list, predicate),
+                                              o -> list.applyAsList(o).stream().anyMatch(p), list, predicate);
    }
 
    /**
@@ -506,7 +531,7 @@ public final class LyreDSL {
    public static LyreExpression apply(@NonNull LyreExpression object, @NonNull LyreExpression operator) {
       return new LyreExpression(String.format("%s ~= %s", object, operator),
                                 operator.getType(),
-                                o -> operator.applyAsObject(object.applyAsObject(o)));
+                                o -> operator.applyAsObject(object.applyAsObject(o)), object, operator);
    }
 
    /**
@@ -563,10 +588,11 @@ public final class LyreDSL {
       LyreExpressionType eType = TypeUtils.isAssignable(type.getValueType(), String.class)
                                  ? STRING
                                  : OBJECT;
-      return new LyreExpression(formatMethod(String.format("$%s", type), expression),
-                                eType,
-                                o -> process(false, expression.applyAsObject(o),
-                                             h -> toHString(h).attribute(type)));
+      return unary(formatMethod(String.format("$%s", type), expression),
+                   eType,
+                   false,
+                   h -> toHString(h).attribute(type),
+                   expression);
    }
 
    /**
@@ -624,6 +650,49 @@ public final class LyreDSL {
       return feature(ValueCalculator.Binary, expression);
    }
 
+   private static LyreExpression compare(String pattern,
+                                         LyreExpression left,
+                                         LyreExpression right,
+                                         NumericComparison comparison) {
+      if(left.isCompiledNumeric() && right.isCompiledNumeric()) {
+         final LyreExpression.NumericFunction l = left.asNumeric();
+         final LyreExpression.NumericFunction r = right.asNumeric();
+         return LyreExpression.vectorizedPredicate(pattern,
+                                                   o -> comparison.compare(l.applyAsDouble(o), r.applyAsDouble(o)),
+                                                   objects -> {
+                                                      double[] lValues = left.applyColumnAsDouble(objects);
+                                                      double[] rValues = right.applyColumnAsDouble(objects);
+                                                      BitSet bits = new BitSet(objects.length);
+                                                      for(int i = 0; i < objects.length; i++) {
+                                                         if(comparison.compare(lValues[i], rValues[i])) {
+                                                            bits.set(i);
+                                                         }
+                                                      }
+                                                      return bits;
+                                                   },
+                                                   () -> LyreCompiler.compare(comparison, left, right),
+                                                   left,
+                                                   right);
+      }
+      return LyreExpression.vectorizedPredicate(pattern,
+                                                o -> compareObjectPredicate(left.applyAsObject(o),
+                                                                            right.applyAsObject(o),
+                                                                            comparison),
+                                                objects -> {
+                                                   Object[] lValues = left.applyColumn(objects);
+                                                   Object[] rValues = right.applyColumn(objects);
+                                                   BitSet bits = new BitSet(objects.length);
+                                                   for(int i = 0; i < objects.length; i++) {
+                                                      if(compareObjectPredicate(lValues[i], rValues[i], comparison)) {
+                                                         bits.set(i);
+                                                      }
+                                                   }
+                                                   return bits;
+                                                },
+                                                left,
+                                                right);
+   }
+
    private static boolean compareObjectPredicate(Object l, Object r, NumericComparison comparison) {
       if(l == null || r == null) {
          switch(comparison) {
@@ -746,7 +815,7 @@ public final class LyreDSL {
                                       }
                                    }
                                    return targ;
-                                });
+                                }, expression, relative_position);
    }
 
    /**
@@ -805,9 +874,12 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(OBJECT, HSTRING, STRING),
                                "Illegal Expression: count only accepts OBJECT, HSTRING, or STRING expressions, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod("count", expression),
+      return new LyreExpression(valueCalculator == ValueCalculator.Frequency
+                                ? formatMethod("count", expression)
+                                : formatMethod("count", expression, literal(valueCalculator.name())),
                                 COUNTER,
-                                o -> valueCalculator.adjust(Counters.newCounter(expression.applyAsList(o))));
+                                o -> valueCalculator.adjust(Counters.newCounter(expression.applyAsList(o))),
+                                expression);
    }
 
    /**
@@ -897,8 +969,7 @@ public final class LyreDSL {
             }
             return h.children(relation);
          }
-      })
-      );
+      }), expression);
    }
 
    /**
@@ -914,11 +985,7 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression eq(@NonNull LyreExpression left, @NonNull LyreExpression right) {
-      return new LyreExpression(String.format("%s = %s", left, right),
-                                PREDICATE,
-                                o -> compareObjectPredicate(left.applyAsObject(o),
-                                                            right.applyAsObject(o),
-                                                            NumericComparison.EQ));
+      return compare(String.format("%s = %s", left, right), left, right, NumericComparison.EQ);
    }
 
    /**
@@ -949,18 +1016,17 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression exists(@NonNull LyreExpression expression) {
-      return new LyreExpression(formatMethod("exists", expression),
-                                PREDICATE,
-                                o -> processPred(expression.applyAsObject(o),
-                                                 a -> {
-                                                    if(a instanceof List) {
-                                                       return Cast.<List>as(a).size() > 0;
-                                                    }
-                                                    return Optional.ofNullable(a)
-                                                                   .map(Object::toString)
-                                                                   .map(Strings::isNotNullOrBlank)
-                                                                   .orElse(false);
-                                                 }));
+      return unaryPredicate(formatMethod("exists", expression),
+                            a -> {
+                               if(a instanceof List) {
+                                  return Cast.<List>as(a).size() > 0;
+                               }
+                               return Optional.ofNullable(a)
+                                              .map(Object::toString)
+                                              .map(Strings::isNotNullOrBlank)
+                                              .orElse(false);
+                            },
+                            expression);
    }
 
    /**
@@ -1026,7 +1092,7 @@ public final class LyreDSL {
                                                .entries()
                                                .stream()
                                                .map(e -> Variable.real(prefix, e.getKey(), e.getValue()))
-                                               .collect(Collectors.toList()));
+                                               .collect(Collectors.toList()), expression);
    }
 
    /**
@@ -1044,7 +1110,7 @@ public final class LyreDSL {
       return new LyreExpression(formatMethod("filter", list, predicate),
                                 list.getType(),
                                 obj -> list.applyAsList(obj).stream().filter(predicate::testObject).collect(
-                                      Collectors.toList()));
+                                      Collectors.toList()), list, predicate);
    }
 
    static Object filter(Object o, SerializablePredicate<Object> function) {
@@ -1074,7 +1140,7 @@ public final class LyreDSL {
    public static LyreExpression first(@NonNull LyreExpression list) {
       return new LyreExpression(formatMethod("first", list),
                                 list.getType(),
-                                o -> Iterables.getFirst(list.applyAsList(o)).orElse(null));
+                                o -> Iterables.getFirst(list.applyAsList(o)).orElse(null), list);
    }
 
    /**
@@ -1090,7 +1156,7 @@ public final class LyreDSL {
     */
    public static LyreExpression flatten(@NonNull LyreExpression list) {
       return new LyreExpression(formatMethod("flatten", list),
-                                list.getType(), o -> flatten(list.applyAsList(o)));
+                                list.getType(), o -> flatten(list.applyAsList(o)), list);
    }
 
    private static List<Object> flatten(Collection<Object> list) {
@@ -1210,7 +1276,7 @@ public final class LyreDSL {
                                       ei = Math.max(list.size() + ei, 0);
                                    }
                                    return Iterables.get(list, ei).orElse(null);
-                                });
+                                }, listExpression, index);
    }
 
    /**
@@ -1226,10 +1292,7 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression gt(@NonNull LyreExpression left, @NonNull LyreExpression right) {
-      return new LyreExpression(String.format("%s > %s", left, right),
-                                PREDICATE, o -> compareObjectPredicate(left.applyAsObject(o),
-                                                                       right.applyAsObject(o),
-                                                                       NumericComparison.GT));
+      return compare(String.format("%s > %s", left, right), left, right, NumericComparison.GT);
    }
 
    /**
@@ -1261,10 +1324,7 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression gte(@NonNull LyreExpression left, @NonNull LyreExpression right) {
-      return new LyreExpression(String.format("%s >= %s", left, right),
-                                PREDICATE, o -> compareObjectPredicate(left.applyAsObject(o),
-                                                                       right.applyAsObject(o),
-                                                                       NumericComparison.GTE));
+      return compare(String.format("%s >= %s", left, right), left, right, NumericComparison.GTE);
    }
 
    /**
@@ -1300,18 +1360,17 @@ public final class LyreDSL {
       Validation.checkArgument(container.isInstance(HSTRING),
                                "Illegal Expression: has.container only accepts a HSTRING, but '"
                                      + container + "' was provided which is of type " + container.getType());
-      return new LyreExpression(String.format("(%s has %s)", container, expression),
-                                PREDICATE,
-                                obj -> {
-                                   HString bucket = toHString(container.applyAsObject(obj));
-                                   final SerializablePredicate<HString> effective;
-                                   if(expression.getType().isInstance(PREDICATE)) {
-                                      effective = expression;
-                                   } else {
-                                      effective = v -> expression.applyAsObject(v) != null;
-                                   }
-                                   return bucket.annotationStream().anyMatch(effective);
-                                });
+      return LyreExpression.compiledPredicate(String.format("(%s has %s)", container, expression),
+                                              obj -> {
+                                                 HString bucket = toHString(container.applyAsObject(obj));
+                                                 final SerializablePredicate<HString> effective;
+                                                 if(expression.getType().isInstance(PREDICATE)) {
+                                                    effective = expression;
+                                                 } else {
+                                                    effective = v -> expression.applyAsObject(v) != null;
+                                                 }
+                                                 return bucket.annotationStream().anyMatch(effective);
+                                              }, container, expression);
    }
 
    /**
@@ -1328,13 +1387,12 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(HSTRING, STRING, OBJECT),
                                "Illegal Expression: hasStopWord only accepts a HSTRING, STRING, or OBJECT, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod("hasStopWord", expression),
-                                PREDICATE,
-                                o -> processPred(expression.applyAsObject(o),
-                                                 a -> Optional.ofNullable(a)
-                                                              .map(HString::toHString)
-                                                              .map(h -> StopWords.hasStopWord().test(h))
-                                                              .orElse(false)));
+      return unaryPredicate(formatMethod("hasStopWord", expression),
+                            a -> Optional.ofNullable(a)
+                                         .map(HString::toHString)
+                                         .map(h -> StopWords.hasStopWord().test(h))
+                                         .orElse(false),
+                            expression);
    }
 
    /**
@@ -1357,7 +1415,7 @@ public final class LyreDSL {
                                 LyreExpressionType.determineCommonType(Arrays.asList(whenFalse, whenTrue)),
                                 o -> condition.testObject(o)
                                      ? whenTrue.applyAsObject(o)
-                                     : whenFalse.applyAsObject(o));
+                                     : whenFalse.applyAsObject(o), condition, whenTrue, whenFalse);
    }
 
    /**
@@ -1374,30 +1432,29 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression in(@NonNull LyreExpression object, @NonNull LyreExpression container) {
-      return new LyreExpression(String.format("(%s in %s)", object, container),
-                                PREDICATE,
-                                o -> {
-                                   Object bucket = container.applyAsObject(o);
-                                   Object searchingFor = object.applyAsObject(o);
-                                   if(bucket == null || searchingFor == null) {
-                                      return false;
-                                   }
-                                   if(bucket instanceof WordList) {
-                                      WordList wordList = Cast.as(bucket);
-                                      return wordList.contains(searchingFor.toString());
-                                   }
-                                   if(bucket instanceof Collection) {
-                                      Collection<?> c = Cast.as(bucket);
-                                      if(c.isEmpty()) {
-                                         return false;
-                                      }
-                                      if(searchingFor instanceof HString) {
-                                         return c.contains(searchingFor) || c.contains(searchingFor.toString());
-                                      }
-                                      return c.contains(searchingFor);
-                                   }
-                                   return bucket.toString().contains(searchingFor.toString());
-                                });
+      return LyreExpression.compiledPredicate(String.format("(%s in %s)", object, container),
+                                              o -> {
+                                                 Object bucket = container.applyAsObject(o);
+                                                 Object searchingFor = object.applyAsObject(o);
+                                                 if(bucket == null || searchingFor == null) {
+                                                    return false;
+                                                 }
+                                                 if(bucket instanceof WordList) {
+                                                    WordList wordList = Cast.as(bucket);
+                                                    return wordList.contains(searchingFor.toString());
+                                                 }
+                                                 if(bucket instanceof Collection) {
+                                                    Collection<?> c = Cast.as(bucket);
+                                                    if(c.isEmpty()) {
+                                                       return false;
+                                                    }
+                                                    if(searchingFor instanceof HString) {
+                                                       return c.contains(searchingFor) || c.contains(searchingFor.toString());
+                                                    }
+                                                    return c.contains(searchingFor);
+                                                 }
+                                                 return bucket.toString().contains(searchingFor.toString());
+                                              }, object, container);
    }
 
    /**
@@ -1418,7 +1475,7 @@ public final class LyreDSL {
                                                  .toArray(LyreExpression[]::new);
       return new LyreExpression(formatMethod("interleave", expressions),
                                 HSTRING,
-                                o -> toHString($_.applyAsObject(o)).interleaved(types));
+                                o -> toHString($_.applyAsObject(o)).interleaved(types), $_);
    }
 
    /**
@@ -1512,7 +1569,7 @@ public final class LyreDSL {
                                       }
                                       return "I-" + tag;
                                    });
-                                });
+                                }, type, expression);
    }
 
    /**
@@ -1529,13 +1586,12 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(HSTRING, STRING, OBJECT),
                                "Illegal Expression: isAlphaNumeric only accepts a HSTRING, STRING, or OBJECT, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod("isAlphaNumeric", expression),
-                                PREDICATE,
-                                o -> processPred(expression.applyAsObject(o),
-                                                 a -> Optional.ofNullable(a)
-                                                              .map(Object::toString)
-                                                              .map(Strings::isAlphaNumeric)
-                                                              .orElse(false)));
+      return unaryPredicate(formatMethod("isAlphaNumeric", expression),
+                            a -> Optional.ofNullable(a)
+                                         .map(Object::toString)
+                                         .map(Strings::isAlphaNumeric)
+                                         .orElse(false),
+                            expression);
    }
 
    /**
@@ -1552,13 +1608,12 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(HSTRING, STRING, OBJECT),
                                "Illegal Expression: isContentWord only accepts a HSTRING, STRING, or OBJECT, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod("isContentWord", expression),
-                                PREDICATE,
-                                o -> processPred(expression.applyAsObject(o),
-                                                 a -> Optional.ofNullable(a)
-                                                              .map(HString::toHString)
-                                                              .map(h -> StopWords.isContentWord().test(h))
-                                                              .orElse(false)));
+      return unaryPredicate(formatMethod("isContentWord", expression),
+                            a -> Optional.ofNullable(a)
+                                         .map(HString::toHString)
+                                         .map(h -> StopWords.isContentWord().test(h))
+                                         .orElse(false),
+                            expression);
    }
 
    /**
@@ -1575,13 +1630,12 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(HSTRING, STRING, OBJECT),
                                "Illegal Expression: isDigit only accepts a HSTRING, STRING, or OBJECT, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod("isDigit", expression),
-                                PREDICATE,
-                                o -> processPred(expression.applyAsObject(o),
-                                                 a -> Optional.ofNullable(a)
-                                                              .map(Object::toString)
-                                                              .map(Strings::isDigit)
-                                                              .orElse(false)));
+      return unaryPredicate(formatMethod("isDigit", expression),
+                            a -> Optional.ofNullable(a)
+                                         .map(Object::toString)
+                                         .map(Strings::isDigit)
+                                         .orElse(false),
+                            expression);
    }
 
    /**
@@ -1598,13 +1652,12 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(HSTRING, STRING, OBJECT),
                                "Illegal Expression: isLetter only accepts a HSTRING, STRING, or OBJECT, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod("isLetter", expression),
-                                PREDICATE,
-                                o -> processPred(expression.applyAsObject(o),
-                                                 a -> Optional.ofNullable(a)
-                                                              .map(Object::toString)
-                                                              .map(Strings::isLetter)
-                                                              .orElse(false)));
+      return unaryPredicate(formatMethod("isLetter", expression),
+                            a -> Optional.ofNullable(a)
+                                         .map(Object::toString)
+                                         .map(Strings::isLetter)
+                                         .orElse(false),
+                            expression);
    }
 
    /**
@@ -1621,13 +1674,12 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(HSTRING, STRING, OBJECT),
                                "Illegal Expression: isLower only accepts a HSTRING, STRING, or OBJECT, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod("isLower", expression),
-                                PREDICATE,
-                                o -> processPred(expression.applyAsObject(o),
-                                                 a -> Optional.ofNullable(a)
-                                                              .map(Object::toString)
-                                                              .map(Strings::isLowerCase)
-                                                              .orElse(false)));
+      return unaryPredicate(formatMethod("isLower", expression),
+                            a -> Optional.ofNullable(a)
+                                         .map(Object::toString)
+                                         .map(Strings::isLowerCase)
+                                         .orElse(false),
+                            expression);
    }
 
    private static boolean isNullOrEmpty(Object o) {
@@ -1660,13 +1712,12 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(HSTRING, STRING, OBJECT),
                                "Illegal Expression: isPunctuation only accepts a HSTRING, STRING, or OBJECT, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod("isPunctuation", expression),
-                                PREDICATE,
-                                o -> processPred(expression.applyAsObject(o),
-                                                 a -> Optional.ofNullable(a)
-                                                              .map(Object::toString)
-                                                              .map(Strings::isPunctuation)
-                                                              .orElse(false)));
+      return unaryPredicate(formatMethod("isPunctuation", expression),
+                            a -> Optional.ofNullable(a)
+                                         .map(Object::toString)
+                                         .map(Strings::isPunctuation)
+                                         .orElse(false),
+                            expression);
    }
 
    /**
@@ -1683,13 +1734,12 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(HSTRING, STRING, OBJECT),
                                "Illegal Expression: isStopWord only accepts a HSTRING, STRING, or OBJECT, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod("isStopWord", expression),
-                                PREDICATE,
-                                o -> processPred(expression.applyAsObject(o),
-                                                 a -> Optional.ofNullable(a)
-                                                              .map(HString::toHString)
-                                                              .map(h -> StopWords.isStopWord().test(h))
-                                                              .orElse(false)));
+      return unaryPredicate(formatMethod("isStopWord", expression),
+                            a -> Optional.ofNullable(a)
+                                         .map(HString::toHString)
+                                         .map(h -> StopWords.isStopWord().test(h))
+                                         .orElse(false),
+                            expression);
    }
 
    /**
@@ -1706,13 +1756,12 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(HSTRING, STRING, OBJECT),
                                "Illegal Expression: isUpper only accepts a HSTRING, STRING, or OBJECT, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod("isUpper", expression),
-                                PREDICATE,
-                                o -> processPred(expression.applyAsObject(o),
-                                                 a -> Optional.ofNullable(a)
-                                                              .map(Object::toString)
-                                                              .map(Strings::isUpperCase)
-                                                              .orElse(false)));
+      return unaryPredicate(formatMethod("isUpper", expression),
+                            a -> Optional.ofNullable(a)
+                                         .map(Object::toString)
+                                         .map(Strings::isUpperCase)
+                                         .orElse(false),
+                            expression);
    }
 
    /**
@@ -1728,7 +1777,7 @@ public final class LyreDSL {
    public static LyreExpression isWhitespace(@NonNull LyreExpression expression) {
       return new LyreExpression(formatMethod("isWhitespace", expression),
                                 PREDICATE,
-                                o -> processPred(o, a -> a != null && Strings.isNullOrBlank(a.toString())));
+                                o -> processPred(o, a -> a != null && Strings.isNullOrBlank(a.toString())), $_);
    }
 
    /**
@@ -1799,7 +1848,7 @@ public final class LyreDSL {
    public static LyreExpression last(@NonNull LyreExpression list) {
       return new LyreExpression(formatMethod("last", list),
                                 list.getType(),
-                                o -> Iterables.getLast(list.applyAsList(o)).orElse(null));
+                                o -> Iterables.getLast(list.applyAsList(o)).orElse(null), list);
    }
 
    /**
@@ -1816,9 +1865,11 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(HSTRING, STRING, OBJECT),
                                "Illegal Expression: lemma only accepts a HSTRING, STRING, or OBJECT, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod("lemma", expression),
-                                STRING,
-                                o -> process(true, expression.applyAsObject(o), a -> toHString(a).getLemma()));
+      return unary(formatMethod("lemma", expression),
+                   STRING,
+                   true,
+                   a -> toHString(a).getLemma(),
+                   expression);
    }
 
    /**
@@ -1833,18 +1884,27 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression len(@NonNull LyreExpression expression) {
-      return new LyreExpression(formatMethod("len", expression),
-                                NUMERIC,
-                                o -> {
-                                   Object a = expression.applyAsObject(o);
-                                   if(a == null) {
-                                      return 0.0;
-                                   }
-                                   if(a instanceof Collection) {
-                                      return (double) Cast.<Collection>as(a).size();
-                                   }
-                                   return (double) a.toString().length();
-                                });
+      return LyreExpression.vectorizedNumeric(formatMethod("len", expression),
+                                              o -> length(expression.applyAsObject(o)),
+                                              objects -> {
+                                                 Object[] values = expression.applyColumn(objects);
+                                                 double[] lengths = new double[values.length];
+                                                 for(int i = 0; i < values.length; i++) {
+                                                    lengths[i] = length(values[i]);
+                                                 }
+                                                 return lengths;
+                                              },
+                                              expression);
+   }
+
+   private static double length(Object o) {
+      if(o == null) {
+         return 0.0;
+      }
+      if(o instanceof Collection) {
+         return Cast.<Collection<?>>as(o).size();
+      }
+      return o.toString().length();
    }
 
    /**
@@ -1880,22 +1940,33 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression list(@NonNull List<LyreExpression> elements) {
-      return new LyreExpression(elements.stream()
-                                        .map(Object::toString)
-                                        .collect(Collectors.joining(", ", "[", "]")),
-                                LyreExpressionType.determineCommonType(elements),
-                                o -> {
-                                   Object out = process(false, o, h -> elements.stream()
-                                                                               .map(e -> e.applyAsObject(h))
-                                                                               .collect(Collectors.toList()));
-                                   if(out == null) {
-                                      return Collections.emptyList();
-                                   }
-                                   if(!(out instanceof Collection)) {
-                                      return Collections.singletonList(out);
-                                   }
-                                   return out;
-                                });
+      final SerializableFunction<Object, Object> function = o -> {
+         Object out = process(false, o, h -> elements.stream()
+                                                     .map(e -> e.applyAsObject(h))
+                                                     .collect(Collectors.toList()));
+         if(out == null) {
+            return Collections.emptyList();
+         }
+         if(!(out instanceof Collection)) {
+            return Collections.singletonList(out);
+         }
+         return out;
+      };
+      final String pattern = elements.stream()
+                                     .map(Object::toString)
+                                     .collect(Collectors.joining(", ", "[", "]"));
+      final LyreExpressionType type = LyreExpressionType.determineCommonType(elements);
+      if(elements.stream().allMatch(LyreExpression::isConstant)) {
+         //A list of constants only depends on its input when the input is a collection, as the elements are then
+         //evaluated per item of the collection.
+         final List<?> value = Collections.unmodifiableList(Cast.<List<?>>as(function.apply(null)));
+         return new LyreExpression(pattern,
+                                   type,
+                                   o -> o instanceof Collection
+                                        ? function.apply(o)
+                                        : value);
+      }
+      return new LyreExpression(pattern, type, function, elements.toArray(new LyreExpression[0]));
    }
 
    /**
@@ -1910,7 +1981,7 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression literal(@NonNull String value) {
-      return new LyreExpression(String.format("'%s'", value), STRING, o -> value);
+      return LyreExpression.constant(String.format("'%s'", value), STRING, value);
    }
 
    /**
@@ -1937,18 +2008,17 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression llen(@NonNull LyreExpression expression) {
-      return new LyreExpression(formatMethod("llen", expression),
-                                NUMERIC,
-                                o -> {
-                                   Object a = expression.applyAsObject(o);
-                                   if(a == null) {
-                                      return 0.0;
-                                   }
-                                   if(a instanceof Collection) {
-                                      return (double) Cast.<Collection>as(a).size();
-                                   }
-                                   return 1;
-                                });
+      return LyreExpression.compiledNumeric(formatMethod("llen", expression),
+                                            o -> {
+                                               Object a = expression.applyAsObject(o);
+                                               if(a == null) {
+                                                  return 0.0;
+                                               }
+                                               if(a instanceof Collection) {
+                                                  return Cast.<Collection>as(a).size();
+                                               }
+                                               return 1;
+                                            }, expression);
    }
 
    /**
@@ -1967,7 +2037,7 @@ public final class LyreDSL {
                                 o -> list.applyAsList(o)
                                          .stream()
                                          .max(comparingInt(h -> h.toString().length()))
-                                         .orElse(null));
+                                         .orElse(null), list);
    }
 
    /**
@@ -1990,7 +2060,7 @@ public final class LyreDSL {
                                       return expression.applyAsObject(o);
                                    }
                                    return null;
-                                });
+                                }, expression, condition);
    }
 
    /**
@@ -2013,7 +2083,7 @@ public final class LyreDSL {
                                       return expression.applyAsObject(o);
                                    }
                                    return null;
-                                });
+                                }, condition, expression);
    }
 
    /**
@@ -2027,9 +2097,11 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression lower(@NonNull LyreExpression expression) {
-      return new LyreExpression(formatMethod("lower", expression),
-                                STRING,
-                                o -> process(true, expression.applyAsObject(o), a -> a.toString().toLowerCase()));
+      return unary(formatMethod("lower", expression),
+                   STRING,
+                   true,
+                   a -> a.toString().toLowerCase(),
+                   expression);
    }
 
    /**
@@ -2087,7 +2159,7 @@ public final class LyreDSL {
                                    return process(true,
                                                   expression.applyAsObject(o),
                                                   h -> Strings.padStart(h.toString(), amt, pad.charAt(0)));
-                                });
+                                }, expression, minimumLength, paddingCharacter);
    }
 
    /**
@@ -2103,10 +2175,7 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression lt(@NonNull LyreExpression left, @NonNull LyreExpression right) {
-      return new LyreExpression(String.format("%s < %s", left, right),
-                                PREDICATE, o -> compareObjectPredicate(left.applyAsObject(o),
-                                                                       right.applyAsObject(o),
-                                                                       NumericComparison.LT));
+      return compare(String.format("%s < %s", left, right), left, right, NumericComparison.LT);
    }
 
    /**
@@ -2138,10 +2207,7 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression lte(@NonNull LyreExpression left, @NonNull LyreExpression right) {
-      return new LyreExpression(String.format("%s <= %s", left, right),
-                                PREDICATE, o -> compareObjectPredicate(left.applyAsObject(o),
-                                                                       right.applyAsObject(o),
-                                                                       NumericComparison.LTE));
+      return compare(String.format("%s <= %s", left, right), left, right, NumericComparison.LTE);
    }
 
    /**
@@ -2177,7 +2243,7 @@ public final class LyreDSL {
    public static LyreExpression map(@NonNull LyreExpression list, @NonNull LyreExpression operator) {
       return new LyreExpression(formatMethod("map", list, operator),
                                 operator.getType(),
-                                o -> recursiveListApply(list.applyAsList(o), operator::applyAsObject));
+                                o -> recursiveListApply(list.applyAsList(o), operator::applyAsObject), list, operator);
    }
 
    /**
@@ -2201,7 +2267,7 @@ public final class LyreDSL {
                                                                                     .attribute(Types.CONFIDENCE, 0.0)
                                                                               : 0.0
                                                                         ))
-                                         .orElse(null));
+                                         .orElse(null), list);
    }
 
    /**
@@ -2217,10 +2283,7 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression ne(@NonNull LyreExpression left, @NonNull LyreExpression right) {
-      return new LyreExpression(String.format("%s != %s", left, right),
-                                PREDICATE, o -> compareObjectPredicate(left.applyAsObject(o),
-                                                                       right.applyAsObject(o),
-                                                                       NumericComparison.NE));
+      return compare(String.format("%s != %s", left, right), left, right, NumericComparison.NE);
    }
 
    /**
@@ -2259,7 +2322,7 @@ public final class LyreDSL {
                                       return expression.applyAsObject(o);
                                    }
                                    return null;
-                                });
+                                }, expression, condition);
    }
 
    /**
@@ -2283,7 +2346,7 @@ public final class LyreDSL {
                                       return $;
                                    }
                                    return null;
-                                });
+                                }, condition, expression);
    }
 
    /**
@@ -2299,9 +2362,9 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression none(@NonNull LyreExpression list, @NonNull LyreExpression predicate) {
-      return new LyreExpression(formatMethod("none", list, predicate),
-                                PREDICATE,
-                                o -> list.applyAsList(o).stream().noneMatch(predicate::testObject));
+      final SerializablePredicate<Object> p = predicate.asPredicate();
+      return LyreExpression.compiledPredicate(formatMethod("none", list, predicate),
+                                              o -> list.applyAsList(o).stream().noneMatch(p), list, predicate);
    }
 
    /**
@@ -2315,9 +2378,16 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression not(@NonNull LyreExpression predicate) {
-      return new LyreExpression(String.format("!%s", predicate),
-                                PREDICATE,
-                                o -> !predicate.testObject(o));
+      final SerializablePredicate<Object> p = predicate.asPredicate();
+      return LyreExpression.vectorizedPredicate(String.format("!%s", predicate),
+                                                o -> !p.test(o),
+                                                objects -> {
+                                                   BitSet bits = predicate.testColumn(objects);
+                                                   bits.flip(0, objects.length);
+                                                   return bits;
+                                                },
+                                                () -> LyreCompiler.not(predicate),
+                                                predicate);
    }
 
    /**
@@ -2342,7 +2412,7 @@ public final class LyreDSL {
                                       return defaultValue.applyAsObject(o);
                                    }
                                    return o1;
-                                });
+                                }, expression, defaultValue);
    }
 
    /**
@@ -2357,7 +2427,7 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression number(final double number) {
-      return new LyreExpression(Double.toString(number), NUMERIC, o -> number);
+      return LyreExpression.constant(Double.toString(number), NUMERIC, number);
    }
 
    /**
@@ -2372,9 +2442,31 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression or(@NonNull LyreExpression left, @NonNull LyreExpression right) {
-      return new LyreExpression(String.format("%s || %s", left, right),
-                                PREDICATE,
-                                o -> left.testObject(o) || right.testObject(o));
+      final String pattern = String.format("%s || %s", left, right);
+      if(LyreOptimizer.constantTruth(left) == Boolean.TRUE || LyreOptimizer.constantTruth(right) == Boolean.TRUE) {
+         return LyreExpression.constant(pattern, PREDICATE, true);
+      }
+      //Evaluate the cheaper predicate first so that it can short-circuit the more expensive one
+      final LyreExpression first = right.cost() < left.cost()
+                                   ? right
+                                   : left;
+      final LyreExpression second = first == left
+                                    ? right
+                                    : left;
+      final SerializablePredicate<Object> p1 = first.asPredicate();
+      final SerializablePredicate<Object> p2 = second.asPredicate();
+      return LyreExpression.vectorizedPredicate(pattern,
+                                                o -> p1.test(o) || p2.test(o),
+                                                objects -> {
+                                                   BitSet matched = first.testColumn(objects);
+                                                   BitSet unmatched = (BitSet) matched.clone();
+                                                   unmatched.flip(0, objects.length);
+                                                   matched.or(testSelected(objects, unmatched, second));
+                                                   return matched;
+                                                },
+                                                () -> LyreCompiler.or(first, second),
+                                                first,
+                                                second);
    }
 
    /**
@@ -2401,7 +2493,7 @@ public final class LyreDSL {
                                       }
                                    }
                                    return null;
-                                });
+                                }, expressions);
    }
 
    /**
@@ -2427,6 +2519,23 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression plus(@NonNull LyreExpression left, @NonNull LyreExpression right) {
+      if(left.isCompiledNumeric() && right.isCompiledNumeric()) {
+         final LyreExpression.NumericFunction l = left.asNumeric();
+         final LyreExpression.NumericFunction r = right.asNumeric();
+         return LyreExpression.vectorizedNumeric(String.format("(%s + %s)", left, right),
+                                                 o -> l.applyAsDouble(o) + r.applyAsDouble(o),
+                                                 objects -> {
+                                                    double[] values = left.applyColumnAsDouble(objects);
+                                                    double[] rValues = right.applyColumnAsDouble(objects);
+                                                    for(int i = 0; i < values.length; i++) {
+                                                       values[i] += rValues[i];
+                                                    }
+                                                    return values;
+                                                 },
+                                                 () -> LyreCompiler.plus(left, right),
+                                                 left,
+                                                 right);
+      }
       return new LyreExpression(String.format("(%s + %s)", left, right),
                                 LyreExpressionType.determineCommonType(Arrays.asList(left, right)),
                                 o -> {
@@ -2457,7 +2566,7 @@ public final class LyreDSL {
                                       return l;
                                    }
                                    return l.toString() + r.toString();
-                                });
+                                }, left, right);
    }
 
    /**
@@ -2474,9 +2583,11 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(HSTRING),
                                "Illegal Expression: pos only accepts a HSTRING, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod("pos", expression),
-                                OBJECT,
-                                o -> process(true, expression.applyAsObject(o), a -> toHString(a).pos()));
+      return unary(formatMethod("pos", expression),
+                   OBJECT,
+                   true,
+                   a -> toHString(a).pos(),
+                   expression);
    }
 
    private static Object postProcess(Object o) {
@@ -2592,15 +2703,27 @@ public final class LyreDSL {
                ? "g"
                : "");
       final Pattern regex = Pattern.compile(pattern);
-      return new LyreExpression(str,
-                                PREDICATE,
-                                o -> {
-                                   HString hString = toHString(o);
-                                   if(matchFullSpan) {
-                                      return regex.matcher(hString).matches();
-                                   }
-                                   return regex.matcher(hString).find();
-                                });
+      return LyreExpression.vectorizedPredicate(str,
+                                                o -> {
+                                                   Matcher matcher = regex.matcher(toHString(o));
+                                                   return matchFullSpan
+                                                          ? matcher.matches()
+                                                          : matcher.find();
+                                                },
+                                                objects -> {
+                                                   //A single matcher is reset for each object in the column
+                                                   Matcher matcher = regex.matcher("");
+                                                   BitSet bits = new BitSet(objects.length);
+                                                   for(int i = 0; i < objects.length; i++) {
+                                                      matcher.reset(toHString(objects[i]));
+                                                      if(matchFullSpan
+                                                         ? matcher.matches()
+                                                         : matcher.find()) {
+                                                         bits.set(i);
+                                                      }
+                                                   }
+                                                   return bits;
+                                                });
    }
 
    /**
@@ -2761,7 +2884,7 @@ public final class LyreDSL {
                                    return process(true,
                                                   expression.applyAsObject(o),
                                                   h -> Strings.padEnd(h.toString(), amt, pad.charAt(0)));
-                                });
+                                }, expression, minimumLength, paddingCharacter);
    }
 
    /**
@@ -2891,7 +3014,7 @@ public final class LyreDSL {
                                       return null;
                                    }
                                    return o.toString().substring(s, e);
-                                });
+                                }, expression);
    }
 
    /**
@@ -2908,10 +3031,11 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(HSTRING, STRING, OBJECT),
                                "Illegal Expression: stem only accepts a HSTRING, STRING, OBJECT, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod("stem", expression),
-                                STRING,
-                                o -> process(true, expression.applyAsObject(o),
-                                             a -> toHString(a).getStemmedForm()));
+      return unary(formatMethod("stem", expression),
+                   STRING,
+                   true,
+                   a -> toHString(a).getStemmedForm(),
+                   expression);
    }
 
    /**
@@ -2925,9 +3049,27 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression string(@NonNull LyreExpression expression) {
-      return new LyreExpression(formatMethod("string", expression),
-                                STRING,
-                                o -> process(true, expression.applyAsObject(o), Object::toString));
+      return unary(formatMethod("string", expression),
+                   STRING,
+                   true,
+                   Object::toString,
+                   expression);
+   }
+
+   private static BitSet testSelected(Object[] objects, BitSet selected, LyreExpression predicate) {
+      //Only the selected objects are tested, with the results scattered back to their original positions
+      Object[] subset = new Object[selected.cardinality()];
+      for(int i = selected.nextSetBit(0), j = 0; i >= 0; i = selected.nextSetBit(i + 1), j++) {
+         subset[j] = objects[i];
+      }
+      BitSet passed = predicate.testColumn(subset);
+      BitSet result = new BitSet(objects.length);
+      for(int i = selected.nextSetBit(0), j = 0; i >= 0; i = selected.nextSetBit(i + 1), j++) {
+         if(passed.get(j)) {
+            result.set(i);
+         }
+      }
+      return result;
    }
 
    /**
@@ -2973,11 +3115,11 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(HSTRING),
                                "Illegal Expression: tag only accepts a HSTRING, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod(String.format("#%s", value.name()), expression),
-                                PREDICATE,
-                                o -> process(true,
-                                             expression.applyAsObject(o),
-                                             h -> toHString(h).asAnnotation().tagIsA(value)));
+      return unary(formatMethod(String.format("#%s", value.name()), expression),
+                   PREDICATE,
+                   true,
+                   h -> toHString(h).asAnnotation().tagIsA(value),
+                   expression);
    }
 
    /**
@@ -2995,21 +3137,21 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(HSTRING),
                                "Illegal Expression: tag only accepts a HSTRING, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod(String.format("#%s", value), expression),
-                                PREDICATE,
-                                o -> process(true,
-                                             expression.applyAsObject(o),
-                                             h -> {
-                                                Annotation annotation = toHString(h).asAnnotation();
-                                                if(annotation.tagIsA(value)) {
-                                                   return true;
-                                                }
-                                                try {
-                                                   return annotation.pos().isInstance(PartOfSpeech.valueOf(value));
-                                                } catch(IllegalArgumentException e) {
-                                                   return false;
-                                                }
-                                             }));
+      return unary(formatMethod(String.format("#%s", value), expression),
+                   PREDICATE,
+                   true,
+                   h -> {
+                      Annotation annotation = toHString(h).asAnnotation();
+                      if(annotation.tagIsA(value)) {
+                         return true;
+                      }
+                      try {
+                         return annotation.pos().isInstance(PartOfSpeech.valueOf(value));
+                      } catch(IllegalArgumentException e) {
+                         return false;
+                      }
+                   },
+                   expression);
    }
 
    /**
@@ -3026,7 +3168,10 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(HSTRING, STRING),
                                "Illegal Expression: tlen only accepts a HSTRING or STRING, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression("tokenLen", NUMERIC, o -> toHString(expression.applyAsObject(o)).tokenLength());
+      return LyreExpression.compiledNumeric(formatMethod("tlen", expression),
+                                            o -> toHString(expression.applyAsObject(o)).tokenLength(),
+                                            o -> toHString(expression.applyAsObject(o)).tokenLength(),
+                                            expression);
    }
 
    /**
@@ -3049,7 +3194,43 @@ public final class LyreDSL {
                                 expression.getType(),
                                 o -> process(true,
                                              expression.applyAsObject(o),
-                                             h -> toHString(h).trim(predicate)));
+                                             h -> toHString(h).trim(predicate)), expression, predicate);
+   }
+
+   private static LyreExpression unary(String pattern,
+                                       LyreExpressionType type,
+                                       boolean ignoreNulls,
+                                       SerializableFunction<Object, ?> function,
+                                       LyreExpression expression) {
+      return new LyreExpression(pattern,
+                                type,
+                                o -> process(ignoreNulls, expression.applyAsObject(o), function),
+                                objects -> {
+                                   Object[] values = expression.applyColumn(objects);
+                                   Object[] results = new Object[values.length];
+                                   for(int i = 0; i < values.length; i++) {
+                                      results[i] = process(ignoreNulls, values[i], function);
+                                   }
+                                   return results;
+                                },
+                                expression);
+   }
+
+   private static LyreExpression unaryPredicate(String pattern,
+                                                SerializablePredicate<Object> predicate,
+                                                LyreExpression expression) {
+      return new LyreExpression(pattern,
+                                PREDICATE,
+                                o -> processPred(expression.applyAsObject(o), predicate),
+                                objects -> {
+                                   Object[] values = expression.applyColumn(objects);
+                                   Object[] results = new Object[values.length];
+                                   for(int i = 0; i < values.length; i++) {
+                                      results[i] = processPred(values[i], predicate);
+                                   }
+                                   return results;
+                                },
+                                expression);
    }
 
    /**
@@ -3066,11 +3247,11 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(HSTRING),
                                "Illegal Expression: upos only accepts a HSTRING, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod("upos", expression),
-                                OBJECT,
-                                o -> process(true,
-                                             expression.applyAsObject(o),
-                                             a -> toHString(a).pos().getUniversalTag()));
+      return unary(formatMethod("upos", expression),
+                   OBJECT,
+                   true,
+                   a -> toHString(a).pos().getUniversalTag(),
+                   expression);
    }
 
    /**
@@ -3087,9 +3268,11 @@ public final class LyreDSL {
       Validation.checkArgument(expression.isInstance(HSTRING, STRING, OBJECT),
                                "Illegal Expression: upper only accepts a HSTRING, STRING, OBJECT, but '"
                                      + expression + "' was provided which is of type " + expression.getType());
-      return new LyreExpression(formatMethod("upper", expression),
-                                STRING,
-                                o -> process(true, expression.applyAsObject(o), a -> a.toString().toUpperCase()));
+      return unary(formatMethod("upper", expression),
+                   STRING,
+                   true,
+                   a -> a.toString().toUpperCase(),
+                   expression);
    }
 
    /**
@@ -3112,7 +3295,7 @@ public final class LyreDSL {
                                       return expression.applyAsObject(o);
                                    }
                                    return null;
-                                });
+                                }, condition, expression);
    }
 
    /**
@@ -3155,9 +3338,18 @@ public final class LyreDSL {
     * @return the LyreExpression
     */
    public static LyreExpression xor(@NonNull LyreExpression left, @NonNull LyreExpression right) {
-      return new LyreExpression(String.format("%s ^ %s", left, right),
-                                PREDICATE,
-                                o -> left.testObject(o) ^ right.testObject(o));
+      final SerializablePredicate<Object> l = left.asPredicate();
+      final SerializablePredicate<Object> r = right.asPredicate();
+      return LyreExpression.vectorizedPredicate(String.format("%s ^ %s", left, right),
+                                                o -> l.test(o) ^ r.test(o),
+                                                objects -> {
+                                                   BitSet bits = left.testColumn(objects);
+                                                   bits.xor(right.testColumn(objects));
+                                                   return bits;
+                                                },
+                                                () -> LyreCompiler.xor(left, right),
+                                                left,
+                                                right);
    }
 
 }//END OF LyreDSL
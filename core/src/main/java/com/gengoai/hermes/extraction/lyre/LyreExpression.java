@@ -43,9 +43,15 @@ import com.gengoai.parsing.*;
 import com.gengoai.string.Strings;
 import lombok.NonNull;
 
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.gengoai.hermes.HString.toHString;
@@ -58,6 +64,13 @@ import static com.gengoai.reflection.TypeUtils.parameterizedType;
  * querying (i.e. acting as a Java Predicate) and extracting and transforming (i.e. like a Java Function). Lyre
  * expressions extend from {@link FeaturizingExtractor} allowing them to be used as a feature extractor for machine
  * learning.</p>
+ * <p>Expressions are evaluated as composed closures. Expressions whose result type is statically a boolean or a
+ * number additionally carry a primitive form (a predicate or a function returning a double) composed from the
+ * primitive forms of their sub-expressions. The sub-expressions are retained so that the expression tree can be
+ * optimized (see {@link #explain()}) and so that {@link #testObject(Object)} and {@link #applyAsDouble(Object)} can
+ * evaluate the tree as a method handle built from it (see {@link LyreCompiler}). The handle is built the first time it
+ * is needed, with the closures remaining the form used by every other evaluation and by sub-expressions that cannot
+ * be lowered.</p>
  *
  * @author David B. Bracewell
  */
@@ -73,9 +86,21 @@ public final class LyreExpression extends FeaturizingExtractor implements Expres
    };
    private static final ParserGenerator PARSER_GENERATOR = parserGenerator(new Grammar(LyreType.values()),
                                                                            Lexer.create(LyreType.values()));
+   private final LyreExpression[] children;
+   private final ColumnFunction column;
+   private final ColumnNumeric columnNumeric;
+   private final ColumnPredicate columnPredicate;
+   private final boolean constant;
+   private final int cost;
    private final SerializableFunction<Object, Object> function;
+   private final Lowering lowering;
+   private final NumericFunction numeric;
    private final String pattern;
+   private final SerializablePredicate<Object> predicate;
+   private final boolean root;
+   private final boolean shared;
    private final LyreExpressionType type;
+   private transient MethodHandle handle;
 
    /**
     * Parse the given pattern into a {@link LyreExpression}.
@@ -86,21 +111,303 @@ public final class LyreExpression extends FeaturizingExtractor implements Expres
    @JsonCreator
    public static LyreExpression parse(@JsonProperty String pattern) {
       try {
-         List<LyreExpression> expressions = PARSER_GENERATOR.create(pattern).evaluateAll(evaluator);
-         if(expressions.size() != 1) {
-            throw new ParseException(
-                  "Invalid number of expressions parsed (" + expressions.size() + "): " + expressions);
+         LyreExpression expression = parseExpression(pattern);
+         Set<String> repeated = LyreOptimizer.repeatedSubExpressions(expression);
+         if(repeated.isEmpty()) {
+            return expression;
          }
-         return expressions.get(0);
+         //Parse again so that the repeated sub-expressions are constructed as shared
+         Set<String> previous = LyreOptimizer.beginSharing(repeated);
+         try {
+            expression = parseExpression(pattern);
+         } finally {
+            LyreOptimizer.endSharing(previous);
+         }
+         return new LyreExpression(expression.pattern,
+                                   expression.type,
+                                   expression.function,
+                                   expression.predicate,
+                                   expression.numeric,
+                                   expression.column,
+                                   expression.columnPredicate,
+                                   expression.columnNumeric,
+                                   expression.lowering,
+                                   expression.children,
+                                   LyreOptimizer.NOT_CONSTANT,
+                                   true);
       } catch(ParseException e) {
          throw new RuntimeException(e);
       }
    }
 
-   LyreExpression(String pattern, LyreExpressionType type, SerializableFunction<Object, Object> function) {
+   private static LyreExpression parseExpression(String pattern) throws ParseException {
+      List<LyreExpression> expressions = PARSER_GENERATOR.create(pattern).evaluateAll(evaluator);
+      if(expressions.size() != 1) {
+         throw new ParseException(
+               "Invalid number of expressions parsed (" + expressions.size() + "): " + expressions);
+      }
+      return expressions.get(0);
+   }
+
+   LyreExpression(String pattern,
+                  LyreExpressionType type,
+                  SerializableFunction<Object, Object> function,
+                  LyreExpression... children) {
+      this(pattern, type, function, null, children);
+   }
+
+   LyreExpression(String pattern,
+                  LyreExpressionType type,
+                  SerializableFunction<Object, Object> function,
+                  ColumnFunction column,
+                  LyreExpression... children) {
+      this(pattern,
+           type,
+           function,
+           null,
+           null,
+           column,
+           null,
+           null,
+           null,
+           children,
+           LyreOptimizer.fold(function, children),
+           false);
+   }
+
+   private LyreExpression(String pattern,
+                          LyreExpressionType type,
+                          SerializableFunction<Object, Object> function,
+                          SerializablePredicate<Object> predicate,
+                          NumericFunction numeric,
+                          ColumnFunction column,
+                          ColumnPredicate columnPredicate,
+                          ColumnNumeric columnNumeric,
+                          Lowering lowering,
+                          LyreExpression[] children,
+                          Object value,
+                          boolean root) {
       this.pattern = pattern;
       this.type = type;
-      this.function = function;
+      this.children = children;
+      this.root = root;
+      this.constant = value != LyreOptimizer.NOT_CONSTANT;
+      if(constant) {
+         this.lowering = null;
+         this.function = o -> value;
+         if(value instanceof Boolean) {
+            final boolean b = (Boolean) value;
+            this.predicate = o -> b;
+         } else {
+            this.predicate = null;
+         }
+         if(value instanceof Number) {
+            final double d = ((Number) value).doubleValue();
+            this.numeric = o -> d;
+         } else {
+            this.numeric = null;
+         }
+         this.column = null;
+         this.columnPredicate = null;
+         this.columnNumeric = null;
+         this.shared = false;
+         this.cost = 0;
+      } else {
+         this.function = function;
+         this.predicate = predicate;
+         this.numeric = numeric;
+         this.column = column;
+         this.columnPredicate = columnPredicate;
+         this.columnNumeric = columnNumeric;
+         this.lowering = lowering;
+         this.shared = !root && children.length > 0 && LyreOptimizer.isShared(pattern);
+         int c = predicate == null && numeric == null
+                 ? 2
+                 : 1;
+         for(LyreExpression child : children) {
+            c += child.cost;
+         }
+         this.cost = c;
+      }
+   }
+
+   /**
+    * Creates a numeric expression whose result is always a non-null number and can be computed without boxing.
+    *
+    * @param pattern  the Lyre pattern
+    * @param numeric  the function computing the primitive value
+    * @param children the sub-expressions the expression is calculated from
+    * @return the LyreExpression
+    */
+   static LyreExpression compiledNumeric(String pattern,
+                                         @NonNull NumericFunction numeric,
+                                         LyreExpression... children) {
+      return compiledNumeric(pattern, numeric::applyAsDouble, numeric, children);
+   }
+
+   /**
+    * Creates a numeric expression whose result is always a non-null number, where the given function defines the
+    * boxed value (e.g. an Integer) returned from {@link #applyAsObject(Object)}.
+    *
+    * @param pattern  the Lyre pattern
+    * @param function the function computing the boxed value
+    * @param numeric  the function computing the primitive value
+    * @param children the sub-expressions the expression is calculated from
+    * @return the LyreExpression
+    */
+   static LyreExpression compiledNumeric(String pattern,
+                                         @NonNull SerializableFunction<Object, Object> function,
+                                         @NonNull NumericFunction numeric,
+                                         LyreExpression... children) {
+      return new LyreExpression(pattern,
+                                NUMERIC,
+                                function,
+                                null,
+                                numeric,
+                                null,
+                                null,
+                                null,
+                                null,
+                                children,
+                                LyreOptimizer.fold(function, children),
+                                false);
+   }
+
+   /**
+    * Creates a predicate expression whose result is always a boolean and can be computed without boxing.
+    *
+    * @param pattern   the Lyre pattern
+    * @param predicate the predicate
+    * @param children  the sub-expressions the expression is calculated from
+    * @return the LyreExpression
+    */
+   static LyreExpression compiledPredicate(String pattern,
+                                           @NonNull SerializablePredicate<Object> predicate,
+                                           LyreExpression... children) {
+      return vectorizedPredicate(pattern, predicate, null, children);
+   }
+
+   /**
+    * Creates an expression whose result is the given value regardless of its input.
+    *
+    * @param pattern the Lyre pattern
+    * @param type    the type of the expression
+    * @param value   the value
+    * @return the LyreExpression
+    */
+   static LyreExpression constant(String pattern, @NonNull LyreExpressionType type, Object value) {
+      return new LyreExpression(pattern,
+                                type,
+                                o -> value,
+                                null,
+                                null,
+                                null,
+                                null,
+                                null,
+                                null,
+                                new LyreExpression[0],
+                                value,
+                                false);
+   }
+
+   /**
+    * Creates a numeric expression whose result is always a non-null number and can be computed without boxing, both
+    * for a single object and for a column of objects.
+    *
+    * @param pattern  the Lyre pattern
+    * @param numeric  the function computing the primitive value
+    * @param column   the function computing the primitive values of a column of objects
+    * @param children the sub-expressions the expression is calculated from
+    * @return the LyreExpression
+    */
+   static LyreExpression vectorizedNumeric(String pattern,
+                                           @NonNull NumericFunction numeric,
+                                           @NonNull ColumnNumeric column,
+                                           LyreExpression... children) {
+      return vectorizedNumeric(pattern, numeric, column, null, children);
+   }
+
+   /**
+    * Creates a numeric expression whose result is always a non-null number and can be computed without boxing, both
+    * for a single object and for a column of objects, and which is lowered into a method handle composed from the
+    * handles of its sub-expressions.
+    *
+    * @param pattern  the Lyre pattern
+    * @param numeric  the function computing the primitive value
+    * @param column   the function computing the primitive values of a column of objects
+    * @param lowering the lowering of the expression into a <code>(Object)double</code> method handle or null to call
+    *                 the numeric function from the handle
+    * @param children the sub-expressions the expression is calculated from
+    * @return the LyreExpression
+    */
+   static LyreExpression vectorizedNumeric(String pattern,
+                                           @NonNull NumericFunction numeric,
+                                           @NonNull ColumnNumeric column,
+                                           Lowering lowering,
+                                           LyreExpression... children) {
+      final SerializableFunction<Object, Object> function = numeric::applyAsDouble;
+      return new LyreExpression(pattern,
+                                NUMERIC,
+                                function,
+                                null,
+                                numeric,
+                                null,
+                                null,
+                                column,
+                                lowering,
+                                children,
+                                LyreOptimizer.fold(function, children),
+                                false);
+   }
+
+   /**
+    * Creates a predicate expression whose result is always a boolean and can be computed without boxing, both for a
+    * single object and for a column of objects.
+    *
+    * @param pattern   the Lyre pattern
+    * @param predicate the predicate
+    * @param column    the predicate over a column of objects or null to test each object in turn
+    * @param children  the sub-expressions the expression is calculated from
+    * @return the LyreExpression
+    */
+   static LyreExpression vectorizedPredicate(String pattern,
+                                             @NonNull SerializablePredicate<Object> predicate,
+                                             ColumnPredicate column,
+                                             LyreExpression... children) {
+      return vectorizedPredicate(pattern, predicate, column, null, children);
+   }
+
+   /**
+    * Creates a predicate expression whose result is always a boolean and can be computed without boxing, both for a
+    * single object and for a column of objects, and which is lowered into a method handle composed from the handles
+    * of its sub-expressions.
+    *
+    * @param pattern   the Lyre pattern
+    * @param predicate the predicate
+    * @param column    the predicate over a column of objects or null to test each object in turn
+    * @param lowering  the lowering of the expression into a <code>(Object)boolean</code> method handle or null to
+    *                  call the predicate from the handle
+    * @param children  the sub-expressions the expression is calculated from
+    * @return the LyreExpression
+    */
+   static LyreExpression vectorizedPredicate(String pattern,
+                                             @NonNull SerializablePredicate<Object> predicate,
+                                             ColumnPredicate column,
+                                             Lowering lowering,
+                                             LyreExpression... children) {
+      final SerializableFunction<Object, Object> function = predicate::test;
+      return new LyreExpression(pattern,
+                                PREDICATE,
+                                function,
+                                predicate,
+                                null,
+                                null,
+                                column,
+                                null,
+                                lowering,
+                                children,
+                                LyreOptimizer.fold(function, children),
+                                false);
    }
 
    @Override
@@ -125,25 +432,16 @@ public final class LyreExpression extends FeaturizingExtractor implements Expres
     * @return the double value
     */
    public double applyAsDouble(Object object) {
-      Object o = applyAsObject(object);
-      if(o == null) {
-         return Double.NaN;
-      }
-      if(o instanceof Number) {
-         return Cast.<Number>as(o).doubleValue();
-      }
-      if(o instanceof CharSequence) {
-         Double d = Math2.tryParseDouble(o.toString());
-         return d == null
-                ? Double.NaN
-                : d;
-      }
-      if(o instanceof Boolean) {
-         return Cast.<Boolean>as(o)
+      final MethodHandle lowered = lowered();
+      if(lowered != null) {
+         if(numeric != null) {
+            return invokeNumeric(lowered, object);
+         }
+         return invokePredicate(lowered, object)
                 ? 1.0
                 : 0.0;
       }
-      return Double.NaN;
+      return toDouble(applyAsObject(object));
    }
 
    @Override
@@ -220,9 +518,154 @@ public final class LyreExpression extends FeaturizingExtractor implements Expres
     * @return the result of the expression evaluation
     */
    public Object applyAsObject(Object object) {
+      if(root) {
+         return LyreOptimizer.evaluate(function, object);
+      }
+      if(shared) {
+         return LyreOptimizer.memoize(pattern, function, object);
+      }
       return function.apply(object);
    }
 
+   /**
+    * Applies this expression to each of the given HStrings, calculating the expression one sub-expression at a time
+    * over the entire list rather than one HString at a time.
+    *
+    * @param hStrings the HStrings
+    * @return the list of results where the i-th result is the value for the i-th HString
+    */
+   public List<Object> applyAll(@NonNull List<? extends HString> hStrings) {
+      return Arrays.asList(applyColumn(hStrings.toArray()));
+   }
+
+   /**
+    * Applies this expression to each of the given HStrings returning the results as doubles (see {@link
+    * #applyAsDouble(Object)}), calculating the expression one sub-expression at a time over the entire list.
+    *
+    * @param hStrings the HStrings
+    * @return the array of results where the i-th result is the value for the i-th HString
+    */
+   public double[] applyAllAsDouble(@NonNull List<? extends HString> hStrings) {
+      return applyColumnAsDouble(hStrings.toArray());
+   }
+
+   /**
+    * Applies this expression to each of the given HStrings returning the results as Strings (see {@link
+    * #applyAsString(Object)}), calculating the expression one sub-expression at a time over the entire list.
+    *
+    * @param hStrings the HStrings
+    * @return the list of results where the i-th result is the String value for the i-th HString
+    */
+   public List<String> applyAllAsString(@NonNull List<? extends HString> hStrings) {
+      Object[] values = applyColumn(hStrings.toArray());
+      List<String> strings = new ArrayList<>(values.length);
+      for(Object value : values) {
+         strings.add(value == null
+                     ? null
+                     : value.toString());
+      }
+      return strings;
+   }
+
+   /**
+    * Applies this expression to a column of objects.
+    *
+    * @param objects the objects
+    * @return a new array with the value of the i-th object at index i
+    */
+   Object[] applyColumn(Object[] objects) {
+      if(root) {
+         return Cast.as(LyreOptimizer.evaluate(o -> evaluateColumn(objects), objects));
+      }
+      if(shared) {
+         return Cast.as(LyreOptimizer.memoize(pattern, o -> evaluateColumn(objects), objects));
+      }
+      return evaluateColumn(objects);
+   }
+
+   /**
+    * Applies this expression to a column of objects returning the results as doubles.
+    *
+    * @param objects the objects
+    * @return a new array with the double value of the i-th object at index i
+    */
+   double[] applyColumnAsDouble(Object[] objects) {
+      if(!isMemoized()) {
+         if(columnNumeric != null) {
+            return columnNumeric.apply(objects);
+         }
+         if(numeric != null) {
+            double[] values = new double[objects.length];
+            for(int i = 0; i < objects.length; i++) {
+               values[i] = numeric.applyAsDouble(objects[i]);
+            }
+            return values;
+         }
+      }
+      Object[] values = applyColumn(objects);
+      double[] doubles = new double[values.length];
+      for(int i = 0; i < values.length; i++) {
+         doubles[i] = toDouble(values[i]);
+      }
+      return doubles;
+   }
+
+   private Object[] evaluateColumn(Object[] objects) {
+      if(column != null) {
+         return column.apply(objects);
+      }
+      Object[] values = new Object[objects.length];
+      if(columnPredicate != null) {
+         BitSet bits = columnPredicate.test(objects);
+         for(int i = 0; i < objects.length; i++) {
+            values[i] = bits.get(i);
+         }
+      } else if(columnNumeric != null) {
+         double[] doubles = columnNumeric.apply(objects);
+         for(int i = 0; i < objects.length; i++) {
+            values[i] = doubles[i];
+         }
+      } else {
+         for(int i = 0; i < objects.length; i++) {
+            values[i] = function.apply(objects[i]);
+         }
+      }
+      return values;
+   }
+
+   /**
+    * Gets the primitive numeric form of this expression, which is the compiled form when {@link #isCompiledNumeric()}
+    * and {@link #applyAsDouble(Object)} otherwise.
+    *
+    * @return the numeric function
+    */
+   NumericFunction asNumeric() {
+      return numeric == null || isMemoized()
+             ? this::applyAsDouble
+             : numeric;
+   }
+
+   /**
+    * Gets the primitive boolean form of this expression, which is the compiled form when {@link
+    * #isCompiledPredicate()} and {@link #testObject(Object)} otherwise.
+    *
+    * @return the predicate
+    */
+   SerializablePredicate<Object> asPredicate() {
+      return predicate == null || isMemoized()
+             ? this::testObject
+             : predicate;
+   }
+
+   /**
+    * Gets the estimated cost of evaluating this expression, which is zero for constant expressions.
+    *
+    * @return the estimated cost
+    */
+   int cost() {
+      return cost;
+   }
+
    /**
     * Applies this expression to given object return a String value.
     *
@@ -257,6 +700,49 @@ public final class LyreExpression extends FeaturizingExtractor implements Expres
       return cntr.filterByKey(Strings::isNotNullOrBlank);
    }
 
+   /**
+    * Describes the optimized plan used to evaluate this expression. Each line shows a sub-expression, its type and
+    * estimated cost, and whether it was folded into a constant, compiled into a primitive form, lowered into a method
+    * handle composed from the handles of its sub-expressions, or shared between multiple uses within the expression.
+    * The sub-expressions of a line are listed below it in the order they are evaluated.
+    *
+    * @return the plan
+    */
+   public String explain() {
+      StringBuilder builder = new StringBuilder();
+      explain(builder, 0);
+      return builder.toString();
+   }
+
+   private void explain(StringBuilder builder, int depth) {
+      if(depth > 0) {
+         builder.append('\n');
+      }
+      builder.append(" ".repeat(depth * 3))
+             .append(pattern)
+             .append(" [")
+             .append(type)
+             .append(", cost=")
+             .append(cost);
+      if(constant) {
+         builder.append(", constant=").append(function.apply(null)).append(']');
+         return;
+      }
+      if(predicate != null || numeric != null) {
+         builder.append(", compiled");
+      }
+      if(lowering != null) {
+         builder.append(", lowered");
+      }
+      if(shared) {
+         builder.append(", shared");
+      }
+      builder.append(']');
+      for(LyreExpression child : children) {
+         child.explain(builder, depth + 1);
+      }
+   }
+
    @Override
    public Extraction extract(@NonNull HString hString) {
       Validation.checkArgument(isInstance(HSTRING, STRING, COUNTER, FEATURE),
@@ -280,12 +766,129 @@ public final class LyreExpression extends FeaturizingExtractor implements Expres
       return toString();
    }
 
+   /**
+    * Gets the sub-expressions this expression is calculated from in the order they are evaluated.
+    *
+    * @return the sub-expressions
+    */
+   List<LyreExpression> getChildren() {
+      return Collections.unmodifiableList(Arrays.asList(children));
+   }
+
    @Override
    @JsonIgnore
    public LyreExpressionType getType() {
       return type;
    }
 
+   /**
+    * Determines if this expression results in the same value regardless of its input, in which case it was evaluated
+    * once when constructed.
+    *
+    * @return True if the expression is constant, False otherwise
+    */
+   boolean isConstant() {
+      return constant;
+   }
+
+   private boolean isMemoized() {
+      return root || shared;
+   }
+
+   /**
+    * Gets the method handle this expression is lowered to, which is a <code>(Object)boolean</code> handle for
+    * predicates and a <code>(Object)double</code> handle for numeric expressions. Shared sub-expressions and
+    * expressions without a primitive form are not lowered, as their results are cached or boxed.
+    *
+    * @return the method handle or null if this expression is not lowered
+    */
+   MethodHandle lowered() {
+      if(shared || (predicate == null && numeric == null)) {
+         return null;
+      }
+      MethodHandle lowered = handle;
+      if(lowered == null) {
+         lowered = LyreCompiler.lower(lowering, predicate, numeric, constant, root);
+         handle = lowered;
+      }
+      return lowered;
+   }
+
+   /**
+    * Determines if this expression always results in a non-null number that can be calculated without boxing.
+    *
+    * @return True if the expression has a compiled numeric form, False otherwise
+    */
+   boolean isCompiledNumeric() {
+      return numeric != null;
+   }
+
+   /**
+    * Determines if this expression always results in a boolean that can be calculated without boxing.
+    *
+    * @return True if the expression has a compiled predicate form, False otherwise
+    */
+   boolean isCompiledPredicate() {
+      return predicate != null;
+   }
+
+   /**
+    * Tests each of the given HStrings against this expression, calculating the expression one sub-expression at a
+    * time over the entire list. Sub-expressions of <code>&&</code> and <code>||</code> are only calculated for the
+    * HStrings whose result is not already decided by the other operand.
+    *
+    * @param hStrings the HStrings
+    * @return the BitSet where bit i is set if the i-th HString passes the test
+    */
+   public BitSet testAll(@NonNull List<? extends HString> hStrings) {
+      return testColumn(hStrings.toArray());
+   }
+
+   /**
+    * Tests a column of objects against this expression.
+    *
+    * @param objects the objects
+    * @return a new BitSet with bit i set when the i-th object passes
+    */
+   BitSet testColumn(Object[] objects) {
+      if(!shared && (columnPredicate != null || predicate != null)) {
+         if(root) {
+            return Cast.as(LyreOptimizer.evaluate(o -> testPredicateColumn(objects), objects));
+         }
+         return testPredicateColumn(objects);
+      }
+      BitSet bits = new BitSet(objects.length);
+      if(isCompiledNumeric()) {
+         double[] values = applyColumnAsDouble(objects);
+         for(int i = 0; i < values.length; i++) {
+            if(Double.isFinite(values[i])) {
+               bits.set(i);
+            }
+         }
+         return bits;
+      }
+      Object[] values = applyColumn(objects);
+      for(int i = 0; i < values.length; i++) {
+         if(isTrue(values[i], objects[i])) {
+            bits.set(i);
+         }
+      }
+      return bits;
+   }
+
+   private BitSet testPredicateColumn(Object[] objects) {
+      if(columnPredicate != null) {
+         return columnPredicate.test(objects);
+      }
+      BitSet bits = new BitSet(objects.length);
+      for(int i = 0; i < objects.length; i++) {
+         if(predicate.test(objects[i])) {
+            bits.set(i);
+         }
+      }
+      return bits;
+   }
+
    @Override
    public boolean test(HString hString) {
       return testObject(hString);
@@ -298,7 +901,37 @@ public final class LyreExpression extends FeaturizingExtractor implements Expres
     * @return boolean based on expression evaluation
     */
    public boolean testObject(Object object) {
-      Object o = applyAsObject(object);
+      final MethodHandle lowered = lowered();
+      if(lowered != null) {
+         if(predicate != null) {
+            return invokePredicate(lowered, object);
+         }
+         return Double.isFinite(invokeNumeric(lowered, object));
+      }
+      return isTrue(applyAsObject(object), object);
+   }
+
+   private static boolean invokePredicate(MethodHandle lowered, Object object) {
+      try {
+         return (boolean) lowered.invokeExact(object);
+      } catch(RuntimeException | Error e) {
+         throw e;
+      } catch(Throwable throwable) {
+         throw new RuntimeException(throwable);
+      }
+   }
+
+   private static double invokeNumeric(MethodHandle lowered, Object object) {
+      try {
+         return (double) lowered.invokeExact(object);
+      } catch(RuntimeException | Error e) {
+         throw e;
+      } catch(Throwable throwable) {
+         throw new RuntimeException(throwable);
+      }
+   }
+
+   private static boolean isTrue(Object o, Object object) {
       if(o == null) {
          return false;
       } else if(o instanceof Boolean) {
@@ -319,9 +952,110 @@ public final class LyreExpression extends FeaturizingExtractor implements Expres
       return true;
    }
 
+   private static double toDouble(Object o) {
+      if(o == null) {
+         return Double.NaN;
+      }
+      if(o instanceof Number) {
+         return Cast.<Number>as(o).doubleValue();
+      }
+      if(o instanceof CharSequence) {
+         Double d = Math2.tryParseDouble(o.toString());
+         return d == null
+                ? Double.NaN
+                : d;
+      }
+      if(o instanceof Boolean) {
+         return Cast.<Boolean>as(o)
+                ? 1.0
+                : 0.0;
+      }
+      return Double.NaN;
+   }
+
    @Override
    public String toString() {
       return pattern;
    }
 
+   /**
+    * A function calculating the value of an expression over a column of input objects.
+    */
+   @FunctionalInterface
+   interface ColumnFunction extends Serializable {
+
+      /**
+       * Calculates the value of the expression for each of the given objects.
+       *
+       * @param objects the objects
+       * @return a new array with the value of the i-th object at index i
+       */
+      Object[] apply(Object[] objects);
+
+   }//END OF ColumnFunction
+
+   /**
+    * A function calculating the primitive double value of an expression over a column of input objects.
+    */
+   @FunctionalInterface
+   interface ColumnNumeric extends Serializable {
+
+      /**
+       * Calculates the value of the expression for each of the given objects.
+       *
+       * @param objects the objects
+       * @return a new array with the value of the i-th object at index i
+       */
+      double[] apply(Object[] objects);
+
+   }//END OF ColumnNumeric
+
+   /**
+    * A predicate testing a column of input objects.
+    */
+   @FunctionalInterface
+   interface ColumnPredicate extends Serializable {
+
+      /**
+       * Tests each of the given objects.
+       *
+       * @param objects the objects
+       * @return a new BitSet with bit i set when the i-th object passes
+       */
+      BitSet test(Object[] objects);
+
+   }//END OF ColumnPredicate
+
+   /**
+    * Lowers an expression into a method handle composed from the method handles of its sub-expressions.
+    */
+   @FunctionalInterface
+   interface Lowering extends Serializable {
+
+      /**
+       * Creates the method handle calculating the expression.
+       *
+       * @return the <code>(Object)boolean</code> handle of a predicate or <code>(Object)double</code> handle of a
+       * numeric expression
+       */
+      MethodHandle lower();
+
+   }//END OF Lowering
+
+   /**
+    * A function calculating the primitive double value of an expression over an input object.
+    */
+   @FunctionalInterface
+   interface NumericFunction extends Serializable {
+
+      /**
+       * Calculates the value of the expression for the given object.
+       *
+       * @param object the object
+       * @return the double value
+       */
+      double applyAsDouble(Object object);
+
+   }//END OF NumericFunction
+
 }//END OF LyreExpression
@@ -0,0 +1,240 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.extraction.lyre;
+
+import com.gengoai.conversion.Cast;
+import com.gengoai.function.SerializableFunction;
+import com.gengoai.hermes.lexicon.WordList;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Optimizations applied to {@link LyreExpression}s as they are constructed from the {@link LyreDSL}:
+ * </p>
+ * <ul>
+ *    <li>Constant folding: an expression whose sub-expressions are all constant is evaluated once when constructed.</li>
+ *    <li>Common sub-expression elimination: sub-expressions with the same pattern that are used more than once in a
+ *    parsed expression are shared and their result is cached for the duration of a single evaluation.</li>
+ * </ul>
+ * <p>
+ * Short-circuit reordering of predicates by their estimated cost is done by the {@link LyreDSL} when constructing
+ * <code>&&</code> and <code>||</code> expressions.
+ * </p>
+ *
+ * @author David B. Bracewell
+ */
+final class LyreOptimizer {
+   /**
+    * Marker value denoting an expression which is not constant
+    */
+   static final Object NOT_CONSTANT = new Object();
+   private static final ThreadLocal<Evaluation> EVALUATION = ThreadLocal.withInitial(Evaluation::new);
+   private static final ThreadLocal<Set<String>> SHARED = new ThreadLocal<>();
+
+   private LyreOptimizer() {
+      throw new IllegalAccessError();
+   }
+
+   /**
+    * Starts constructing repeated sub-expressions as shared on the current thread.
+    *
+    * @param repeated the patterns of the repeated sub-expressions
+    * @return the previously shared patterns, which should be passed to {@link #endSharing(Set)}
+    */
+   static Set<String> beginSharing(Set<String> repeated) {
+      Set<String> previous = SHARED.get();
+      SHARED.set(repeated);
+      return previous;
+   }
+
+   /**
+    * Gets the truth value of the given expression if it is a constant predicate.
+    *
+    * @param expression the expression
+    * @return the truth value or null if the expression is not a constant predicate
+    */
+   static Boolean constantTruth(LyreExpression expression) {
+      if(expression.isConstant() && expression.isCompiledPredicate()) {
+         return expression.testObject(null);
+      }
+      return null;
+   }
+
+   /**
+    * Stops constructing repeated sub-expressions as shared on the current thread.
+    *
+    * @param previous the previously shared patterns returned from {@link #beginSharing(Set)}
+    */
+   static void endSharing(Set<String> previous) {
+      if(previous == null) {
+         SHARED.remove();
+      } else {
+         SHARED.set(previous);
+      }
+   }
+
+   /**
+    * Enters the evaluation of a top-level expression on the current thread. Every call must be followed by a call to
+    * {@link #exit()}.
+    */
+   static void enter() {
+      EVALUATION.get().depth++;
+   }
+
+   /**
+    * Evaluates the function of a top-level expression, clearing the cached results of shared sub-expressions once
+    * the outermost evaluation completes.
+    *
+    * @param function the function of the expression
+    * @param input    the input to the expression
+    * @return the result of the expression
+    */
+   static Object evaluate(SerializableFunction<Object, Object> function, Object input) {
+      enter();
+      try {
+         return function.apply(input);
+      } finally {
+         exit();
+      }
+   }
+
+   /**
+    * Exits the evaluation of a top-level expression on the current thread, clearing the cached results of shared
+    * sub-expressions once the outermost evaluation completes.
+    */
+   static void exit() {
+      Evaluation evaluation = EVALUATION.get();
+      evaluation.depth--;
+      if(evaluation.depth == 0) {
+         evaluation.results.clear();
+      }
+   }
+
+   /**
+    * Folds an expression into a constant when all of its sub-expressions are constant. Word lists are never folded as
+    * testing a word list depends on the object being tested.
+    *
+    * @param function the function of the expression
+    * @param children the sub-expressions of the expression
+    * @return the constant value or {@link #NOT_CONSTANT}
+    */
+   static Object fold(SerializableFunction<Object, Object> function, LyreExpression[] children) {
+      if(children.length == 0) {
+         return NOT_CONSTANT;
+      }
+      for(LyreExpression child : children) {
+         if(!child.isConstant()) {
+            return NOT_CONSTANT;
+         }
+      }
+      try {
+         Object value = function.apply(null);
+         if(value instanceof WordList) {
+            return NOT_CONSTANT;
+         }
+         if(value instanceof List) {
+            return Collections.unmodifiableList(Cast.<List<?>>as(value));
+         }
+         return value;
+      } catch(RuntimeException e) {
+         return NOT_CONSTANT;
+      }
+   }
+
+   /**
+    * Determines if the expression with the given pattern is being constructed as a shared sub-expression.
+    *
+    * @param pattern the pattern
+    * @return True if shared, False otherwise
+    */
+   static boolean isShared(String pattern) {
+      Set<String> shared = SHARED.get();
+      return shared != null && shared.contains(pattern);
+   }
+
+   /**
+    * Evaluates the function of a shared sub-expression, reusing its result when it was already evaluated over the same
+    * input during the current evaluation.
+    *
+    * @param pattern  the pattern of the shared sub-expression
+    * @param function the function of the shared sub-expression
+    * @param input    the input to the sub-expression
+    * @return the result of the sub-expression
+    */
+   static Object memoize(String pattern, SerializableFunction<Object, Object> function, Object input) {
+      Evaluation evaluation = EVALUATION.get();
+      if(evaluation.depth == 0) {
+         return function.apply(input);
+      }
+      Result result = evaluation.results.get(pattern);
+      if(result != null && result.input == input) {
+         return result.value;
+      }
+      Object value = function.apply(input);
+      if(result == null) {
+         result = new Result();
+         evaluation.results.put(pattern, result);
+      }
+      result.input = input;
+      result.value = value;
+      return value;
+   }
+
+   /**
+    * Finds the patterns of the non-constant sub-expressions occurring more than once in the given expression.
+    *
+    * @param expression the expression
+    * @return the set of repeated patterns
+    */
+   static Set<String> repeatedSubExpressions(LyreExpression expression) {
+      Map<String, Integer> counts = new HashMap<>();
+      Deque<LyreExpression> stack = new ArrayDeque<>();
+      stack.push(expression);
+      while(!stack.isEmpty()) {
+         LyreExpression e = stack.pop();
+         if(e.isConstant() || e.getChildren().isEmpty()) {
+            continue;
+         }
+         counts.merge(e.getPattern(), 1, Integer::sum);
+         e.getChildren().forEach(stack::push);
+      }
+      Set<String> repeated = new HashSet<>();
+      counts.forEach((pattern, count) -> {
+         if(count > 1) {
+            repeated.add(pattern);
+         }
+      });
+      return repeated;
+   }
+
+   private static class Evaluation {
+      final Map<String, Result> results = new HashMap<>();
+      int depth = 0;
+   }
+
+   private static class Result {
+      Object input;
+      Object value;
+   }
+
+}//END OF LyreOptimizer
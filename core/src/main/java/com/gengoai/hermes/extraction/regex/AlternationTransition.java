@@ -62,6 +62,16 @@ final class AlternationTransition implements TransitionFunction, Serializable {
       return parent;
    }
 
+   @Override
+   public boolean consumesSingleToken() {
+      return c1.consumesSingleToken() && c2.consumesSingleToken();
+   }
+
+   @Override
+   public Prefilter prefilter() {
+      return c1.prefilter().or(c2.prefilter());
+   }
+
    @Override
    public Tag getType() {
       return RegexTypes.ALTERNATION;
@@ -25,6 +25,7 @@ import com.gengoai.collection.multimap.ListMultimap;
 import com.gengoai.hermes.HString;
 
 import java.io.Serializable;
+import java.util.Arrays;
 
 /**
  * The type And transition.
@@ -53,11 +54,26 @@ final class AndTransition implements TransitionFunction, Serializable {
       return nfa;
    }
 
+   @Override
+   public boolean consumesSingleToken() {
+      return left.consumesSingleToken() && right.consumesSingleToken();
+   }
+
+   @Override
+   public Prefilter prefilter() {
+      return left.prefilter().and(right.prefilter());
+   }
+
    @Override
    public Tag getType() {
       return RegexTypes.AND;
    }
 
+   @Override
+   public Object symbolKey() {
+      return Arrays.asList(getType(), left.symbolKey(), right.symbolKey());
+   }
+
    @Override
    public int matches(HString input, ListMultimap<String, HString> namedGroups) {
       int m = left.matches(input, namedGroups);
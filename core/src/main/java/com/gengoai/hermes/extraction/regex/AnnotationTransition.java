@@ -53,6 +53,11 @@ final class AnnotationTransition implements TransitionFunction, Serializable {
       return nfa;
    }
 
+   @Override
+   public Prefilter prefilter() {
+      return Prefilter.annotation(type);
+   }
+
    @Override
    public Tag getType() {
       return RegexTypes.ANNOTATION;
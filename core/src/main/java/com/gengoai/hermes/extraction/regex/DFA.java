@@ -0,0 +1,486 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.extraction.regex;
+
+import com.gengoai.collection.multimap.ArrayListMultimap;
+import com.gengoai.collection.multimap.ListMultimap;
+import com.gengoai.hermes.Annotation;
+import com.gengoai.hermes.HString;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>
+ * A lazily constructed deterministic finite state automaton equivalent to one or more {@link NFA}s whose transitions
+ * all consume exactly one token (see {@link TransitionFunction#consumesSingleToken()}) and which do not capture named
+ * groups. When built from multiple NFAs the start state is the union of their start nodes and each DFA state records
+ * the indices of the NFAs having an accepting node in the state.
+ * DFA states are the sets of NFA nodes active at a token position and are built on demand by subset construction.
+ * The distinct transition functions of the NFA act as the input symbols, where transition functions with the same
+ * {@link TransitionFunction#symbolKey()} (e.g. the same predicate used in several patterns) share a symbol. The
+ * transitions out of a DFA state are keyed by the bit vector of which of its transition functions match the current
+ * token, which has one bit per distinct transition function and is stored in a primitive open addressing table. The
+ * bit vector is calculated by an {@link Evaluator}, which memoizes the result of each transition function per token so
+ * that restarting the match at every token does not reevaluate the same predicates.
+ * </p>
+ * <p>
+ * At most {@link #MAX_STATES} states are cached. When the limit is reached new states are still constructed, but are
+ * no longer remembered, so matching degrades to an on-the-fly NFA simulation instead of failing.
+ * </p>
+ *
+ * @author David B. Bracewell
+ */
+final class DFA implements Serializable {
+   /**
+    * The maximum number of DFA states that are cached
+    */
+   static final int MAX_STATES = 10_000;
+   private static final long serialVersionUID = 1L;
+   private final int[] acceptPatterns;
+   private final int[][] epsilons;
+   private final TransitionFunction[] functions;
+   private final int[] starts;
+   private final int[][] transitionFunctions;
+   private final int[][] transitionTargets;
+   private final int words;
+   private transient volatile Cache cache;
+
+   private DFA(int[] starts,
+               List<NFA.Node> nodes,
+               List<Integer> nodePatterns,
+               Map<NFA.Node, Integer> nodeIds,
+               List<TransitionFunction> functions,
+               Map<Object, Integer> functionIds) {
+      this.functions = functions.toArray(new TransitionFunction[0]);
+      this.words = Math.max(1, (functions.size() + Long.SIZE - 1) / Long.SIZE);
+      this.starts = starts;
+      this.acceptPatterns = new int[nodes.size()];
+      this.epsilons = new int[nodes.size()][];
+      this.transitionFunctions = new int[nodes.size()][];
+      this.transitionTargets = new int[nodes.size()][];
+      for(int i = 0; i < nodes.size(); i++) {
+         NFA.Node node = nodes.get(i);
+         acceptPatterns[i] = node.accepts()
+                             ? nodePatterns.get(i)
+                             : -1;
+         epsilons[i] = new int[node.epsilons.size()];
+         for(int j = 0; j < epsilons[i].length; j++) {
+            epsilons[i][j] = nodeIds.get(node.epsilons.get(j));
+         }
+         transitionFunctions[i] = new int[node.transitions.size()];
+         transitionTargets[i] = new int[node.transitions.size()];
+         for(int j = 0; j < transitionFunctions[i].length; j++) {
+            NFA.Transition transition = node.transitions.get(j);
+            transitionFunctions[i][j] = functionIds.get(transition.transitionFunction.symbolKey());
+            transitionTargets[i][j] = nodeIds.get(transition.destination);
+         }
+      }
+   }
+
+   /**
+    * Compiles the given NFA into a lazy DFA if the NFA can be determinized.
+    *
+    * @param nfa the nfa
+    * @return the DFA or null if the NFA uses named groups, back references, relations, or multi-token transitions
+    */
+   static DFA compile(NFA nfa) {
+      return compile(Collections.singletonList(nfa));
+   }
+
+   /**
+    * Compiles the given NFAs into a single lazy DFA if all of the NFAs can be determinized. The NFAs must not share
+    * nodes.
+    *
+    * @param nfas the nfas
+    * @return the DFA or null if one of the NFAs uses named groups, back references, relations, or multi-token
+    * transitions
+    */
+   static DFA compile(List<NFA> nfas) {
+      Map<NFA.Node, Integer> nodeIds = new IdentityHashMap<>();
+      Map<Object, Integer> functionIds = new HashMap<>();
+      List<NFA.Node> nodes = new ArrayList<>();
+      List<Integer> nodePatterns = new ArrayList<>();
+      List<TransitionFunction> functions = new ArrayList<>();
+      Deque<NFA.Node> stack = new ArrayDeque<>();
+      int[] starts = new int[nfas.size()];
+      for(int pattern = 0; pattern < nfas.size(); pattern++) {
+         NFA.Node start = nfas.get(pattern).start;
+         starts[pattern] = nodes.size();
+         nodeIds.put(start, nodes.size());
+         nodes.add(start);
+         nodePatterns.add(pattern);
+         stack.push(start);
+         while(!stack.isEmpty()) {
+            NFA.Node node = stack.pop();
+            if(node.emits || node.consumes) {
+               return null;
+            }
+            List<NFA.Node> next = new ArrayList<>(node.epsilons);
+            for(NFA.Transition transition : node.transitions) {
+               if(!transition.transitionFunction.consumesSingleToken()) {
+                  return null;
+               }
+               if(!functionIds.containsKey(transition.transitionFunction.symbolKey())) {
+                  functionIds.put(transition.transitionFunction.symbolKey(), functions.size());
+                  functions.add(transition.transitionFunction);
+               }
+               next.add(transition.destination);
+            }
+            for(NFA.Node n : next) {
+               if(!nodeIds.containsKey(n)) {
+                  nodeIds.put(n, nodes.size());
+                  nodes.add(n);
+                  nodePatterns.add(pattern);
+                  stack.push(n);
+               }
+            }
+         }
+      }
+      return new DFA(starts, nodes, nodePatterns, nodeIds, functions, functionIds);
+   }
+
+   /**
+    * Creates an evaluator for calculating the input symbols of the given tokens.
+    *
+    * @param tokens the tokens being matched
+    * @return the evaluator
+    */
+   Evaluator evaluator(List<Annotation> tokens) {
+      return new Evaluator(tokens);
+   }
+
+   /**
+    * Finds the longest match starting at the given token index using the same semantics as
+    * {@link NFA#matches(HString, int)}.
+    *
+    * @param input      the input
+    * @param evaluator  the evaluator created for the input's tokens
+    * @param startIndex the start index
+    * @return the match, which has a start and end of -1 if there is no match
+    */
+   TokenMatch matches(HString input, Evaluator evaluator, int startIndex) {
+      int end = longestMatch(evaluator, startIndex);
+      if(end < 0) {
+         return new TokenMatch(input, -1, -1, null);
+      }
+      if(end == startIndex) {
+         end++;
+      }
+      return new TokenMatch(input, startIndex, end, new ArrayListMultimap<>());
+   }
+
+   /**
+    * Finds the end of the longest match of every NFA starting at the given token index. The end of a pattern without
+    * a match is set to -1 and an empty match has an end equal to the start index.
+    *
+    * @param evaluator  the evaluator created for the input's tokens
+    * @param startIndex the start index
+    * @param ends       the array (one element per NFA) to fill with the exclusive end token index of the matches
+    */
+   void longestMatches(Evaluator evaluator, int startIndex, int[] ends) {
+      Arrays.fill(ends, -1);
+      final Cache c = cache();
+      DState state = c.start;
+      for(int pattern : state.patterns) {
+         ends[pattern] = startIndex;
+      }
+      for(int i = startIndex; i < evaluator.tokens.size() && state.nodes.length > 0; i++) {
+         state = next(c, state, evaluator.symbol(state.inputs, i));
+         for(int pattern : state.patterns) {
+            ends[pattern] = i + 1;
+         }
+      }
+   }
+
+   private int longestMatch(Evaluator evaluator, int startIndex) {
+      final Cache c = cache();
+      DState state = c.start;
+      int end = state.patterns.length > 0
+                ? startIndex
+                : -1;
+      for(int i = startIndex; i < evaluator.tokens.size() && state.nodes.length > 0; i++) {
+         state = next(c, state, evaluator.symbol(state.inputs, i));
+         if(state.patterns.length > 0) {
+            end = i + 1;
+         }
+      }
+      return end;
+   }
+
+   private DState next(Cache c, DState state, long[] symbol) {
+      DState next = state.next.get(symbol);
+      if(next == null) {
+         next = c.intern(step(state, symbol));
+         if(next.cached) {
+            state.next.put(symbol, next);
+         }
+      }
+      return next;
+   }
+
+   private Cache cache() {
+      Cache c = cache;
+      if(c == null) {
+         synchronized(this) {
+            c = cache;
+            if(c == null) {
+               c = new Cache(closure(starts, starts.length));
+               cache = c;
+            }
+         }
+      }
+      return c;
+   }
+
+   private DState closure(int[] seeds, int size) {
+      boolean[] seen = new boolean[epsilons.length];
+      int[] stack = Arrays.copyOf(seeds, size + epsilons.length);
+      int top = size;
+      for(int i = 0; i < size; i++) {
+         seen[seeds[i]] = true;
+      }
+      while(top > 0) {
+         int node = stack[--top];
+         for(int epsilon : epsilons[node]) {
+            if(!seen[epsilon]) {
+               seen[epsilon] = true;
+               stack[top++] = epsilon;
+            }
+         }
+      }
+      //Only nodes that can consume a token or accept distinguish one state from another
+      int n = 0;
+      BitSet patterns = new BitSet();
+      long[] inputs = new long[words];
+      for(int node = 0; node < seen.length; node++) {
+         if(seen[node] && (acceptPatterns[node] >= 0 || transitionFunctions[node].length > 0)) {
+            stack[n++] = node;
+            if(acceptPatterns[node] >= 0) {
+               patterns.set(acceptPatterns[node]);
+            }
+            for(int function : transitionFunctions[node]) {
+               inputs[function >>> 6] |= 1L << function;
+            }
+         }
+      }
+      return new DState(Arrays.copyOf(stack, n), patterns.stream().toArray(), inputs);
+   }
+
+   private DState step(DState state, long[] symbol) {
+      int[] targets = new int[Math.max(1, epsilons.length)];
+      int size = 0;
+      for(int node : state.nodes) {
+         int[] functions = transitionFunctions[node];
+         for(int j = 0; j < functions.length; j++) {
+            if((symbol[functions[j] >>> 6] & (1L << functions[j])) != 0) {
+               targets[size++] = transitionTargets[node][j];
+               if(size == targets.length) {
+                  targets = Arrays.copyOf(targets, size * 2);
+               }
+            }
+         }
+      }
+      return closure(targets, size);
+   }
+
+   private static final class Cache {
+      final DState start;
+      final Map<DState, DState> states = new ConcurrentHashMap<>();
+
+      private Cache(DState start) {
+         this.start = intern(start);
+      }
+
+      DState intern(DState state) {
+         DState interned = states.get(state);
+         if(interned != null) {
+            return interned;
+         }
+         if(states.size() >= MAX_STATES) {
+            return state;
+         }
+         state.cached = true;
+         interned = states.putIfAbsent(state, state);
+         return interned == null
+                ? state
+                : interned;
+      }
+   }//END OF DFA$Cache
+
+   private static final class DState {
+      final int hash;
+      final long[] inputs;
+      final Transitions next;
+      final int[] nodes;
+      final int[] patterns;
+      boolean cached = false;
+
+      private DState(int[] nodes, int[] patterns, long[] inputs) {
+         this.nodes = nodes;
+         this.patterns = patterns;
+         this.inputs = inputs;
+         this.next = new Transitions(inputs.length);
+         this.hash = Arrays.hashCode(nodes);
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         return o instanceof DState && Arrays.equals(nodes, ((DState) o).nodes);
+      }
+
+      @Override
+      public int hashCode() {
+         return hash;
+      }
+   }//END OF DFA$DState
+
+   /**
+    * Open addressing table of the transitions out of a DFA state keyed by the input symbol. Lookups do not lock: a
+    * slot's key is written before its state is published, and a full table is replaced rather than modified.
+    */
+   private static final class Transitions {
+      private final int words;
+      private volatile Table table;
+
+      private Transitions(int words) {
+         this.words = words;
+         this.table = new Table(words, 4);
+      }
+
+      DState get(long[] symbol) {
+         final Table t = table;
+         final int mask = t.states.length() - 1;
+         for(int slot = hash(symbol) & mask; ; slot = (slot + 1) & mask) {
+            DState state = t.states.get(slot);
+            if(state == null || t.matches(slot, symbol)) {
+               return state;
+            }
+         }
+      }
+
+      private static int hash(long[] symbol) {
+         long h = 0;
+         for(long word : symbol) {
+            h = (h + word) * 0x9E3779B97F4A7C15L;
+         }
+         return (int) (h ^ (h >>> 32));
+      }
+
+      synchronized void put(long[] symbol, DState state) {
+         Table t = table;
+         if(2 * (t.size + 1) > t.states.length()) {
+            Table resized = new Table(words, 2 * t.states.length());
+            for(int slot = 0; slot < t.states.length(); slot++) {
+               if(t.states.get(slot) != null) {
+                  resized.insert(Arrays.copyOfRange(t.keys, slot * words, (slot + 1) * words), t.states.get(slot));
+               }
+            }
+            resized.insert(symbol, state);
+            table = resized;
+         } else {
+            t.insert(symbol, state);
+         }
+      }
+
+      private static final class Table {
+         final long[] keys;
+         final AtomicReferenceArray<DState> states;
+         final int words;
+         int size = 0;
+
+         private Table(int words, int capacity) {
+            this.words = words;
+            this.keys = new long[capacity * words];
+            this.states = new AtomicReferenceArray<>(capacity);
+         }
+
+         void insert(long[] symbol, DState state) {
+            final int mask = states.length() - 1;
+            int slot = hash(symbol) & mask;
+            while(states.get(slot) != null) {
+               if(matches(slot, symbol)) {
+                  return;
+               }
+               slot = (slot + 1) & mask;
+            }
+            System.arraycopy(symbol, 0, keys, slot * words, words);
+            states.set(slot, state);
+            size++;
+         }
+
+         boolean matches(int slot, long[] symbol) {
+            for(int w = 0, offset = slot * words; w < words; w++) {
+               if(keys[offset + w] != symbol[w]) {
+                  return false;
+               }
+            }
+            return true;
+         }
+      }//END OF DFA$Transitions$Table
+   }//END OF DFA$Transitions
+
+   /**
+    * Calculates the input symbols for a list of tokens, memoizing the result of each transition function per token.
+    */
+   final class Evaluator {
+      private final long[] evaluated;
+      private final ListMultimap<String, HString> groups = new ArrayListMultimap<>();
+      private final long[] matched;
+      private final long[] symbol = new long[words];
+      private final List<Annotation> tokens;
+
+      private Evaluator(List<Annotation> tokens) {
+         this.tokens = tokens;
+         this.evaluated = new long[tokens.size() * words];
+         this.matched = new long[tokens.size() * words];
+      }
+
+      /**
+       * Calculates the bit vector of the given transition functions that match the token at the given index. The
+       * returned array is reused by the next call.
+       *
+       * @param inputs the bit vector of transition functions to evaluate
+       * @param index  the token index
+       * @return the bit vector of matching transition functions
+       */
+      long[] symbol(long[] inputs, int index) {
+         final int offset = index * words;
+         for(int w = 0; w < words; w++) {
+            long missing = inputs[w] & ~evaluated[offset + w];
+            while(missing != 0) {
+               int function = w * Long.SIZE + Long.numberOfTrailingZeros(missing);
+               missing &= missing - 1;
+               if(functions[function].matches(tokens.get(index), groups) > 0) {
+                  matched[offset + w] |= 1L << function;
+               }
+            }
+            evaluated[offset + w] |= inputs[w];
+            symbol[w] = matched[offset + w] & inputs[w];
+         }
+         return symbol;
+      }
+   }//END OF DFA$Evaluator
+
+}//END OF DFA
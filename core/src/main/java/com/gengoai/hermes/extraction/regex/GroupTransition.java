@@ -73,6 +73,16 @@ final class GroupTransition implements TransitionFunction, Serializable {
       return nfa;
    }
 
+   @Override
+   public boolean consumesSingleToken() {
+      return child.consumesSingleToken();
+   }
+
+   @Override
+   public Prefilter prefilter() {
+      return child.prefilter();
+   }
+
    @Override
    public Tag getType() {
       return null;
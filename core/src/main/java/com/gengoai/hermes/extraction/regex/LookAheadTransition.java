@@ -54,6 +54,16 @@ final class LookAheadTransition implements TransitionFunction, Serializable {
       return nEnd;
    }
 
+   @Override
+   public boolean consumesSingleToken() {
+      return child.consumesSingleToken() && lookAhead.consumesSingleToken();
+   }
+
+   @Override
+   public Prefilter prefilter() {
+      return child.prefilter();
+   }
+
    @Override
    public Tag getType() {
       return negativeLookAhead
@@ -24,11 +24,10 @@ import com.gengoai.collection.multimap.ArrayListMultimap;
 import com.gengoai.collection.multimap.ListMultimap;
 import com.gengoai.hermes.Annotation;
 import com.gengoai.hermes.HString;
-import com.gengoai.tuple.Tuple2;
-import com.gengoai.tuple.Tuples;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static com.gengoai.string.Strings.safeEquals;
 
@@ -38,6 +37,7 @@ import static com.gengoai.string.Strings.safeEquals;
 public final class NFA implements Serializable {
 
    private static final long serialVersionUID = 1L;
+   private static final ThreadLocal<Frontier> FRONTIERS = ThreadLocal.withInitial(Frontier::new);
    /**
     * The End.
     */
@@ -55,85 +55,124 @@ public final class NFA implements Serializable {
     * @return the int
     */
    public TokenMatch matches(HString input, int startIndex) {
-      //The set of states that the NFA is in
-      Set<State> states = new HashSet<>();
-
+      //All the accept states that it enters
+      final NavigableSet<State> accepts = new TreeSet<>();
+      run(input, startIndex, Collections.singletonList(start), accepts::add);
+      return toMatch(input, startIndex, accepts);
+   }
 
-      //Add the start state
-      states.add(new State(startIndex, start));
+   /**
+    * Simulates the NFAs beginning at the given start nodes from the given token, passing every accepting state to the
+    * given consumer. Starting from multiple nodes runs multiple NFAs in a single pass over the input.
+    *
+    * @param input      the input
+    * @param startIndex the start index
+    * @param starts     the start nodes
+    * @param onAccept   the consumer of accepting states
+    */
+   static void run(HString input, int startIndex, Collection<Node> starts, Consumer<State> onAccept) {
+      //Reentrant calls (e.g. a predicate that itself runs a pattern) get their own frontier
+      final Frontier shared = FRONTIERS.get();
+      final Frontier frontier = shared.inUse
+                                ? new Frontier()
+                                : shared;
+      frontier.inUse = true;
+      try {
+         run(input, startIndex, starts, onAccept, frontier);
+      } finally {
+         frontier.clear();
+         frontier.inUse = false;
+      }
+   }
 
-      //All the accept states that it enters
-      NavigableSet<State> accepts = new TreeSet<>();
+   /**
+    * Converts the accepting states of a match starting at the given token into a TokenMatch, selecting the highest
+    * scoring state.
+    *
+    * @param input      the input
+    * @param startIndex the start index
+    * @param accepts    the accepting states
+    * @return the match, which has a start and end of -1 if there are no accepting states
+    */
+   static TokenMatch toMatch(HString input, int startIndex, NavigableSet<State> accepts) {
+      if(accepts.isEmpty()) {
+         return new TokenMatch(input,
+                               -1,
+                               -1,
+                               null);
+      }
 
-      List<Annotation> tokens = input.tokens();
+      State last = accepts.last();
+      int max = last.inputPosition;
+      if(max == startIndex) {
+         max++;
+      }
 
+      return new TokenMatch(input,
+                            startIndex,
+                            max,
+                            last.groups == null
+                            ? new ArrayListMultimap<>()
+                            : last.groups.asMultimap());
+   }
 
-      while (!states.isEmpty()) {
-         Set<State> newStates = new HashSet<>(); //states after the next consumption
+   private static void run(HString input,
+                           int startIndex,
+                           Collection<Node> starts,
+                           Consumer<State> onAccept,
+                           Frontier frontier) {
+      final List<Annotation> tokens = input.tokens();
+      final ListMultimap<String, HString> noGroups = new ArrayListMultimap<>();
+
+      //Add the start states
+      for(Node node : starts) {
+         frontier.add(new State(startIndex, node, null, null));
+      }
 
-         for (State s : states) {
+      while(frontier.advance()) {
+         for(int i = 0; i < frontier.currentSize; i++) {
+            final State s = frontier.current[i];
 
-            if (s.node.accepts()) {
-               if (s.stack.isEmpty() ||
-                  (s.stack.size() == 1 && s.node.consumes && safeEquals(s.node.name, s.stack.peek().v1, true))) {
-                  accepts.add(s);
+            if(s.node.accepts()) {
+               if(s.stack == null ||
+                     (s.stack.next == null && s.node.consumes && safeEquals(s.node.name, s.stack.name, true))) {
+                  onAccept.accept(s);
                }
             }
 
-            Deque<Tuple2<String, Integer>> currentStack = s.stack;
-            if (s.node.emits) {
-               currentStack.push(Tuples.$(s.node.name, s.inputPosition));
+            Frame currentStack = s.stack;
+            if(s.node.emits) {
+               currentStack = new Frame(s.node.name, s.inputPosition, currentStack);
             }
 
-            for (Node n : s.node.epsilons) {
-               if (s.node.consumes) {
-                  State next = new State(s.inputPosition, n, currentStack, s.namedGroups);
-                  Tuple2<String, Integer> ng = next.stack.pop();
-                  next.namedGroups.put(ng.getKey(), HString.union(tokens.subList(ng.v2, s.inputPosition)));
-                  newStates.add(next);
+            for(Node n : s.node.epsilons) {
+               if(s.node.consumes) {
+                  if(currentStack == null) {
+                     throw new NoSuchElementException();
+                  }
+                  Groups groups = new Groups(currentStack.name,
+                                             HString.union(tokens.subList(currentStack.start, s.inputPosition)),
+                                             s.groups);
+                  frontier.add(new State(s.inputPosition, n, currentStack.next, groups));
                }
-
-               State next = new State(s.inputPosition, n, currentStack, s.namedGroups);
-               newStates.add(next);
+               frontier.add(new State(s.inputPosition, n, currentStack, s.groups));
             }
 
-            if (s.inputPosition >= input.tokenLength()) {
+            if(s.inputPosition >= input.tokenLength()) {
                continue;
             }
 
-            for (Transition t : s.node.transitions) {
-               int len = t.transitionFunction.matches(tokens.get(s.inputPosition),s.namedGroups);
-               if (len > 0) {
-                  State next = new State(s.inputPosition + len, t.destination, currentStack, s.namedGroups);
-                  newStates.add(next);
+            final ListMultimap<String, HString> namedGroups = s.groups == null
+                                                              ? noGroups
+                                                              : s.groups.asMultimap();
+            for(Transition t : s.node.transitions) {
+               int len = t.transitionFunction.matches(tokens.get(s.inputPosition), namedGroups);
+               if(len > 0) {
+                  frontier.add(new State(s.inputPosition + len, t.destination, currentStack, s.groups));
                }
             }
          }
-         states.clear();
-         states = newStates;
-      }
-
-      if (accepts.isEmpty()) {
-         return new TokenMatch(input,
-                               -1,
-                               -1,
-                               null);
       }
-
-
-      State last = accepts.last();
-      int max = last.inputPosition;
-
-      State temp = accepts.last();
-      while (temp != null && temp.inputPosition >= max) {
-         temp = accepts.lower(temp);
-      }
-
-      if (max == startIndex) {
-         max++;
-      }
-
-      return new TokenMatch(input, startIndex, max, last.namedGroups);
    }
 
    /**
@@ -211,52 +250,144 @@ public final class NFA implements Serializable {
    }//END OF NFA$Node
 
    /**
-    * The type State.
+    * An immutable stack of the named groups that have been entered but not yet exited. Stacks are shared between
+    * states, so that pushing and popping never copies.
     */
-   static class State implements Comparable<State> {
+   static final class Frame {
       /**
-       * The Input position.
+       * The Name.
        */
-      final int inputPosition;
+      final String name;
       /**
-       * The Named groups.
+       * The Next.
        */
-      final ListMultimap<String, HString> namedGroups = new ArrayListMultimap<>();
+      final Frame next;
       /**
-       * The Node.
+       * The Start.
        */
-      final Node node;
+      final int start;
+
       /**
-       * The Stack.
+       * Instantiates a new Frame.
+       *
+       * @param name  the name
+       * @param start the start
+       * @param next  the next
        */
-      final Deque<Tuple2<String, Integer>> stack;
+      Frame(String name, int start, Frame next) {
+         this.name = name;
+         this.start = start;
+         this.next = next;
+      }
+
+   }//END OF NFA$Frame
 
+   /**
+    * An immutable list of the captured named groups. Capturing a group prepends to the list, leaving the groups of the
+    * state it was derived from untouched. The multimap view and the score components are calculated once per list.
+    */
+   static final class Groups {
       /**
-       * Instantiates a new State.
+       * The Name.
+       */
+      final String name;
+      /**
+       * The Next.
+       */
+      final Groups next;
+      /**
+       * The number of captures in the list.
+       */
+      final int size;
+      /**
+       * The total token length of the captures in the list.
+       */
+      final int tokenLength;
+      /**
+       * The Value.
+       */
+      final HString value;
+      private ListMultimap<String, HString> multimap;
+
+      /**
+       * Instantiates a new Groups.
        *
-       * @param inputPosition the input position
-       * @param node          the node
+       * @param name  the name
+       * @param value the value
+       * @param next  the next
        */
-      public State(int inputPosition, Node node) {
-         this(inputPosition, node, new LinkedList<>(), new ArrayListMultimap<>());
+      Groups(String name, HString value, Groups next) {
+         this.name = name;
+         this.value = value;
+         this.next = next;
+         this.size = next == null
+                     ? 1
+                     : next.size + 1;
+         this.tokenLength = next == null
+                            ? value.tokenLength()
+                            : next.tokenLength + value.tokenLength();
       }
 
+      /**
+       * Gets the captures as a multimap with the values of each name in capture order.
+       *
+       * @return the multimap
+       */
+      ListMultimap<String, HString> asMultimap() {
+         if(multimap == null) {
+            Groups[] captures = new Groups[size];
+            int i = size;
+            for(Groups g = this; g != null; g = g.next) {
+               captures[--i] = g;
+            }
+            multimap = new ArrayListMultimap<>();
+            for(Groups g : captures) {
+               multimap.put(g.name, g.value);
+            }
+         }
+         return multimap;
+      }
+
+   }//END OF NFA$Groups
+
+   /**
+    * The type State.
+    */
+   static final class State implements Comparable<State> {
+      /**
+       * The Groups.
+       */
+      final Groups groups;
+      /**
+       * The Input position.
+       */
+      final int inputPosition;
+      /**
+       * The Node.
+       */
+      final Node node;
+      /**
+       * The Stack.
+       */
+      final Frame stack;
+      private final int hash;
+
       /**
        * Instantiates a new State.
        *
        * @param inputPosition the input position
        * @param node          the node
-       * @param currentStack  the current stack
-       * @param namedGroups   the named groups
+       * @param stack         the stack of open named groups (null when empty)
+       * @param groups        the captured named groups (null when empty)
        */
-      public State(int inputPosition,
-                   Node node,
-                   Deque<Tuple2<String, Integer>> currentStack,
-                   ListMultimap<String, HString> namedGroups) {
+      State(int inputPosition, Node node, Frame stack, Groups groups) {
          this.inputPosition = inputPosition;
          this.node = node;
-         this.stack = new LinkedList<>(currentStack);
-         this.namedGroups.putAll(namedGroups);
+         this.stack = stack;
+         this.groups = groups;
+         int h = 31 * inputPosition + System.identityHashCode(node);
+         h = 31 * h + System.identityHashCode(stack);
+         this.hash = 31 * h + System.identityHashCode(groups);
       }
 
       @Override
@@ -264,11 +395,126 @@ public final class NFA implements Serializable {
          return Integer.compare(score(), o.score());
       }
 
+      @Override
+      public boolean equals(Object o) {
+         if(this == o) {
+            return true;
+         }
+         if(!(o instanceof State)) {
+            return false;
+         }
+         State other = (State) o;
+         return inputPosition == other.inputPosition
+               && node == other.node
+               && stack == other.stack
+               && groups == other.groups;
+      }
+
+      @Override
+      public int hashCode() {
+         return hash;
+      }
+
       private int score() {
-         return inputPosition + namedGroups.size() * namedGroups.values().stream().mapToInt(HString::tokenLength).sum();
+         return groups == null
+                ? inputPosition
+                : inputPosition + groups.size * groups.tokenLength;
       }
    }//END OF NFA$State
 
+   /**
+    * The states to process in the current and next step of a match along with every state seen so far. A state is
+    * only ever processed once per match, as states are equal when they share the same position, node, and (identical)
+    * stack and groups and therefore have the same future.
+    */
+   private static final class Frontier {
+      private static final int INITIAL_SIZE = 64;
+      private static final int MAX_RETAINED_SIZE = 4096;
+      State[] current = new State[INITIAL_SIZE];
+      int currentSize = 0;
+      boolean inUse = false;
+      State[] next = new State[INITIAL_SIZE];
+      int nextSize = 0;
+      State[] seen = new State[INITIAL_SIZE * 2];
+      int seenSize = 0;
+
+      /**
+       * Adds the state to the next step if it has not been seen before.
+       *
+       * @param state the state
+       */
+      void add(State state) {
+         if(seenSize * 2 >= seen.length) {
+            rehash();
+         }
+         final int mask = seen.length - 1;
+         int i = state.hashCode() & mask;
+         while(seen[i] != null) {
+            if(seen[i].equals(state)) {
+               return;
+            }
+            i = (i + 1) & mask;
+         }
+         seen[i] = state;
+         seenSize++;
+         if(nextSize == next.length) {
+            next = Arrays.copyOf(next, nextSize * 2);
+         }
+         next[nextSize++] = state;
+      }
+
+      /**
+       * Moves to the next step.
+       *
+       * @return True if there are states to process
+       */
+      boolean advance() {
+         Arrays.fill(current, 0, currentSize, null);
+         State[] tmp = current;
+         current = next;
+         currentSize = nextSize;
+         next = tmp;
+         nextSize = 0;
+         return currentSize > 0;
+      }
+
+      /**
+       * Releases the states of the last match, shrinking buffers grown by unusually large matches.
+       */
+      void clear() {
+         if(seen.length > MAX_RETAINED_SIZE) {
+            seen = new State[INITIAL_SIZE * 2];
+         } else {
+            Arrays.fill(seen, null);
+         }
+         if(current.length > MAX_RETAINED_SIZE || next.length > MAX_RETAINED_SIZE) {
+            current = new State[INITIAL_SIZE];
+            next = new State[INITIAL_SIZE];
+         } else {
+            Arrays.fill(current, 0, currentSize, null);
+            Arrays.fill(next, 0, nextSize, null);
+         }
+         seenSize = 0;
+         currentSize = 0;
+         nextSize = 0;
+      }
+
+      private void rehash() {
+         State[] old = seen;
+         seen = new State[old.length * 2];
+         final int mask = seen.length - 1;
+         for(State state : old) {
+            if(state != null) {
+               int i = state.hashCode() & mask;
+               while(seen[i] != null) {
+                  i = (i + 1) & mask;
+               }
+               seen[i] = state;
+            }
+         }
+      }
+   }//END OF NFA$Frontier
+
    /**
     * The type Transition.
     */
@@ -24,6 +24,7 @@ import com.gengoai.collection.multimap.ListMultimap;
 import com.gengoai.hermes.HString;
 
 import java.io.Serializable;
+import java.util.Arrays;
 
 final class NegationTransition implements TransitionFunction, Serializable {
    private static final long serialVersionUID = 1L;
@@ -48,11 +49,21 @@ final class NegationTransition implements TransitionFunction, Serializable {
       return parent;
    }
 
+   @Override
+   public boolean consumesSingleToken() {
+      return c1.consumesSingleToken();
+   }
+
    @Override
    public Tag getType() {
       return RegexTypes.NEGATION;
    }
 
+   @Override
+   public Object symbolKey() {
+      return Arrays.asList(getType(), c1.symbolKey());
+   }
+
    @Override
    public int matches(HString token, ListMultimap<String, HString> namedGroups) {
       return c1.nonMatches(token, namedGroups);
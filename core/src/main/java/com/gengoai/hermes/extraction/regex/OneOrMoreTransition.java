@@ -55,6 +55,16 @@ final class OneOrMoreTransition implements TransitionFunction, Serializable {
       return nfa;
    }
 
+   @Override
+   public boolean consumesSingleToken() {
+      return child.consumesSingleToken();
+   }
+
+   @Override
+   public Prefilter prefilter() {
+      return child.prefilter();
+   }
+
    @Override
    public Tag getType() {
       return RegexTypes.ONE_OR_MORE;
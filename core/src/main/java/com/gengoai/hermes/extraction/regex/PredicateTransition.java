@@ -25,6 +25,7 @@ import com.gengoai.function.SerializablePredicate;
 import com.gengoai.hermes.HString;
 
 import java.io.Serializable;
+import java.util.Arrays;
 
 /**
  * The type Predicate matcher.
@@ -33,6 +34,7 @@ final class PredicateTransition implements TransitionFunction, Serializable {
    private static final long serialVersionUID = 1L;
    private final String pattern;
    private final SerializablePredicate<? super HString> predicate;
+   private final Prefilter prefilter;
    private final Tag type;
 
    /**
@@ -44,9 +46,25 @@ final class PredicateTransition implements TransitionFunction, Serializable {
    public PredicateTransition(String pattern,
                               SerializablePredicate<? super HString> predicate,
                               Tag type) {
+      this(pattern, predicate, type, Prefilter.NONE);
+   }
+
+   /**
+    * Instantiates a new Predicate matcher.
+    *
+    * @param pattern   the pattern
+    * @param predicate the predicate
+    * @param type      the type
+    * @param prefilter the condition an input must meet for a token to match the predicate
+    */
+   public PredicateTransition(String pattern,
+                              SerializablePredicate<? super HString> predicate,
+                              Tag type,
+                              Prefilter prefilter) {
       this.pattern = pattern;
       this.predicate = predicate;
       this.type = type;
+      this.prefilter = prefilter;
    }
 
    @Override
@@ -56,6 +74,16 @@ final class PredicateTransition implements TransitionFunction, Serializable {
       return nfa;
    }
 
+   @Override
+   public boolean consumesSingleToken() {
+      return true;
+   }
+
+   @Override
+   public Prefilter prefilter() {
+      return prefilter;
+   }
+
    @Override
    public Tag getType() {
       return type;
@@ -75,6 +103,12 @@ final class PredicateTransition implements TransitionFunction, Serializable {
              : input.tokenLength();
    }
 
+   @Override
+   public Object symbolKey() {
+      //The predicate is fully determined by the type and text of the token it was parsed from
+      return Arrays.asList(type, pattern);
+   }
+
    @Override
    public String toString() {
       return pattern;
@@ -0,0 +1,293 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.extraction.regex;
+
+import com.gengoai.hermes.Annotation;
+import com.gengoai.hermes.AnnotationType;
+import com.gengoai.hermes.HString;
+import com.gengoai.hermes.Types;
+import lombok.NonNull;
+import lombok.Value;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * <p>
+ * A necessary condition for a {@link TokenRegex} to match, extracted from the pattern at compile time. The condition
+ * is a conjunction of clauses where each clause is a disjunction of {@link Term}s, i.e. a word (case-insensitive
+ * token content), a lemma, or an annotation type that must occur somewhere in the input. An input failing the
+ * condition cannot contain a match, so that matchers can skip it without trying a match at every token and
+ * persistent corpora can push the condition down into their index. An empty prefilter places no restriction on the
+ * input.
+ * </p>
+ * <p>
+ * Words and lemmas are stored case folded using {@link #fold(CharSequence)}, which is consistent with
+ * {@link String#equalsIgnoreCase(String)}.
+ * </p>
+ *
+ * @author David B. Bracewell
+ */
+public final class Prefilter implements Serializable {
+   /**
+    * A prefilter which places no restriction on the input
+    */
+   public static final Prefilter NONE = new Prefilter(Collections.emptyList());
+   private static final int MAX_CLAUSES = 16;
+   private static final long serialVersionUID = 1L;
+   private final List<Set<Term>> clauses;
+
+   private Prefilter(List<Set<Term>> clauses) {
+      this.clauses = clauses;
+   }
+
+   /**
+    * Creates a prefilter requiring an annotation of the given type.
+    *
+    * @param type the annotation type
+    * @return the prefilter
+    */
+   static Prefilter annotation(@NonNull AnnotationType type) {
+      return of(new Term(TermType.ANNOTATION, type.name()));
+   }
+
+   /**
+    * Case folds the given text so that two strings are equal ignoring case if and only if their folded forms are
+    * equal.
+    *
+    * @param text the text
+    * @return the case folded text
+    */
+   public static String fold(@NonNull CharSequence text) {
+      char[] chars = new char[text.length()];
+      for(int i = 0; i < chars.length; i++) {
+         chars[i] = Character.toLowerCase(Character.toUpperCase(text.charAt(i)));
+      }
+      return new String(chars);
+   }
+
+   /**
+    * Creates a prefilter requiring a token whose lemma equals the given lemma ignoring case.
+    *
+    * @param lemma the lemma
+    * @return the prefilter
+    */
+   static Prefilter lemma(@NonNull String lemma) {
+      return of(new Term(TermType.LEMMA, fold(lemma)));
+   }
+
+   private static Prefilter of(Term term) {
+      return new Prefilter(Collections.singletonList(Collections.singleton(term)));
+   }
+
+   /**
+    * Creates a prefilter requiring a token whose content equals the given word ignoring case.
+    *
+    * @param word the word
+    * @return the prefilter
+    */
+   static Prefilter word(@NonNull String word) {
+      return of(new Term(TermType.WORD, fold(word)));
+   }
+
+   /**
+    * Combines this prefilter with the given prefilter such that both conditions must hold.
+    *
+    * @param other the other prefilter
+    * @return the combined prefilter
+    */
+   Prefilter and(@NonNull Prefilter other) {
+      if(other.isEmpty()) {
+         return this;
+      } else if(isEmpty()) {
+         return other;
+      }
+      LinkedHashSet<Set<Term>> combined = new LinkedHashSet<>(clauses);
+      combined.addAll(other.clauses);
+      return new Prefilter(sorted(combined));
+   }
+
+   /**
+    * Gets the clauses of the prefilter, each of which is a set of terms of which at least one must be found in the
+    * input.
+    *
+    * @return the clauses
+    */
+   public List<Set<Term>> getClauses() {
+      return Collections.unmodifiableList(clauses);
+   }
+
+   /**
+    * Determines if the prefilter places no restriction on the input.
+    *
+    * @return True if there are no clauses, False otherwise
+    */
+   public boolean isEmpty() {
+      return clauses.isEmpty();
+   }
+
+   /**
+    * Combines this prefilter with the given prefilter such that at least one of the conditions must hold. Each clause
+    * of the result is the union of a clause from each prefilter, which is implied by either condition.
+    *
+    * @param other the other prefilter
+    * @return the combined prefilter
+    */
+   Prefilter or(@NonNull Prefilter other) {
+      if(isEmpty() || other.isEmpty()) {
+         return NONE;
+      }
+      //Distributing OR over AND multiplies the number of clauses, so only the most selective clauses are kept
+      List<Set<Term>> left = clauses.subList(0, Math.min(clauses.size(), 4));
+      List<Set<Term>> right = other.clauses.subList(0, Math.min(other.clauses.size(), 4));
+      LinkedHashSet<Set<Term>> combined = new LinkedHashSet<>();
+      for(Set<Term> l : left) {
+         for(Set<Term> r : right) {
+            Set<Term> union = new LinkedHashSet<>(l);
+            union.addAll(r);
+            combined.add(Collections.unmodifiableSet(union));
+         }
+      }
+      return new Prefilter(sorted(combined));
+   }
+
+   private static List<Set<Term>> sorted(Collection<Set<Term>> clauses) {
+      //Clauses with fewer terms are more selective and are tested first
+      List<Set<Term>> list = new ArrayList<>(clauses);
+      list.sort(Comparator.comparingInt(Set::size));
+      return list.size() > MAX_CLAUSES
+             ? new ArrayList<>(list.subList(0, MAX_CLAUSES))
+             : list;
+   }
+
+   /**
+    * Determines if the given input can contain a match.
+    *
+    * @param input the input
+    * @return False if the input cannot contain a match, True if it might
+    */
+   public boolean test(@NonNull HString input) {
+      return isEmpty() || test(new Context(input));
+   }
+
+   /**
+    * Determines if the input of the given context can contain a match.
+    *
+    * @param context the context of the input
+    * @return False if the input cannot contain a match, True if it might
+    */
+   boolean test(Context context) {
+      for(Set<Term> clause : clauses) {
+         boolean satisfied = false;
+         for(Term term : clause) {
+            if(context.contains(term)) {
+               satisfied = true;
+               break;
+            }
+         }
+         if(!satisfied) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   @Override
+   public String toString() {
+      return "Prefilter" + clauses;
+   }
+
+   /**
+    * The type of a prefilter term
+    */
+   public enum TermType {
+      /**
+       * The case folded content of a token
+       */
+      WORD,
+      /**
+       * The case folded lemma of a token
+       */
+      LEMMA,
+      /**
+       * The name of an annotation type
+       */
+      ANNOTATION
+   }
+
+   /**
+    * A term that may be required to occur in the input
+    */
+   @Value
+   public static class Term implements Serializable {
+      private static final long serialVersionUID = 1L;
+      @NonNull
+      TermType type;
+      @NonNull
+      String value;
+   }
+
+   /**
+    * Lazily calculated words, lemmas, and annotation types of an input, which can be shared when testing multiple
+    * prefilters against the same input.
+    */
+   static final class Context {
+      private final Map<String, Boolean> annotations = new HashMap<>();
+      private final HString input;
+      private Set<String> lemmas;
+      private Set<String> words;
+
+      /**
+       * Instantiates a new Context.
+       *
+       * @param input the input
+       */
+      Context(HString input) {
+         this.input = input;
+      }
+
+      private boolean contains(Term term) {
+         switch(term.getType()) {
+            case WORD:
+               if(words == null) {
+                  words = new HashSet<>();
+                  for(Annotation token : input.tokens()) {
+                     words.add(fold(token));
+                  }
+               }
+               return words.contains(term.getValue());
+            case LEMMA:
+               if(lemmas == null) {
+                  lemmas = new HashSet<>();
+                  for(Annotation token : input.tokens()) {
+                     lemmas.add(fold(token.getLemma()));
+                  }
+               }
+               return lemmas.contains(term.getValue());
+            default:
+               return annotations.computeIfAbsent(term.getValue(),
+                                                  name -> !input.annotations(Types.annotation(name)).isEmpty());
+         }
+      }
+   }//END OF Prefilter$Context
+
+}//END OF Prefilter
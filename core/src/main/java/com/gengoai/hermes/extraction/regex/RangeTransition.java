@@ -82,6 +82,18 @@ final class RangeTransition implements TransitionFunction, Serializable {
       return nfa;
    }
 
+   @Override
+   public boolean consumesSingleToken() {
+      return child.consumesSingleToken();
+   }
+
+   @Override
+   public Prefilter prefilter() {
+      return low > 0
+             ? child.prefilter()
+             : Prefilter.NONE;
+   }
+
    @Override
    public Tag getType() {
       return RegexTypes.RANGE;
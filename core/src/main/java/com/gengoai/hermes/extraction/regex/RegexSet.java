@@ -0,0 +1,1173 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.extraction.regex;
+
+import com.gengoai.Validation;
+import lombok.NonNull;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * A set of character-level regular expressions that are matched together in a single scan over a text. Patterns are
+ * compiled into a single NFA whose accepting states are tagged with the pattern index, and the NFA is determinized
+ * lazily (i.e. DFA states are only constructed when the text requires them). The scan is unanchored and carries the
+ * earliest start offset of every NFA thread, so the text is read once regardless of the number of patterns or the
+ * length of their matches. Because the DFA does not backtrack, matching uses leftmost-longest semantics: for each
+ * pattern, the match starting at the earliest position is reported with the longest possible length and matching for
+ * that pattern resumes after its end. As with {@link Matcher#find()}, empty matches are reported and are followed by
+ * a match starting at least one character later.
+ * </p>
+ * <p>
+ * Only a backtracking-free subset of the <code>java.util.regex</code> syntax is compiled into the DFA: literals,
+ * escapes, character classes (without nesting or intersection), <code>.</code>, groups, alternation, and greedy
+ * quantifiers. A leading <code>(?i)</code> (ASCII case-insensitive) flag, and <code>\b</code>, <code>^</code> and
+ * <code>$</code> at the start or end of a pattern without a top-level alternation are also supported. Patterns using
+ * any other construct (lookaround, back references, lazy or possessive quantifiers, inline flags other than
+ * <code>(?i)</code>, etc.) fall back to <code>java.util.regex</code> and are matched with their own scan.
+ * </p>
+ *
+ * @author David B. Bracewell
+ */
+public final class RegexSet implements Serializable {
+   private static final long serialVersionUID = 1L;
+   private final String[] patterns;
+   private transient volatile Engine engine;
+
+   private RegexSet(String[] patterns) {
+      this.patterns = patterns;
+      for(String pattern : patterns) {
+         //Validate all patterns using Java's regular expression syntax
+         Pattern.compile(pattern);
+      }
+   }
+
+   /**
+    * Compiles the given patterns into a RegexSet.
+    *
+    * @param patterns the patterns
+    * @return the RegexSet
+    * @throws java.util.regex.PatternSyntaxException if one of the patterns is not a valid regular expression
+    */
+   public static RegexSet compile(@NonNull String... patterns) {
+      Validation.checkArgument(patterns.length > 0, "Must specify at least one pattern");
+      return new RegexSet(patterns.clone());
+   }
+
+   /**
+    * Compiles the given patterns into a RegexSet.
+    *
+    * @param patterns the patterns
+    * @return the RegexSet
+    * @throws java.util.regex.PatternSyntaxException if one of the patterns is not a valid regular expression
+    */
+   public static RegexSet compile(@NonNull Collection<String> patterns) {
+      return compile(patterns.toArray(new String[0]));
+   }
+
+   private Engine engine() {
+      Engine e = engine;
+      if(e == null) {
+         synchronized(this) {
+            if(engine == null) {
+               engine = new Engine(patterns);
+            }
+            e = engine;
+         }
+      }
+      return e;
+   }
+
+   /**
+    * Finds all matches of all patterns in the given text. The matches of each DFA compiled pattern are reported in
+    * order of their start offset and are followed by the matches of any patterns that fell back to
+    * <code>java.util.regex</code>.
+    *
+    * @param text     the text to match against
+    * @param consumer the consumer of matches
+    */
+   public void find(@NonNull CharSequence text, @NonNull MatchConsumer consumer) {
+      engine().find(text, consumer);
+   }
+
+   /**
+    * Determines if the pattern at the given index is matched by the DFA or falls back to
+    * <code>java.util.regex</code>.
+    *
+    * @param index the index of the pattern
+    * @return True if the pattern is matched using the DFA, False if it uses <code>java.util.regex</code>
+    */
+   public boolean isDeterministic(int index) {
+      return engine().fallbacks[index] == null;
+   }
+
+   /**
+    * Gets the pattern at the given index.
+    *
+    * @param index the index
+    * @return the pattern
+    */
+   public String pattern(int index) {
+      return patterns[index];
+   }
+
+   /**
+    * The number of patterns in the set
+    *
+    * @return the number of patterns in the set
+    */
+   public int size() {
+      return patterns.length;
+   }
+
+   @Override
+   public String toString() {
+      return "RegexSet" + Arrays.toString(patterns);
+   }
+
+   /**
+    * Consumer of the matches found by a {@link RegexSet}
+    */
+   @FunctionalInterface
+   public interface MatchConsumer {
+
+      /**
+       * Accepts a match
+       *
+       * @param pattern the index of the pattern that matched
+       * @param start   the start offset of the match
+       * @param end     the end offset (exclusive) of the match
+       */
+      void accept(int pattern, int start, int end);
+   }
+
+   private static boolean isBoundary(CharSequence text, int position) {
+      boolean before = position > 0 && isWord(text.charAt(position - 1));
+      boolean after = position < text.length() && isWord(text.charAt(position));
+      return before != after;
+   }
+
+   private static boolean isEnd(CharSequence text, int position) {
+      //Mirrors the default (non-multiline) semantics of '$': the end of input or before a final line terminator
+      int n = text.length();
+      if(position == n) {
+         return true;
+      }
+      if(position == n - 2) {
+         return text.charAt(position) == '\r' && text.charAt(position + 1) == '\n';
+      }
+      if(position == n - 1) {
+         char c = text.charAt(position);
+         return c == '\n'
+                ? position == 0 || text.charAt(position - 1) != '\r'
+                : c == '\r' || c == 0x85 || c == 0x2028 || c == 0x2029;
+      }
+      return false;
+   }
+
+   private static boolean isWord(char c) {
+      return Character.isLetterOrDigit(c) || c == '_';
+   }
+
+   /**
+    * Thrown when a pattern uses a construct that cannot be compiled into the DFA
+    */
+   private static class UnsupportedConstruct extends Exception {
+      private static final long serialVersionUID = 1L;
+
+      private UnsupportedConstruct() {
+         super(null, null, false, false);
+      }
+   }
+
+   /**
+    * Character sets as sorted, disjoint, inclusive ranges of the form <code>[lo0, hi0, lo1, hi1, ...]</code>
+    */
+   private static final class CharSet {
+      static final int[] ANY = {0, Character.MAX_VALUE};
+      static final int[] DIGIT = {'0', '9'};
+      static final int[] SPACE = {'\t', '\r', ' ', ' '};
+      static final int[] WORD = {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'};
+      static final int[] DOT = negate(new int[]{'\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029});
+
+      static boolean contains(int[] ranges, char c) {
+         for(int i = 0; i < ranges.length; i += 2) {
+            if(c < ranges[i]) {
+               return false;
+            }
+            if(c <= ranges[i + 1]) {
+               return true;
+            }
+         }
+         return false;
+      }
+
+      static int[] caseFold(int[] ranges) {
+         int[] folded = ranges;
+         for(int i = 0; i < ranges.length; i += 2) {
+            folded = union(folded, shift(ranges[i], ranges[i + 1], 'a', 'z', 'A' - 'a'));
+            folded = union(folded, shift(ranges[i], ranges[i + 1], 'A', 'Z', 'a' - 'A'));
+         }
+         return folded;
+      }
+
+      static int[] negate(int[] ranges) {
+         int[] out = new int[ranges.length + 2];
+         int n = 0;
+         int next = 0;
+         for(int i = 0; i < ranges.length; i += 2) {
+            if(ranges[i] > next) {
+               out[n++] = next;
+               out[n++] = ranges[i] - 1;
+            }
+            next = ranges[i + 1] + 1;
+         }
+         if(next <= Character.MAX_VALUE) {
+            out[n++] = next;
+            out[n++] = Character.MAX_VALUE;
+         }
+         return Arrays.copyOf(out, n);
+      }
+
+      static int[] of(char c) {
+         return new int[]{c, c};
+      }
+
+      static int[] of(int lo, int hi) {
+         return new int[]{lo, hi};
+      }
+
+      private static int[] shift(int lo, int hi, int from, int to, int offset) {
+         lo = Math.max(lo, from);
+         hi = Math.min(hi, to);
+         return lo > hi
+                ? new int[0]
+                : new int[]{lo + offset, hi + offset};
+      }
+
+      static int[] union(int[] a, int[] b) {
+         if(b.length == 0) {
+            return a;
+         }
+         if(a.length == 0) {
+            return b;
+         }
+         int[][] pairs = new int[(a.length + b.length) / 2][];
+         int n = 0;
+         for(int i = 0; i < a.length; i += 2) {
+            pairs[n++] = new int[]{a[i], a[i + 1]};
+         }
+         for(int i = 0; i < b.length; i += 2) {
+            pairs[n++] = new int[]{b[i], b[i + 1]};
+         }
+         Arrays.sort(pairs, Comparator.comparingInt(p -> p[0]));
+         int[] out = new int[pairs.length * 2];
+         int m = 0;
+         for(int[] pair : pairs) {
+            if(m > 0 && pair[0] <= out[m - 1] + 1) {
+               out[m - 1] = Math.max(out[m - 1], pair[1]);
+            } else {
+               out[m++] = pair[0];
+               out[m++] = pair[1];
+            }
+         }
+         return Arrays.copyOf(out, m);
+      }
+   }
+
+   /**
+    * Regular expression syntax tree
+    */
+   private interface Node {
+   }
+
+   private static final class Chars implements Node {
+      final int[] ranges;
+
+      Chars(int[] ranges) {
+         this.ranges = ranges;
+      }
+   }
+
+   private static final class Concat implements Node {
+      final List<Node> children;
+
+      Concat(List<Node> children) {
+         this.children = children;
+      }
+   }
+
+   private static final class Alternation implements Node {
+      final List<Node> children;
+
+      Alternation(List<Node> children) {
+         this.children = children;
+      }
+   }
+
+   private static final class Repeat implements Node {
+      final Node child;
+      final int min;
+      final int max;
+
+      Repeat(Node child, int min, int max) {
+         this.child = child;
+         this.min = min;
+         this.max = max;
+      }
+   }
+
+   /**
+    * Recursive descent parser for the supported subset of the Java regular expression syntax.
+    */
+   private static final class Parser {
+      private static final int MAX_REPEAT = 1000;
+      final String pattern;
+      boolean caseInsensitive = false;
+      boolean leadingBoundary = false;
+      boolean trailingBoundary = false;
+      boolean startAnchor = false;
+      boolean endAnchor = false;
+      int position = 0;
+      int end;
+
+      Parser(String pattern) {
+         this.pattern = pattern;
+         this.end = pattern.length();
+      }
+
+      Node parse() throws UnsupportedConstruct {
+         while(true) {
+            if(pattern.startsWith("\\b", position)) {
+               leadingBoundary = true;
+               position += 2;
+            } else if(pattern.startsWith("(?i)", position)) {
+               caseInsensitive = true;
+               position += 4;
+            } else if(pattern.startsWith("^", position)) {
+               startAnchor = true;
+               position++;
+            } else {
+               break;
+            }
+         }
+         while(true) {
+            if(end - position >= 1 && pattern.charAt(end - 1) == '$' && isUnescaped(end - 1)) {
+               endAnchor = true;
+               end--;
+            } else if(end - position >= 2 && pattern.startsWith("\\b", end - 2) && !isUnescaped(end - 1)) {
+               trailingBoundary = true;
+               end -= 2;
+            } else {
+               break;
+            }
+         }
+         Node node = alternation();
+         //Boundaries and anchors only bind to the first or last alternative of a top-level alternation
+         if(position != end || (node instanceof Alternation && (leadingBoundary || trailingBoundary || startAnchor || endAnchor))) {
+            throw new UnsupportedConstruct();
+         }
+         return node;
+      }
+
+      private boolean isUnescaped(int index) {
+         int backslashes = 0;
+         for(int i = index - 1; i >= position && pattern.charAt(i) == '\\'; i--) {
+            backslashes++;
+         }
+         return backslashes % 2 == 0;
+      }
+
+      private Node alternation() throws UnsupportedConstruct {
+         List<Node> alternatives = new ArrayList<>();
+         alternatives.add(concatenation());
+         while(position < end && pattern.charAt(position) == '|') {
+            position++;
+            alternatives.add(concatenation());
+         }
+         return alternatives.size() == 1
+                ? alternatives.get(0)
+                : new Alternation(alternatives);
+      }
+
+      private Node concatenation() throws UnsupportedConstruct {
+         List<Node> children = new ArrayList<>();
+         while(position < end && pattern.charAt(position) != '|' && pattern.charAt(position) != ')') {
+            children.add(repetition());
+         }
+         return children.size() == 1
+                ? children.get(0)
+                : new Concat(children);
+      }
+
+      private Node repetition() throws UnsupportedConstruct {
+         Node node = atom();
+         while(position < end) {
+            char c = pattern.charAt(position);
+            int min;
+            int max;
+            if(c == '*') {
+               min = 0;
+               max = -1;
+               position++;
+            } else if(c == '+') {
+               min = 1;
+               max = -1;
+               position++;
+            } else if(c == '?') {
+               min = 0;
+               max = 1;
+               position++;
+            } else if(c == '{') {
+               int close = pattern.indexOf('}', position);
+               if(close < 0 || close >= end) {
+                  throw new UnsupportedConstruct();
+               }
+               String[] bounds = pattern.substring(position + 1, close).split(",", -1);
+               try {
+                  min = Integer.parseInt(bounds[0]);
+                  if(bounds.length == 1) {
+                     max = min;
+                  } else if(bounds.length == 2) {
+                     max = bounds[1].isEmpty()
+                           ? -1
+                           : Integer.parseInt(bounds[1]);
+                  } else {
+                     throw new UnsupportedConstruct();
+                  }
+               } catch(NumberFormatException e) {
+                  throw new UnsupportedConstruct();
+               }
+               if(min > MAX_REPEAT || max > MAX_REPEAT) {
+                  throw new UnsupportedConstruct();
+               }
+               position = close + 1;
+            } else {
+               return node;
+            }
+            //Lazy and possessive quantifiers depend on backtracking order
+            if(position < end && (pattern.charAt(position) == '?' || pattern.charAt(position) == '+')) {
+               throw new UnsupportedConstruct();
+            }
+            node = new Repeat(node, min, max);
+         }
+         return node;
+      }
+
+      private Node atom() throws UnsupportedConstruct {
+         char c = pattern.charAt(position++);
+         switch(c) {
+            case '(':
+               if(pattern.startsWith("?:", position)) {
+                  position += 2;
+               } else if(pattern.startsWith("?<", position)
+                     && position + 2 < end
+                     && Character.isLetter(pattern.charAt(position + 2))) {
+                  //Named groups are treated as non-capturing groups
+                  position = pattern.indexOf('>', position) + 1;
+               } else if(position < end && pattern.charAt(position) == '?') {
+                  throw new UnsupportedConstruct();
+               }
+               Node group = alternation();
+               if(position >= end || pattern.charAt(position) != ')') {
+                  throw new UnsupportedConstruct();
+               }
+               position++;
+               return group;
+            case '[':
+               return new Chars(characterClass());
+            case '.':
+               return new Chars(CharSet.DOT);
+            case '\\':
+               return chars(escape());
+            case '^':
+            case '$':
+            case ')':
+            case '*':
+            case '+':
+            case '?':
+            case '{':
+               throw new UnsupportedConstruct();
+            default:
+               return chars(CharSet.of(c));
+         }
+      }
+
+      private Node chars(int[] ranges) {
+         return new Chars(caseInsensitive
+                          ? CharSet.caseFold(ranges)
+                          : ranges);
+      }
+
+      private int[] characterClass() throws UnsupportedConstruct {
+         boolean negated = false;
+         if(position < end && pattern.charAt(position) == '^') {
+            negated = true;
+            position++;
+         }
+         if(position < end && pattern.charAt(position) == ']') {
+            throw new UnsupportedConstruct();
+         }
+         int[] ranges = new int[0];
+         while(true) {
+            if(position >= end) {
+               throw new UnsupportedConstruct();
+            }
+            char c = pattern.charAt(position++);
+            if(c == ']') {
+               break;
+            }
+            if(c == '[' || (c == '&' && position < end && pattern.charAt(position) == '&')) {
+               throw new UnsupportedConstruct();
+            }
+            int[] item = c == '\\'
+                         ? escape()
+                         : CharSet.of(c);
+            if(item.length == 2 && item[0] == item[1]
+                  && position + 1 < end
+                  && pattern.charAt(position) == '-'
+                  && pattern.charAt(position + 1) != ']') {
+               position++;
+               char h = pattern.charAt(position++);
+               int[] hi = h == '\\'
+                          ? escape()
+                          : CharSet.of(h);
+               if(hi.length != 2 || hi[0] != hi[1] || hi[0] < item[0]) {
+                  throw new UnsupportedConstruct();
+               }
+               item = CharSet.of(item[0], hi[0]);
+            }
+            ranges = CharSet.union(ranges, item);
+         }
+         if(caseInsensitive) {
+            ranges = CharSet.caseFold(ranges);
+         }
+         return negated
+                ? CharSet.negate(ranges)
+                : ranges;
+      }
+
+      private int[] escape() throws UnsupportedConstruct {
+         if(position >= end) {
+            throw new UnsupportedConstruct();
+         }
+         char c = pattern.charAt(position++);
+         switch(c) {
+            case 'd':
+               return CharSet.DIGIT;
+            case 'D':
+               return CharSet.negate(CharSet.DIGIT);
+            case 'w':
+               return CharSet.WORD;
+            case 'W':
+               return CharSet.negate(CharSet.WORD);
+            case 's':
+               return CharSet.SPACE;
+            case 'S':
+               return CharSet.negate(CharSet.SPACE);
+            case 't':
+               return CharSet.of('\t');
+            case 'n':
+               return CharSet.of('\n');
+            case 'r':
+               return CharSet.of('\r');
+            case 'f':
+               return CharSet.of('\f');
+            case 'a':
+               return CharSet.of('\u0007');
+            case 'e':
+               return CharSet.of('\u001B');
+            case 'x':
+               return CharSet.of(hex(2));
+            case 'u':
+               return CharSet.of(hex(4));
+            default:
+               if(Character.isLetterOrDigit(c)) {
+                  throw new UnsupportedConstruct();
+               }
+               return CharSet.of(c);
+         }
+      }
+
+      private char hex(int length) throws UnsupportedConstruct {
+         if(position + length > end) {
+            throw new UnsupportedConstruct();
+         }
+         try {
+            char c = (char) Integer.parseInt(pattern.substring(position, position + length), 16);
+            position += length;
+            return c;
+         } catch(NumberFormatException e) {
+            throw new UnsupportedConstruct();
+         }
+      }
+   }
+
+   /**
+    * A state in the lazily constructed DFA, i.e. a set of NFA states. The DFA is unanchored: every state includes the
+    * start states of the patterns that may begin at its position.
+    */
+   private static final class DState {
+      final int[] nfaStates;
+      final int[] acceptIndices;
+      final Transition[] next;
+
+      DState(int[] nfaStates, int[] acceptIndices, int numClasses) {
+         this.nfaStates = nfaStates;
+         this.acceptIndices = acceptIndices;
+         this.next = new Transition[numClasses * 2];
+      }
+   }
+
+   /**
+    * A DFA transition recording, for each NFA state of the target, the indices of the NFA states in the source that
+    * lead to it (<code>-1</code> when it is a start state injected at the new position), so that the start offset of
+    * each NFA thread can be carried through the scan.
+    */
+   private static final class Transition {
+      final DState target;
+      final int[] offsets;
+      final int[] sources;
+
+      Transition(DState target, int[] offsets, int[] sources) {
+         this.target = target;
+         this.offsets = offsets;
+         this.sources = sources;
+      }
+
+      boolean isInjected(int index) {
+         return offsets[index] < offsets[index + 1] && sources[offsets[index]] < 0;
+      }
+   }
+
+   private static final class StateKey {
+      final int[] states;
+      final int hash;
+
+      StateKey(int[] states) {
+         this.states = states;
+         this.hash = Arrays.hashCode(states);
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         return o instanceof StateKey && Arrays.equals(states, ((StateKey) o).states);
+      }
+
+      @Override
+      public int hashCode() {
+         return hash;
+      }
+   }
+
+   /**
+    * The compiled NFA, its lazily constructed DFA, and the fallback patterns.
+    */
+   private static final class Engine {
+      private static final int MAX_DFA_STATES = 10_000;
+      private static final int MAX_NFA_STATES = 100_000;
+      private static final int CHARS = 0;
+      private static final int SPLIT = 1;
+      private static final int MATCH = 2;
+      private static final int NONE = Integer.MAX_VALUE;
+      final Pattern[] fallbacks;
+      final boolean[] trailingBoundary;
+      final boolean[] endAnchor;
+      //NFA
+      private final int[] kind;
+      private final int[][] ranges;
+      private final int[][] outs;
+      private final int[] matchPattern;
+      private final int[] owner;
+      private final int[] injectAtBoundary;
+      private final int[] injectNotAtBoundary;
+      //DFA
+      private final char[] classMap = new char[Character.MAX_VALUE + 1];
+      private final char[] classRepresentative;
+      private final Map<StateKey, DState> cache = new HashMap<>();
+      private final DState dead;
+      private final DState initialAtBoundary;
+      private final DState initialNotAtBoundary;
+      private final boolean hasDeterministic;
+      //Scratch space used while constructing DFA states (guarded by this)
+      private final int[] marks;
+      private final int[] stack;
+      private int generation = 0;
+
+      Engine(String[] patterns) {
+         this.fallbacks = new Pattern[patterns.length];
+         this.trailingBoundary = new boolean[patterns.length];
+         this.endAnchor = new boolean[patterns.length];
+         NfaBuilder builder = new NfaBuilder();
+         List<Integer> initialAtBoundaryStarts = new ArrayList<>();
+         List<Integer> initialNotAtBoundaryStarts = new ArrayList<>();
+         List<Integer> atBoundaryStarts = new ArrayList<>();
+         List<Integer> notAtBoundaryStarts = new ArrayList<>();
+         for(int i = 0; i < patterns.length; i++) {
+            int mark = builder.size();
+            try {
+               Parser parser = new Parser(patterns[i]);
+               Node node = parser.parse();
+               builder.pattern = i;
+               int start = builder.compile(node, builder.add(MATCH, null, i));
+               trailingBoundary[i] = parser.trailingBoundary;
+               endAnchor[i] = parser.endAnchor;
+               initialAtBoundaryStarts.add(start);
+               if(!parser.leadingBoundary) {
+                  initialNotAtBoundaryStarts.add(start);
+               }
+               if(!parser.startAnchor) {
+                  atBoundaryStarts.add(start);
+                  if(!parser.leadingBoundary) {
+                     notAtBoundaryStarts.add(start);
+                  }
+               }
+            } catch(UnsupportedConstruct e) {
+               builder.truncate(mark);
+               fallbacks[i] = Pattern.compile(patterns[i]);
+            }
+         }
+         this.hasDeterministic = !initialAtBoundaryStarts.isEmpty();
+         this.kind = builder.kind.stream().mapToInt(Integer::intValue).toArray();
+         this.ranges = builder.ranges.toArray(new int[0][]);
+         this.outs = builder.outs.toArray(new int[0][]);
+         this.matchPattern = builder.matchPattern.stream().mapToInt(Integer::intValue).toArray();
+         this.owner = builder.owner.stream().mapToInt(Integer::intValue).toArray();
+         this.marks = new int[kind.length];
+         this.stack = new int[kind.length];
+
+         //Character equivalence classes: characters that no character set distinguishes share a class
+         TreeSet<Integer> boundaries = new TreeSet<>();
+         boundaries.add(0);
+         for(int[] r : ranges) {
+            if(r != null) {
+               for(int i = 0; i < r.length; i += 2) {
+                  boundaries.add(r[i]);
+                  if(r[i + 1] < Character.MAX_VALUE) {
+                     boundaries.add(r[i + 1] + 1);
+                  }
+               }
+            }
+         }
+         this.classRepresentative = new char[boundaries.size()];
+         int cls = 0;
+         Iterator<Integer> itr = boundaries.iterator();
+         int from = itr.next();
+         while(itr.hasNext()) {
+            int to = itr.next();
+            classRepresentative[cls] = (char) from;
+            Arrays.fill(classMap, from, to, (char) cls);
+            cls++;
+            from = to;
+         }
+         classRepresentative[cls] = (char) from;
+         Arrays.fill(classMap, from, classMap.length, (char) cls);
+
+         synchronized(this) {
+            this.injectAtBoundary = closure(atBoundaryStarts.stream().mapToInt(Integer::intValue).toArray());
+            this.injectNotAtBoundary = closure(notAtBoundaryStarts.stream().mapToInt(Integer::intValue).toArray());
+            this.dead = state(new int[0]);
+            this.initialAtBoundary = state(closure(initialAtBoundaryStarts.stream()
+                                                                          .mapToInt(Integer::intValue)
+                                                                          .toArray()));
+            this.initialNotAtBoundary = state(closure(initialNotAtBoundaryStarts.stream()
+                                                                                .mapToInt(Integer::intValue)
+                                                                                .toArray()));
+         }
+      }
+
+      private boolean accepts(int pattern, CharSequence text, int position) {
+         return (!trailingBoundary[pattern] || isBoundary(text, position))
+               && (!endAnchor[pattern] || isEnd(text, position));
+      }
+
+      private int[] closure(int[] starts) {
+         generation++;
+         int size = 0;
+         int top = 0;
+         int[] result = new int[kind.length];
+         for(int s : starts) {
+            if(marks[s] != generation) {
+               marks[s] = generation;
+               stack[top++] = s;
+            }
+         }
+         while(top > 0) {
+            int s = stack[--top];
+            if(kind[s] == SPLIT) {
+               for(int o : outs[s]) {
+                  if(marks[o] != generation) {
+                     marks[o] = generation;
+                     stack[top++] = o;
+                  }
+               }
+            } else {
+               result[size++] = s;
+            }
+         }
+         result = Arrays.copyOf(result, size);
+         Arrays.sort(result);
+         return result;
+      }
+
+      void find(CharSequence text, MatchConsumer consumer) {
+         if(hasDeterministic) {
+            findDeterministic(text, consumer);
+         }
+         for(int i = 0; i < fallbacks.length; i++) {
+            if(fallbacks[i] != null) {
+               Matcher matcher = fallbacks[i].matcher(text);
+               while(matcher.find()) {
+                  consumer.accept(i, matcher.start(), matcher.end());
+               }
+            }
+         }
+      }
+
+      /**
+       * Matches all DFA compiled patterns in a single unanchored scan. Each NFA state in the current DFA state carries
+       * the earliest start offset of the threads that reached it (<code>NONE</code> once the thread can no longer
+       * produce a reportable match), so that for every pattern the leftmost start and its longest end are known
+       * without restarting the scan. Matches are held as tentative until no live thread of the pattern could start at
+       * or before them, at which point they are reported.
+       */
+      private void findDeterministic(CharSequence text, MatchConsumer consumer) {
+         final int n = text.length();
+         final Scan scan = new Scan(consumer);
+         DState state = isBoundary(text, 0)
+                        ? initialAtBoundary
+                        : initialNotAtBoundary;
+         int[] starts = new int[Math.max(16, state.nfaStates.length)];
+         int[] buffer = new int[starts.length];
+         scan.step(state, null, starts, text, 0);
+         for(int i = 0; i < n; i++) {
+            if(state == dead && injectAtBoundary.length == 0) {
+               break;
+            }
+            final int position = i + 1;
+            final Transition transition = next(state, text.charAt(i), isBoundary(text, position));
+            final DState target = transition.target;
+            if(buffer.length < target.nfaStates.length) {
+               buffer = new int[Math.max(target.nfaStates.length, 2 * buffer.length)];
+            }
+            for(int k = 0; k < target.nfaStates.length; k++) {
+               int earliest = NONE;
+               for(int j = transition.offsets[k]; j < transition.offsets[k + 1]; j++) {
+                  int source = transition.sources[j];
+                  earliest = Math.min(earliest, source < 0
+                                                ? position
+                                                : starts[source]);
+               }
+               buffer[k] = earliest;
+            }
+            int[] tmp = starts;
+            starts = buffer;
+            buffer = tmp;
+            state = target;
+            scan.step(state, transition, starts, text, position);
+         }
+         scan.flush();
+      }
+
+      private Transition next(DState state, char c, boolean boundary) {
+         int index = classMap[c] * 2 + (boundary
+                                        ? 1
+                                        : 0);
+         Transition next = state.next[index];
+         if(next == null) {
+            next = computeNext(state, index);
+         }
+         return next;
+      }
+
+      private synchronized Transition computeNext(DState state, int index) {
+         Transition next = state.next[index];
+         if(next != null) {
+            return next;
+         }
+         char c = classRepresentative[index / 2];
+         int[] inject = index % 2 == 1
+                        ? injectAtBoundary
+                        : injectNotAtBoundary;
+         TreeMap<Integer, TreeSet<Integer>> sources = new TreeMap<>();
+         for(int s : inject) {
+            sources.computeIfAbsent(s, k -> new TreeSet<>()).add(-1);
+         }
+         for(int k = 0; k < state.nfaStates.length; k++) {
+            int s = state.nfaStates[k];
+            if(kind[s] == CHARS && CharSet.contains(ranges[s], c)) {
+               for(int t : closure(new int[]{outs[s][0]})) {
+                  sources.computeIfAbsent(t, key -> new TreeSet<>()).add(k);
+               }
+            }
+         }
+         int[] nfaStates = new int[sources.size()];
+         int[] offsets = new int[sources.size() + 1];
+         int[] flattened = new int[sources.values().stream().mapToInt(Set::size).sum()];
+         int k = 0;
+         int j = 0;
+         for(Map.Entry<Integer, TreeSet<Integer>> entry : sources.entrySet()) {
+            nfaStates[k] = entry.getKey();
+            offsets[k++] = j;
+            for(int source : entry.getValue()) {
+               flattened[j++] = source;
+            }
+         }
+         offsets[k] = j;
+         next = new Transition(state(nfaStates), offsets, flattened);
+         if(cache.size() < MAX_DFA_STATES) {
+            state.next[index] = next;
+         }
+         return next;
+      }
+
+      private DState state(int[] nfaStates) {
+         StateKey key = new StateKey(nfaStates);
+         DState state = cache.get(key);
+         if(state == null) {
+            int[] acceptIndices = new int[nfaStates.length];
+            int n = 0;
+            for(int k = 0; k < nfaStates.length; k++) {
+               if(kind[nfaStates[k]] == MATCH) {
+                  acceptIndices[n++] = k;
+               }
+            }
+            state = new DState(nfaStates, Arrays.copyOf(acceptIndices, n), classRepresentative.length);
+            if(cache.size() < MAX_DFA_STATES) {
+               cache.put(key, state);
+            }
+         }
+         return state;
+      }
+
+      /**
+       * Per scan bookkeeping of the tentative matches of each pattern. The tentative matches of a pattern are
+       * non-overlapping and ordered; the first is reported once no live thread of the pattern started at or before it.
+       */
+      private final class Scan {
+         final MatchConsumer consumer;
+         final int[][] tentative = new int[fallbacks.length][];
+         final int[] head = new int[fallbacks.length];
+         final int[] tail = new int[fallbacks.length];
+         final int[] reported = new int[fallbacks.length];
+         final int[] earliestLive = new int[fallbacks.length];
+         final int[] active = new int[fallbacks.length];
+         int numActive = 0;
+
+         Scan(MatchConsumer consumer) {
+            this.consumer = consumer;
+         }
+
+         void flush() {
+            for(int a = 0; a < numActive; a++) {
+               int pattern = active[a];
+               for(int m = head[pattern]; m < tail[pattern]; m += 2) {
+                  consumer.accept(pattern, tentative[pattern][m], tentative[pattern][m + 1]);
+               }
+               head[pattern] = tail[pattern] = 0;
+            }
+            numActive = 0;
+         }
+
+         private void kill(DState state, int[] starts, int pattern, int from, int to) {
+            for(int k = 0; k < state.nfaStates.length; k++) {
+               if(owner[state.nfaStates[k]] == pattern && starts[k] > from && starts[k] < to) {
+                  starts[k] = NONE;
+               }
+            }
+         }
+
+         private void match(DState state, int[] starts, int pattern, int start, int end) {
+            int[] matches = tentative[pattern];
+            if(matches == null) {
+               matches = tentative[pattern] = new int[8];
+            }
+            //Find the first tentative match that does not start before this one
+            int m = head[pattern];
+            while(m < tail[pattern] && start > matches[m]) {
+               m += 2;
+            }
+            int resumeAt = m > head[pattern]
+                           ? resume(matches[m - 2], matches[m - 1])
+                           : reported[pattern];
+            if(start < resumeAt || (m < tail[pattern] && start == matches[m] && end <= matches[m + 1])) {
+               return;
+            }
+            if(head[pattern] == tail[pattern]) {
+               active[numActive++] = pattern;
+            }
+            if(m == matches.length) {
+               if(head[pattern] > 0) {
+                  System.arraycopy(matches, head[pattern], matches, 0, m - head[pattern]);
+                  m -= head[pattern];
+                  head[pattern] = 0;
+               } else {
+                  matches = tentative[pattern] = Arrays.copyOf(matches, 2 * matches.length);
+               }
+            }
+            //A match that starts earlier or extends a tentative match supersedes all those that follow it
+            matches[m] = start;
+            matches[m + 1] = end;
+            tail[pattern] = m + 2;
+            kill(state, starts, pattern, start, resume(start, end));
+         }
+
+         private int resume(int start, int end) {
+            //Like Matcher.find, an empty match must be followed by a match starting at a later offset
+            return end == start
+                   ? end + 1
+                   : end;
+         }
+
+         void step(DState state, Transition transition, int[] starts, CharSequence text, int position) {
+            for(int k : state.acceptIndices) {
+               int pattern = matchPattern[state.nfaStates[k]];
+               if(accepts(pattern, text, position)) {
+                  int start = starts[k];
+                  if(start != NONE) {
+                     match(state, starts, pattern, start, position);
+                  }
+                  //An injected thread merged into an older one can still produce an empty match at this position
+                  if(start != position && (transition == null || transition.isInjected(k))) {
+                     match(state, starts, pattern, position, position);
+                  }
+               }
+            }
+            if(numActive == 0) {
+               return;
+            }
+            for(int a = 0; a < numActive; a++) {
+               earliestLive[active[a]] = NONE;
+            }
+            for(int k = 0; k < state.nfaStates.length; k++) {
+               if(starts[k] != NONE) {
+                  int pattern = owner[state.nfaStates[k]];
+                  earliestLive[pattern] = Math.min(earliestLive[pattern], starts[k]);
+               }
+            }
+            int remaining = 0;
+            for(int a = 0; a < numActive; a++) {
+               int pattern = active[a];
+               int[] matches = tentative[pattern];
+               while(head[pattern] < tail[pattern] && earliestLive[pattern] > matches[head[pattern]]) {
+                  consumer.accept(pattern, matches[head[pattern]], matches[head[pattern] + 1]);
+                  reported[pattern] = resume(matches[head[pattern]], matches[head[pattern] + 1]);
+                  head[pattern] += 2;
+               }
+               if(head[pattern] == tail[pattern]) {
+                  head[pattern] = tail[pattern] = 0;
+               } else {
+                  active[remaining++] = pattern;
+               }
+            }
+            numActive = remaining;
+         }
+      }
+   }
+
+   /**
+    * Thompson construction of the NFA, compiling each node with its continuation.
+    */
+   private static final class NfaBuilder {
+      final List<Integer> kind = new ArrayList<>();
+      final List<int[]> ranges = new ArrayList<>();
+      final List<int[]> outs = new ArrayList<>();
+      final List<Integer> matchPattern = new ArrayList<>();
+      final List<Integer> owner = new ArrayList<>();
+      int pattern = -1;
+
+      int add(int type, int[] charRanges, int value) throws UnsupportedConstruct {
+         if(kind.size() >= Engine.MAX_NFA_STATES) {
+            throw new UnsupportedConstruct();
+         }
+         kind.add(type);
+         ranges.add(charRanges);
+         outs.add(type == Engine.MATCH
+                  ? new int[0]
+                  : new int[]{value});
+         matchPattern.add(type == Engine.MATCH
+                          ? value
+                          : -1);
+         owner.add(pattern);
+         return kind.size() - 1;
+      }
+
+      int compile(Node node, int next) throws UnsupportedConstruct {
+         if(node instanceof Chars) {
+            return add(Engine.CHARS, ((Chars) node).ranges, next);
+         }
+         if(node instanceof Concat) {
+            List<Node> children = ((Concat) node).children;
+            for(int i = children.size() - 1; i >= 0; i--) {
+               next = compile(children.get(i), next);
+            }
+            return next;
+         }
+         if(node instanceof Alternation) {
+            List<Node> children = ((Alternation) node).children;
+            int split = add(Engine.SPLIT, null, next);
+            int[] targets = new int[children.size()];
+            for(int i = 0; i < targets.length; i++) {
+               targets[i] = compile(children.get(i), next);
+            }
+            outs.set(split, targets);
+            return split;
+         }
+         Repeat repeat = (Repeat) node;
+         int current = next;
+         if(repeat.max < 0) {
+            int loop = add(Engine.SPLIT, null, next);
+            outs.set(loop, new int[]{compile(repeat.child, loop), next});
+            current = loop;
+         } else {
+            for(int i = repeat.min; i < repeat.max; i++) {
+               int optional = add(Engine.SPLIT, null, next);
+               outs.set(optional, new int[]{compile(repeat.child, current), next});
+               current = optional;
+            }
+         }
+         for(int i = 0; i < repeat.min; i++) {
+            current = compile(repeat.child, current);
+         }
+         return current;
+      }
+
+      int size() {
+         return kind.size();
+      }
+
+      void truncate(int size) {
+         while(kind.size() > size) {
+            int last = kind.size() - 1;
+            kind.remove(last);
+            ranges.remove(last);
+            outs.remove(last);
+            matchPattern.remove(last);
+            owner.remove(last);
+         }
+      }
+   }
+
+}//END OF RegexSet
@@ -54,7 +54,10 @@ enum RegexTypes implements TokenDef, GrammarRegistrable {
       public void register(Grammar grammar) {
          grammar.prefix(this, (parser, token) -> {
             final String unescaped = Strings.unescape(token.getVariable(0), '\\');
-            return new PredicateTransition(token.getText(), h -> h.contentEqualsIgnoreCase(unescaped), this);
+            return new PredicateTransition(token.getText(),
+                                           h -> h.contentEqualsIgnoreCase(unescaped),
+                                           this,
+                                           Prefilter.word(unescaped));
          });
       }
    },
@@ -65,7 +68,10 @@ enum RegexTypes implements TokenDef, GrammarRegistrable {
       public void register(Grammar grammar) {
          grammar.prefix(this, (parser, token) -> {
             final String unescaped = Strings.unescape(token.getVariable(0), '\\');
-            return new PredicateTransition(token.getText(), h -> h.contentEquals(unescaped), this);
+            return new PredicateTransition(token.getText(),
+                                           h -> h.contentEquals(unescaped),
+                                           this,
+                                           Prefilter.word(unescaped));
          });
       }
    },
@@ -90,7 +96,10 @@ enum RegexTypes implements TokenDef, GrammarRegistrable {
       public void register(Grammar grammar) {
          grammar.prefix(this, (parser, token) -> {
             final String unescaped = Strings.unescape(token.getVariable(0), '\\');
-            return new PredicateTransition(token.getText(), h -> h.getLemma().equalsIgnoreCase(unescaped), this);
+            return new PredicateTransition(token.getText(),
+                                           h -> h.getLemma().equalsIgnoreCase(unescaped),
+                                           this,
+                                           Prefilter.lemma(unescaped));
          });
       }
    },
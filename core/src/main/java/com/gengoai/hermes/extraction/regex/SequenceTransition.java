@@ -62,6 +62,11 @@ final class SequenceTransition implements TransitionFunction, Serializable {
       return base;
    }
 
+   @Override
+   public Prefilter prefilter() {
+      return c1.prefilter().and(c2.prefilter());
+   }
+
    @Override
    public Tag getType() {
       return RegexTypes.OPEN_PARENS;
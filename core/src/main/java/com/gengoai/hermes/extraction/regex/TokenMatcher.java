@@ -23,6 +23,7 @@ import com.gengoai.Validation;
 import com.gengoai.hermes.Annotation;
 import com.gengoai.hermes.HString;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -37,23 +38,30 @@ import java.util.Set;
  */
 public class TokenMatcher {
    private final NFA automaton;
+   private final DFA dfa;
+   private final DFA.Evaluator evaluator;
    private final HString input;
    private final List<Annotation> tokens;
    private int last = 0;
    private TokenMatch match;
    private int start = 0;
 
-   TokenMatcher(NFA automaton, HString input) {
-      this.automaton = automaton;
-      this.input = input;
-      this.tokens = input.tokens();
+   TokenMatcher(NFA automaton, DFA dfa, Prefilter prefilter, HString input) {
+      this(automaton, dfa, prefilter, input, 0);
    }
 
-   TokenMatcher(NFA automaton, HString input, int start) {
+   TokenMatcher(NFA automaton, DFA dfa, Prefilter prefilter, HString input, int start) {
       this.automaton = automaton;
+      this.dfa = dfa;
       this.input = input;
       this.last = start;
-      this.tokens = input.tokens();
+      //Inputs failing the prefilter cannot contain a match, so there is nothing to scan
+      this.tokens = prefilter.test(input)
+                    ? input.tokens()
+                    : Collections.emptyList();
+      this.evaluator = dfa == null
+                       ? null
+                       : dfa.evaluator(tokens);
    }
 
    /**
@@ -78,7 +86,9 @@ public class TokenMatcher {
    public boolean find() {
       start = last;
       for(; start < tokens.size(); start++) {
-         match = automaton.matches(input, start);
+         match = dfa == null
+                 ? automaton.matches(input, start)
+                 : dfa.matches(input, evaluator, start);
          if(match.getTokenEnd() != -1) {
             last = match.getTokenEnd();
             return true;
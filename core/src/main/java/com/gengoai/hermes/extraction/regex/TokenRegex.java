@@ -68,11 +68,15 @@ public final class TokenRegex implements Serializable, Extractor {
    private static final ParserGenerator GENERATOR = parserGenerator(new Grammar(RegexTypes.values()),
                                                                     Lexer.create(RegexTypes.values()));
    private static final long serialVersionUID = 1L;
-   private final NFA nfa;
+   final DFA dfa;
+   final NFA nfa;
    private final String pattern;
+   private final Prefilter prefilter;
 
    private TokenRegex(TransitionFunction transitionFunction) {
       this.nfa = transitionFunction.construct();
+      this.dfa = DFA.compile(nfa);
+      this.prefilter = transitionFunction.prefilter();
       this.pattern = transitionFunction.toString();
    }
 
@@ -108,6 +112,16 @@ public final class TokenRegex implements Serializable, Extractor {
       return Extraction.fromHStringList(hits);
    }
 
+   /**
+    * Gets the necessary condition, i.e. required words, lemmas, and annotation types, that an input must meet for the
+    * pattern to match. Matchers use the prefilter to skip inputs that cannot match.
+    *
+    * @return the prefilter
+    */
+   public Prefilter getPrefilter() {
+      return prefilter;
+   }
+
    /**
     * Runs the pattern over the given input text returning the first match if one exists.
     *
@@ -115,7 +129,7 @@ public final class TokenRegex implements Serializable, Extractor {
     * @return an optional of the match
     */
    public Optional<HString> matchFirst(HString text) {
-      TokenMatcher matcher = new TokenMatcher(nfa, text);
+      TokenMatcher matcher = new TokenMatcher(nfa, dfa, prefilter, text);
       if(matcher.find()) {
          return Optional.of(matcher.group());
       }
@@ -130,7 +144,7 @@ public final class TokenRegex implements Serializable, Extractor {
     * @return A TokenMatcher
     */
    public TokenMatcher matcher(HString text, int start) {
-      return new TokenMatcher(nfa, text, start);
+      return new TokenMatcher(nfa, dfa, prefilter, text, start);
    }
 
    /**
@@ -140,7 +154,7 @@ public final class TokenRegex implements Serializable, Extractor {
     * @return A TokenMatcher
     */
    public TokenMatcher matcher(HString text) {
-      return new TokenMatcher(nfa, text);
+      return new TokenMatcher(nfa, dfa, prefilter, text);
    }
 
    /**
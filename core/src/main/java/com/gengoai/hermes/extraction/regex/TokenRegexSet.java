@@ -0,0 +1,280 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.extraction.regex;
+
+import com.gengoai.Validation;
+import com.gengoai.collection.multimap.ArrayListMultimap;
+import com.gengoai.hermes.Annotation;
+import com.gengoai.hermes.HString;
+import com.gengoai.parsing.ParseException;
+import lombok.NonNull;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * <p>
+ * A set of {@link TokenRegex} patterns that are matched together in a single pass over an input. The compiled NFAs of
+ * the patterns share a start state and their accepting states are tagged with the pattern they belong to, so that
+ * each token position is visited once for all patterns instead of once per pattern. When every pattern can be
+ * determinized the set is matched with a single lazily constructed DFA whose transition function results are shared
+ * by all patterns.
+ * </p>
+ * <p>
+ * Matching follows the semantics of {@link TokenMatcher} independently for each pattern: a pattern's match is the
+ * longest match starting at the leftmost token and matching for that pattern resumes after the end of its match.
+ * Matches are reported in order of their start token and, for matches starting at the same token, in pattern order.
+ * </p>
+ * <pre>
+ * {@code
+ *    TokenRegexSet set = TokenRegexSet.compile("#NOUN+", "@ENTITY(#PERSON)");
+ *    set.find(document, (pattern, match) -> System.out.println(pattern + ": " + match.group()));
+ * }
+ * </pre>
+ *
+ * @author David B. Bracewell
+ */
+public final class TokenRegexSet implements Serializable {
+   private static final long serialVersionUID = 1L;
+   private final Map<NFA.Node, Integer> acceptingNodes = new IdentityHashMap<>();
+   private final DFA dfa;
+   private final int[] nfaIndex;
+   private final List<NFA> nfas = new ArrayList<>();
+   private final TokenRegex[] patterns;
+
+   private TokenRegexSet(TokenRegex[] patterns) {
+      this.patterns = patterns;
+      this.nfaIndex = new int[patterns.length];
+      //The same compiled pattern may occur more than once, but the NFAs being run together must not share nodes
+      Map<NFA, Integer> indices = new IdentityHashMap<>();
+      for(int i = 0; i < patterns.length; i++) {
+         NFA nfa = patterns[i].nfa;
+         if(!indices.containsKey(nfa)) {
+            indices.put(nfa, nfas.size());
+            indexAcceptingNodes(nfa.start, nfas.size());
+            nfas.add(nfa);
+         }
+         nfaIndex[i] = indices.get(nfa);
+      }
+      this.dfa = DFA.compile(nfas);
+   }
+
+   /**
+    * Compiles the given patterns into a TokenRegexSet.
+    *
+    * @param patterns the token regex patterns
+    * @return the TokenRegexSet
+    * @throws ParseException One of the patterns has a syntax error
+    */
+   public static TokenRegexSet compile(@NonNull String... patterns) throws ParseException {
+      return compile(Arrays.asList(patterns));
+   }
+
+   /**
+    * Compiles the given patterns into a TokenRegexSet.
+    *
+    * @param patterns the token regex patterns
+    * @return the TokenRegexSet
+    * @throws ParseException One of the patterns has a syntax error
+    */
+   public static TokenRegexSet compile(@NonNull Collection<String> patterns) throws ParseException {
+      List<TokenRegex> regexes = new ArrayList<>();
+      for(String pattern : patterns) {
+         regexes.add(TokenRegex.compile(pattern));
+      }
+      return of(regexes);
+   }
+
+   /**
+    * Creates a TokenRegexSet from the given compiled patterns.
+    *
+    * @param patterns the compiled patterns
+    * @return the TokenRegexSet
+    */
+   public static TokenRegexSet of(@NonNull TokenRegex... patterns) {
+      return of(Arrays.asList(patterns));
+   }
+
+   /**
+    * Creates a TokenRegexSet from the given compiled patterns.
+    *
+    * @param patterns the compiled patterns
+    * @return the TokenRegexSet
+    */
+   public static TokenRegexSet of(@NonNull Collection<TokenRegex> patterns) {
+      Validation.checkArgument(patterns.size() > 0, "Must specify at least one pattern");
+      return new TokenRegexSet(patterns.toArray(new TokenRegex[0]));
+   }
+
+   /**
+    * Finds all matches of all patterns in the given text.
+    *
+    * @param text     the text to match against
+    * @param consumer the consumer of matches
+    */
+   public void find(@NonNull HString text, @NonNull MatchConsumer consumer) {
+      final List<Annotation> tokens = text.tokens();
+      final int[] resumeAt = new int[patterns.length];
+      final TokenMatch[] matches = new TokenMatch[nfas.size()];
+      final DFA.Evaluator evaluator = dfa == null
+                                      ? null
+                                      : dfa.evaluator(tokens);
+      final int[] ends = new int[nfas.size()];
+      final boolean[] active = new boolean[nfas.size()];
+      //Patterns whose prefilter fails can never match, so they never become active
+      final Prefilter.Context context = new Prefilter.Context(text);
+      for(int i = 0; i < patterns.length; i++) {
+         if(!patterns[i].getPrefilter().test(context)) {
+            resumeAt[i] = Integer.MAX_VALUE;
+         }
+      }
+      for(int start = 0; start < tokens.size(); start++) {
+         //Duplicate patterns always resume at the same token, so activity is tracked per NFA
+         boolean anyActive = false;
+         Arrays.fill(active, false);
+         for(int i = 0; i < patterns.length; i++) {
+            if(resumeAt[i] <= start) {
+               active[nfaIndex[i]] = true;
+               anyActive = true;
+            }
+         }
+         if(!anyActive) {
+            continue;
+         }
+
+         if(dfa != null) {
+            dfa.longestMatches(evaluator, start, ends);
+            for(int n = 0; n < ends.length; n++) {
+               matches[n] = toMatch(text, start, ends[n]);
+            }
+         } else {
+            nfaMatches(text, start, active, matches);
+         }
+
+         for(int i = 0; i < patterns.length; i++) {
+            TokenMatch match = matches[nfaIndex[i]];
+            if(resumeAt[i] <= start && match != null) {
+               consumer.accept(i, match);
+               resumeAt[i] = match.getTokenEnd();
+            }
+         }
+      }
+   }
+
+   private void indexAcceptingNodes(NFA.Node start, int index) {
+      Set<NFA.Node> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+      Deque<NFA.Node> stack = new ArrayDeque<>();
+      stack.push(start);
+      visited.add(start);
+      while(!stack.isEmpty()) {
+         NFA.Node node = stack.pop();
+         if(node.accepts()) {
+            acceptingNodes.put(node, index);
+         }
+         List<NFA.Node> next = new ArrayList<>(node.epsilons);
+         node.transitions.forEach(t -> next.add(t.destination));
+         for(NFA.Node n : next) {
+            if(visited.add(n)) {
+               stack.push(n);
+            }
+         }
+      }
+   }
+
+   /**
+    * Determines if the set is matched using a DFA, which requires that all patterns can be determinized.
+    *
+    * @return True if the set is matched with a DFA, False if it is matched by simulating the NFAs
+    */
+   public boolean isDeterministic() {
+      return dfa != null;
+   }
+
+   private void nfaMatches(HString text, int start, boolean[] active, TokenMatch[] matches) {
+      List<NFA.Node> starts = new ArrayList<>();
+      List<NavigableSet<NFA.State>> accepts = new ArrayList<>();
+      for(int n = 0; n < nfas.size(); n++) {
+         if(active[n]) {
+            starts.add(nfas.get(n).start);
+         }
+         accepts.add(new TreeSet<>());
+      }
+      NFA.run(text, start, starts, state -> accepts.get(acceptingNodes.get(state.node)).add(state));
+      for(int n = 0; n < nfas.size(); n++) {
+         matches[n] = accepts.get(n).isEmpty()
+                      ? null
+                      : NFA.toMatch(text, start, accepts.get(n));
+      }
+   }
+
+   /**
+    * Gets the pattern at the given index.
+    *
+    * @param index the index
+    * @return the pattern
+    */
+   public TokenRegex pattern(int index) {
+      return patterns[index];
+   }
+
+   /**
+    * The number of patterns in the set
+    *
+    * @return the number of patterns in the set
+    */
+   public int size() {
+      return patterns.length;
+   }
+
+   private static TokenMatch toMatch(HString text, int start, int end) {
+      if(end < 0) {
+         return null;
+      }
+      return new TokenMatch(text,
+                            start,
+                            end == start
+                            ? end + 1
+                            : end,
+                            new ArrayListMultimap<>());
+   }
+
+   @Override
+   public String toString() {
+      return "TokenRegexSet" + Arrays.toString(patterns);
+   }
+
+   /**
+    * Consumer of the matches found by a {@link TokenRegexSet}
+    */
+   @FunctionalInterface
+   public interface MatchConsumer {
+
+      /**
+       * Accepts a match
+       *
+       * @param pattern the index of the pattern that matched
+       * @param match   the match
+       */
+      void accept(int pattern, TokenMatch match);
+   }
+
+}//END OF TokenRegexSet
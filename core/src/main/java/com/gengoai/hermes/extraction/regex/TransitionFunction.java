@@ -32,6 +32,26 @@ interface TransitionFunction extends Expression {
     */
    NFA construct();
 
+   /**
+    * Determines if the transition function always consumes exactly one token when it matches and its result depends
+    * only on the token it is given, i.e. not on named groups, so that it can be used as a {@link DFA} input symbol.
+    *
+    * @return True if the transition function consumes a single token, False otherwise
+    */
+   default boolean consumesSingleToken() {
+      return false;
+   }
+
+   /**
+    * Gets the key identifying the transition function as a {@link DFA} input symbol. Transition functions with equal
+    * keys must match exactly the same tokens, so that the DFA evaluates them once per token.
+    *
+    * @return the symbol key, which by default is the transition function itself
+    */
+   default Object symbolKey() {
+      return this;
+   }
+
    /**
     * Determines if the consumer matches on a given token.
     *
@@ -48,4 +68,13 @@ interface TransitionFunction extends Expression {
     */
    int nonMatches(HString input, ListMultimap<String, HString> namedGroups);
 
+   /**
+    * Gets a necessary condition for the transition function to match somewhere in an input.
+    *
+    * @return the prefilter, which is empty if the transition function can match any input
+    */
+   default Prefilter prefilter() {
+      return Prefilter.NONE;
+   }
+
 }//END OF TransitionFunction
@@ -56,6 +56,11 @@ final class ZeroOrMoreTransition implements TransitionFunction, Serializable {
       return nfa;
    }
 
+   @Override
+   public boolean consumesSingleToken() {
+      return child.consumesSingleToken();
+   }
+
    @Override
    public Tag getType() {
       return RegexTypes.ZERO_OR_MORE;
@@ -55,6 +55,11 @@ final class ZeroOrOneTransition implements TransitionFunction, Serializable {
       return nfa;
    }
 
+   @Override
+   public boolean consumesSingleToken() {
+      return child.consumesSingleToken();
+   }
+
    @Override
    public Tag getType() {
       return RegexTypes.ZERO_OR_ONE;
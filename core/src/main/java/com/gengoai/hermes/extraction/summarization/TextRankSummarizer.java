@@ -21,21 +21,21 @@ package com.gengoai.hermes.extraction.summarization;
 
 import com.gengoai.apollo.math.statistics.measure.Similarity;
 import com.gengoai.collection.counter.Counter;
-import com.gengoai.graph.Graph;
-import com.gengoai.graph.scoring.PageRank;
+import com.gengoai.collection.counter.Counters;
 import com.gengoai.hermes.Annotation;
 import com.gengoai.hermes.HString;
 import com.gengoai.hermes.Types;
 import com.gengoai.hermes.corpus.DocumentCollection;
 import com.gengoai.hermes.extraction.Extraction;
+import com.gengoai.hermes.extraction.TextRankGraph;
 import com.gengoai.hermes.similarity.EmbeddingSimilarity;
+import com.gengoai.hermes.morphology.StopWords;
 import com.gengoai.hermes.similarity.HStringSimilarity;
+import com.gengoai.hermes.similarity.MinHashLSH;
 import lombok.Data;
 import lombok.NonNull;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
+import java.util.*;
 
 /**
  * <p>Implementation of the TextRank algorithm for summarization as defined in:
@@ -43,36 +43,76 @@ import java.util.List;
  * Mihalcea, R., Tarau, P.: "Textrank: Bringing order into texts". In: Lin, D., Wu, D. (eds.) Proceedings of EMNLP 2004.
  * pp. 404–411. Association for Computational Linguistics, Barcelona, Spain. July 2004.
  * </i>
+ * The sentence graph is ranked using a {@link TextRankGraph}.
+ * </p>
+ * <p>
+ * By default the similarity of every pair of sentences is calculated, which is quadratic in the number of sentences.
+ * For long documents the pairs can be restricted, see {@link CandidatePairs}, to those sharing a content word, found
+ * through an inverted index over the sentences, or to those likely to have a high overlap of content words, found
+ * through MinHash LSH using <code>lshBands</code> bands of <code>lshRows</code> rows.
  * </p>
  */
 @Data
 public class TextRankSummarizer implements Summarizer {
    private static final long serialVersionUID = 1L;
+   private static final ThreadLocal<TextRankGraph> GRAPHS = ThreadLocal.withInitial(TextRankGraph::new);
    private double ratio = 0.2;
    private int numberOfSentences = -1;
    @NonNull
    private HStringSimilarity similarityMeasure = new EmbeddingSimilarity(Similarity.Cosine);
    private double similarityThreshold = 1e-10;
+   private double dampingFactor = 0.85;
+   private int maxIterations = 100;
+   private double tolerance = 0.0001;
+   @NonNull
+   private CandidatePairs candidatePairs = CandidatePairs.ALL;
+   private int lshBands = 16;
+   private int lshRows = 2;
+
+   private static int[][] sentenceTerms(List<Annotation> sentences) {
+      Map<String, Integer> vocabulary = new HashMap<>();
+      int[][] terms = new int[sentences.size()][];
+      for(int i = 0; i < terms.length; i++) {
+         terms[i] = sentences.get(i)
+                             .tokenStream()
+                             .filter(StopWords.isContentWord())
+                             .map(HString::getLemma)
+                             .mapToInt(lemma -> vocabulary.computeIfAbsent(lemma, l -> vocabulary.size()))
+                             .distinct()
+                             .toArray();
+      }
+      return terms;
+   }
 
    @Override
    public Extraction extract(@NonNull HString hString) {
       List<Annotation> sentences = hString.sentences();
-      Graph<Annotation> g = Graph.undirected();
-      g.addVertices(sentences);
+      TextRankGraph g = GRAPHS.get();
+      g.reset(sentences.size());
 
-      for(int i = 0; i < sentences.size(); i++) {
-         Annotation si = sentences.get(i);
-         for(int j = i + 1; j < sentences.size(); j++) {
-            Annotation sj = sentences.get(j);
-            double similarity = similarityMeasure.calculate(si, sj);
-            if(similarity >= similarityThreshold) {
-               g.addEdge(si, sj, similarity);
+      switch(candidatePairs) {
+         case SHARED_TERMS:
+            addSharedTermEdges(g, sentences, sentenceTerms(sentences));
+            break;
+         case MINHASH:
+            addMinHashEdges(g, sentences, sentenceTerms(sentences));
+            break;
+         default:
+            double[][] similarities = similarityMeasure.similarityMatrix(sentences);
+            for(int i = 0; i < sentences.size(); i++) {
+               for(int j = i + 1; j < sentences.size(); j++) {
+                  if(similarities[i][j] >= similarityThreshold) {
+                     g.addEdge(i, j, similarities[i][j]);
+                  }
+               }
             }
-         }
       }
 
-      PageRank<Annotation> pageRank = new PageRank<>(30, 0.85, 0.0001);
-      Counter<Annotation> scores = pageRank.score(g);
+      double[] ranks = g.rank(dampingFactor, maxIterations, tolerance);
+      Counter<Annotation> scores = Counters.newCounter();
+      for(int i = 0; i < sentences.size(); i++) {
+         scores.set(sentences.get(i), ranks[i]);
+      }
       int summaryLength = numberOfSentences > 0
                           ? numberOfSentences
                           : (int) Math.floor(sentences.size() * ratio);
@@ -81,9 +121,106 @@ public class TextRankSummarizer implements Summarizer {
       return Extraction.fromHStringList(extraction);
    }
 
+   private void addEdge(TextRankGraph g, List<Annotation> sentences, int i, int j) {
+      double similarity = similarityMeasure.calculate(sentences.get(i), sentences.get(j));
+      if(similarity >= similarityThreshold) {
+         g.addEdge(i, j, similarity);
+      }
+   }
+
+   private void addMinHashEdges(TextRankGraph g, List<Annotation> sentences, int[][] terms) {
+      MinHashLSH lsh = new MinHashLSH(lshBands, lshRows, 0);
+      Map<Long, List<Integer>> buckets = new HashMap<>();
+      long[][] keys = new long[terms.length][];
+      for(int i = 0; i < terms.length; i++) {
+         if(terms[i].length == 0) {
+            continue;
+         }
+         long[] elements = new long[terms[i].length];
+         for(int k = 0; k < elements.length; k++) {
+            elements[k] = terms[i][k];
+         }
+         keys[i] = lsh.bandKeys(lsh.signature(elements, elements.length));
+         for(long key : keys[i]) {
+            buckets.computeIfAbsent(key, b -> new ArrayList<>()).add(i);
+         }
+      }
+      //Sparse accumulator marking the sentences already paired with sentence i
+      int[] stamps = new int[terms.length];
+      for(int i = 0; i < terms.length; i++) {
+         if(keys[i] == null) {
+            continue;
+         }
+         for(long key : keys[i]) {
+            for(int j : buckets.get(key)) {
+               if(j > i && stamps[j] != i + 1) {
+                  stamps[j] = i + 1;
+                  addEdge(g, sentences, i, j);
+               }
+            }
+         }
+      }
+   }
+
+   private void addSharedTermEdges(TextRankGraph g, List<Annotation> sentences, int[][] terms) {
+      int vocabularySize = 0;
+      for(int[] sentence : terms) {
+         for(int term : sentence) {
+            vocabularySize = Math.max(vocabularySize, term + 1);
+         }
+      }
+      //Inverted index from term to the sentences containing it, in increasing order
+      int[][] postings = new int[vocabularySize][];
+      int[] lengths = new int[vocabularySize];
+      for(int[] sentence : terms) {
+         for(int term : sentence) {
+            lengths[term]++;
+         }
+      }
+      for(int t = 0; t < vocabularySize; t++) {
+         postings[t] = new int[lengths[t]];
+         lengths[t] = 0;
+      }
+      for(int i = 0; i < terms.length; i++) {
+         for(int term : terms[i]) {
+            postings[term][lengths[term]++] = i;
+         }
+      }
+      //Sparse accumulator marking the sentences already paired with sentence i
+      int[] stamps = new int[terms.length];
+      for(int i = 0; i < terms.length; i++) {
+         for(int term : terms[i]) {
+            for(int j : postings[term]) {
+               if(j > i && stamps[j] != i + 1) {
+                  stamps[j] = i + 1;
+                  addEdge(g, sentences, i, j);
+               }
+            }
+         }
+      }
+   }
+
    @Override
    public void fit(@NonNull DocumentCollection corpus) {
       similarityMeasure.fit(corpus);
    }
 
+   /**
+    * Determines which pairs of sentences have their similarity calculated when building the sentence graph.
+    */
+   public enum CandidatePairs {
+      /**
+       * All pairs of sentences
+       */
+      ALL,
+      /**
+       * Pairs of sentences sharing at least one content word
+       */
+      SHARED_TERMS,
+      /**
+       * Pairs of sentences whose sets of content words collide in a MinHash LSH band
+       */
+      MINHASH
+   }
+
 }//END OF TextRankSummarizer
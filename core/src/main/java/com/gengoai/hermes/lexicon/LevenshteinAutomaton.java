@@ -0,0 +1,235 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.lexicon;
+
+import com.gengoai.Validation;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * A Levenshtein automaton recognizing all strings within a maximum edit distance (insertion, deletion, and
+ * substitution each costing 1) of a query string. The automaton is simulated bit-parallel: for each number of errors
+ * <code>e</code> a single <code>long</code> records the query prefixes that can be consumed with at most
+ * <code>e</code> edits, which limits queries to {@link #MAX_QUERY_LENGTH} characters.
+ * </p>
+ * <p>
+ * Suggestions are generated by intersecting the automaton with a lexicographically sorted array of words that is
+ * traversed as an implicit trie. A subtree is abandoned as soon as the automaton state becomes empty, so only the
+ * prefixes that can still lead to a match are ever visited and no per-node rows are allocated.
+ * </p>
+ *
+ * @author David B. Bracewell
+ */
+public final class LevenshteinAutomaton {
+   /**
+    * The maximum length of a query string supported by the automaton
+    */
+   public static final int MAX_QUERY_LENGTH = 63;
+   private final char[] alphabet;
+   private final long[] masks;
+   private final long acceptBit;
+   private final long allBits;
+   private final int maxDistance;
+   private final int queryLength;
+
+   /**
+    * Instantiates a new LevenshteinAutomaton.
+    *
+    * @param query       the query string
+    * @param maxDistance the maximum edit distance
+    */
+   public LevenshteinAutomaton(@NonNull String query, int maxDistance) {
+      Validation.checkArgument(maxDistance >= 0, "Maximum distance must be non-negative");
+      Validation.checkArgument(isSupported(query), "Query length must be <= " + MAX_QUERY_LENGTH);
+      this.queryLength = query.length();
+      this.maxDistance = maxDistance;
+      this.acceptBit = 1L << queryLength;
+      this.allBits = (acceptBit << 1) - 1;
+      char[] chars = query.toCharArray();
+      Arrays.sort(chars);
+      int n = 0;
+      for(int i = 0; i < chars.length; i++) {
+         if(i == 0 || chars[i] != chars[i - 1]) {
+            chars[n++] = chars[i];
+         }
+      }
+      this.alphabet = Arrays.copyOf(chars, n);
+      this.masks = new long[n];
+      for(int i = 0; i < queryLength; i++) {
+         masks[Arrays.binarySearch(alphabet, query.charAt(i))] |= 1L << i;
+      }
+   }
+
+   /**
+    * Determines if a query string can be handled by the automaton.
+    *
+    * @param query the query string
+    * @return True if the automaton supports the query, False otherwise
+    */
+   public static boolean isSupported(@NonNull String query) {
+      return query.length() <= MAX_QUERY_LENGTH;
+   }
+
+   /**
+    * Sorts the given words into the order expected by {@link #suggest(String[])}.
+    *
+    * @param words the words
+    * @return the sorted array of words
+    */
+   public static String[] sortedWords(@NonNull Iterable<String> words) {
+      String[] array = new String[16];
+      int size = 0;
+      for(String word : words) {
+         if(size == array.length) {
+            array = Arrays.copyOf(array, size * 2);
+         }
+         array[size++] = word;
+      }
+      array = Arrays.copyOf(array, size);
+      Arrays.sort(array);
+      return array;
+   }
+
+   /**
+    * Calculates the edit distance between the query and the given string.
+    *
+    * @param string the string
+    * @return the edit distance or -1 if the distance is greater than the maximum distance
+    */
+   public int distance(@NonNull String string) {
+      long[] state = new long[(maxDistance + 1) * 2];
+      initialize(state);
+      int offset = 0;
+      for(int i = 0; i < string.length(); i++) {
+         if(!step(state, offset, offset ^ (maxDistance + 1), string.charAt(i))) {
+            return -1;
+         }
+         offset ^= maxDistance + 1;
+      }
+      return accepting(state, offset);
+   }
+
+   /**
+    * Finds all words within the maximum distance of the query.
+    *
+    * @param sortedWords the lexicographically sorted words to search
+    * @return the map of matching words and their edit distance to the query
+    */
+   public Map<String, Integer> suggest(@NonNull String[] sortedWords) {
+      Map<String, Integer> suggestions = new HashMap<>();
+      if(sortedWords.length == 0) {
+         return suggestions;
+      }
+      //No match can be longer than the query plus the max number of insertions
+      long[] state = new long[(queryLength + maxDistance + 2) * (maxDistance + 1)];
+      initialize(state);
+      traverse(sortedWords, 0, sortedWords.length, 0, state, suggestions);
+      return suggestions;
+   }
+
+   private int accepting(long[] state, int offset) {
+      for(int e = 0; e <= maxDistance; e++) {
+         if((state[offset + e] & acceptBit) != 0) {
+            return e;
+         }
+      }
+      return -1;
+   }
+
+   private void initialize(long[] state) {
+      for(int e = 0; e <= maxDistance; e++) {
+         //e leading deletions from the query
+         state[e] = e >= queryLength
+                    ? allBits
+                    : (1L << (e + 1)) - 1;
+      }
+   }
+
+   private long mask(char c) {
+      int index = Arrays.binarySearch(alphabet, c);
+      return index < 0
+             ? 0L
+             : masks[index];
+   }
+
+   private boolean step(long[] state, int from, int to, char c) {
+      final long m = mask(c);
+      long previousOld = state[from];
+      long current = ((previousOld & m) << 1) & allBits;
+      state[to] = current;
+      for(int e = 1; e <= maxDistance; e++) {
+         long old = state[from + e];
+         current = ((old & m) << 1)        // match
+               | (previousOld << 1)        // substitution
+               | previousOld               // insertion
+               | (current << 1)            // deletion
+               | current;                  // fewer errors
+         current &= allBits;
+         state[to + e] = current;
+         previousOld = old;
+      }
+      return current != 0;
+   }
+
+   private void traverse(String[] words, int start, int end, int depth, long[] state, Map<String, Integer> suggestions) {
+      final int width = maxDistance + 1;
+      final int offset = depth * width;
+      //Words are sorted, so the word equal to the current prefix comes first in the range
+      if(words[start].length() == depth) {
+         int distance = accepting(state, offset);
+         if(distance >= 0) {
+            suggestions.put(words[start], distance);
+         }
+         start++;
+      }
+      if(offset + 2 * width > state.length) {
+         return;
+      }
+      while(start < end) {
+         char c = words[start].charAt(depth);
+         int childEnd = childEnd(words, start, end, depth, c);
+         if(step(state, offset, offset + width, c)) {
+            traverse(words, start, childEnd, depth + 1, state, suggestions);
+         }
+         start = childEnd;
+      }
+   }
+
+   private static int childEnd(String[] words, int start, int end, int depth, char c) {
+      int low = start + 1;
+      int high = end - 1;
+      while(low <= high) {
+         int mid = (low + high) >>> 1;
+         if(words[mid].charAt(depth) <= c) {
+            low = mid + 1;
+         } else {
+            high = mid - 1;
+         }
+      }
+      return low;
+   }
+
+}//END OF LevenshteinAutomaton
@@ -323,38 +323,26 @@ public abstract class Lexicon implements Predicate<HString>, WordList, Extractor
    }
 
    private List<HString> viterbi(HString source) {
-      List<Annotation> tokens = source.tokens();
-      int n = tokens.size();
-      int maxLen = getMaxLemmaLength() + 1;
-      LexiconMatch[] matches = new LexiconMatch[n + 1];
-      double[] best = new double[n + 1];
-      best[0] = 0;
-      for(int end = 1; end <= n; end++) {
-         matches[end] = new LexiconMatch(tokens.get(end - 1), 0d, "", null);
-         for(int start = end - 1; start >= 0; start--) {
-            HString span = HString.union(tokens.subList(start, end));
-            if(span.length() > maxLen) {
-               break;
-            }
-            LexiconEntry entry = match(span).stream().findFirst().orElse(LexiconEntry.empty());
-            LexiconMatch score = new LexiconMatch(span, entry.getProbability(), entry.getLemma(), entry.getTag());
-            double segmentScore = score.getScore() + best[start];
-            if(segmentScore >= best[end]) {
-               best[end] = segmentScore;
-               matches[end] = score;
-            }
+      final Annotation[] tokens = source.tokens().toArray(new Annotation[0]);
+      final int maxLen = getMaxLemmaLength() + 1;
+      final List<HString> results = new LinkedList<>();
+      ViterbiDecoder.decode(tokens, 0, 0d, new SpanScorer() {
+         @Override
+         public boolean isCandidate(Annotation[] tokens, int start, int end) {
+            return tokens[end - 1].end() - tokens[start].start() <= maxLen;
          }
-      }
-      int i = n;
-      List<HString> results = new LinkedList<>();
-      while(i > 0) {
-         LexiconMatch match = matches[i];
-         if(match.getScore() > 0) {
-            results.add(createFragment(match));
-         }
-         i = i - matches[i].getSpan().tokenLength();
-      }
 
+         @Override
+         public LexiconEntry score(Annotation[] tokens, int start, int end) {
+            return match(SpanScorer.toHString(tokens, start, end)).stream()
+                                                                 .findFirst()
+                                                                 .orElse(LexiconEntry.empty());
+         }
+      }, Double::sum, (start, end, entry) -> {
+         if(entry.getProbability() > 0) {
+            results.add(createFragment(new LexiconMatch(SpanScorer.toHString(tokens, start, end), entry)));
+         }
+      });
       Collections.reverse(results);
       return results;
    }
@@ -0,0 +1,77 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.lexicon;
+
+import com.gengoai.hermes.Annotation;
+import com.gengoai.hermes.Fragments;
+import com.gengoai.hermes.HString;
+import lombok.NonNull;
+
+/**
+ * <p>
+ * Scores spans of tokens identified by their start (inclusive) and end (exclusive) index into a precomputed token
+ * array. Span scorers are used by the {@link ViterbiDecoder} so that candidate spans need not be materialized as
+ * {@link HString}s unless the scorer itself requires one.
+ * </p>
+ *
+ * @author David B. Bracewell
+ */
+@FunctionalInterface
+public interface SpanScorer {
+
+   /**
+    * Creates an {@link HString} covering the tokens in the span <code>[start, end)</code>.
+    *
+    * @param tokens the tokens
+    * @param start  the index of the first token in the span
+    * @param end    the index one past the last token in the span
+    * @return the HString covering the span
+    */
+   static HString toHString(@NonNull Annotation[] tokens, int start, int end) {
+      return Fragments.span(tokens[start].document(), tokens[start].start(), tokens[end - 1].end());
+   }
+
+   /**
+    * Determines if the span <code>[start, end)</code> should be considered. Spans are evaluated with a fixed end and
+    * a decreasing start, and once a span is rejected no spans with a smaller start (and the same end) are considered.
+    *
+    * @param tokens the tokens
+    * @param start  the index of the first token in the span
+    * @param end    the index one past the last token in the span
+    * @return True if the span should be scored, False if it and all longer spans ending at <code>end</code> should
+    * be skipped
+    */
+   default boolean isCandidate(@NonNull Annotation[] tokens, int start, int end) {
+      return true;
+   }
+
+   /**
+    * Scores the span <code>[start, end)</code>.
+    *
+    * @param tokens the tokens
+    * @param start  the index of the first token in the span
+    * @param end    the index one past the last token in the span
+    * @return the best matching entry for the span or {@link LexiconEntry#empty()} if there is none
+    */
+   LexiconEntry score(@NonNull Annotation[] tokens, int start, int end);
+
+}//END OF SpanScorer
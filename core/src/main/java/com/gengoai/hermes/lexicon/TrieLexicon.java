@@ -45,6 +45,7 @@ public class TrieLexicon extends Lexicon {
    private int maxLemmaLength = 0;
    private int maxTokenLength = 0;
    private boolean probabilistic = false;
+   private transient volatile String[] sortedKeys = null;
 
    /**
     * Instantiates a new TrieLexicon.
@@ -72,7 +73,10 @@ public class TrieLexicon extends Lexicon {
                                            lexiconEntry.getConstraint(),
                                            lexiconEntry.getTokenLength());
          }
-         trie.putIfAbsent(norm, new ArrayList<>());
+         if(!trie.containsKey(norm)) {
+            trie.put(norm, new ArrayList<>());
+            sortedKeys = null;
+         }
          trie.get(norm).add(lexiconEntry);
       }
    }
@@ -188,13 +192,16 @@ public class TrieLexicon extends Lexicon {
    }
 
    /**
-    * Suggest map.
+    * Suggest map. Suggestions are found by intersecting a {@link LevenshteinAutomaton} with the lexicon's entries.
     *
     * @param element the element
     * @param maxCost the max cost
     * @return the map
     */
    public Map<String, Integer> suggest(String element, int maxCost) {
+      if(maxCost >= 0 && LevenshteinAutomaton.isSupported(element)) {
+         return new LevenshteinAutomaton(element, maxCost).suggest(sortedKeys());
+      }
       return trie.suggest(element, maxCost);
    }
 
@@ -207,9 +214,25 @@ public class TrieLexicon extends Lexicon {
     * @return the map
     */
    public Map<String, Integer> suggest(String element, int maxCost, int substitutionCost) {
+      if(substitutionCost == 1) {
+         return suggest(element, maxCost);
+      }
       return trie.suggest(element, maxCost, substitutionCost);
    }
 
+   private String[] sortedKeys() {
+      String[] keys = sortedKeys;
+      if(keys == null) {
+         synchronized(this) {
+            if(sortedKeys == null) {
+               sortedKeys = LevenshteinAutomaton.sortedWords(trie.keySet());
+            }
+            keys = sortedKeys;
+         }
+      }
+      return keys;
+   }
+
 }//END OF BaseTrieLexicon
 
 
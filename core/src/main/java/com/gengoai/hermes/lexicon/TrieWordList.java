@@ -44,6 +44,7 @@ import static com.gengoai.collection.Maps.asHashMap;
 public class TrieWordList implements WordList, PrefixSearchable, Serializable {
    private static final long serialVersionUID = 1L;
    private final Trie<Boolean> words;
+   private transient volatile String[] sortedWords = null;
 
    /**
     * <p>
@@ -149,13 +150,16 @@ public class TrieWordList implements WordList, PrefixSearchable, Serializable {
    }
 
    /**
-    * Suggests potential matches based on the given elements.
+    * Suggests potential matches based on the given elements using a {@link LevenshteinAutomaton}.
     *
     * @param string  the string to generate suggestions for
     * @param maxCost the maximum cost of the suggestions
     * @return the map of suggestions with their costs
     */
    public Map<String, Integer> suggest(String string, int maxCost) {
+      if(maxCost >= 0 && LevenshteinAutomaton.isSupported(string)) {
+         return new LevenshteinAutomaton(string, maxCost).suggest(sortedWords());
+      }
       return words.suggest(string, maxCost);
    }
 
@@ -168,7 +172,23 @@ public class TrieWordList implements WordList, PrefixSearchable, Serializable {
     * @return the map of suggestions with their costs
     */
    public Map<String, Integer> suggest(String string, int maxCost, int substitutionCost) {
+      if(substitutionCost == 1) {
+         return suggest(string, maxCost);
+      }
       return words.suggest(string, maxCost, substitutionCost);
    }
 
+   private String[] sortedWords() {
+      String[] array = sortedWords;
+      if(array == null) {
+         synchronized(this) {
+            if(sortedWords == null) {
+               sortedWords = LevenshteinAutomaton.sortedWords(words.keySet());
+            }
+            array = sortedWords;
+         }
+      }
+      return array;
+   }
+
 }//END OF TrieWordList
@@ -0,0 +1,144 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.lexicon;
+
+import com.gengoai.hermes.Annotation;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * <p>
+ * Finds the maximum scoring segmentation of a sequence of tokens using the Viterbi algorithm. Spans are scored via a
+ * {@link SpanScorer} using their start and end token index, so that only the spans in the best segmentation need to
+ * be materialized. The dynamic programming tables are primitive arrays that are kept per thread and reused across
+ * calls.
+ * </p>
+ *
+ * @author David B. Bracewell
+ */
+public final class ViterbiDecoder {
+   private static final LexiconEntry EMPTY = LexiconEntry.empty();
+   private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+   private ViterbiDecoder() {
+      throw new IllegalAccessError();
+   }
+
+   /**
+    * Decodes the best segmentation of the given tokens. Spans are scored by combining the best score of the
+    * segmentation up to the span's start with the probability of the span's entry. When two spans ending at the same
+    * token have the same score the longer span is preferred. The spans of the best segmentation are passed to the
+    * given consumer from the last span to the first.
+    *
+    * @param tokens       the tokens to segment
+    * @param maxSpanSize  the maximum number of tokens in a span (values <= 0 allow spans of any size)
+    * @param initialScore the score of the empty segmentation
+    * @param scorer       the scorer used to score spans
+    * @param combiner     combines the score of the segmentation so far with the score of a span
+    * @param consumer     the consumer of the spans in the best segmentation
+    */
+   public static void decode(@NonNull Annotation[] tokens,
+                             int maxSpanSize,
+                             double initialScore,
+                             @NonNull SpanScorer scorer,
+                             @NonNull DoubleBinaryOperator combiner,
+                             @NonNull SpanConsumer consumer) {
+      final int n = tokens.length;
+      if(n == 0) {
+         return;
+      }
+      final int maxLen = maxSpanSize > 0
+                         ? maxSpanSize
+                         : n;
+      //Reentrant calls (e.g. a scorer that itself decodes) get their own buffers
+      final Buffers shared = BUFFERS.get();
+      final Buffers buffers = shared.inUse
+                              ? new Buffers()
+                              : shared;
+      buffers.inUse = true;
+      buffers.ensureCapacity(n + 1);
+      final double[] best = buffers.best;
+      final int[] backPointer = buffers.backPointer;
+      final LexiconEntry[] entries = buffers.entries;
+      try {
+         best[0] = initialScore;
+         for(int end = 1; end <= n; end++) {
+            best[end] = 0;
+            backPointer[end] = end - 1;
+            entries[end] = EMPTY;
+            for(int start = end - 1; start >= 0 && start >= (end - maxLen); start--) {
+               if(!scorer.isCandidate(tokens, start, end)) {
+                  break;
+               }
+               LexiconEntry entry = scorer.score(tokens, start, end);
+               double segmentScore = combiner.applyAsDouble(best[start], entry.getProbability());
+               if(segmentScore >= best[end]) {
+                  best[end] = segmentScore;
+                  backPointer[end] = start;
+                  entries[end] = entry;
+               }
+            }
+         }
+         for(int end = n; end > 0; end = backPointer[end]) {
+            consumer.accept(backPointer[end], end, entries[end]);
+         }
+      } finally {
+         Arrays.fill(entries, 0, n + 1, null);
+         buffers.inUse = false;
+      }
+   }
+
+   /**
+    * Consumer of the spans making up the best segmentation.
+    */
+   @FunctionalInterface
+   public interface SpanConsumer {
+
+      /**
+       * Accepts the span <code>[start, end)</code> and its entry.
+       *
+       * @param start the index of the first token in the span
+       * @param end   the index one past the last token in the span
+       * @param entry the entry scoring the span
+       */
+      void accept(int start, int end, LexiconEntry entry);
+   }
+
+   private static class Buffers {
+      double[] best = new double[64];
+      int[] backPointer = new int[64];
+      LexiconEntry[] entries = new LexiconEntry[64];
+      boolean inUse = false;
+
+      void ensureCapacity(int size) {
+         if(best.length < size) {
+            int newSize = Math.max(size, best.length * 2);
+            best = new double[newSize];
+            backPointer = new int[newSize];
+            entries = new LexiconEntry[newSize];
+         }
+      }
+   }
+
+}//END OF ViterbiDecoder
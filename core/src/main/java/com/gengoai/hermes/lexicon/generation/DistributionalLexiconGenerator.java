@@ -31,6 +31,7 @@ import com.gengoai.collection.counter.MultiCounters;
 import com.gengoai.collection.multimap.HashSetMultimap;
 import com.gengoai.collection.multimap.Multimap;
 import com.gengoai.collection.multimap.SetMultimap;
+import com.gengoai.hermes.similarity.HNSWIndex;
 import com.gengoai.string.Strings;
 import lombok.Getter;
 import lombok.NonNull;
@@ -38,12 +39,14 @@ import lombok.Setter;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import static com.gengoai.apollo.math.statistics.measure.Similarity.Cosine;
 
 /**
  * Generates a lexicon based on similarity in an embedding space where positive and negative examples can be given per
- * tag category.
+ * tag category. Neighbors of the seed terms are found by an exhaustive search of the embedding unless an {@link
+ * HNSWIndex} built over the embedding is set, in which case they are found with an approximate search of the index.
  *
  * @param <T> the tag type parameter
  * @author David B. Bracewell
@@ -58,6 +61,9 @@ public class DistributionalLexiconGenerator<T extends Tag> implements LexiconGen
    @Getter
    @Setter
    private double threshold = 0.4;
+   @Getter
+   @Setter
+   private HNSWIndex index = null;
 
    /**
     * Instantiates a new DistributionalLexiconGenerator
@@ -146,16 +152,15 @@ public class DistributionalLexiconGenerator<T extends Tag> implements LexiconGen
                   });
          lexicon.putAll(seedTerms);
          MultiCounter<String, T> scores = MultiCounters.newConcurrentMultiCounter();
-         vectors.forEach((tag, vector) -> wordEmbeddings.query(VSQuery.vectorQuery(vector)
-                                                                      .limit(maximumTermCount * 10))
-                                                        .filter(slv -> !seedTerms.containsValue(slv.getLabel()))
-                                                        .forEach(slv -> {
-                                                           double neg = 0;
-                                                           if(negVectors.get(tag).norm2() > 0) {
-                                                              neg = Cosine.calculate(negVectors.get(tag), slv);
-                                                           }
-                                                           scores.set(slv.getLabel(), tag, slv.getWeight() - neg);
-                                                        }));
+         vectors.forEach((tag, vector) -> neighbors(vector)
+               .filter(n -> !seedTerms.containsValue(n.getLabel()))
+               .forEach(n -> {
+                  double neg = 0;
+                  if(negVectors.get(tag).norm2() > 0) {
+                     neg = Cosine.calculate(negVectors.get(tag), wordEmbeddings.embed(n.getLabel()));
+                  }
+                  scores.set(n.getLabel(), tag, n.getSimilarity() - neg);
+               }));
          MultiCounter<T, String> selection = MultiCounters.newMultiCounter();
          scores.firstKeys()
                .forEach(k -> {
@@ -174,4 +179,12 @@ public class DistributionalLexiconGenerator<T extends Tag> implements LexiconGen
       return lexicon;
    }
 
+   private Stream<HNSWIndex.Neighbor> neighbors(NDArray vector) {
+      if(index != null) {
+         return index.query(vector, maximumTermCount * 10).stream();
+      }
+      return wordEmbeddings.query(VSQuery.vectorQuery(vector).limit(maximumTermCount * 10))
+                           .map(slv -> new HNSWIndex.Neighbor(slv.getLabel(), slv.getWeight()));
+   }
+
 }//END OF DistributionalLexiconGenerator
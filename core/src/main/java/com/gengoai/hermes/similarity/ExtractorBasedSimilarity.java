@@ -34,9 +34,19 @@ import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.Value;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * <p>An implementation of an {@link HStringSimilarity} that uses an Apollo Similarity measure to determine the
  * similarity between two {@link HString} based on the extraction from a given {@link Extractor}.</p>
+ * <p>The batch methods, {@link #calculate(HString, List)} and {@link #similarityMatrix(List)}, extract each HString
+ * once into a sparse vector of sorted feature ids over a dictionary shared by the batch. Cosine similarity is
+ * computed directly from the intersection of the sorted ids, while other measures, including Jaccard whose definition
+ * over counts is left to the measure, are calculated over sparse NDArrays built once per HString so that the batch
+ * methods agree with {@link #calculate(HString, HString)}.</p>
  */
 @Value
 @NoArgsConstructor(force = true, access = AccessLevel.PRIVATE)
@@ -86,8 +96,118 @@ public class ExtractorBasedSimilarity implements HStringSimilarity {
       return measure.calculate(n1, n2);
    }
 
+   @Override
+   public double[] calculate(@NonNull HString query, @NonNull List<? extends HString> candidates) {
+      Map<String, Integer> dictionary = new HashMap<>();
+      SparseVector[] vectors = new SparseVector[candidates.size() + 1];
+      vectors[0] = vectorize(query, dictionary);
+      for(int i = 0; i < candidates.size(); i++) {
+         vectors[i + 1] = vectorize(candidates.get(i), dictionary);
+      }
+      NDArray[] arrays = toNDArrays(vectors, dictionary.size());
+      double[] similarities = new double[candidates.size()];
+      for(int i = 0; i < similarities.length; i++) {
+         similarities[i] = similarity(vectors, arrays, 0, i + 1);
+      }
+      return similarities;
+   }
+
    @Override
    public void fit(@NonNull DocumentCollection corpus) {
 
    }
+
+   @Override
+   public double[][] similarityMatrix(@NonNull List<? extends HString> hStrings) {
+      Map<String, Integer> dictionary = new HashMap<>();
+      SparseVector[] vectors = new SparseVector[hStrings.size()];
+      for(int i = 0; i < vectors.length; i++) {
+         vectors[i] = vectorize(hStrings.get(i), dictionary);
+      }
+      NDArray[] arrays = toNDArrays(vectors, dictionary.size());
+      double[][] matrix = new double[vectors.length][vectors.length];
+      for(int i = 0; i < vectors.length; i++) {
+         for(int j = i; j < vectors.length; j++) {
+            matrix[i][j] = matrix[j][i] = similarity(vectors, arrays, i, j);
+         }
+      }
+      return matrix;
+   }
+
+   private boolean isIntersectionBased() {
+      return measure == Similarity.Cosine;
+   }
+
+   private double similarity(SparseVector[] vectors, NDArray[] arrays, int i, int j) {
+      if(arrays != null) {
+         return measure.calculate(arrays[i], arrays[j]);
+      }
+      SparseVector first = vectors[i];
+      SparseVector second = vectors[j];
+      double dot = 0;
+      int a = 0;
+      int b = 0;
+      while(a < first.indices.length && b < second.indices.length) {
+         if(first.indices[a] < second.indices[b]) {
+            a++;
+         } else if(first.indices[a] > second.indices[b]) {
+            b++;
+         } else {
+            dot += first.values[a++] * second.values[b++];
+         }
+      }
+      double denominator = Math.sqrt(first.sumOfSquares * second.sumOfSquares);
+      return denominator == 0
+             ? 0
+             : dot / denominator;
+   }
+
+   private NDArray[] toNDArrays(SparseVector[] vectors, int dimension) {
+      if(isIntersectionBased()) {
+         return null;
+      }
+      NDArray[] arrays = new NDArray[vectors.length];
+      for(int i = 0; i < vectors.length; i++) {
+         NDArray array = NDArrayFactory.SPARSE.array(dimension);
+         for(int j = 0; j < vectors[i].indices.length; j++) {
+            array.set(vectors[i].indices[j], vectors[i].values[j]);
+         }
+         arrays[i] = array;
+      }
+      return arrays;
+   }
+
+   private SparseVector vectorize(HString hString, Map<String, Integer> dictionary) {
+      Counter<String> counts = termExtractor.extract(hString).count();
+      String[] items = counts.items().toArray(new String[0]);
+      //Pack the feature id and the position of its item so that sorting orders the features by id
+      long[] keys = new long[items.length];
+      for(int i = 0; i < items.length; i++) {
+         int id = dictionary.computeIfAbsent(items[i], f -> dictionary.size());
+         keys[i] = ((long) id << 32) | i;
+      }
+      Arrays.sort(keys);
+      int[] indices = new int[items.length];
+      double[] values = new double[items.length];
+      double sumOfSquares = 0;
+      for(int i = 0; i < keys.length; i++) {
+         indices[i] = (int) (keys[i] >>> 32);
+         values[i] = counts.get(items[(int) keys[i]]);
+         sumOfSquares += values[i] * values[i];
+      }
+      return new SparseVector(indices, values, sumOfSquares);
+   }
+
+   private static final class SparseVector {
+      private final int[] indices;
+      private final double[] values;
+      private final double sumOfSquares;
+
+      private SparseVector(int[] indices, double[] values, double sumOfSquares) {
+         this.indices = indices;
+         this.values = values;
+         this.sumOfSquares = sumOfSquares;
+      }
+   }
+
 }//END OF TokenSimilarity
@@ -0,0 +1,783 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.similarity;
+
+import com.gengoai.Validation;
+import com.gengoai.apollo.math.linalg.NDArray;
+import com.gengoai.apollo.ml.model.embedding.WordEmbedding;
+import com.gengoai.io.resource.Resource;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Value;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * <p>
+ * An approximate nearest neighbor index over vectors using a Hierarchical Navigable Small World (HNSW) graph, which
+ * answers top-k cosine similarity queries in time roughly logarithmic in the number of vectors instead of comparing
+ * the query against every vector. Each vector is assigned a random level and is linked to its closest neighbors on
+ * every level up to its own, with at most <code>m</code> links per vector on the upper levels and <code>2m</code> on
+ * the bottom level. Queries greedily descend the sparse upper levels and then perform a best-first search of width
+ * <code>efSearch</code> on the bottom level, where larger widths trade latency for recall.
+ * </p>
+ * <p>
+ * Vectors are normalized and stored as packed floats. An index can be written to a file and read back either onto the
+ * heap or with its vectors memory-mapped, in which case only the graph and labels are loaded and the index is
+ * read-only. Memory-mapped vectors are split into segments of whole vectors of at most 2GB each, so that the vectors
+ * of an index are not limited to the size of a single mapped buffer. Vectors can be added by a single thread at a time and an index can be queried by any number of threads
+ * once it is no longer being added to.
+ * </p>
+ *
+ * @author David B. Bracewell
+ */
+public final class HNSWIndex {
+   /**
+    * The file extension used for HNSW indexes
+    */
+   public static final String EXTENSION = ".hnsw";
+   private static final int MAGIC = 0x484E5357;
+   private static final int VERSION = 1;
+   private static final int HEADER_SIZE = 32;
+   private final int dimension;
+   private final int m;
+   private final int efConstruction;
+   private final double levelMultiplier;
+   private final SplittableRandom random;
+   private final Map<String, Integer> ids = new HashMap<>();
+   private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+   private float[] data;
+   private FloatBuffer[] segments;
+   private int segmentSize;
+   private String[] labels;
+   private int[][][] links;
+   private int size = 0;
+   private int entryPoint = -1;
+   private int maxLevel = -1;
+   @Getter
+   private int efSearch = 64;
+
+   /**
+    * Instantiates a new HNSWIndex.
+    *
+    * @param dimension      the dimension of the vectors
+    * @param m              the maximum number of links per vector on the upper levels (twice this on the bottom level)
+    * @param efConstruction the width of the search used to find the neighbors of a vector being added
+    * @param seed           the seed used to assign levels to vectors
+    */
+   public HNSWIndex(int dimension, int m, int efConstruction, long seed) {
+      Validation.checkArgument(dimension > 0, "Dimension must be greater than 0");
+      Validation.checkArgument(m > 1, "M must be greater than 1");
+      Validation.checkArgument(efConstruction > 0, "efConstruction must be greater than 0");
+      this.dimension = dimension;
+      this.m = m;
+      this.efConstruction = efConstruction;
+      this.levelMultiplier = 1.0 / Math.log(m);
+      this.random = new SplittableRandom(seed);
+      this.data = new float[16 * dimension];
+      this.labels = new String[16];
+      this.links = new int[16][][];
+   }
+
+   /**
+    * Builds an index over all the words in the given embedding.
+    *
+    * @param embedding      the word embedding
+    * @param m              the maximum number of links per vector on the upper levels (twice this on the bottom level)
+    * @param efConstruction the width of the search used to find the neighbors of a vector being added
+    * @return the index
+    */
+   public static HNSWIndex build(@NonNull WordEmbedding embedding, int m, int efConstruction) {
+      HNSWIndex index = new HNSWIndex(embedding.dimension(), m, efConstruction, 0);
+      for(String word : embedding.getAlphabet()) {
+         index.add(word, embedding.embed(word));
+      }
+      return index;
+   }
+
+   /**
+    * Reads an index written with {@link #write(Resource)}.
+    *
+    * @param resource  the file containing the index
+    * @param memoryMap True to memory-map the vectors, False to load them onto the heap
+    * @return the index
+    * @throws IOException Something went wrong reading the file or the file is not an HNSW index
+    */
+   public static HNSWIndex read(@NonNull Resource resource, boolean memoryMap) throws IOException {
+      return read(resource, memoryMap, Integer.MAX_VALUE);
+   }
+
+   static HNSWIndex read(Resource resource, boolean memoryMap, int maxSegmentBytes) throws IOException {
+      File file = resource.asFile().orElseThrow(() -> new IOException(resource.descriptor() + " is not a file"));
+      try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+         ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+         while(header.hasRemaining() && channel.read(header) >= 0) {
+         }
+         if(header.hasRemaining() || header.getInt(0) != MAGIC) {
+            throw new IOException(resource.descriptor() + " is not an HNSW index");
+         }
+         if(header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported HNSW index version " + header.getInt(4));
+         }
+         HNSWIndex index = new HNSWIndex(header.getInt(8), header.getInt(16), header.getInt(20), 0);
+         int size = header.getInt(12);
+         long vectorLength = (long) size * index.dimension;
+         if(memoryMap) {
+            //Each segment holds whole vectors so that no vector spans two mapped buffers
+            long vectorBytes = 4L * index.dimension;
+            Validation.checkState(vectorBytes <= maxSegmentBytes, "Vectors are too large to memory-map");
+            index.data = null;
+            index.segmentSize = (int) (maxSegmentBytes / vectorBytes);
+            index.segments = new FloatBuffer[Math.max(1, (size + index.segmentSize - 1) / index.segmentSize)];
+            for(int segment = 0; segment < index.segments.length; segment++) {
+               long first = (long) segment * index.segmentSize;
+               long count = Math.min(index.segmentSize, size - first);
+               index.segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY,
+                                                     HEADER_SIZE + first * vectorBytes,
+                                                     count * vectorBytes)
+                                                .asFloatBuffer();
+            }
+            channel.position(HEADER_SIZE + 4 * vectorLength);
+         }
+         DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+         if(!memoryMap) {
+            Validation.checkState(vectorLength <= Integer.MAX_VALUE, "Too many vectors to load onto the heap");
+            index.data = new float[(int) vectorLength];
+            for(int i = 0; i < index.data.length; i++) {
+               index.data[i] = in.readFloat();
+            }
+         }
+         index.links = new int[size][][];
+         for(int node = 0; node < size; node++) {
+            int[][] levels = new int[in.readInt() + 1][];
+            for(int level = 0; level < levels.length; level++) {
+               levels[level] = new int[index.maxConnections(level) + 1];
+               levels[level][0] = in.readInt();
+               for(int i = 1; i <= levels[level][0]; i++) {
+                  levels[level][i] = in.readInt();
+               }
+            }
+            index.links[node] = levels;
+         }
+         index.labels = new String[size];
+         for(int node = 0; node < size; node++) {
+            index.labels[node] = in.readUTF();
+            index.ids.put(index.labels[node], node);
+         }
+         index.size = size;
+         index.entryPoint = header.getInt(24);
+         index.maxLevel = header.getInt(28);
+         return index;
+      }
+   }
+
+   /**
+    * Adds a vector to the index.
+    *
+    * @param label  the label of the vector
+    * @param vector the vector
+    * @return the id of the vector in the index
+    */
+   public int add(@NonNull String label, @NonNull NDArray vector) {
+      return add(label, toFloats(vector));
+   }
+
+   /**
+    * Adds a vector to the index.
+    *
+    * @param label  the label of the vector
+    * @param vector the vector
+    * @return the id of the vector in the index
+    */
+   public synchronized int add(@NonNull String label, @NonNull float[] vector) {
+      Validation.checkState(data != null, "Memory-mapped indexes are read-only");
+      Validation.checkArgument(vector.length == dimension,
+                               "Expecting a vector of dimension " + dimension + ", but found " + vector.length);
+      Validation.checkArgument(!ids.containsKey(label), "Duplicate label: " + label);
+      final int node = size;
+      ensureCapacity(node + 1);
+      float[] query = normalize(vector);
+      System.arraycopy(query, 0, data, node * dimension, dimension);
+      labels[node] = label;
+      ids.put(label, node);
+      int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+      links[node] = new int[level + 1][];
+      for(int l = 0; l <= level; l++) {
+         links[node][l] = new int[maxConnections(l) + 1];
+      }
+      size++;
+      if(entryPoint < 0) {
+         entryPoint = node;
+         maxLevel = level;
+         return node;
+      }
+      int ep = entryPoint;
+      for(int l = maxLevel; l > level; l--) {
+         ep = greedySearch(query, ep, l);
+      }
+      for(int l = Math.min(level, maxLevel); l >= 0; l--) {
+         Heap results = search(query, ep, efConstruction, l);
+         int count = results.size;
+         int[] candidates = new int[count];
+         double[] similarities = new double[count];
+         for(int i = count - 1; i >= 0; i--) {
+            similarities[i] = results.peekKey();
+            candidates[i] = results.pop();
+         }
+         int[] list = links[node][l];
+         list[0] = selectNeighbors(candidates, similarities, count, m, list);
+         for(int i = 1; i <= list[0]; i++) {
+            connect(list[i], node, l);
+         }
+         ep = candidates[0];
+      }
+      if(level > maxLevel) {
+         maxLevel = level;
+         entryPoint = node;
+      }
+      return node;
+   }
+
+   /**
+    * Gets the dimension of the vectors in the index.
+    *
+    * @return the dimension
+    */
+   public int dimension() {
+      return dimension;
+   }
+
+   /**
+    * Measures the recall and latency of the index against an exhaustive search over the given queries, which can be
+    * used to tune the <code>efSearch</code> for a given collection of vectors.
+    *
+    * @param queries the query vectors
+    * @param k       the number of neighbors to retrieve per query
+    * @return the evaluation
+    */
+   public Evaluation evaluate(@NonNull List<float[]> queries, int k) {
+      Validation.checkArgument(queries.size() > 0, "At least one query is required");
+      long approximateTime = 0;
+      long exactTime = 0;
+      long found = 0;
+      long expected = 0;
+      for(float[] query : queries) {
+         long start = System.nanoTime();
+         List<Neighbor> approximate = query(query, k);
+         approximateTime += System.nanoTime() - start;
+         start = System.nanoTime();
+         List<Neighbor> exact = exactQuery(query, k);
+         exactTime += System.nanoTime() - start;
+         Set<String> truth = new HashSet<>();
+         exact.forEach(n -> truth.add(n.getLabel()));
+         for(Neighbor neighbor : approximate) {
+            if(truth.contains(neighbor.getLabel())) {
+               found++;
+            }
+         }
+         expected += exact.size();
+      }
+      return new Evaluation(expected == 0
+                            ? 1.0
+                            : (double) found / expected,
+                            approximateTime / 1e6 / queries.size(),
+                            exactTime / 1e6 / queries.size());
+   }
+
+   /**
+    * Finds the exact top-k most similar vectors to the given vector by comparing it against every vector in the index.
+    *
+    * @param vector the query vector
+    * @param k      the number of neighbors to retrieve
+    * @return the neighbors sorted by decreasing similarity
+    */
+   public List<Neighbor> exactQuery(@NonNull float[] vector, int k) {
+      Validation.checkArgument(vector.length == dimension,
+                               "Expecting a vector of dimension " + dimension + ", but found " + vector.length);
+      Validation.checkArgument(k > 0, "k must be greater than 0");
+      float[] query = normalize(vector);
+      Heap results = new Heap();
+      for(int node = 0; node < size; node++) {
+         double similarity = similarity(query, node);
+         if(results.size < k || similarity > results.peekKey()) {
+            results.push(similarity, node);
+            if(results.size > k) {
+               results.pop();
+            }
+         }
+      }
+      return toNeighbors(results, -1, k);
+   }
+
+   /**
+    * Determines if the index contains a vector with the given label.
+    *
+    * @param label the label
+    * @return True if the label is in the index, False otherwise
+    */
+   public boolean contains(@NonNull String label) {
+      return ids.containsKey(label);
+   }
+
+   /**
+    * Finds the approximate top-k most similar vectors to the given vector.
+    *
+    * @param vector the query vector
+    * @param k      the number of neighbors to retrieve
+    * @return the neighbors sorted by decreasing similarity
+    */
+   public List<Neighbor> query(@NonNull NDArray vector, int k) {
+      return query(toFloats(vector), k);
+   }
+
+   /**
+    * Finds the approximate top-k most similar vectors to the given vector.
+    *
+    * @param vector the query vector
+    * @param k      the number of neighbors to retrieve
+    * @return the neighbors sorted by decreasing similarity
+    */
+   public List<Neighbor> query(@NonNull float[] vector, int k) {
+      Validation.checkArgument(vector.length == dimension,
+                               "Expecting a vector of dimension " + dimension + ", but found " + vector.length);
+      return search(normalize(vector), k, -1);
+   }
+
+   /**
+    * Finds the approximate top-k most similar vectors to the vector with the given label, excluding the vector itself.
+    *
+    * @param label the label of the query vector
+    * @param k     the number of neighbors to retrieve
+    * @return the neighbors sorted by decreasing similarity or an empty list if the label is not in the index
+    */
+   public List<Neighbor> query(@NonNull String label, int k) {
+      Integer node = ids.get(label);
+      if(node == null) {
+         return Collections.emptyList();
+      }
+      float[] query = new float[dimension];
+      for(int i = 0; i < dimension; i++) {
+         query[i] = component(node, i);
+      }
+      return search(query, k, node);
+   }
+
+   /**
+    * Sets the width of the best-first search performed by queries. Queries for more than <code>efSearch</code>
+    * neighbors use a width of <code>k</code>.
+    *
+    * @param efSearch the search width
+    */
+   public void setEfSearch(int efSearch) {
+      Validation.checkArgument(efSearch > 0, "efSearch must be greater than 0");
+      this.efSearch = efSearch;
+   }
+
+   /**
+    * Gets the number of vectors in the index.
+    *
+    * @return the number of vectors
+    */
+   public int size() {
+      return size;
+   }
+
+   /**
+    * Writes the index to the given file.
+    *
+    * @param output the file to write the index to
+    * @throws IOException Something went wrong writing the index
+    */
+   public synchronized void write(@NonNull Resource output) throws IOException {
+      try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output.outputStream()))) {
+         out.writeInt(MAGIC);
+         out.writeInt(VERSION);
+         out.writeInt(dimension);
+         out.writeInt(size);
+         out.writeInt(m);
+         out.writeInt(efConstruction);
+         out.writeInt(entryPoint);
+         out.writeInt(maxLevel);
+         for(int node = 0; node < size; node++) {
+            for(int i = 0; i < dimension; i++) {
+               out.writeFloat(component(node, i));
+            }
+         }
+         for(int node = 0; node < size; node++) {
+            out.writeInt(links[node].length - 1);
+            for(int[] list : links[node]) {
+               for(int i = 0; i <= list[0]; i++) {
+                  out.writeInt(list[i]);
+               }
+            }
+         }
+         for(int node = 0; node < size; node++) {
+            out.writeUTF(labels[node]);
+         }
+      }
+   }
+
+   private void connect(int node, int neighbor, int level) {
+      int[] list = links[node][level];
+      int max = maxConnections(level);
+      if(list[0] < max) {
+         list[++list[0]] = neighbor;
+         return;
+      }
+      //The list is full, so reselect the neighbors from the existing links and the new one
+      int[] candidates = new int[max + 1];
+      double[] similarities = new double[max + 1];
+      for(int i = 0; i <= max; i++) {
+         int candidate = i < max
+                         ? list[i + 1]
+                         : neighbor;
+         double similarity = similarity(node, candidate);
+         int j = i;
+         for(; j > 0 && similarities[j - 1] < similarity; j--) {
+            candidates[j] = candidates[j - 1];
+            similarities[j] = similarities[j - 1];
+         }
+         candidates[j] = candidate;
+         similarities[j] = similarity;
+      }
+      list[0] = selectNeighbors(candidates, similarities, max + 1, max, list);
+   }
+
+   private void ensureCapacity(int capacity) {
+      if(capacity > labels.length) {
+         int newCapacity = Math.max(capacity, labels.length * 2);
+         data = Arrays.copyOf(data, newCapacity * dimension);
+         labels = Arrays.copyOf(labels, newCapacity);
+         links = Arrays.copyOf(links, newCapacity);
+      }
+   }
+
+   private int greedySearch(float[] query, int entry, int level) {
+      int current = entry;
+      double best = similarity(query, current);
+      boolean changed = true;
+      while(changed) {
+         changed = false;
+         int[] list = links[current][level];
+         for(int i = 1; i <= list[0]; i++) {
+            double similarity = similarity(query, list[i]);
+            if(similarity > best) {
+               best = similarity;
+               current = list[i];
+               changed = true;
+            }
+         }
+      }
+      return current;
+   }
+
+   private int maxConnections(int level) {
+      return level == 0
+             ? 2 * m
+             : m;
+   }
+
+   private float[] normalize(float[] vector) {
+      double norm = 0;
+      for(float v : vector) {
+         norm += v * v;
+      }
+      float[] normalized = new float[dimension];
+      if(norm > 0) {
+         norm = Math.sqrt(norm);
+         for(int i = 0; i < dimension; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+         }
+      }
+      return normalized;
+   }
+
+   private List<Neighbor> search(float[] query, int k, int exclude) {
+      Validation.checkArgument(k > 0, "k must be greater than 0");
+      if(size == 0) {
+         return Collections.emptyList();
+      }
+      int ep = entryPoint;
+      for(int l = maxLevel; l > 0; l--) {
+         ep = greedySearch(query, ep, l);
+      }
+      int n = exclude >= 0
+              ? k + 1
+              : k;
+      Heap results = search(query, ep, Math.max(n, efSearch), 0);
+      while(results.size > n) {
+         results.pop();
+      }
+      return toNeighbors(results, exclude, k);
+   }
+
+   private Heap search(float[] query, int entry, int ef, int level) {
+      Visited visited = this.visited.get();
+      visited.reset(size);
+      Heap candidates = new Heap();
+      Heap results = new Heap();
+      double similarity = similarity(query, entry);
+      visited.mark(entry);
+      //Candidates are popped most similar first by keying them on the negated similarity
+      candidates.push(-similarity, entry);
+      results.push(similarity, entry);
+      while(candidates.size > 0) {
+         if(results.size >= ef && -candidates.peekKey() < results.peekKey()) {
+            break;
+         }
+         int[] list = links[candidates.pop()][level];
+         for(int i = 1; i <= list[0]; i++) {
+            int neighbor = list[i];
+            if(visited.mark(neighbor)) {
+               similarity = similarity(query, neighbor);
+               if(results.size < ef || similarity > results.peekKey()) {
+                  candidates.push(-similarity, neighbor);
+                  results.push(similarity, neighbor);
+                  if(results.size > ef) {
+                     results.pop();
+                  }
+               }
+            }
+         }
+      }
+      return results;
+   }
+
+   /**
+    * Selects the neighbors of a vector from candidates sorted by decreasing similarity, preferring candidates that are
+    * more similar to the vector than to any already selected neighbor so that links point in diverse directions, and
+    * filling any remaining slots with the most similar of the skipped candidates.
+    */
+   private int selectNeighbors(int[] candidates, double[] similarities, int count, int max, int[] list) {
+      boolean[] selected = new boolean[count];
+      int n = 0;
+      for(int i = 0; i < count && n < max; i++) {
+         boolean diverse = true;
+         for(int j = 1; j <= n && diverse; j++) {
+            diverse = similarity(candidates[i], list[j]) <= similarities[i];
+         }
+         if(diverse) {
+            selected[i] = true;
+            list[++n] = candidates[i];
+         }
+      }
+      for(int i = 0; i < count && n < max; i++) {
+         if(!selected[i]) {
+            list[++n] = candidates[i];
+         }
+      }
+      return n;
+   }
+
+   private float component(int node, int i) {
+      if(data != null) {
+         return data[node * dimension + i];
+      }
+      return segments[node / segmentSize].get((node % segmentSize) * dimension + i);
+   }
+
+   private double similarity(float[] query, int node) {
+      double dot = 0;
+      if(data != null) {
+         final int base = node * dimension;
+         for(int i = 0; i < dimension; i++) {
+            dot += query[i] * data[base + i];
+         }
+      } else {
+         final FloatBuffer segment = segments[node / segmentSize];
+         final int base = (node % segmentSize) * dimension;
+         for(int i = 0; i < dimension; i++) {
+            dot += query[i] * segment.get(base + i);
+         }
+      }
+      return dot;
+   }
+
+   private double similarity(int first, int second) {
+      double dot = 0;
+      if(data != null) {
+         final int firstBase = first * dimension;
+         final int secondBase = second * dimension;
+         for(int i = 0; i < dimension; i++) {
+            dot += data[firstBase + i] * data[secondBase + i];
+         }
+      } else {
+         final FloatBuffer firstSegment = segments[first / segmentSize];
+         final FloatBuffer secondSegment = segments[second / segmentSize];
+         final int firstBase = (first % segmentSize) * dimension;
+         final int secondBase = (second % segmentSize) * dimension;
+         for(int i = 0; i < dimension; i++) {
+            dot += firstSegment.get(firstBase + i) * secondSegment.get(secondBase + i);
+         }
+      }
+      return dot;
+   }
+
+   private static float[] toFloats(NDArray vector) {
+      double[] values = vector.toDoubleArray();
+      float[] floats = new float[values.length];
+      for(int i = 0; i < values.length; i++) {
+         floats[i] = (float) values[i];
+      }
+      return floats;
+   }
+
+   private List<Neighbor> toNeighbors(Heap results, int exclude, int k) {
+      Neighbor[] neighbors = new Neighbor[results.size];
+      int n = neighbors.length;
+      while(results.size > 0) {
+         double similarity = results.peekKey();
+         int node = results.pop();
+         if(node != exclude) {
+            neighbors[--n] = new Neighbor(labels[node], similarity);
+         }
+      }
+      return Arrays.asList(Arrays.copyOfRange(neighbors, n, Math.min(neighbors.length, n + k)));
+   }
+
+   /**
+    * The recall and mean query latency of an index compared to an exhaustive search.
+    */
+   @Value
+   public static class Evaluation {
+      /**
+       * The fraction of the true top-k neighbors found by the index
+       */
+      double recall;
+      /**
+       * The mean latency of a query against the index in milliseconds
+       */
+      double meanLatency;
+      /**
+       * The mean latency of an exhaustive search in milliseconds
+       */
+      double exactMeanLatency;
+   }
+
+   /**
+    * A vector returned by a query along with its cosine similarity to the query vector.
+    */
+   @Value
+   public static class Neighbor {
+      /**
+       * The label of the vector
+       */
+      String label;
+      /**
+       * The cosine similarity of the vector to the query vector
+       */
+      double similarity;
+   }
+
+   /**
+    * A binary min-heap of vectors keyed on a double.
+    */
+   private static final class Heap {
+      private double[] keys = new double[16];
+      private int[] nodes = new int[16];
+      private int size = 0;
+
+      private double peekKey() {
+         return keys[0];
+      }
+
+      private int pop() {
+         int top = nodes[0];
+         size--;
+         if(size > 0) {
+            double key = keys[size];
+            int node = nodes[size];
+            int i = 0;
+            while(true) {
+               int child = 2 * i + 1;
+               if(child >= size) {
+                  break;
+               }
+               if(child + 1 < size && keys[child + 1] < keys[child]) {
+                  child++;
+               }
+               if(keys[child] >= key) {
+                  break;
+               }
+               keys[i] = keys[child];
+               nodes[i] = nodes[child];
+               i = child;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+         }
+         return top;
+      }
+
+      private void push(double key, int node) {
+         if(size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            nodes = Arrays.copyOf(nodes, size * 2);
+         }
+         int i = size++;
+         while(i > 0) {
+            int parent = (i - 1) >>> 1;
+            if(keys[parent] <= key) {
+               break;
+            }
+            keys[i] = keys[parent];
+            nodes[i] = nodes[parent];
+            i = parent;
+         }
+         keys[i] = key;
+         nodes[i] = node;
+      }
+   }
+
+   /**
+    * Per thread marks of the vectors visited by a search, which are cleared in constant time by changing the stamp.
+    */
+   private static final class Visited {
+      private int[] marks = new int[0];
+      private int stamp = 0;
+
+      private boolean mark(int node) {
+         if(marks[node] == stamp) {
+            return false;
+         }
+         marks[node] = stamp;
+         return true;
+      }
+
+      private void reset(int size) {
+         if(marks.length < size) {
+            marks = new int[Math.max(size, marks.length * 2)];
+            stamp = 0;
+         }
+         stamp++;
+         if(stamp == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+            stamp = 1;
+         }
+      }
+   }
+
+}//END OF HNSWIndex
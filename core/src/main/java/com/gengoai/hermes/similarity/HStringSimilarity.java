@@ -24,6 +24,8 @@ import com.gengoai.hermes.HString;
 import com.gengoai.hermes.corpus.DocumentCollection;
 import lombok.NonNull;
 
+import java.util.List;
+
 /**
  * Interface defining a methodology for computing the similarity between two {@link HString}.
  */
@@ -39,6 +41,37 @@ public interface HStringSimilarity {
     */
    double calculate(@NonNull HString first, @NonNull HString second);
 
+   /**
+    * Calculates the similarity between a query {@link HString} and each of the given candidates.
+    *
+    * @param query      the query HString
+    * @param candidates the candidate HStrings
+    * @return the similarity between the <code>query</code> and each candidate in the order of the candidates
+    */
+   default double[] calculate(@NonNull HString query, @NonNull List<? extends HString> candidates) {
+      double[] similarities = new double[candidates.size()];
+      for(int i = 0; i < similarities.length; i++) {
+         similarities[i] = calculate(query, candidates.get(i));
+      }
+      return similarities;
+   }
+
+   /**
+    * Calculates the similarity between every pair of the given {@link HString}, assuming the similarity is symmetric.
+    *
+    * @param hStrings the HStrings
+    * @return the matrix where the entry <code>[i][j]</code> is the similarity between the i-th and j-th HString
+    */
+   default double[][] similarityMatrix(@NonNull List<? extends HString> hStrings) {
+      double[][] matrix = new double[hStrings.size()][hStrings.size()];
+      for(int i = 0; i < matrix.length; i++) {
+         for(int j = i; j < matrix.length; j++) {
+            matrix[i][j] = matrix[j][i] = calculate(hStrings.get(i), hStrings.get(j));
+         }
+      }
+      return matrix;
+   }
+
    /**
     * In certain cases a HStringSimilarity needs to collect corpus level statistics to determine similarity. The fit
     * method allows implementations to perform this logic at a corpus level.
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.similarity;
+
+import com.gengoai.Validation;
+import lombok.NonNull;
+
+import java.io.Serializable;
+import java.util.SplittableRandom;
+
+/**
+ * <p>
+ * MinHash signatures with locality sensitive hashing (LSH) for finding sets with a high Jaccard similarity without
+ * comparing all pairs. Each of the <code>bands * rows</code> hash functions maps a set, given as the 64-bit hashes of
+ * its elements, to the minimum hash of its elements, so that two sets agree on a given signature entry with a
+ * probability equal to their Jaccard similarity. The signature is split into bands of <code>rows</code> entries and
+ * sets sharing the key of any band are candidate pairs, which makes pairs whose similarity is above roughly {@link
+ * #threshold()} likely to be candidates and those below unlikely.
+ * </p>
+ * <p>
+ * The hash functions are derived from a seed, so that instances created with the same parameters produce comparable
+ * signatures in any JVM.
+ * </p>
+ *
+ * @author David B. Bracewell
+ */
+public final class MinHashLSH implements Serializable {
+   private static final long serialVersionUID = 1L;
+   private final int bands;
+   private final int rows;
+   private final long[] multipliers;
+   private final long[] increments;
+
+   /**
+    * Instantiates a new MinHashLSH.
+    *
+    * @param bands the number of bands
+    * @param rows  the number of signature entries per band
+    * @param seed  the seed used to generate the hash functions
+    */
+   public MinHashLSH(int bands, int rows, long seed) {
+      Validation.checkArgument(bands > 0, "Number of bands must be greater than 0");
+      Validation.checkArgument(rows > 0, "Number of rows must be greater than 0");
+      this.bands = bands;
+      this.rows = rows;
+      SplittableRandom random = new SplittableRandom(seed);
+      this.multipliers = new long[bands * rows];
+      this.increments = new long[bands * rows];
+      for(int i = 0; i < multipliers.length; i++) {
+         multipliers[i] = random.nextLong() | 1L;
+         increments[i] = random.nextLong();
+      }
+   }
+
+   /**
+    * Estimates the Jaccard similarity of two sets from their signatures.
+    *
+    * @param first  the signature of the first set
+    * @param second the signature of the second set
+    * @return the estimated Jaccard similarity
+    */
+   public static double estimateJaccard(@NonNull long[] first, @NonNull long[] second) {
+      Validation.checkArgument(first.length == second.length, "Signatures must be of the same length");
+      int agree = 0;
+      for(int i = 0; i < first.length; i++) {
+         if(first[i] == second[i]) {
+            agree++;
+         }
+      }
+      return first.length == 0
+             ? 0
+             : (double) agree / first.length;
+   }
+
+   /**
+    * Creates a MinHashLSH using at most the given number of hash functions whose bands and rows are chosen so that
+    * pairs with a Jaccard similarity of at least <code>jaccard</code> are likely to be candidates, i.e. the largest
+    * {@link #threshold()} that is at most 90% of the given similarity.
+    *
+    * @param jaccard        the Jaccard similarity candidate pairs should have
+    * @param numberOfHashes the maximum number of hash functions (<code>bands * rows</code>)
+    * @param seed           the seed used to generate the hash functions
+    * @return the MinHashLSH
+    */
+   public static MinHashLSH forThreshold(double jaccard, int numberOfHashes, long seed) {
+      Validation.checkArgument(jaccard > 0 && jaccard <= 1, "Jaccard similarity must be in (0, 1]");
+      Validation.checkArgument(numberOfHashes > 0, "Number of hashes must be greater than 0");
+      int bestRows = 1;
+      double bestThreshold = -1;
+      for(int rows = 1; rows <= numberOfHashes; rows++) {
+         double threshold = Math.pow(1.0 / (numberOfHashes / rows), 1.0 / rows);
+         if(threshold <= 0.9 * jaccard && threshold > bestThreshold) {
+            bestRows = rows;
+            bestThreshold = threshold;
+         }
+      }
+      return new MinHashLSH(numberOfHashes / bestRows, bestRows, seed);
+   }
+
+   /**
+    * Hashes a String into a 64-bit element hash.
+    *
+    * @param string the string
+    * @return the hash
+    */
+   public static long hash(@NonNull CharSequence string) {
+      long hash = 0xCBF29CE484222325L;
+      for(int i = 0; i < string.length(); i++) {
+         hash = (hash ^ string.charAt(i)) * 0x100000001B3L;
+      }
+      return mix(hash);
+   }
+
+   private static long mix(long hash) {
+      hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+      hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+      return hash ^ (hash >>> 33);
+   }
+
+   /**
+    * Calculates the keys of the bands of the given signature. Two sets are candidates if they share a key at the
+    * same band index.
+    *
+    * @param signature the signature
+    * @return the band keys
+    */
+   public long[] bandKeys(@NonNull long[] signature) {
+      Validation.checkArgument(signature.length == bands * rows, "Invalid signature length");
+      long[] keys = new long[bands];
+      for(int b = 0; b < bands; b++) {
+         long key = b;
+         for(int r = 0; r < rows; r++) {
+            key = mix(key * 31 + signature[b * rows + r]);
+         }
+         keys[b] = key;
+      }
+      return keys;
+   }
+
+   /**
+    * @return the number of bands
+    */
+   public int getBands() {
+      return bands;
+   }
+
+   /**
+    * @return the number of signature entries per band
+    */
+   public int getRows() {
+      return rows;
+   }
+
+   /**
+    * Calculates the MinHash signature of the set with the given element hashes. The signature of the empty set has all
+    * entries equal to <code>Long.MAX_VALUE</code>.
+    *
+    * @param elements the 64-bit hashes of the elements in the set
+    * @param size     the number of elements to read from the array
+    * @return the signature
+    */
+   public long[] signature(@NonNull long[] elements, int size) {
+      long[] signature = new long[multipliers.length];
+      for(int i = 0; i < signature.length; i++) {
+         long min = Long.MAX_VALUE;
+         for(int e = 0; e < size; e++) {
+            min = Math.min(min, mix(elements[e] * multipliers[i] + increments[i]));
+         }
+         signature[i] = min;
+      }
+      return signature;
+   }
+
+   /**
+    * Gets the approximate Jaccard similarity at which the probability of a pair of sets becoming a candidate rises
+    * most steeply, which is <code>(1 / bands)^(1 / rows)</code>.
+    *
+    * @return the threshold
+    */
+   public double threshold() {
+      return Math.pow(1.0 / bands, 1.0 / rows);
+   }
+
+}//END OF MinHashLSH
@@ -32,7 +32,18 @@ import lombok.NonNull;
 import lombok.Setter;
 
 /**
+ * <p>
  * The type Term extraction processor.
+ * </p>
+ * <p>
+ * Terms are counted through {@link DocumentCollection#termCount(com.gengoai.hermes.extraction.Extractor)} or {@link
+ * DocumentCollection#documentCount(com.gengoai.hermes.extraction.Extractor)}, i.e. over the string form of each
+ * extraction as adjusted by the extractor's value calculator. This is not routed through {@link
+ * com.gengoai.hermes.extraction.NGramCounter} for n-gram extractors, as the counter counts tuples of per-annotation
+ * strings with trimmed annotations removed from anywhere in the n-gram and with n-grams matching the filter dropped,
+ * whereas a term is the string form of the whole n-gram span, trimmed only at its ends and kept when it matches the
+ * filter. Use {@link DocumentCollection#nGramCount(com.gengoai.hermes.extraction.NGramExtractor)} for tuple counts.
+ * </p>
  *
  * @author David B. Bracewell
  */
@@ -27,6 +27,9 @@ import com.gengoai.hermes.Document;
 import com.gengoai.hermes.Types;
 import org.junit.Test;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import static org.junit.Assert.*;
 
 /**
@@ -46,4 +49,23 @@ public class RegexAnnotatorTest {
     assertEquals(4.0, document.annotations(AnnotationType.make("PERSON")).size(), 0d);
 
   }
+
+  @Test
+  public void testSetMode() throws Exception {
+    Config.initializeTest();
+    Document document = DocumentProvider.getAnnotatedDocument();
+    AnnotationType alice = AnnotationType.make("REGEX_SET_ALICE");
+    AnnotationType rabbit = AnnotationType.make("REGEX_SET_RABBIT");
+    AnnotationType watch = AnnotationType.make("REGEX_SET_WATCH");
+    Map<String, AnnotationType> patterns = new LinkedHashMap<>();
+    patterns.put("(?i)alice", alice);
+    patterns.put("(?i)rabbit", rabbit);
+    patterns.put("(?<=a )watch", watch);
+    RegexAnnotator annotator = new RegexAnnotator(patterns);
+    annotator.annotateImpl(document);
+    assertEquals(4, document.annotations(alice).size());
+    assertEquals(5, document.annotations(rabbit).size());
+    assertEquals(2, document.annotations(watch).size());
+    assertEquals("Alice", document.annotations(alice).get(0).toString());
+  }
 }
\ No newline at end of file
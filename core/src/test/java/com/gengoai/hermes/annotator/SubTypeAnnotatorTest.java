@@ -0,0 +1,151 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.annotator;
+
+import com.gengoai.Language;
+import com.gengoai.collection.tree.Span;
+import com.gengoai.config.Config;
+import com.gengoai.hermes.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author David B. Bracewell
+ */
+public class SubTypeAnnotatorTest {
+   private static final AnnotationType PARENT = AnnotationType.make("SUB_TYPE_TEST");
+   private static final AnnotationType SUB_A = AnnotationType.make(PARENT, "SUB_TYPE_TEST_A");
+   private static final AnnotationType SUB_B = AnnotationType.make(PARENT, "SUB_TYPE_TEST_B");
+
+   private static void add(Document document, AnnotationType type, int start, int end, double confidence) {
+      document.annotationBuilder(type)
+              .bounds(Span.of(start, end))
+              .attribute(Types.CONFIDENCE, confidence)
+              .createAttached();
+   }
+
+   private static List<Annotation> annotate(Document document, AnnotationType... subTypes) {
+      new SubTypeAnnotator(PARENT, true, Arrays.asList(subTypes)).annotateImpl(document);
+      return document.annotations(PARENT);
+   }
+
+   private static Document document() {
+      Document document = Document.create("The quick brown fox jumps over the lazy dog.");
+      document.annotate(Types.TOKEN);
+      return document;
+   }
+
+   @Before
+   public void setUp() {
+      Config.initializeTest();
+      AnnotatorCache.getInstance().setAnnotator(SUB_A, Language.ENGLISH, new NoOpAnnotator(SUB_A));
+      AnnotatorCache.getInstance().setAnnotator(SUB_B, Language.ENGLISH, new NoOpAnnotator(SUB_B));
+   }
+
+   @Test
+   public void confidenceBeforeLength() {
+      Document document = document();
+      add(document, SUB_A, 4, 15, 0.9);  // quick brown
+      add(document, SUB_B, 4, 25, 0.5);  // quick brown fox jumps
+      List<Annotation> annotations = annotate(document, SUB_A, SUB_B);
+      assertEquals(1, annotations.size());
+      assertEquals("quick brown", annotations.get(0).toString());
+   }
+
+   @Test
+   public void lengthOnEqualConfidence() {
+      Document document = document();
+      add(document, SUB_A, 31, 39, 0.8); // the lazy
+      add(document, SUB_B, 31, 43, 0.8); // the lazy dog
+      List<Annotation> annotations = annotate(document, SUB_A, SUB_B);
+      assertEquals(1, annotations.size());
+      assertEquals("the lazy dog", annotations.get(0).toString());
+   }
+
+   @Test
+   public void subTypeOrderOnTie() {
+      Document document = document();
+      add(document, SUB_B, 0, 3, 1.0);
+      add(document, SUB_A, 0, 3, 1.0);
+      List<Annotation> annotations = annotate(document, SUB_A, SUB_B);
+      assertEquals(1, annotations.size());
+      assertEquals(SUB_A, annotations.get(0).getType());
+
+      document = document();
+      add(document, SUB_B, 0, 3, 1.0);
+      add(document, SUB_A, 0, 3, 1.0);
+      annotations = annotate(document, SUB_B, SUB_A);
+      assertEquals(1, annotations.size());
+      assertEquals(SUB_B, annotations.get(0).getType());
+   }
+
+   @Test
+   public void positionOnTie() {
+      Document document = document();
+      add(document, SUB_A, 4, 15, 1.0);  // quick brown
+      add(document, SUB_A, 10, 19, 1.0); // brown fox
+      List<Annotation> annotations = annotate(document, SUB_A, SUB_B);
+      assertEquals(1, annotations.size());
+      assertEquals("quick brown", annotations.get(0).toString());
+   }
+
+   @Test
+   public void onlyRemovedByKeptAnnotations() {
+      Document document = document();
+      add(document, SUB_A, 4, 15, 0.9);  // quick brown
+      add(document, SUB_B, 10, 25, 0.5); // brown fox jumps
+      add(document, SUB_A, 20, 30, 0.7); // jumps over
+      add(document, SUB_B, 35, 43, 0.1); // lazy dog
+      List<Annotation> annotations = annotate(document, SUB_A, SUB_B);
+      assertEquals(3, annotations.size());
+      assertEquals("quick brown", annotations.get(0).toString());
+      assertEquals("jumps over", annotations.get(1).toString());
+      assertEquals("lazy dog", annotations.get(2).toString());
+   }
+
+   private static class NoOpAnnotator extends Annotator {
+      private static final long serialVersionUID = 1L;
+      private final AnnotationType type;
+
+      private NoOpAnnotator(AnnotationType type) {
+         this.type = type;
+      }
+
+      @Override
+      protected void annotateImpl(Document document) {
+
+      }
+
+      @Override
+      public Set<AnnotatableType> satisfies() {
+         return Collections.singleton(type);
+      }
+   }
+
+}//END OF SubTypeAnnotatorTest
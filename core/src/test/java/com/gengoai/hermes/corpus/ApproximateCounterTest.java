@@ -0,0 +1,100 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.corpus;
+
+import com.gengoai.collection.counter.Counter;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author David B. Bracewell
+ */
+public class ApproximateCounterTest {
+
+   private static ApproximateCounter<String> zipf(int from, int to) {
+      ApproximateCounter<String> counter = new ApproximateCounter<>(10, 0.001, 0.01);
+      for(int rank = from; rank < to; rank++) {
+         counter.increment("term" + rank, 10_000 / (rank + 1));
+      }
+      return counter;
+   }
+
+   @Test
+   public void exact() {
+      ApproximateCounter<String> counter = new ApproximateCounter<>(2, 0.001, 0.01);
+      counter.increment("a", 3);
+      counter.increment("b", 2);
+      counter.increment("c", 1);
+      assertEquals(0, counter.errorBound(), 0d);
+      assertEquals(1, counter.confidence(), 0d);
+      Counter<String> top = counter.topK();
+      assertEquals(2, top.size());
+      assertEquals(3, top.get("a"), 0d);
+      assertEquals(2, top.get("b"), 0d);
+   }
+
+   @Test
+   public void sketch() {
+      ApproximateCounter<String> counter = zipf(0, 20_000);
+      assertTrue(counter.errorBound() > 0);
+      assertEquals(0.99, counter.confidence(), 0d);
+      Counter<String> top = counter.topK();
+      assertEquals(10, top.size());
+      for(int rank = 0; rank < 10; rank++) {
+         double actual = 10_000 / (rank + 1);
+         double estimate = top.get("term" + rank);
+         assertTrue(estimate >= actual);
+         assertTrue(estimate - actual <= counter.errorBound());
+      }
+   }
+
+   @Test
+   public void merge() {
+      ApproximateCounter<String> whole = zipf(0, 20_000);
+      ApproximateCounter<String> merged = zipf(0, 50).merge(zipf(50, 10_000)).merge(zipf(10_000, 20_000));
+      assertEquals(whole.total(), merged.total(), 0d);
+      assertEquals(whole.topK().items(), merged.topK().items());
+      assertEquals(whole.estimate("term0"), merged.estimate("term0"), 0d);
+   }
+
+   @Test
+   public void mergeRecall() {
+      //"global" is never among a partition's top keys, but is the most frequent key overall
+      ApproximateCounter<String> merged = new ApproximateCounter<>(10, 0.01, 0.01);
+      for(int partition = 0; partition < 100; partition++) {
+         ApproximateCounter<String> counter = new ApproximateCounter<>(10, 0.01, 0.01);
+         for(int i = 0; i < 20; i++) {
+            counter.increment("local" + partition + "_" + i, 100);
+         }
+         counter.increment("global", 60);
+         for(int i = 0; i < 200; i++) {
+            counter.increment("noise" + partition + "_" + i, 1);
+         }
+         merged.merge(counter);
+      }
+      Counter<String> top = merged.topK();
+      assertTrue(top.items().contains("global"));
+      assertTrue(top.get("global") >= 6_000);
+   }
+
+}//END OF ApproximateCounterTest
@@ -0,0 +1,85 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.corpus;
+
+import com.gengoai.collection.counter.Counter;
+import com.gengoai.collection.counter.Counters;
+import com.gengoai.tuple.Tuple;
+import org.junit.Test;
+
+import static com.gengoai.tuple.Tuples.$;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author David B. Bracewell
+ */
+public class ExternalCounterTest {
+
+   @Test
+   public void spill() {
+      Counter<String> expected = Counters.newCounter();
+      //One key per shard spills on every new key, so each shard has enough runs to be merged in multiple passes
+      try(ExternalCounter<String> counter = ExternalCounter.forStrings(16)) {
+         for(int i = 0; i < 5_000; i++) {
+            String key = Integer.toString(i % 700);
+            counter.increment(key, 1);
+            expected.increment(key);
+         }
+         assertEquals(expected, counter.counts(0));
+         assertEquals(expected.filterByValue(v -> v >= 8), counter.counts(8));
+         //Counting can continue after the counts are requested
+         counter.increment("0", 1);
+         assertEquals(9, counter.counts(8).get("0"), 0d);
+      }
+   }
+
+   @Test
+   public void longKeys() {
+      //Keys longer than the 64KB limit of writeUTF survive spilling
+      String a = "a".repeat(70_000);
+      String b = "\u00e9".repeat(40_000);
+      try(ExternalCounter<String> counter = ExternalCounter.forStrings(1)) {
+         for(int i = 0; i < 3; i++) {
+            counter.increment(a, 1);
+            counter.increment(b, 2);
+         }
+         Counter<String> counts = counter.counts(0);
+         assertEquals(2, counts.size());
+         assertEquals(3, counts.get(a), 0d);
+         assertEquals(6, counts.get(b), 0d);
+      }
+   }
+
+   @Test
+   public void tuples() {
+      try(ExternalCounter<Tuple> counter = ExternalCounter.forTuples(16)) {
+         for(int i = 0; i < 100; i++) {
+            counter.merge(Counters.newCounter($("a", "b"), $("a"), $("b", Integer.toString(i))));
+         }
+         Counter<Tuple> counts = counter.counts(2);
+         assertEquals(2, counts.size());
+         assertEquals(100, counts.get($("a", "b")), 0d);
+         assertEquals(100, counts.get($("a")), 0d);
+      }
+   }
+
+}//END OF ExternalCounterTest
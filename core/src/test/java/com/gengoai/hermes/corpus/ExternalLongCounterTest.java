@@ -0,0 +1,72 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.corpus;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author David B. Bracewell
+ */
+public class ExternalLongCounterTest {
+
+   private static Map<Long, Long> counts(ExternalLongCounter counter) {
+      Map<Long, Long> counts = new HashMap<>();
+      counter.forEach((key, count) -> assertNull(counts.put(key, count)));
+      return counts;
+   }
+
+   @Test
+   public void inMemory() {
+      try(ExternalLongCounter counter = new ExternalLongCounter(1_000)) {
+         counter.increment(0, 1);
+         counter.increment(-1, 2);
+         counter.increment(Long.MAX_VALUE, 3);
+         counter.increment(0, 4);
+         assertEquals(Map.of(0L, 5L, -1L, 2L, Long.MAX_VALUE, 3L), counts(counter));
+      }
+   }
+
+   @Test
+   public void spill() {
+      Map<Long, Long> expected = new HashMap<>();
+      //One key per shard spills on every new key, so each shard has enough runs to be merged in multiple passes
+      try(ExternalLongCounter counter = new ExternalLongCounter(16)) {
+         for(int i = 0; i < 5_000; i++) {
+            long key = (long) (i % 700) << 32 | (i % 3);
+            counter.increment(key, 1);
+            expected.merge(key, 1L, Long::sum);
+         }
+         assertEquals(expected, counts(counter));
+         //Counting can continue after the counts are requested
+         counter.increment(0, 1);
+         expected.merge(0L, 1L, Long::sum);
+         assertEquals(expected, counts(counter));
+      }
+   }
+
+}//END OF ExternalLongCounterTest
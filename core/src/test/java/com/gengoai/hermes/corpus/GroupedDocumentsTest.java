@@ -0,0 +1,113 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.corpus;
+
+import com.gengoai.collection.counter.Counter;
+import com.gengoai.config.Config;
+import com.gengoai.hermes.Document;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author David B. Bracewell
+ */
+public class GroupedDocumentsTest {
+
+   private static GroupedDocuments<String> grouped() {
+      Config.initializeTest();
+      return DocumentCollection.create(Document.create("a1", "one"),
+                                       Document.create("b1", "two two"),
+                                       Document.create("a2", "three three three"),
+                                       Document.create("c1", "four"),
+                                       Document.create("a3", "five five"),
+                                       Document.create("b2", "six"))
+                               .groupBy(document -> document.getId().substring(0, 1));
+   }
+
+   private static String residue(Document document) {
+      return Integer.toString(Integer.parseInt(document.getId().substring(1)) % 7);
+   }
+
+   private static Map<String, List<String>> groups(GroupedDocuments<String> grouped) {
+      Map<String, List<String>> groups = new HashMap<>();
+      grouped.forEachGroup((key, documents) -> {
+         List<String> ids = new ArrayList<>();
+         documents.forEach(document -> ids.add(document.getId()));
+         assertEquals(null, groups.put(key, ids));
+      });
+      return groups;
+   }
+
+   @Test
+   public void aggregations() {
+      GroupedDocuments<String> grouped = grouped();
+      Counter<String> counts = grouped.count();
+      assertEquals(3, counts.get("a"), 0d);
+      assertEquals(2, counts.get("b"), 0d);
+      assertEquals(1, counts.get("c"), 0d);
+      Counter<String> lengths = grouped.sum(document -> document.length());
+      assertEquals(3 + 17 + 9, lengths.get("a"), 0d);
+      assertEquals(List.of("a2", "a3"), grouped.topK(2, Document::length).get("a"));
+      assertEquals(List.of("b1"), grouped.topK(1, Document::length).get("b"));
+      assertEquals(6, grouped.asMultimap().size());
+   }
+
+   @Test
+   public void forEachGroup() {
+      GroupedDocuments<String> grouped = grouped();
+      Map<String, List<String>> expected = Map.of("a", List.of("a1", "a2", "a3"),
+                                                  "b", List.of("b1", "b2"),
+                                                  "c", List.of("c1"));
+      assertEquals(expected, groups(grouped));
+      Config.setProperty(DocumentCollection.GROUP_BUFFER_SIZE, "2");
+      try {
+         assertEquals(expected, groups(grouped));
+      } finally {
+         Config.setProperty(DocumentCollection.GROUP_BUFFER_SIZE, "10000");
+      }
+   }
+
+   @Test
+   public void multiPassMerge() {
+      Config.initializeTest();
+      List<Document> documents = new ArrayList<>();
+      Map<String, List<String>> expected = new HashMap<>();
+      for(int i = 0; i < 300; i++) {
+         String id = "d" + i;
+         documents.add(Document.create(id, "text " + i));
+         expected.computeIfAbsent(residue(documents.get(i)), k -> new ArrayList<>()).add(id);
+      }
+      GroupedDocuments<String> grouped = DocumentCollection.create(documents)
+                                                           .groupBy(GroupedDocumentsTest::residue);
+      //300 documents in runs of 2 gives 150 runs, which needs more than one merge pass
+      Config.setProperty(DocumentCollection.GROUP_BUFFER_SIZE, "2");
+      try {
+         assertEquals(expected, groups(grouped));
+      } finally {
+         Config.setProperty(DocumentCollection.GROUP_BUFFER_SIZE, "10000");
+      }
+   }
+
+}//END OF GroupedDocumentsTest
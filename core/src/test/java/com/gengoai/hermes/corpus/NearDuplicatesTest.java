@@ -0,0 +1,83 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.corpus;
+
+import com.gengoai.config.Config;
+import com.gengoai.hermes.Document;
+import com.gengoai.hermes.extraction.CharNGramExtractor;
+import com.gengoai.hermes.extraction.Extractor;
+import com.gengoai.tuple.Tuple2;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static com.gengoai.tuple.Tuples.$;
+import static org.junit.Assert.*;
+
+/**
+ * @author David B. Bracewell
+ */
+public class NearDuplicatesTest {
+   private static final String TEXT = "The quick brown fox jumped over the lazy dog while the farmer watched from the " +
+         "porch of the old red barn. Later that evening the fox returned to the field looking for the chickens that " +
+         "the farmer had left outside, but the dog was awake and chased the fox back into the woods.";
+
+   @Test
+   public void clusters() {
+      List<Tuple2<String, String>> pairs = List.of($("c", "d"), $("a", "b"), $("b", "c"), $("x", "y"));
+      assertEquals(List.of(Set.of("a", "b", "c", "d"), Set.of("x", "y")), ShingleSet.clusters(pairs));
+   }
+
+   @Test
+   public void candidatePairs() {
+      //Every pair of a small bucket is a candidate, so b-c is verified even when a is a near-duplicate of both
+      assertEquals(List.of($("a", "b"), $("a", "c"), $("b", "c")), ShingleSet.candidatePairs(List.of("c", "a", "b")));
+
+      //Larger buckets only pair documents with the representatives, i.e. the documents with the smallest ids
+      List<String> ids = new ArrayList<>();
+      for(int i = 0; i < ShingleSet.MAX_EXHAUSTIVE_BUCKET_SIZE + 10; i++) {
+         ids.add(String.format("d%03d", i));
+      }
+      List<Tuple2<String, String>> pairs = ShingleSet.candidatePairs(ids);
+      int representatives = ShingleSet.MAX_EXHAUSTIVE_BUCKET_SIZE;
+      assertEquals(representatives * (representatives - 1) / 2 + representatives * 10, pairs.size());
+      assertTrue(pairs.contains($("d000", "d073")));
+      assertFalse(pairs.contains($("d070", "d073")));
+   }
+
+   @Test
+   public void nearDuplicates() {
+      Config.initializeTest();
+      DocumentCollection collection = DocumentCollection.create(
+            Document.create("a", TEXT),
+            Document.create("b", TEXT.replace("lazy", "sleepy")),
+            Document.create("c", TEXT),
+            Document.create("d", "An entirely different document about the stock market and interest rates."),
+            Document.create("e", "An entirely different document about the stock market and interest rates!"));
+      Extractor shingles = new CharNGramExtractor(5);
+      assertEquals(List.of(Set.of("a", "b", "c"), Set.of("d", "e")), collection.nearDuplicates(0.8, shingles));
+      assertEquals(List.of(Set.of("a", "c")), collection.nearDuplicates(1.0, shingles));
+   }
+
+}//END OF NearDuplicatesTest
@@ -0,0 +1,90 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.extraction;
+
+import com.gengoai.collection.Lists;
+import com.gengoai.config.Config;
+import com.gengoai.hermes.Document;
+import com.gengoai.hermes.HString;
+import com.gengoai.hermes.annotator.DocumentProvider;
+import com.gengoai.hermes.extraction.lyre.LyreDSL;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * @author David B. Bracewell
+ */
+public class MultiPhaseExtractorTest {
+
+   private static void assertBatchMatchesPerItem(MultiPhaseExtractor extractor, Document document) {
+      //Trim, filter and toString evaluated one extraction at a time
+      Stream<HString> stream = extractor.createStream(document);
+      if(extractor.getTrim() != null) {
+         stream = stream.map(h -> h.trim(extractor.getTrim()));
+      }
+      if(extractor.getFilter() != null) {
+         stream = stream.filter(extractor.getFilter());
+      }
+      List<HString> expected = stream.filter(h -> !h.isEmpty()).collect(Collectors.toList());
+      assertFalse(extractor.toString(), expected.isEmpty());
+
+      Extraction extraction = extractor.extract(document);
+      List<HString> actual = Lists.asArrayList(extraction);
+      assertEquals(extractor.toString(), spans(expected), spans(actual));
+      assertEquals(extractor.toString(),
+                   expected.stream().map(extractor.getToString()::apply).collect(Collectors.toList()),
+                   Lists.asArrayList(extraction.string()));
+   }
+
+   private static List<String> spans(List<HString> hStrings) {
+      return hStrings.stream().map(h -> h.start() + ":" + h.end()).collect(Collectors.toList());
+   }
+
+   @Test
+   public void batchMatchesPerItem() {
+      Config.initializeTest();
+      Document document = DocumentProvider.getAnnotatedDocument();
+      assertBatchMatchesPerItem(NGramExtractor.builder(1, 3)
+                                              .trim(LyreDSL.isPunctuation)
+                                              .filter(LyreDSL.isContentWord)
+                                              .toLowerCase()
+                                              .build(), document);
+      assertBatchMatchesPerItem(NGramExtractor.bigrams()
+                                              .trim("isStopWord || isPunctuation")
+                                              .filter("len > 8")
+                                              .toLemma()
+                                              .build(), document);
+      assertBatchMatchesPerItem(TermExtractor.builder()
+                                             .trim(LyreDSL.isPunctuation)
+                                             .ignoreStopwords()
+                                             .toLemma()
+                                             .build(), document);
+      assertBatchMatchesPerItem(TermExtractor.builder().build(), document);
+   }
+
+}//END OF MultiPhaseExtractorTest
@@ -0,0 +1,148 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.extraction;
+
+import com.gengoai.apollo.math.statistics.measure.Association;
+import com.gengoai.apollo.math.statistics.measure.ContingencyTable;
+import com.gengoai.collection.counter.Counter;
+import com.gengoai.collection.counter.Counters;
+import com.gengoai.config.Config;
+import com.gengoai.hermes.Document;
+import com.gengoai.hermes.corpus.ExternalLongCounter;
+import com.gengoai.hermes.annotator.DocumentProvider;
+import com.gengoai.hermes.extraction.lyre.LyreDSL;
+import com.gengoai.tuple.Tuple;
+import org.junit.Test;
+
+import static com.gengoai.tuple.Tuples.$;
+import static org.junit.Assert.*;
+
+/**
+ * @author David B. Bracewell
+ */
+public class NGramCounterTest {
+
+   private static void assertSameCounts(NGramExtractor extractor, Document document) {
+      NGramCounter counter = new NGramCounter(extractor);
+      counter.count(document);
+      Counter<Tuple> expected = Counters.newCounter(extractor.extractStringTuples(document));
+      assertEquals(expected, counter.counts());
+      assertEquals(expected.size(), counter.size());
+   }
+
+   @Test
+   public void counts() {
+      Config.initializeTest();
+      Document document = DocumentProvider.getAnnotatedDocument();
+      assertSameCounts(NGramExtractor.builder(1, 3).toLowerCase().build(), document);
+      assertSameCounts(NGramExtractor.bigrams().trim(LyreDSL.isPunctuation).build(), document);
+      assertSameCounts(NGramExtractor.trigrams().filter(LyreDSL.isStopWord).build(), document);
+      //The batched trim, toString and filter match extractStringTuples, which evaluates them one item at a time
+      assertSameCounts(NGramExtractor.builder(1, 3)
+                                     .trim(LyreDSL.isPunctuation)
+                                     .filter("isStopWord || len < 3")
+                                     .toLemma()
+                                     .build(), document);
+   }
+
+   @Test
+   public void packed() {
+      Config.initializeTest();
+      Document document = DocumentProvider.getAnnotatedDocument();
+      NGramExtractor extractor = NGramExtractor.builder(1, 2)
+                                               .toLowerCase()
+                                               .trim(LyreDSL.isPunctuation)
+                                               .filter(LyreDSL.isStopWord)
+                                               .build();
+      NGramCounter expected = new NGramCounter(extractor);
+      expected.count(document);
+
+      //Spilling the packed n-grams and loading them back gives the same counts and scores as counting directly
+      NGramCounter counter = new NGramCounter(extractor);
+      long[] total = {0};
+      try(ExternalLongCounter packed = new ExternalLongCounter(16)) {
+         counter.countPacked(document, ngram -> packed.increment(ngram, 1));
+         counter.countPacked(document, ngram -> packed.increment(ngram, 1));
+         expected.count(document);
+         packed.forEach((ngram, count) -> {
+            if(!NGramCounter.isBigram(ngram)) {
+               total[0] += count;
+            }
+            counter.incrementPacked(ngram, count);
+         });
+      }
+      assertEquals(expected.counts(), counter.counts());
+      assertEquals(expected.significantBigrams(2, 0, Association.Mikolov, 5),
+                   counter.significantBigrams(2, 0, Association.Mikolov, 5, total[0]));
+
+      assertFalse(NGramCounter.isBigram(NGramCounter.pack(0)));
+      assertTrue(NGramCounter.isBigram(NGramCounter.pack(0, 0)));
+      assertEquals(1L << 32 | 2, NGramCounter.pack(0, 1));
+   }
+
+   @Test
+   public void significantBigrams() {
+      Config.initializeTest();
+      Document document = DocumentProvider.getAnnotatedDocument();
+      NGramExtractor extractor = NGramExtractor.builder(1, 2).toLowerCase().build();
+      NGramCounter counter = new NGramCounter(extractor);
+      counter.count(document);
+
+      Counter<Tuple> all = Counters.newCounter(extractor.extractStringTuples(document));
+      double total = all.filterByKey(t -> t.degree() == 1).sum();
+      Counter<Tuple> ngrams = all.filterByValue(v -> v >= 2);
+      Counter<Tuple> unigrams = ngrams.filterByKey(t -> t.degree() == 1);
+      Counter<Tuple> expected = Counters.newCounter();
+      ngrams.filterByKey(t -> t.degree() == 2).forEach((bigram, count) -> {
+         double score = Association.Mikolov.calculate(ContingencyTable.create2X2(count,
+                                                                                 unigrams.get(bigram.slice(0, 1)),
+                                                                                 unigrams.get(bigram.slice(1, 2)),
+                                                                                 total));
+         if(score >= 0) {
+            expected.set(bigram, score);
+         }
+      });
+      assertEquals(expected, counter.significantBigrams(2, 0, Association.Mikolov, Integer.MAX_VALUE));
+      Counter<Tuple> top = counter.significantBigrams(2, 0, Association.Mikolov, 3);
+      assertEquals(Math.min(3, expected.size()), top.size());
+      top.forEach((bigram, score) -> assertEquals(expected.get(bigram), score, 1e-9));
+      assertEquals(expected.topN(3).sum(), top.sum(), 1e-9);
+
+      //A counter loaded with only the frequent n-grams scores the same given the total of all unigrams
+      NGramCounter frequent = new NGramCounter(extractor);
+      ngrams.forEach((ngram, count) -> frequent.increment(ngram, count.longValue()));
+      assertEquals(expected, frequent.significantBigrams(2, 0, Association.Mikolov, Integer.MAX_VALUE, (long) total));
+   }
+
+   @Test
+   public void topN() {
+      Config.initializeTest();
+      Document document = DocumentProvider.getAnnotatedDocument();
+      NGramCounter counter = new NGramCounter(NGramExtractor.bigrams().toLowerCase().build());
+      counter.count(document);
+      counter.count(document);
+      Counter<Tuple> top = counter.topN(1);
+      assertEquals(1, top.size());
+      assertEquals(10, top.get($(",", "and")), 0d);
+   }
+
+}//END OF NGramCounterTest
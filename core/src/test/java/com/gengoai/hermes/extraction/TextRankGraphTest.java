@@ -0,0 +1,66 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.extraction;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author David B. Bracewell
+ */
+public class TextRankGraphTest {
+
+   @Test
+   public void rank() {
+      TextRankGraph graph = new TextRankGraph();
+      //A star with vertex 0 at its center and a parallel edge to vertex 3
+      graph.reset(5);
+      graph.addEdge(0, 1, 1);
+      graph.addEdge(2, 0, 1);
+      graph.addEdge(0, 3, 0.5);
+      graph.addEdge(3, 0, 0.5);
+      graph.addEdge(0, 4, 1);
+      double[] scores = graph.rank(0.85, 1000, 1e-12);
+      assertTrue(scores[0] > scores[1]);
+      for(int v = 2; v < 5; v++) {
+         assertEquals(scores[1], scores[v], 1e-9);
+      }
+      //Without dangling vertices the scores sum to the number of vertices
+      double sum = 0;
+      for(int v = 0; v < 5; v++) {
+         sum += scores[v];
+      }
+      assertEquals(5, sum, 1e-9);
+      //The center's score is the fixed point of s0 = 0.15 + 0.85 * 4 * (0.15 + 0.85 * s0 / 4)
+      assertEquals((0.15 + 0.85 * 4 * 0.15) / (1 - 0.85 * 0.85), scores[0], 1e-9);
+
+      //The buffers are reused for the next graph
+      graph.reset(3);
+      graph.addEdge(0, 1, 2);
+      scores = graph.rank(0.85, 1000, 1e-12);
+      assertEquals(scores[0], scores[1], 1e-9);
+      assertEquals(0.15, scores[2], 1e-9);
+   }
+
+}//END OF TextRankGraphTest
@@ -28,9 +28,13 @@ import com.gengoai.hermes.RelationType;
 import com.gengoai.hermes.Types;
 import com.gengoai.hermes.annotator.DocumentProvider;
 import com.gengoai.io.Resources;
+import com.gengoai.io.resource.Resource;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 
@@ -39,6 +43,59 @@ import static org.junit.Assert.*;
  */
 public class CaduceusProgramTest {
 
+   @Test
+   public void testCompiled() throws Exception {
+      Config.initializeTest();
+      Resource directory = Resources.temporaryDirectory();
+      Resource source = directory.getChild("example" + CaduceusProgram.SOURCE_EXTENSION);
+      source.write(Resources.fromClasspath("com/gengoai/hermes/extraction/caduceus/example.cg").readToString());
+      Resource compiled = CaduceusProgram.compiledLocation(source);
+      assertEquals("example" + CaduceusProgram.COMPILED_EXTENSION, compiled.baseName());
+      CaduceusProgram.compile(source, compiled);
+
+      CaduceusProgram p = CaduceusProgram.read(compiled);
+      assertEquals(3, p.getRules().size());
+      Document doc = DocumentProvider.getDocument();
+      doc.annotate(Types.TOKEN, Types.SENTENCE);
+      p.execute(doc);
+      assertEquals(9, doc.annotations(Types.ENTITY).size());
+
+      //The compiled program is used in place of an unchanged source and ignored once the source changes
+      assertEquals(3, CaduceusProgram.read(source).getRules().size());
+      source.write(source.readToString() + "\n[extra]\ntrigger: 'alice'\nannotation: capture=*\n            type=ENTITY\n");
+      assertEquals(4, CaduceusProgram.read(source).getRules().size());
+   }
+
+   @Test
+   public void testIncompatibleCompiled() throws Exception {
+      Config.initializeTest();
+      Resource directory = Resources.temporaryDirectory();
+      Resource source = directory.getChild("example" + CaduceusProgram.SOURCE_EXTENSION);
+      source.write(Resources.fromClasspath("com/gengoai/hermes/extraction/caduceus/example.cg").readToString());
+      Resource compiled = CaduceusProgram.compiledLocation(source);
+      CaduceusProgram.compile(source, compiled);
+      byte[] bytes = compiled.readBytes();
+
+      //A truncated compiled program is ignored in favor of the source
+      try(OutputStream out = compiled.outputStream()) {
+         out.write(bytes, 0, bytes.length - 16);
+      }
+      assertEquals(3, CaduceusProgram.read(source).getRules().size());
+
+      //As is a compiled program whose build fingerprint does not match, here by renaming the first recorded class
+      bytes[14]++;
+      try(OutputStream out = compiled.outputStream()) {
+         out.write(bytes);
+      }
+      assertEquals(3, CaduceusProgram.read(source).getRules().size());
+      try {
+         CaduceusProgram.read(compiled);
+         fail("Expected an IOException");
+      } catch(IOException e) {
+         //expected
+      }
+   }
+
    @Test
    public void testExecute() throws Exception {
       Config.initializeTest();
@@ -71,4 +128,40 @@ public class CaduceusProgramTest {
       assertEquals("HAS_A", entities.get(2).outgoingRelations().stream().findFirst().get().getValue());
 
    }
+
+   @Test
+   public void testParallel() throws Exception {
+      Config.initializeTest();
+      CaduceusProgram p = CaduceusProgram.read(
+         Resources.fromClasspath("com/gengoai/hermes/extraction/caduceus/example.cg"));
+      Document sequential = DocumentProvider.getDocument();
+      sequential.annotate(Types.TOKEN, Types.SENTENCE);
+      p.execute(sequential);
+      Document parallel = DocumentProvider.getDocument();
+      parallel.annotate(Types.TOKEN, Types.SENTENCE);
+      p.execute(parallel, true);
+
+      List<Annotation> expected = sequential.annotations(Types.ENTITY);
+      List<Annotation> actual = parallel.annotations(Types.ENTITY);
+      assertEquals(expected.size(), actual.size());
+      for(int i = 0; i < expected.size(); i++) {
+         assertEquals(expected.get(i).getId(), actual.get(i).getId());
+         assertEquals(expected.get(i).toString(), actual.get(i).toString());
+         assertEquals(expected.get(i).attributeMap(), actual.get(i).attributeMap());
+         assertEquals(expected.get(i).outgoingRelations(), actual.get(i).outgoingRelations());
+      }
+   }
+
+   @Test
+   public void testStages() throws Exception {
+      Config.initializeTest();
+      CaduceusProgram p = CaduceusProgram.read(
+         Resources.fromClasspath("com/gengoai/hermes/extraction/caduceus/example.cg"));
+      List<Stage> stages = Stage.partition(p.getRules());
+      assertEquals(2, stages.size());
+      assertEquals(List.of("person", "body_parts"),
+                   stages.get(0).getRules().stream().map(Rule::getName).collect(Collectors.toList()));
+      assertEquals(List.of("body_part_attributes"),
+                   stages.get(1).getRules().stream().map(Rule::getName).collect(Collectors.toList()));
+   }
 }
\ No newline at end of file
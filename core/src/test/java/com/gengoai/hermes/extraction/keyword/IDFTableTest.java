@@ -0,0 +1,98 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.extraction.keyword;
+
+import com.gengoai.collection.counter.Counter;
+import com.gengoai.collection.counter.Counters;
+import com.gengoai.config.Config;
+import com.gengoai.hermes.Document;
+import com.gengoai.hermes.Types;
+import com.gengoai.hermes.corpus.LuceneCorpus;
+import com.gengoai.io.Resources;
+import com.gengoai.io.resource.Resource;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static com.gengoai.collection.Maps.hashMapOf;
+import static com.gengoai.tuple.Tuples.$;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author David B. Bracewell
+ */
+public class IDFTableTest {
+
+   @Test
+   public void lookup() throws Exception {
+      Counter<String> df = Counters.newCounter(hashMapOf($("the", 100d),
+                                                         $("rabbit", 10d),
+                                                         $("ráb", 2d),
+                                                         $("Zebra", 1d)));
+      Resource resource = Resources.temporaryFile();
+      resource.deleteOnExit();
+      IDFTable.write(df, 100, resource);
+      IDFTable table = IDFTable.open(resource);
+      assertEquals(4, table.size());
+      assertEquals(100, table.numberOfDocuments());
+      assertEquals(0, table.idf("the"), 1e-6);
+      assertEquals(Math.log(10), table.idf("rabbit"), 1e-6);
+      assertEquals(Math.log(50), table.idf("ráb"), 1e-6);
+      assertEquals(Math.log(100), table.idf("Zebra"), 1e-6);
+      assertEquals(0, table.idf("zebra"), 0d);
+      assertEquals(0, table.idf("rabbits"), 0d);
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+         out.writeObject(table);
+      }
+      try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+         IDFTable copy = (IDFTable) in.readObject();
+         assertEquals(Math.log(10), copy.idf("rabbit"), 1e-6);
+      }
+   }
+
+   @Test
+   public void fromCorpus() throws Exception {
+      Config.initializeTest();
+      Resource directory = Resources.temporaryDirectory();
+      directory.deleteOnExit();
+      LuceneCorpus corpus = new LuceneCorpus(directory.asFile().orElseThrow());
+      for(String text : new String[]{"The rabbit ran.", "The dog slept.", "The rabbit ate."}) {
+         Document document = Document.create(text);
+         document.annotate(Types.TOKEN);
+         corpus.add(document);
+      }
+      assertEquals(3, corpus.getTokenIndexedSize());
+      Resource resource = Resources.temporaryFile();
+      resource.deleteOnExit();
+      IDFTable table = IDFTable.build(corpus, resource);
+      assertEquals(3, table.numberOfDocuments());
+      assertEquals(0, table.idf("the"), 1e-6);
+      assertEquals(Math.log(1.5), table.idf("rabbit"), 1e-6);
+      assertEquals(Math.log(3), table.idf("dog"), 1e-6);
+   }
+
+}//END OF IDFTableTest
@@ -0,0 +1,103 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.gengoai.hermes.extraction.lyre;
+
+import com.gengoai.config.Config;
+import com.gengoai.function.SerializablePredicate;
+import com.gengoai.hermes.Annotation;
+import com.gengoai.hermes.annotator.DocumentProvider;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Times evaluating Lyre expressions over the tokens of the test document through their closures and through the
+ * method handles they are lowered to. Run from the test classpath with an optional number of iterations, e.g.
+ * </p>
+ * <pre>
+ *    java com.gengoai.hermes.extraction.lyre.LyreBenchmark 20000
+ * </pre>
+ * <p>
+ * Each expression is warmed up on both paths before being timed. The patterns have no repeated sub-expressions, so
+ * that the closures of the expression can be evaluated directly.
+ * </p>
+ *
+ * @author David B. Bracewell
+ */
+public class LyreBenchmark {
+   /**
+    * The predicate and numeric patterns that are timed
+    */
+   static final List<String> PATTERNS = List.of("isContentWord && (len + 1) > 3",
+                                                "/^[a-z]+$/ || isDigit",
+                                                "!isPunctuation ^ len > 4",
+                                                "len + 1",
+                                                "len(@TOKEN) > 3 && isDigit",
+                                                "!(isDigit || isPunctuation) && len >= 2",
+                                                "(len + 2) < 10 || isUpper");
+
+   public static void main(String[] args) {
+      Config.initializeTest();
+      Config.loadPackageConfig("com.gengoai.hermes");
+      final int iterations = args.length > 0
+                             ? Integer.parseInt(args[0])
+                             : 10_000;
+      final Annotation[] tokens = DocumentProvider.getAnnotatedDocument().tokens().toArray(new Annotation[0]);
+      System.out.printf("%-45s %15s %15s%n", "pattern", "closure ns/op", "handle ns/op");
+      for(String pattern : PATTERNS) {
+         LyreExpression expression = LyreExpression.parse(pattern);
+         time(expression, tokens, iterations, true);
+         time(expression, tokens, iterations, false);
+         double closure = time(expression, tokens, iterations, true);
+         double handle = time(expression, tokens, iterations, false);
+         System.out.printf("%-45s %15.1f %15.1f%n", pattern, closure, handle);
+      }
+   }
+
+   private static double time(LyreExpression expression, Annotation[] tokens, int iterations, boolean closure) {
+      final SerializablePredicate<Object> predicate = expression.asPredicate();
+      final LyreExpression.NumericFunction numeric = expression.asNumeric();
+      final boolean isNumeric = expression.isCompiledNumeric();
+      double sink = 0;
+      long start = System.nanoTime();
+      for(int i = 0; i < iterations; i++) {
+         for(Annotation token : tokens) {
+            if(isNumeric) {
+               sink += closure
+                       ? numeric.applyAsDouble(token)
+                       : expression.applyAsDouble(token);
+            } else if(closure
+                      ? predicate.test(token)
+                      : expression.testObject(token)) {
+               sink++;
+            }
+         }
+      }
+      long elapsed = System.nanoTime() - start;
+      if(sink == Double.MIN_VALUE) {
+         System.out.println(sink);
+      }
+      return (double) elapsed / ((long) iterations * tokens.length);
+   }
+
+}//END OF LyreBenchmark
@@ -142,6 +142,45 @@ public class LyreExpressionTest {
                       : 0.0);
    }
 
+   @Test
+   public void batch() {
+      List<Annotation> tokens = document.tokens();
+      for(String pattern : List.of("isContentWord && (len + 1) > 3",
+                                   "/^[a-z]+$/ || isDigit",
+                                   "!isPunctuation ^ len > 4",
+                                   "lower(@TOKEN) = 'alice' || lower(@TOKEN) = 'the'",
+                                   "lower",
+                                   "len + 1")) {
+         LyreExpression expression = LyreExpression.parse(pattern);
+         List<Object> values = expression.applyAll(tokens);
+         BitSet bits = expression.testAll(tokens);
+         double[] doubles = expression.applyAllAsDouble(tokens);
+         assertEquals(tokens.size(), values.size());
+         for(int i = 0; i < tokens.size(); i++) {
+            assertEquals(pattern, expression.applyAsObject(tokens.get(i)), values.get(i));
+            assertEquals(pattern, expression.test(tokens.get(i)), bits.get(i));
+            assertEquals(pattern, expression.applyAsDouble(tokens.get(i)), doubles[i], 0.0);
+         }
+      }
+      assertTrue(LyreExpression.parse("isDigit").testAll(Collections.emptyList()).isEmpty());
+   }
+
+   @Test
+   public void compiled() {
+      LyreExpression numeric = LyreExpression.parse("len + 1");
+      assertTrue(numeric.isCompiledNumeric());
+      LyreExpression predicate = LyreExpression.parse("isContentWord && (len + 1) > 3");
+      assertTrue(predicate.isCompiledPredicate());
+      assertFalse(LyreExpression.parse("lower").isCompiledPredicate());
+      for(Annotation token : document.tokens()) {
+         assertEquals(token.length() + 1.0, numeric.applyAsDouble(token), 0.0);
+         assertEquals(token.length() + 1.0, numeric.applyAsObject(token));
+         boolean expected = StopWords.isContentWord().test(token) && token.length() + 1 > 3;
+         assertEquals(expected, predicate.test(token));
+         assertEquals(expected, predicate.applyAsObject(token));
+      }
+   }
+
    @Test
    public void concatenation() {
       testLambda(LyreExpression.parse("$_ + 'ss'"),
@@ -482,6 +521,33 @@ public class LyreExpressionTest {
                  h -> Double.NaN);
    }
 
+   @Test
+   public void lowered() {
+      assertTrue(LyreExpression.parse("isContentWord && (len + 1) > 3").explain().contains("lowered"));
+      assertNull(LyreExpression.parse("lower").lowered());
+      List<String> patterns = new ArrayList<>(LyreBenchmark.PATTERNS);
+      //Shared sub-expressions are scoped to a single evaluation of the lowered expression
+      patterns.add("lower(@TOKEN) = 'alice' || lower(@TOKEN) = 'the'");
+      for(String pattern : patterns) {
+         LyreExpression expression = LyreExpression.parse(pattern);
+         assertNotNull(pattern, expression.lowered());
+         for(Annotation token : document.tokens()) {
+            //applyAsObject always evaluates the closures
+            Object expected = expression.applyAsObject(token);
+            if(expression.isCompiledNumeric()) {
+               double value = ((Number) expected).doubleValue();
+               assertEquals(pattern, value, expression.applyAsDouble(token), 0.0);
+               assertEquals(pattern, Double.isFinite(value), expression.test(token));
+            } else {
+               assertEquals(pattern, expected, expression.test(token));
+               assertEquals(pattern, (Boolean) expected
+                                     ? 1.0
+                                     : 0.0, expression.applyAsDouble(token), 0.0);
+            }
+         }
+      }
+   }
+
    @Test
    public void nan() {
       testLambda(LyreExpression.parse("NaN"),
@@ -570,6 +636,26 @@ public class LyreExpressionTest {
                  h -> 1.0);
    }
 
+   @Test
+   public void optimizer() {
+      LyreExpression folded = LyreExpression.parse("lower('ABC') + 'd'");
+      assertTrue(folded.isConstant());
+      assertEquals("abcd", folded.applyAsString(null));
+      assertTrue(LyreExpression.parse("1 + 2 > 2").isConstant());
+      assertTrue(LyreExpression.parse("false && isDigit").isConstant());
+      assertFalse(LyreExpression.parse("false && isDigit").test(null));
+
+      String[] plan = LyreExpression.parse("len(@TOKEN) > 3 && isDigit").explain().split("\n");
+      assertTrue(plan[1].trim().startsWith("isDigit"));
+
+      LyreExpression shared = LyreExpression.parse("lower(@TOKEN) = 'alice' || lower(@TOKEN) = 'the'");
+      assertTrue(shared.explain().contains("shared"));
+      for(Annotation token : document.tokens()) {
+         assertEquals(token.toLowerCase().equals("alice") || token.toLowerCase().equals("the"),
+                      shared.test(token));
+      }
+   }
+
    @Test
    public void pos() {
       final Document pos = Document.create("I am a test.");
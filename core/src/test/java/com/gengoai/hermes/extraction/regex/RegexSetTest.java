@@ -0,0 +1,128 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.extraction.regex;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author David B. Bracewell
+ */
+public class RegexSetTest {
+   //Patterns for which leftmost-longest and java.util.regex's leftmost-first semantics agree
+   private static final String[] PATTERNS = {
+         "a*", "b?", "\\d+", "\\w+", "ab", "(ab)+", "[ab]*1", "a+b", "ba*", "a{2,3}", "[^a ]+", "\\s+",
+         "(?i)AB", "colou?r", "\\bab\\b", "[a1]+\\b", "\\b1", "^a+", "^\\w*", "^", "\\d+$", "x?$", "a*$", "$"
+   };
+
+   private static List<List<String>> find(RegexSet set, String text) {
+      List<List<String>> matches = new ArrayList<>();
+      for(int i = 0; i < set.size(); i++) {
+         matches.add(new ArrayList<>());
+      }
+      set.find(text, (pattern, start, end) -> matches.get(pattern).add(start + "-" + end));
+      return matches;
+   }
+
+   private static List<String> javaFind(String pattern, String text) {
+      List<String> matches = new ArrayList<>();
+      Matcher matcher = Pattern.compile(pattern).matcher(text);
+      while(matcher.find()) {
+         matches.add(matcher.start() + "-" + matcher.end());
+      }
+      return matches;
+   }
+
+   @Test
+   public void deterministic() {
+      RegexSet set = RegexSet.compile(PATTERNS);
+      for(int i = 0; i < set.size(); i++) {
+         assertTrue(set.pattern(i), set.isDeterministic(i));
+      }
+      set = RegexSet.compile("(?<=a)b", "a+?", "a|^b", "(?m)^a");
+      for(int i = 0; i < set.size(); i++) {
+         assertFalse(set.pattern(i), set.isDeterministic(i));
+      }
+   }
+
+   @Test
+   public void emptyMatches() {
+      RegexSet set = RegexSet.compile("a*", "^", "$");
+      List<List<String>> matches = find(set, "baaa");
+      assertEquals(Arrays.asList("0-0", "1-4", "4-4"), matches.get(0));
+      assertEquals(Arrays.asList("0-0"), matches.get(1));
+      assertEquals(Arrays.asList("4-4"), matches.get(2));
+      matches = find(set, "");
+      assertEquals(Arrays.asList("0-0"), matches.get(0));
+      assertEquals(Arrays.asList("0-0"), matches.get(1));
+      assertEquals(Arrays.asList("0-0"), matches.get(2));
+   }
+
+   @Test
+   public void leftmostLongest() {
+      RegexSet set = RegexSet.compile("a|ab", "a[^z]*z|ab");
+      List<List<String>> matches = find(set, "ab ab z ab");
+      assertEquals(Arrays.asList("0-2", "3-5", "8-10"), matches.get(0));
+      assertEquals(Arrays.asList("0-7", "8-10"), matches.get(1));
+      matches = find(set, "ab ab ab");
+      assertEquals(Arrays.asList("0-2", "3-5", "6-8"), matches.get(1));
+   }
+
+   @Test
+   public void anchors() {
+      RegexSet set = RegexSet.compile("^\\w+", "\\w+$", "^$");
+      assertEquals(Arrays.asList("0-3"), find(set, "abc def").get(0));
+      assertEquals(Arrays.asList("4-7"), find(set, "abc def").get(1));
+      assertEquals(Arrays.asList("4-7"), find(set, "abc def\n").get(1));
+      assertEquals(Arrays.asList("4-7"), find(set, "abc def\r\n").get(1));
+      assertEquals(Arrays.asList(), find(set, "abc def\n\n").get(1));
+      assertEquals(Arrays.asList("0-0"), find(set, "\n").get(2));
+   }
+
+   @Test
+   public void matchesJava() {
+      RegexSet set = RegexSet.compile(PATTERNS);
+      String alphabet = "ab1 \n\rAx";
+      Random random = new Random(42);
+      for(int trial = 0; trial < 5_000; trial++) {
+         StringBuilder builder = new StringBuilder();
+         int length = random.nextInt(30);
+         for(int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+         }
+         String text = builder.toString();
+         List<List<String>> matches = find(set, text);
+         for(int i = 0; i < PATTERNS.length; i++) {
+            assertEquals(PATTERNS[i] + " on '" + text + "'", javaFind(PATTERNS[i], text), matches.get(i));
+         }
+      }
+   }
+
+}//END OF RegexSetTest
@@ -30,6 +30,9 @@ import com.gengoai.hermes.morphology.PartOfSpeech;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.*;
 
 /**
@@ -149,6 +152,38 @@ public class TokenRegexTest {
       assertFalse(matcher.find());
    }
 
+   @Test
+   public void testDeterministic() throws Exception {
+      TokenMatcher matcher = TokenRegex.compile("#NOUN #VERB+ #NOUN? #ADPOSITION?").matcher(document);
+      assertTrue(matcher.find());
+      assertEquals("John met Sally by", matcher.group().toString());
+      assertFalse(matcher.find());
+
+      matcher = TokenRegex.compile("(#DETERMINER | #ADPOSITION){1,3} #NOUN").matcher(document);
+      assertTrue(matcher.find());
+      assertEquals("by the seashore", matcher.group().toString());
+      assertFalse(matcher.find());
+
+      matcher = TokenRegex.compile("(^#NOUN)+ #NOUN").matcher(document);
+      assertTrue(matcher.find());
+      assertEquals("met Sally", matcher.group().toString());
+      assertTrue(matcher.find());
+      assertEquals("by the seashore", matcher.group().toString());
+      assertTrue(matcher.find());
+      assertEquals("at 12:30pm yesterday", matcher.group().toString());
+      assertFalse(matcher.find());
+
+      //More than 64 distinct predicates, where predicates repeated across patterns are only counted once
+      List<String> patterns = new ArrayList<>();
+      for(int i = 0; i < 100; i++) {
+         patterns.add("'word" + i + "' | #NOUN #VERB");
+      }
+      patterns.add("'John' | 'Sally'");
+      TokenRegexSet set = TokenRegexSet.compile(patterns);
+      assertTrue(set.isDeterministic());
+      assertSetMatches(set);
+   }
+
    @Test
    public void testGroups() throws Exception {
       TokenMatcher matcher = TokenRegex.compile("(?<PERSON> #NOUN+) (?<ACTION> #VERB+) (?<PERSON> #NOUN+)").matcher(
@@ -288,6 +323,20 @@ public class TokenRegexTest {
 
    }
 
+   @Test
+   public void testPrefilter() throws Exception {
+      TokenRegex regex = TokenRegex.compile("'met' ('Sally' | @ENTITY)");
+      assertEquals(2, regex.getPrefilter().getClauses().size());
+      assertTrue(regex.getPrefilter().test(document));
+
+      regex = TokenRegex.compile("#NOUN 'acquired'");
+      assertFalse(regex.getPrefilter().test(document));
+      assertFalse(regex.matcher(document).find());
+
+      assertTrue(TokenRegex.compile("#NOUN+ 'acquired'?").getPrefilter().isEmpty());
+      assertTrue(TokenRegex.compile("'acquired' | #NOUN").getPrefilter().isEmpty());
+   }
+
    @Test
    public void testRelations() throws Exception {
       TokenMatcher matcher = TokenRegex.compile("@>{'nsubj'}").matcher(document);
@@ -327,6 +376,33 @@ public class TokenRegexTest {
       assertEquals("by", matcher.group().toString());
    }
 
+   @Test
+   public void testSet() throws Exception {
+      TokenRegexSet set = TokenRegexSet.compile("#NOUN+", "'John' | 'Sally'", "(^#NOUN)+ #NOUN", "#NOUN{1,2}");
+      assertTrue(set.isDeterministic());
+      assertSetMatches(set);
+
+      set = TokenRegexSet.compile("@ENTITY", "#NOUN+", "(?<PERSON> #NOUN+) (?<ACTION> #VERB+)", "@ENTITY");
+      assertFalse(set.isDeterministic());
+      assertSetMatches(set);
+   }
+
+   private void assertSetMatches(TokenRegexSet set) {
+      List<List<String>> expected = new ArrayList<>();
+      List<List<String>> actual = new ArrayList<>();
+      for(int i = 0; i < set.size(); i++) {
+         List<String> matches = new ArrayList<>();
+         TokenMatcher matcher = set.pattern(i).matcher(document);
+         while(matcher.find()) {
+            matches.add(matcher.group().toString());
+         }
+         expected.add(matches);
+         actual.add(new ArrayList<>());
+      }
+      set.find(document, (pattern, match) -> actual.get(pattern).add(match.group().toString()));
+      assertEquals(expected, actual);
+   }
+
    @Test
    public void testTagMatch() throws Exception {
       TokenMatcher matcher = TokenRegex.compile("#NOUN+ #VERB+ #NOUN+").matcher(document);
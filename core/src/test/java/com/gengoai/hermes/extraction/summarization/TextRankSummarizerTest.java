@@ -0,0 +1,164 @@
+/*
+ * (c) 2005 David B. Bracewell
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+
+package com.gengoai.hermes.extraction.summarization;
+
+import com.gengoai.config.Config;
+import com.gengoai.hermes.Annotation;
+import com.gengoai.hermes.Document;
+import com.gengoai.hermes.HString;
+import com.gengoai.hermes.Types;
+import com.gengoai.hermes.corpus.DocumentCollection;
+import com.gengoai.hermes.extraction.Extraction;
+import com.gengoai.hermes.morphology.StopWords;
+import com.gengoai.hermes.similarity.HStringSimilarity;
+import lombok.NonNull;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author David B. Bracewell
+ */
+public class TextRankSummarizerTest {
+   private static final String TEXT = "The cat chased the mouse across the kitchen floor. " +
+         "The mouse escaped into a small hole in the kitchen wall. " +
+         "Stock markets fell sharply after the bank raised interest rates. " +
+         "The cat waited patiently beside the hole for the mouse. " +
+         "Investors worried that higher interest rates would slow growth. " +
+         "Rain fell all afternoon. " +
+         "The kitchen was quiet while the cat slept.";
+
+   private static Document document() {
+      Config.initializeTest();
+      Document document = Document.create(TEXT);
+      document.annotate(Types.TOKEN, Types.SENTENCE);
+      return document;
+   }
+
+   private static List<String> summarize(TextRankSummarizer summarizer, Document document) {
+      List<String> summary = new ArrayList<>();
+      summarizer.extract(document).string().forEach(summary::add);
+      return summary;
+   }
+
+   @Test
+   public void sharedTerms() {
+      Document document = document();
+      List<Annotation> sentences = document.sentences();
+      OverlapSimilarity similarity = new OverlapSimilarity();
+      TextRankSummarizer all = new TextRankSummarizer();
+      all.setSimilarityMeasure(similarity);
+      TextRankSummarizer shared = new TextRankSummarizer();
+      shared.setSimilarityMeasure(similarity);
+      shared.setCandidatePairs(TextRankSummarizer.CandidatePairs.SHARED_TERMS);
+
+      //Pairs sharing no content word have zero similarity, so both build the same graph
+      for(int n = 1; n < sentences.size(); n++) {
+         all.setNumberOfSentences(n);
+         shared.setNumberOfSentences(n);
+         assertEquals(summarize(all, document), summarize(shared, document));
+      }
+
+      //Only the pairs sharing a content word are scored, each once
+      Set<String> expected = new HashSet<>();
+      for(Annotation first : sentences) {
+         for(Annotation second : sentences) {
+            int i = first.attribute(Types.INDEX);
+            int j = second.attribute(Types.INDEX);
+            Set<String> common = OverlapSimilarity.terms(first);
+            common.retainAll(OverlapSimilarity.terms(second));
+            if(i < j && !common.isEmpty()) {
+               expected.add(i + "-" + j);
+            }
+         }
+      }
+      assertFalse(expected.isEmpty());
+      assertTrue(expected.size() < sentences.size() * (sentences.size() - 1) / 2);
+      similarity.calls.clear();
+      summarize(shared, document);
+      assertEquals(expected, similarity.calls.keySet());
+      similarity.calls.values().forEach(count -> assertEquals(1, count.intValue()));
+   }
+
+   @Test
+   public void minHash() {
+      Document document = document();
+      OverlapSimilarity similarity = new OverlapSimilarity();
+      TextRankSummarizer summarizer = new TextRankSummarizer();
+      summarizer.setSimilarityMeasure(similarity);
+      summarizer.setCandidatePairs(TextRankSummarizer.CandidatePairs.MINHASH);
+      summarizer.setLshBands(32);
+      summarizer.setLshRows(1);
+      summarizer.setNumberOfSentences(3);
+      Extraction extraction = summarizer.extract(document);
+
+      //The summary is made of distinct sentences of the document in document order
+      assertEquals(3, extraction.size());
+      List<Integer> indices = new ArrayList<>();
+      for(HString sentence : extraction) {
+         assertTrue(document.sentences().contains(sentence));
+         indices.add(sentence.attribute(Types.INDEX));
+      }
+      assertEquals(indices.stream().distinct().sorted().collect(Collectors.toList()), indices);
+
+      assertFalse(similarity.calls.isEmpty());
+      similarity.calls.values().forEach(count -> assertEquals(1, count.intValue()));
+   }
+
+   /**
+    * Jaccard similarity of the content word lemmas of two sentences, recording the pairs of sentences scored.
+    */
+   private static class OverlapSimilarity implements HStringSimilarity {
+      private final Map<String, Integer> calls = new HashMap<>();
+
+      private static Set<String> terms(HString hString) {
+         return hString.tokenStream()
+                       .filter(StopWords.isContentWord())
+                       .map(HString::getLemma)
+                       .collect(Collectors.toSet());
+      }
+
+      @Override
+      public double calculate(@NonNull HString first, @NonNull HString second) {
+         int i = first.attribute(Types.INDEX);
+         int j = second.attribute(Types.INDEX);
+         calls.merge(Math.min(i, j) + "-" + Math.max(i, j), 1, Integer::sum);
+         Set<String> a = terms(first);
+         Set<String> b = terms(second);
+         Set<String> union = new HashSet<>(a);
+         union.addAll(b);
+         if(union.isEmpty()) {
+            return 0;
+         }
+         a.retainAll(b);
+         return (double) a.size() / union.size();
+      }
+
+      @Override
+      public void fit(@NonNull DocumentCollection corpus) {
+
+      }
+   }
+
+}//END OF TextRankSummarizerTest
@@ -0,0 +1,48 @@
+package com.gengoai.hermes.lexicon;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.gengoai.collection.Maps.hashMapOf;
+import static com.gengoai.tuple.Tuples.$;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author David B. Bracewell
+ */
+public class LevenshteinAutomatonTest {
+
+   @Test
+   public void distance() {
+      LevenshteinAutomaton automaton = new LevenshteinAutomaton("kitten", 2);
+      assertEquals(0, automaton.distance("kitten"));
+      assertEquals(1, automaton.distance("sitten"));
+      assertEquals(1, automaton.distance("kittens"));
+      assertEquals(1, automaton.distance("kiten"));
+      assertEquals(2, automaton.distance("sittin"));
+      assertEquals(-1, automaton.distance("sitting"));
+      assertEquals(-1, automaton.distance(""));
+   }
+
+   @Test
+   public void suggest() {
+      String[] words = LevenshteinAutomaton.sortedWords(new TrieWordList(List.of("bark",
+                                                                                  "barking",
+                                                                                  "bar",
+                                                                                  "dark",
+                                                                                  "park",
+                                                                                  "parks",
+                                                                                  "test")));
+      Map<String, Integer> expected = hashMapOf($("bark", 0),
+                                                $("bar", 1),
+                                                $("dark", 1),
+                                                $("park", 1),
+                                                $("parks", 2));
+      assertEquals(expected, new LevenshteinAutomaton("bark", 2).suggest(words));
+      assertEquals(hashMapOf($("bark", 1), $("dark", 1), $("park", 0), $("parks", 1)),
+                   new TrieWordList(List.of("bark", "dark", "park", "parks", "test")).suggest("park", 1));
+   }
+
+}//END OF LevenshteinAutomatonTest
@@ -0,0 +1,179 @@
+package com.gengoai.hermes.lexicon;
+
+import com.gengoai.config.Config;
+import com.gengoai.hermes.Annotation;
+import com.gengoai.hermes.Document;
+import com.gengoai.hermes.HString;
+import com.gengoai.hermes.Types;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author David B. Bracewell
+ */
+public class ViterbiDecoderTest {
+
+   private static Annotation[] tokens(String content) {
+      Config.initializeTest();
+      Document document = Document.create(content);
+      document.annotate(Types.TOKEN);
+      return document.tokens().toArray(new Annotation[0]);
+   }
+
+   private static List<String> decode(Annotation[] tokens, int maxSpanSize, SpanScorer scorer) {
+      List<String> spans = new ArrayList<>();
+      ViterbiDecoder.decode(tokens, maxSpanSize, 0d, scorer, Double::sum,
+                            (start, end, entry) -> spans.add(start + ":" + end));
+      Collections.reverse(spans);
+      return spans;
+   }
+
+   private static SpanScorer scorer(Map<String, Double> scores) {
+      return (tokens, start, end) -> {
+         Double score = scores.get(start + ":" + end);
+         return score == null
+                ? LexiconEntry.empty()
+                : LexiconEntry.of(start + ":" + end, score, end - start);
+      };
+   }
+
+   private static TrieLexicon lexicon() {
+      TrieLexicon lexicon = new TrieLexicon("TEST", true);
+      lexicon.add(LexiconEntry.of("test", 1));
+      lexicon.add(LexiconEntry.of("testing", 0.8, "TEST", 1));
+      lexicon.add(LexiconEntry.of("bark", 0.8, 1));
+      lexicon.add(LexiconEntry.of("barking", "TEST", 1));
+      lexicon.add(LexiconEntry.of("barking skills", "TEST", 2));
+      lexicon.add(LexiconEntry.of("the dog", 0.4, 2));
+      lexicon.add(LexiconEntry.of("dog", 0.3, 1));
+      lexicon.add(LexiconEntry.of("the", 0.1, 1));
+      return lexicon;
+   }
+
+   /**
+    * The segmentation performed by Lexicon.viterbi before it used the decoder.
+    */
+   private static List<String> referenceViterbi(Lexicon lexicon, HString source) {
+      List<Annotation> tokens = source.tokens();
+      int n = tokens.size();
+      int maxLen = lexicon.getMaxLemmaLength() + 1;
+      LexiconMatch[] matches = new LexiconMatch[n + 1];
+      double[] best = new double[n + 1];
+      best[0] = 0;
+      for(int end = 1; end <= n; end++) {
+         matches[end] = new LexiconMatch(tokens.get(end - 1), 0d, "", null);
+         for(int start = end - 1; start >= 0; start--) {
+            HString span = HString.union(tokens.subList(start, end));
+            if(span.length() > maxLen) {
+               break;
+            }
+            LexiconEntry entry = lexicon.match(span).stream().findFirst().orElse(LexiconEntry.empty());
+            LexiconMatch score = new LexiconMatch(span, entry.getProbability(), entry.getLemma(), entry.getTag());
+            double segmentScore = score.getScore() + best[start];
+            if(segmentScore >= best[end]) {
+               best[end] = segmentScore;
+               matches[end] = score;
+            }
+         }
+      }
+      List<String> results = new LinkedList<>();
+      for(int i = n; i > 0; i -= matches[i].getSpan().tokenLength()) {
+         LexiconMatch match = matches[i];
+         if(match.getScore() > 0) {
+            results.add(describe(match.getSpan(), match.getScore()));
+         }
+      }
+      Collections.reverse(results);
+      return results;
+   }
+
+   private static String describe(HString span, double score) {
+      return span.start() + ":" + span.end() + ":" + span + ":" + score;
+   }
+
+   @Test
+   public void bufferReuse() {
+      //Longer than the initial buffers so that they grow before being reused for a shorter input
+      StringBuilder content = new StringBuilder();
+      for(int i = 0; i < 100; i++) {
+         content.append("word").append(i).append(' ');
+      }
+      Annotation[] longTokens = tokens(content.toString().trim());
+      assertEquals(100, longTokens.length);
+      Map<String, Double> longScores = new HashMap<>();
+      for(int i = 0; i + 2 <= 100; i += 2) {
+         longScores.put(i + ":" + (i + 2), 1d);
+      }
+      List<String> longSpans = decode(longTokens, 0, scorer(longScores));
+      assertEquals(50, longSpans.size());
+      assertEquals("0:2", longSpans.get(0));
+      assertEquals("98:100", longSpans.get(49));
+
+      Annotation[] shortTokens = tokens("a b c");
+      assertEquals(List.of("0:1", "1:3"), decode(shortTokens, 0, scorer(Map.of("0:1", 1d, "1:3", 1d))));
+      //Nothing scores, so every token is its own span and nothing is left over from the earlier calls
+      assertEquals(List.of("0:1", "1:2", "2:3"), decode(shortTokens, 0, scorer(Map.of())));
+   }
+
+   @Test
+   public void emptyInput() {
+      List<String> calls = new ArrayList<>();
+      ViterbiDecoder.decode(new Annotation[0], 0, 0d, (tokens, start, end) -> {
+         calls.add(start + ":" + end);
+         return LexiconEntry.empty();
+      }, Double::sum, (start, end, entry) -> calls.add(start + ":" + end));
+      assertTrue(calls.isEmpty());
+   }
+
+   @Test
+   public void equalScores() {
+      Annotation[] tokens = tokens("a b c");
+      //0:1 + 1:2 and 0:2 have the same score, so the longer span wins
+      assertEquals(List.of("0:2", "2:3"),
+                   decode(tokens, 0, scorer(Map.of("0:1", 0.5, "1:2", 0.5, "0:2", 1d, "2:3", 1d))));
+      assertEquals(List.of("0:3"),
+                   decode(tokens, 0, scorer(Map.of("0:1", 1d, "1:2", 1d, "2:3", 1d, "0:3", 3d))));
+   }
+
+   @Test
+   public void matchesReferenceViterbi() {
+      Config.initializeTest();
+      TrieLexicon lexicon = lexicon();
+      assertTrue(lexicon.isProbabilistic());
+      for(String content : List.of("The dog was testing his barking skills on the wall.",
+                                   "the dog barking skills the dog",
+                                   "testing test bark barking",
+                                   "nothing here matches",
+                                   "")) {
+         Document document = Document.create(content);
+         document.annotate(Types.TOKEN);
+         List<String> actual = new ArrayList<>();
+         for(HString match : lexicon.extract(document)) {
+            actual.add(describe(match, match.attribute(Types.CONFIDENCE)));
+         }
+         assertEquals(content, referenceViterbi(lexicon, document), actual);
+      }
+   }
+
+   @Test
+   public void maxSpanSize() {
+      Annotation[] tokens = tokens("a b c d");
+      Map<String, Double> scores = Map.of("0:3", 10d, "0:2", 1d, "2:4", 1d);
+      assertEquals(List.of("0:3", "3:4"), decode(tokens, 0, scorer(scores)));
+      List<String> scored = new ArrayList<>();
+      SpanScorer scorer = scorer(scores);
+      assertEquals(List.of("0:2", "2:4"), decode(tokens, 2, (t, start, end) -> {
+         scored.add(start + ":" + end);
+         return scorer.score(t, start, end);
+      }));
+      assertFalse(scored.isEmpty());
+      for(String span : scored) {
+         String[] parts = span.split(":");
+         assertTrue(span, Integer.parseInt(parts[1]) - Integer.parseInt(parts[0]) <= 2);
+      }
+   }
+
+}//END OF ViterbiDecoderTest
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.similarity;
+
+import com.gengoai.apollo.math.statistics.measure.Similarity;
+import com.gengoai.config.Config;
+import com.gengoai.hermes.Annotation;
+import com.gengoai.hermes.Document;
+import com.gengoai.hermes.Types;
+import com.gengoai.hermes.annotator.DocumentProvider;
+import com.gengoai.hermes.extraction.TermExtractor;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author David B. Bracewell
+ */
+public class ExtractorBasedSimilarityTest {
+
+   private static void assertBatchMatchesPairwise(ExtractorBasedSimilarity similarity, List<Annotation> sentences) {
+      double[] scores = similarity.calculate(sentences.get(0), sentences);
+      double[][] matrix = similarity.similarityMatrix(sentences);
+      assertEquals(sentences.size(), scores.length);
+      assertEquals(1.0, scores[0], 1e-9);
+      for(int i = 0; i < sentences.size(); i++) {
+         assertEquals(similarity.calculate(sentences.get(0), sentences.get(i)), scores[i], 1e-9);
+         assertEquals(scores[i], matrix[0][i], 1e-9);
+         for(int j = 0; j < sentences.size(); j++) {
+            assertEquals(similarity.calculate(sentences.get(i), sentences.get(j)), matrix[i][j], 1e-9);
+            assertEquals(matrix[i][j], matrix[j][i], 0d);
+         }
+      }
+   }
+
+   @Test
+   public void batch() {
+      Config.initializeTest();
+      Document document = DocumentProvider.getAnnotatedDocument();
+      List<Annotation> sentences = document.sentences();
+      TermExtractor extractor = TermExtractor.builder().toLowerCase().build();
+      assertBatchMatchesPairwise(new ExtractorBasedSimilarity(Similarity.Cosine, extractor), sentences);
+      assertBatchMatchesPairwise(new ExtractorBasedSimilarity(Similarity.Jaccard, extractor), sentences);
+
+      //Terms repeated within a sentence give counts greater than one
+      Document repeated = Document.create("The rabbit saw the rabbit and the rabbit ran. " +
+                                          "The rabbit saw the fox. " +
+                                          "The fox saw the fox and the dog.");
+      repeated.annotate(Types.TOKEN, Types.SENTENCE);
+      assertBatchMatchesPairwise(new ExtractorBasedSimilarity(Similarity.Jaccard, extractor), repeated.sentences());
+   }
+
+}//END OF ExtractorBasedSimilarityTest
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.similarity;
+
+import com.gengoai.io.Resources;
+import com.gengoai.io.resource.Resource;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author David B. Bracewell
+ */
+public class HNSWIndexTest {
+   private static final int DIMENSION = 16;
+
+   private static float[] randomVector(Random random) {
+      float[] vector = new float[DIMENSION];
+      for(int i = 0; i < DIMENSION; i++) {
+         vector[i] = (float) random.nextGaussian();
+      }
+      return vector;
+   }
+
+   private static HNSWIndex randomIndex(Random random, int size) {
+      HNSWIndex index = new HNSWIndex(DIMENSION, 8, 64, 1234);
+      for(int i = 0; i < size; i++) {
+         index.add("v" + i, randomVector(random));
+      }
+      return index;
+   }
+
+   @Test
+   public void query() {
+      HNSWIndex index = randomIndex(new Random(1), 100);
+      assertEquals(100, index.size());
+      assertTrue(index.contains("v10"));
+      assertFalse(index.contains("v100"));
+      List<HNSWIndex.Neighbor> neighbors = index.query("v10", 5);
+      assertEquals(5, neighbors.size());
+      for(int i = 0; i < neighbors.size(); i++) {
+         assertNotEquals("v10", neighbors.get(i).getLabel());
+         if(i > 0) {
+            assertTrue(neighbors.get(i - 1).getSimilarity() >= neighbors.get(i).getSimilarity());
+         }
+      }
+      assertTrue(index.query("v100", 5).isEmpty());
+   }
+
+   @Test
+   public void recall() {
+      Random random = new Random(2);
+      HNSWIndex index = randomIndex(random, 2_000);
+      List<float[]> queries = new ArrayList<>();
+      for(int i = 0; i < 100; i++) {
+         queries.add(randomVector(random));
+      }
+      index.setEfSearch(64);
+      HNSWIndex.Evaluation evaluation = index.evaluate(queries, 10);
+      assertTrue("recall was " + evaluation.getRecall(), evaluation.getRecall() >= 0.9);
+      index.setEfSearch(2_000);
+      assertEquals(1.0, index.evaluate(queries, 10).getRecall(), 0d);
+   }
+
+   @Test
+   public void readWrite() throws Exception {
+      Random random = new Random(3);
+      HNSWIndex index = randomIndex(random, 500);
+      Resource resource = Resources.temporaryFile();
+      resource.deleteOnExit();
+      index.write(resource);
+      float[] query = randomVector(random);
+      for(boolean memoryMap : new boolean[]{true, false}) {
+         HNSWIndex copy = HNSWIndex.read(resource, memoryMap);
+         assertEquals(500, copy.size());
+         assertEquals(DIMENSION, copy.dimension());
+         assertEquals(index.query(query, 10), copy.query(query, 10));
+         assertEquals(index.query("v7", 10), copy.query("v7", 10));
+      }
+      //Map the vectors as several segments of seven vectors each
+      HNSWIndex segmented = HNSWIndex.read(resource, true, 7 * 4 * DIMENSION + 3);
+      assertEquals(index.query(query, 10), segmented.query(query, 10));
+      assertEquals(index.query("v499", 10), segmented.query("v499", 10));
+      Resource rewritten = Resources.temporaryFile();
+      rewritten.deleteOnExit();
+      segmented.write(rewritten);
+      assertEquals(index.query(query, 10), HNSWIndex.read(rewritten, false).query(query, 10));
+   }
+
+   @Test(expected = IllegalStateException.class)
+   public void memoryMappedIsReadOnly() throws Exception {
+      Random random = new Random(4);
+      Resource resource = Resources.temporaryFile();
+      resource.deleteOnExit();
+      randomIndex(random, 10).write(resource);
+      HNSWIndex.read(resource, true).add("v10", randomVector(random));
+   }
+
+}//END OF HNSWIndexTest
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.similarity;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author David B. Bracewell
+ */
+public class MinHashLSHTest {
+
+   private static long[] range(int from, int to) {
+      long[] elements = new long[to - from];
+      for(int i = from; i < to; i++) {
+         elements[i - from] = MinHashLSH.hash("element" + i);
+      }
+      return elements;
+   }
+
+   @Test
+   public void signatures() {
+      MinHashLSH lsh = new MinHashLSH(32, 4, 42);
+      assertEquals(Math.pow(1 / 32.0, 1 / 4.0), lsh.threshold(), 0d);
+
+      long[] a = lsh.signature(range(0, 1000), 1000);
+      long[] b = lsh.signature(range(200, 1200), 1000);
+      long[] c = lsh.signature(range(5000, 6000), 1000);
+      //Jaccard(a, b) = 800 / 1200
+      assertEquals(2 / 3.0, MinHashLSH.estimateJaccard(a, b), 0.15);
+      assertEquals(0, MinHashLSH.estimateJaccard(a, c), 0.05);
+
+      //Signatures do not depend on the instance or the order of the elements
+      long[] reversed = range(0, 1000);
+      for(int i = 0; i < reversed.length / 2; i++) {
+         long tmp = reversed[i];
+         reversed[i] = reversed[reversed.length - 1 - i];
+         reversed[reversed.length - 1 - i] = tmp;
+      }
+      assertArrayEquals(a, new MinHashLSH(32, 4, 42).signature(reversed, reversed.length));
+
+      long[] aKeys = lsh.bandKeys(a);
+      long[] bKeys = lsh.bandKeys(b);
+      long[] cKeys = lsh.bandKeys(c);
+      boolean abCandidate = false;
+      boolean acCandidate = false;
+      for(int band = 0; band < lsh.getBands(); band++) {
+         abCandidate |= aKeys[band] == bKeys[band];
+         acCandidate |= aKeys[band] == cKeys[band];
+      }
+      assertTrue(abCandidate);
+      assertFalse(acCandidate);
+   }
+
+   @Test
+   public void forThreshold() {
+      MinHashLSH lsh = MinHashLSH.forThreshold(0.8, 128, 42);
+      assertEquals(16, lsh.getBands());
+      assertEquals(8, lsh.getRows());
+      assertTrue(lsh.threshold() <= 0.72);
+      lsh = MinHashLSH.forThreshold(0.01, 128, 42);
+      assertEquals(128, lsh.getBands());
+      assertEquals(1, lsh.getRows());
+   }
+
+}//END OF MinHashLSHTest
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.gengoai.hermes.tools;
+
+import com.gengoai.application.Option;
+import com.gengoai.hermes.extraction.caduceus.CaduceusProgram;
+import com.gengoai.io.resource.Resource;
+
+/**
+ * Compiles Caduceus programs ahead of time so that they can be loaded without parsing and compiling their rules. By
+ * default the compiled program is written next to the source with the extension <code>.cgc</code>, where it is picked
+ * up by {@link CaduceusProgram#read(Resource)} as long as the source is unchanged.
+ */
+public class CaduceusCompiler extends HermesCLI {
+   private static final long serialVersionUID = 1L;
+   @Option(description = "The Caduceus program to compile", required = true, aliases = {"i"})
+   private Resource input;
+   @Option(description = "Where to write the compiled program", aliases = {"o"})
+   private Resource output;
+
+   public static void main(String[] args) throws Exception {
+      new CaduceusCompiler().run(args);
+   }
+
+   @Override
+   protected void programLogic() throws Exception {
+      Resource target = output == null
+                        ? CaduceusProgram.compiledLocation(input)
+                        : output;
+      if(target == null) {
+         throw new IllegalStateException("Unable to determine where to write the compiled program for " + input);
+      }
+      CaduceusProgram.compile(input, target);
+   }
+
+}//END OF CaduceusCompiler
@@ -27,6 +27,7 @@ import com.gengoai.hermes.Document;
 import com.gengoai.hermes.corpus.Corpus;
 import com.gengoai.hermes.corpus.DocumentCollection;
 import com.gengoai.hermes.corpus.SearchResults;
+import com.gengoai.hermes.extraction.CharNGramExtractor;
 import com.gengoai.hermes.format.DocFormatParameters;
 import com.gengoai.hermes.format.DocFormatProvider;
 import com.gengoai.hermes.format.DocFormatService;
@@ -37,6 +38,7 @@ import lombok.extern.java.Log;
 import java.io.IOException;
 import java.util.*;
 
+import static com.gengoai.LogUtils.logInfo;
 import static com.gengoai.LogUtils.logSevere;
 
 @Application.Description(
@@ -48,7 +50,7 @@ import static com.gengoai.LogUtils.logSevere;
             "INFO -  Displays the number of documents and completed AnnotatableType for the corpus.\n" +
             "QUERY - Queries the corpus with the given query returning the top 10 results.\n" +
             "GET - Gets the given document (or a random one if *rnd* is given) in Json format.\n" +
-            "IMPORT - Imports the documents from the input document collection into the corpus.\n" +
+            "IMPORT - Imports the documents from the input document collection into the corpus, optionally removing near-duplicates.\n" +
             "ANNOTATE - Annotates the corpus with the given annotatable types.\n" +
             "FORMATS - List the available document formats and their parameters.\n" +
             "SPLIT - Assigns a random split with the given % as TRAIN and the remaining as TEST\n" +
@@ -69,6 +71,9 @@ public class CorpusApp extends HermesCLI {
          defaultValue = "Annotation.TOKEN,Annotation.SENTENCE,Attribute.PART_OF_SPEECH,Attribute.LEMMA,Relation.DEPENDENCY,Annotation.PHRASE_CHUNK,Annotation.ENTITY,Attribute.CATEGORY",
          aliases = "t")
    private String[] types;
+   @Option(description = "Remove near-duplicate documents whose character 5-gram shingles have at least this Jaccard similarity when importing (0 to keep all documents).",
+         defaultValue = "0")
+   private double dedup;
 
    public static void main(String[] args) throws Exception {
       new CorpusApp().run(args);
@@ -188,6 +193,10 @@ public class CorpusApp extends HermesCLI {
       try(DocumentCollection input = getDocumentCollection()) {
          try(Corpus writeTo = getCorpus()) {
             writeTo.addAll(getDocumentCollection());
+            if(dedup > 0) {
+               long removed = writeTo.removeNearDuplicates(dedup, new CharNGramExtractor(5));
+               logInfo(log, "Removed {0} near-duplicate documents", removed);
+            }
          }
       }
    }
@@ -24,6 +24,7 @@ import com.gengoai.apollo.ml.model.embedding.VSQuery;
 import com.gengoai.apollo.ml.model.embedding.WordEmbedding;
 import com.gengoai.application.Option;
 import com.gengoai.conversion.Cast;
+import com.gengoai.hermes.similarity.HNSWIndex;
 import com.gengoai.io.resource.Resource;
 
 import java.io.Console;
@@ -37,6 +38,9 @@ public class EmbeddingApp extends HermesCLI {
 
    @Option(description = "The embedding model to query.", required = true)
    private Resource model;
+   @Option(description = "An HNSW index of the embedding model used to answer queries approximately, " +
+         "which is built and written when it does not exist and must have been built from the model when it does.")
+   private Resource index;
 
    /**
     * The entry point of application.
@@ -55,6 +59,25 @@ public class EmbeddingApp extends HermesCLI {
    @Override
    protected void programLogic() throws Exception {
       WordEmbedding embedding = Cast.as(ModelIO.load(model));
+      HNSWIndex hnsw = null;
+      if(index != null) {
+         if(index.exists()) {
+            hnsw = HNSWIndex.read(index, true);
+            //Fail rather than silently answer queries from an index built over a different model
+            if(hnsw.dimension() != embedding.dimension()
+                  || hnsw.size() != embedding.getAlphabet().size()
+                  || !embedding.getAlphabet().stream().limit(100).allMatch(hnsw::contains)) {
+               throw new IllegalStateException("The index " + index.descriptor() + " (" + hnsw.size() +
+                                                     " vectors of dimension " + hnsw.dimension() +
+                                                     ") was not built from the model " + model.descriptor() +
+                                                     " (" + embedding.getAlphabet().size() +
+                                                     " vectors of dimension " + embedding.dimension() + ")");
+            }
+         } else {
+            hnsw = HNSWIndex.build(embedding, 16, 200);
+            hnsw.write(index);
+         }
+      }
 
       Console console = System.console();
       String line;
@@ -68,8 +91,13 @@ public class EmbeddingApp extends HermesCLI {
                      .filter(term -> term.startsWith(search))
                      .forEach(term -> System.out.println("  " + term));
          } else if(embedding.contains(line)) {
-            embedding.query(VSQuery.termQuery(line.toLowerCase()).limit(10)).forEach(
-                  slv -> System.out.println("  " + slv.getLabel() + " : " + slv.getWeight()));
+            if(hnsw != null) {
+               hnsw.query(line.toLowerCase(), 10).forEach(
+                     n -> System.out.println("  " + n.getLabel() + " : " + n.getSimilarity()));
+            } else {
+               embedding.query(VSQuery.termQuery(line.toLowerCase()).limit(10)).forEach(
+                     slv -> System.out.println("  " + slv.getLabel() + " : " + slv.getWeight()));
+            }
             System.out.println();
          } else {
             System.out.println("!! " + line + " is not in the dictionary");